@@ -3,6 +3,8 @@ plugins {
     groovy
     // To optionally create a shadow/fat jar that bundle up any non-core dependencies
     id("com.gradleup.shadow") version "8.3.5"
+    // Microbenchmarks under src/jmh (run with ./gradlew jmh)
+    id("me.champeau.jmh") version "0.7.2"
     // QuPath Gradle extension convention plugin
     id("qupath-conventions")
 }
@@ -59,6 +61,11 @@ dependencies {
     testImplementation("org.openjfx:javafx-controls:$javafxVersion")
     testImplementation("org.mockito:mockito-core:5.2.0")
     testImplementation("org.mockito:mockito-junit-jupiter:5.2.0")
+
+    // For benchmarks (shadow dependencies are not on the jmh classpath)
+    jmh(libs.snakeyaml)
+    jmh(libs.gson)
+    jmh(libs.bundles.logging)
 }
 
 //TODO remove before release
@@ -0,0 +1,104 @@
+package qupath.ext.qpsc.utilities;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup cost of {@link MicroscopeConfigManager} before and after the compiled {@link ConfigIndex}.
+ *
+ * <p>The {@code walk*} benchmarks use the map walk that every lookup used previously; the
+ * {@code indexed*} benchmarks use the public getters, which answer from the index. Run with
+ * {@code ./gradlew jmh}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MicroscopeConfigLookupBenchmark {
+
+    private static final String CONFIG = """
+            microscope:
+              name: 'Benchmark'
+            modalities:
+              ppm:
+                type: 'polarized'
+                objective: 'LOCI-OBJECTIVE-BENCH-20X-001'
+                exposure_ms: '12.5'
+            hardware:
+              objectives:
+                - id: 'LOCI_OBJECTIVE_BENCH_10X_001'
+                  pixel_size_xy_um:
+                    LOCI_DETECTOR_BENCH_001: 1.0
+                - id: 'LOCI_OBJECTIVE_BENCH_20X_001'
+                  pixel_size_xy_um:
+                    LOCI_DETECTOR_BENCH_001: 0.5
+            """;
+
+    private static final String RESOURCES = """
+            id_detector:
+              LOCI_DETECTOR_BENCH_001:
+                name: 'Benchmark camera'
+            id_objective_lens:
+              LOCI_OBJECTIVE_BENCH_20X_001:
+                name: 'Benchmark 20x'
+                magnification: 20
+            """;
+
+    private MicroscopeConfigManager manager;
+
+    @Setup
+    public void setup() throws IOException {
+        Path dir = Files.createTempDirectory("qpsc-config-bench");
+        Files.createDirectories(dir.resolve("resources"));
+        Files.writeString(dir.resolve("resources").resolve("resources_LOCI.yml"), RESOURCES);
+        Path config = dir.resolve("config_Benchmark.yml");
+        Files.writeString(config, CONFIG);
+        manager = MicroscopeConfigManager.getInstance(config.toString());
+        manager.reload(config.toString());
+    }
+
+    @Benchmark
+    public Object walkDirect() {
+        return manager.resolveUncached("modalities", "ppm", "type");
+    }
+
+    @Benchmark
+    public Object indexedDirect() {
+        return manager.getConfigItem("modalities", "ppm", "type");
+    }
+
+    @Benchmark
+    public Object walkLociReference() {
+        return manager.resolveUncached("modalities", "ppm", "objective", "magnification");
+    }
+
+    @Benchmark
+    public Object indexedLociReference() {
+        return manager.getConfigItem("modalities", "ppm", "objective", "magnification");
+    }
+
+    @Benchmark
+    public Double indexedDouble() {
+        return manager.getDouble("modalities", "ppm", "exposure_ms");
+    }
+
+    @Benchmark
+    public Double indexedHardwarePixelSize() {
+        return manager.getHardwarePixelSize("LOCI_OBJECTIVE_BENCH_20X_001", "LOCI_DETECTOR_BENCH_001");
+    }
+}
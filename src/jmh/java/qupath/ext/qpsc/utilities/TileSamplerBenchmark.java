@@ -0,0 +1,68 @@
+package qupath.ext.qpsc.utilities;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of sampling a typical 2048 x 2048 16-bit tile with {@link TileSampler} compared with a
+ * full {@link ImageIO#read}. The file stays in the OS cache, as a just-acquired tile would.
+ * Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TileSamplerBenchmark {
+
+    private static final int TILE_SIZE = 2048;
+
+    @Param({"16", "128"})
+    public int maxSize;
+
+    private Path tile;
+
+    @Setup
+    public void setup() throws IOException {
+        BufferedImage image = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_USHORT_GRAY);
+        WritableRaster raster = image.getRaster();
+        Random random = new Random(42);
+        for (int y = 0; y < TILE_SIZE; y++) {
+            for (int x = 0; x < TILE_SIZE; x++) {
+                raster.setSample(x, y, 0, 20000 + random.nextInt(4096));
+            }
+        }
+        tile = Files.createTempFile("qpsc-tile-bench", ".tif");
+        tile.toFile().deleteOnExit();
+        ImageIO.write(image, "tiff", tile.toFile());
+    }
+
+    @Benchmark
+    public Object imageIORead() throws IOException {
+        return ImageIO.read(tile.toFile());
+    }
+
+    @Benchmark
+    public Object tileSampler() throws IOException {
+        return TileSampler.sample(tile, maxSize);
+    }
+}
@@ -12,6 +12,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import qupath.ext.qpsc.controller.QPScopeController;
 import qupath.ext.qpsc.preferences.QPPreferenceDialog;
+import qupath.ext.qpsc.utilities.ImageServerCache;
 import qupath.ext.qpsc.utilities.MacroImageUtility;
 import qupath.fx.dialogs.Dialogs;
 import qupath.lib.common.Version;
@@ -23,6 +24,7 @@ import java.io.IOException;
 import java.util.Set;
 import java.util.ResourceBundle;
 import qupath.ext.qpsc.utilities.MicroscopeConfigManager;
+import qupath.ext.qpsc.ui.TelemetryDialog;
 import qupath.ext.qpsc.ui.stagemap.StageMapWindow;
 
 /**
@@ -78,7 +80,10 @@ public class SetupScope implements QuPathExtension, GitHubProject {
 
 		// 1) Register all our persistent preferences
 		QPPreferenceDialog.installPreferences(qupath);
-		MicroscopeConfigManager.getInstance(QPPreferenceDialog.getMicroscopeConfigFileProperty());
+		MicroscopeConfigManager configManager =
+				MicroscopeConfigManager.getInstance(QPPreferenceDialog.getMicroscopeConfigFileProperty());
+		// Pick up edits to the YAML files without restarting QuPath
+		configManager.startWatching();
 
 		// 2) Validate microscope YAML up-front via QPScopeChecks
 		configValid = QPScopeChecks.validateMicroscopeConfig();
@@ -94,6 +99,13 @@ public class SetupScope implements QuPathExtension, GitHubProject {
 			);
 		}
 
+		// Stitched images kept open for reuse belong to the project they were opened for
+		qupath.projectProperty().addListener((obs, oldProject, newProject) -> {
+			if (oldProject != null) {
+				ImageServerCache.getInstance().clear();
+			}
+		});
+
 		// 3) Build our menu on the FX thread
 		Platform.runLater(() -> addMenuItem(qupath));
 	}
@@ -310,6 +322,14 @@ public class SetupScope implements QuPathExtension, GitHubProject {
 			}
 		});
 
+		// Acquisition telemetry (per-phase latency table)
+		MenuItem telemetryOption = new MenuItem(res.getString("menu.telemetry"));
+		setMenuItemTooltip(telemetryOption,
+				"Show where time is spent during acquisitions: p50/p95/max latency for each workflow phase " +
+				"(stitching, project import, cleanup, server time per image) and each microscope command, " +
+				"plus reconnect and timeout counts. A timing report is also saved to the project folder after each run.");
+		telemetryOption.setOnAction(e -> TelemetryDialog.show());
+
 		// Add items to utilities submenu
 		utilitiesMenu.getItems().addAll(
 				alignmentOption,
@@ -322,7 +342,8 @@ public class SetupScope implements QuPathExtension, GitHubProject {
 				autofocusEditorOption,
 				autofocusBenchmarkOption,
 				new SeparatorMenuItem(),
-				serverConnectionOption
+				serverConnectionOption,
+				telemetryOption
 		);
 
 		// === BUILD FINAL MENU ===
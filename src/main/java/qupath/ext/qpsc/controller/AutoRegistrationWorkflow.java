@@ -1,283 +1,409 @@
-//package qupath.ext.qpsc.controller;
-//
-//import javafx.application.Platform;
-//import org.slf4j.Logger;
-//import org.slf4j.LoggerFactory;
-//import qupath.ext.qpsc.preferences.QPPreferenceDialog;
-//import qupath.ext.qpsc.ui.UIFunctions;
-//import qupath.ext.qpsc.utilities.*;
-//import qupath.ext.qpsc.utilities.MacroImageUtility;
-//
-//import qupath.lib.gui.QuPathGUI;
-//import qupath.lib.objects.PathObject;
-//import qupath.lib.objects.PathObjects;
-//import qupath.lib.regions.ImagePlane;
-//import qupath.lib.roi.ROIs;
-//import qupath.lib.roi.interfaces.ROI;
-//
-//import java.awt.geom.AffineTransform;
-//import java.awt.geom.Point2D;
-//import java.awt.image.BufferedImage;
-//import java.util.ArrayList;
-//import java.util.List;
-//import java.util.Map;
-//
-///**
-// * Workflow for automatic registration of new slides using green box detection
-// * and pre-saved microscope transforms.
-// *
-// * This eliminates the need for manual registration on each slide by:
-// * 1. Detecting the green box in the macro image
-// * 2. Applying the saved microscope transform
-// * 3. Creating properly positioned tissue annotations
-// *
-// * @since 0.3.1
-// */
-//public class AutoRegistrationWorkflow {
-//    private static final Logger logger = LoggerFactory.getLogger(AutoRegistrationWorkflow.class);
-//
-//    /**
-//     * Configuration for auto-registration.
-//     */
-//    public record AutoRegistrationConfig(
-//            AffineTransformManager.TransformPreset microscopeTransform,
-//            GreenBoxDetector.DetectionParams greenBoxParams,
-//            MacroImageAnalyzer.ThresholdMethod tissueMethod,
-//            Map<String, Object> tissueParams,
-//            boolean createSingleBounds,
-//            double confidenceThreshold
-//    ) {}
-//
-//    /**
-//     * Result of auto-registration.
-//     */
-//    public record RegistrationResult(
-//            AffineTransform compositeTransform,
-//            List<PathObject> tissueAnnotations,
-//            double confidence,
-//            String message
-//    ) {}
-//
-//    /**
-//     * Performs automatic registration for the current image.
-//     * This should be called from the Existing Image workflow when auto-registration is enabled.
-//     *
-//     * @param gui QuPath GUI instance
-//     * @param config Auto-registration configuration
-//     * @return Registration result, or null if failed
-//     */
-//    public static RegistrationResult performAutoRegistration(QuPathGUI gui, AutoRegistrationConfig config) {
-//        logger.info("Starting auto-registration for current image");
-//
-//        try {
-//            // 1. Get the macro image
-//            BufferedImage macroImage = MacroImageUtility.retrieveMacroImage(gui);
-//            if (macroImage == null) {
-//                return new RegistrationResult(null, null, 0.0,
-//                        "No macro image found - manual registration required");
-//            }
-//
-//            // 2. Detect green box
-//            var greenBoxResult = GreenBoxDetector.detectGreenBox(macroImage, config.greenBoxParams());
-//            if (greenBoxResult == null || greenBoxResult.getConfidence() < config.confidenceThreshold()) {
-//                return new RegistrationResult(null, null, 0.0,
-//                        "Green box detection failed or low confidence - manual registration required");
-//            }
-//
-//            logger.info("Green box detected with confidence {}", greenBoxResult.getConfidence());
-//
-//            // 3. Calculate the green box to main image transform
-//            int mainWidth = gui.getImageData().getServer().getWidth();
-//            int mainHeight = gui.getImageData().getServer().getHeight();
-//            double mainPixelSize = gui.getImageData().getServer()
-//                    .getPixelCalibration().getAveragedPixelSizeMicrons();
-//
-//            AffineTransform greenBoxToMain = GreenBoxDetector.calculateInitialTransform(
-//                    greenBoxResult.getDetectedBox(),
-//                    mainWidth,
-//                    mainHeight,
-//                    DEFAULT_MACRO_PIXEL_SIZE,
-//                    mainPixelSize
-//            );
-//
-//            // 4. Get the saved microscope transform (macro to stage)
-//            AffineTransform macroToStage = config.microscopeTransform().getTransform();
-//
-//            // 5. Compose transforms: greenBox->main combined with macro->stage
-//            // This gives us the transform from the current image position to stage coordinates
-//            AffineTransform compositeTransform = new AffineTransform(macroToStage);
-//            compositeTransform.concatenate(greenBoxToMain);
-//
-//            logger.info("Composite transform created: {}", compositeTransform);
-//
-//            // 6. Analyze tissue in macro image
-//            var tissueAnalysis = MacroImageAnalyzer.analyzeMacroImage(
-//                    gui.getImageData(),
-//                    config.tissueMethod(),
-//                    config.tissueParams()
-//            );
-//
-//            if (tissueAnalysis == null || tissueAnalysis.getTissueRegions().isEmpty()) {
-//                // Still successful but no tissue found
-//                return new RegistrationResult(compositeTransform, new ArrayList<>(),
-//                        greenBoxResult.getConfidence(), "Registration successful but no tissue detected");
-//            }
-//
-//            // 7. Transform tissue regions from macro coordinates to main image coordinates
-//            List<PathObject> annotations = createTransformedAnnotations(
-//                    tissueAnalysis,
-//                    greenBoxToMain,
-//                    config.createSingleBounds(),
-//                    gui
-//            );
-//
-//            // 8. Add annotations to the image
-//            var hierarchy = gui.getViewer().getHierarchy();
-//            for (PathObject annotation : annotations) {
-//                hierarchy.addObject(annotation);
-//            }
-//            gui.getViewer().repaint();
-//
-//            logger.info("Auto-registration successful: {} tissue annotations created", annotations.size());
-//
-//            return new RegistrationResult(
-//                    compositeTransform,
-//                    annotations,
-//                    greenBoxResult.getConfidence(),
-//                    String.format("Auto-registration successful (confidence %.2f)", greenBoxResult.getConfidence())
-//            );
-//
-//        } catch (Exception e) {
-//            logger.error("Auto-registration failed", e);
-//            return new RegistrationResult(null, null, 0.0,
-//                    "Auto-registration error: " + e.getMessage());
-//        }
-//    }
-//
-//    /**
-//     * Creates tissue annotations transformed to main image coordinates.
-//     */
-//    private static List<PathObject> createTransformedAnnotations(
-//            MacroImageAnalyzer.MacroAnalysisResult analysis,
-//            AffineTransform macroToMain,
-//            boolean createSingleBounds,
-//            QuPathGUI gui) {
-//
-//        List<PathObject> annotations = new ArrayList<>();
-//
-//        if (createSingleBounds) {
-//            // Transform the overall tissue bounds
-//            ROI transformedBounds = transformROI(analysis.getTissueBounds(), macroToMain);
-//            if (transformedBounds != null && isValidROI(transformedBounds, gui)) {
-//                PathObject annotation = PathObjects.createAnnotationObject(transformedBounds);
-//                annotation.setName("Tissue Region (auto-detected)");
-//                annotation.setClassification("Tissue");
-//                annotations.add(annotation);
-//            }
-//        } else {
-//            // Transform individual tissue regions
-//            int count = 0;
-//            for (ROI macroROI : analysis.getTissueRegions()) {
-//                ROI transformedROI = transformROI(macroROI, macroToMain);
-//                if (transformedROI != null && isValidROI(transformedROI, gui)) {
-//                    PathObject annotation = PathObjects.createAnnotationObject(transformedROI);
-//                    annotation.setName("Tissue Region " + (++count) + " (auto-detected)");
-//                    annotation.setClassification("Tissue");
-//                    annotations.add(annotation);
-//                }
-//            }
-//        }
-//
-//        return annotations;
-//    }
-//
-//    /**
-//     * Transforms a ROI using the given affine transform.
-//     */
-//    private static ROI transformROI(ROI roi, AffineTransform transform) {
-//        try {
-//            // Transform the bounding box corners
-//            double x = roi.getBoundsX();
-//            double y = roi.getBoundsY();
-//            double w = roi.getBoundsWidth();
-//            double h = roi.getBoundsHeight();
-//
-//            Point2D.Double topLeft = new Point2D.Double(x, y);
-//            Point2D.Double bottomRight = new Point2D.Double(x + w, y + h);
-//
-//            transform.transform(topLeft, topLeft);
-//            transform.transform(bottomRight, bottomRight);
-//
-//            // Create transformed rectangle
-//            double newX = Math.min(topLeft.x, bottomRight.x);
-//            double newY = Math.min(topLeft.y, bottomRight.y);
-//            double newW = Math.abs(bottomRight.x - topLeft.x);
-//            double newH = Math.abs(bottomRight.y - topLeft.y);
-//
-//            return ROIs.createRectangleROI(newX, newY, newW, newH, ImagePlane.getDefaultPlane());
-//
-//        } catch (Exception e) {
-//            logger.error("Error transforming ROI", e);
-//            return null;
-//        }
-//    }
-//
-//    /**
-//     * Validates that a ROI is within reasonable bounds.
-//     */
-//    private static boolean isValidROI(ROI roi, QuPathGUI gui) {
-//        if (roi == null) return false;
-//
-//        int imageWidth = gui.getImageData().getServer().getWidth();
-//        int imageHeight = gui.getImageData().getServer().getHeight();
-//
-//        // Check if ROI is at least partially within image bounds
-//        boolean intersectsImage = roi.getBoundsX() < imageWidth &&
-//                roi.getBoundsY() < imageHeight &&
-//                roi.getBoundsX() + roi.getBoundsWidth() > 0 &&
-//                roi.getBoundsY() + roi.getBoundsHeight() > 0;
-//
-//        // Check minimum size (at least 100x100 pixels)
-//        boolean hasMinSize = roi.getBoundsWidth() > 100 && roi.getBoundsHeight() > 100;
-//
-//        return intersectsImage && hasMinSize;
-//    }
-//
-//
-//    /**
-//     * Shows a dialog for configuring auto-registration settings.
-//     */
-//    public static AutoRegistrationConfig showConfigDialog(
-//            AffineTransformManager transformManager,
-//            String currentMicroscope) {
-//
-//        // This would show a simplified dialog for:
-//        // 1. Selecting which saved transform to use
-//        // 2. Green box detection parameters (or use defaults)
-//        // 3. Tissue detection parameters (or use defaults)
-//        // 4. Confidence threshold for accepting auto-registration
-//
-//        // For now, return default config
-//        var transforms = transformManager.getTransformsForMicroscope(currentMicroscope);
-//        if (transforms.isEmpty()) {
-//            return null;
-//        }
-//
-//        GreenBoxDetector.DetectionParams greenParams = new GreenBoxDetector.DetectionParams();
-//
-//        Map<String, Object> tissueParams = Map.of(
-//                "brightnessMin", 0.2,
-//                "brightnessMax", 0.95,
-//                "minRegionSize", 1000
-//        );
-//
-//        return new AutoRegistrationConfig(
-//                transforms.get(0), // Use first available transform
-//                greenParams,
-//                MacroImageAnalyzer.ThresholdMethod.COLOR_DECONVOLUTION,
-//                tissueParams,
-//                true, // Single bounds
-//                0.7  // Confidence threshold
-//        );
-//    }
-//}
\ No newline at end of file
+package qupath.ext.qpsc.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qupath.ext.qpsc.service.AcquisitionCommandBuilder;
+import qupath.ext.qpsc.service.microscope.MicroscopeSocketClient;
+import qupath.ext.qpsc.utilities.AffineTransformManager;
+import qupath.ext.qpsc.utilities.ImageRegistration;
+import qupath.ext.qpsc.utilities.ImageRegistration.AffineFit;
+import qupath.ext.qpsc.utilities.ImageRegistration.GrayImage;
+import qupath.ext.qpsc.utilities.ImageRegistration.PointMatch;
+import qupath.ext.qpsc.utilities.TransformationFunctions;
+
+import javax.imageio.ImageIO;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Workflow for automatic macro-to-stage registration of new slides.
+ *
+ * <p>Replaces green box detection plus manual single-tile refinement with an image-based fit:</p>
+ * <ol>
+ *   <li>Pick well-separated, textured patches of the macro image</li>
+ *   <li>Predict their stage positions with an approximate transform (e.g. the saved preset for the scanner)</li>
+ *   <li>Acquire a low-magnification snapshot at each position (via the socket, or from a folder)</li>
+ *   <li>Resample each snapshot to macro pixel size and locate it in the macro image with
+ *       coarse-to-fine phase correlation</li>
+ *   <li>Fit the macro-to-stage affine by least squares with outlier rejection</li>
+ *   <li>Save the result as a {@link AffineTransformManager.TransformPreset}</li>
+ * </ol>
+ *
+ * <p>Snapshot pixel axes are assumed to follow the stage axes (as they do for stitching); snapshots
+ * are mirrored to the macro orientation using the signs of the initial transform.</p>
+ *
+ * <p>{@link MicroscopeAlignmentWorkflow} offers this refinement after saving a green box transform.</p>
+ *
+ * @since 0.3.1
+ */
+public class AutoRegistrationWorkflow {
+    private static final Logger logger = LoggerFactory.getLogger(AutoRegistrationWorkflow.class);
+
+    /** Patches flatter than this (grey levels, 0-255) are bare glass and cannot be registered */
+    private static final double MIN_PATCH_STDDEV = 4.0;
+
+    /** Smallest snapshot footprint in macro pixels that still carries enough structure */
+    private static final int MIN_FOOTPRINT_PIXELS = 8;
+
+    /** Poll interval and timeout for socket snapshot acquisition */
+    private static final long SNAPSHOT_POLL_MS = 500;
+    private static final long SNAPSHOT_TIMEOUT_MS = 5 * 60 * 1000;
+
+    /** Matches lines such as {@code 0.tif; ; (1234.500, -567.250)} */
+    private static final Pattern TILE_LINE = Pattern.compile("(\\S+\\.tiff?); ; \\((.*?), (.*?)\\)");
+
+    /**
+     * Configuration for auto-registration.
+     *
+     * @param initialPreset Approximate macro-to-stage transform used to plan snapshot positions
+     * @param macroPixelSize Macro image pixel size in micrometers
+     * @param fovWidthUm Snapshot field of view width in micrometers (see {@link MicroscopeController#getCameraFOV()})
+     * @param fovHeightUm Snapshot field of view height in micrometers
+     * @param macroRegion Region of the macro image to sample (e.g. the slide area excluding the label), or null for all
+     * @param snapshotCount Number of snapshots to acquire (at least 3; more allows outlier rejection)
+     * @param searchRadiusUm Maximum expected error of the initial transform, in micrometers
+     * @param minConfidence Minimum phase correlation confidence for a snapshot to be used
+     * @param maxResidualUm Matches with larger residuals are rejected; the fit fails if the RMS exceeds it
+     * @param presetName Name for the saved preset, or null to derive one from the initial preset
+     */
+    public record AutoRegistrationConfig(
+            AffineTransformManager.TransformPreset initialPreset,
+            double macroPixelSize,
+            double fovWidthUm,
+            double fovHeightUm,
+            Rectangle macroRegion,
+            int snapshotCount,
+            double searchRadiusUm,
+            double minConfidence,
+            double maxResidualUm,
+            String presetName
+    ) {
+        /**
+         * Creates a configuration with defaults suited to a 4x-10x snapshot against a typical macro image:
+         * six snapshots, a 1 mm search radius and a residual limit of 1.5 macro pixels.
+         */
+        public static AutoRegistrationConfig withDefaults(AffineTransformManager.TransformPreset initialPreset,
+                                                          double macroPixelSize,
+                                                          double fovWidthUm,
+                                                          double fovHeightUm) {
+            return new AutoRegistrationConfig(initialPreset, macroPixelSize, fovWidthUm, fovHeightUm,
+                    null, 6, 1000.0, 3.0, 1.5 * macroPixelSize, null);
+        }
+    }
+
+    /**
+     * A snapshot acquired at a known stage position.
+     *
+     * @param image Snapshot image
+     * @param stageX Stage X of the image centre in micrometers
+     * @param stageY Stage Y of the image centre in micrometers
+     */
+    public record Snapshot(BufferedImage image, double stageX, double stageY) {}
+
+    /**
+     * Provides snapshots for requested stage positions.
+     */
+    @FunctionalInterface
+    public interface SnapshotSource {
+        /**
+         * @param stagePositions Requested image centres in stage micrometers
+         * @return Acquired snapshots; sources may return fewer or different positions
+         * @throws IOException if acquisition or reading fails
+         */
+        List<Snapshot> acquire(List<Point2D> stagePositions) throws IOException;
+    }
+
+    /**
+     * Result of auto-registration.
+     *
+     * @param preset Saved preset, or null if registration failed
+     * @param fit Affine fit details, or null if no fit was possible
+     * @param snapshotsMatched Number of snapshots located above the confidence threshold
+     * @param message Summary for the user
+     */
+    public record RegistrationResult(
+            AffineTransformManager.TransformPreset preset,
+            AffineFit fit,
+            int snapshotsMatched,
+            String message
+    ) {
+        public boolean isSuccess() {
+            return preset != null;
+        }
+    }
+
+    /**
+     * Performs automatic registration and saves the resulting transform preset.
+     *
+     * @param macroImage Macro image, in the same orientation as used by the initial preset
+     * @param config Registration configuration
+     * @param source Snapshot source
+     * @param transformManager Manager the new preset is saved to
+     * @return Registration result; check {@link RegistrationResult#isSuccess()}
+     */
+    public static RegistrationResult performAutoRegistration(
+            BufferedImage macroImage,
+            AutoRegistrationConfig config,
+            SnapshotSource source,
+            AffineTransformManager transformManager) {
+
+        logger.info("Starting auto-registration from preset '{}'", config.initialPreset().getName());
+
+        try {
+            AffineTransform initial = config.initialPreset().getTransform();
+            AffineTransform stageToMacro = initial.createInverse();
+            GrayImage macro = GrayImage.fromBufferedImage(macroImage);
+
+            // 1. Plan snapshot positions on textured parts of the macro image
+            int footprintW = (int) Math.round(config.fovWidthUm() / config.macroPixelSize());
+            int footprintH = (int) Math.round(config.fovHeightUm() / config.macroPixelSize());
+            if (footprintW < MIN_FOOTPRINT_PIXELS || footprintH < MIN_FOOTPRINT_PIXELS) {
+                return failure(null, 0, String.format(
+                        "Snapshot field of view covers only %dx%d macro pixels - use a lower magnification",
+                        footprintW, footprintH));
+            }
+
+            Rectangle region = config.macroRegion() != null
+                    ? config.macroRegion().intersection(new Rectangle(macro.width(), macro.height()))
+                    : new Rectangle(macro.width(), macro.height());
+            GrayImage regionImage = macro.crop(region.x, region.y, region.width, region.height);
+            List<int[]> patches = ImageRegistration.selectTexturedPatches(
+                    regionImage, footprintW, footprintH, config.snapshotCount(), MIN_PATCH_STDDEV);
+            if (patches.size() < 3) {
+                return failure(null, 0, "Not enough textured regions in the macro image for registration");
+            }
+
+            List<Point2D> stagePositions = new ArrayList<>();
+            for (int[] patch : patches) {
+                Point2D centre = new Point2D.Double(
+                        region.x + patch[0] + footprintW / 2.0,
+                        region.y + patch[1] + footprintH / 2.0);
+                stagePositions.add(initial.transform(centre, null));
+            }
+            logger.info("Planned {} snapshot positions: {}", stagePositions.size(), stagePositions);
+
+            // 2. Acquire
+            List<Snapshot> snapshots = source.acquire(stagePositions);
+            logger.info("Received {} snapshots", snapshots.size());
+
+            // 3. Locate each snapshot in the macro image
+            boolean flipX = initial.getScaleX() < 0;
+            boolean flipY = initial.getScaleY() < 0;
+            int searchRadius = (int) Math.ceil(config.searchRadiusUm() / config.macroPixelSize());
+            List<PointMatch> matches = new ArrayList<>();
+            for (Snapshot snapshot : snapshots) {
+                PointMatch match = locateSnapshot(macro, snapshot, stageToMacro, config, searchRadius, flipX, flipY);
+                if (match != null) {
+                    matches.add(match);
+                }
+            }
+            if (matches.size() < 3) {
+                return failure(null, matches.size(), String.format(
+                        "Only %d of %d snapshots could be located in the macro image", matches.size(), snapshots.size()));
+            }
+
+            // 4. Fit macro -> stage
+            AffineFit fit = ImageRegistration.fitAffine(matches, config.maxResidualUm());
+            if (fit == null) {
+                return failure(null, matches.size(), "Snapshot positions are degenerate (collinear) - cannot fit transform");
+            }
+            logger.info("Affine fit: {} inliers, {} outliers, RMS residual {} µm, max {} µm",
+                    fit.inliers().size(), fit.outliers().size(),
+                    String.format("%.1f", fit.rmsResidual()), String.format("%.1f", fit.maxResidual()));
+            TransformationFunctions.logTransformDetails("Auto-registered Macro→Stage", fit.transform());
+
+            if (fit.inliers().size() < 3 || fit.rmsResidual() > config.maxResidualUm()) {
+                return failure(fit, matches.size(), String.format(
+                        "Registration residual too large (%.1f µm RMS) - manual registration required", fit.rmsResidual()));
+            }
+
+            double fittedPixelSize = Math.sqrt(Math.abs(fit.transform().getDeterminant()));
+            if (Math.abs(fittedPixelSize - config.macroPixelSize()) > 0.2 * config.macroPixelSize()) {
+                logger.warn("Fitted macro pixel size {} µm differs from expected {} µm",
+                        fittedPixelSize, config.macroPixelSize());
+            }
+
+            // 5. Save as a preset
+            AffineTransformManager.TransformPreset initialPreset = config.initialPreset();
+            String name = config.presetName();
+            if (name == null || name.isBlank()) {
+                name = String.format("%s_auto_%s", initialPreset.getName(),
+                        new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date()));
+            }
+            String notes = String.format(
+                    "Auto-registered from %s: %d/%d snapshots used, RMS residual %.1f µm",
+                    initialPreset.getName(), fit.inliers().size(), snapshots.size(), fit.rmsResidual());
+            AffineTransformManager.TransformPreset preset = new AffineTransformManager.TransformPreset(
+                    name,
+                    initialPreset.getMicroscope(),
+                    initialPreset.getMountingMethod(),
+                    fit.transform(),
+                    notes,
+                    initialPreset.getGreenBoxParams());
+            transformManager.savePreset(preset);
+            logger.info("Saved auto-registered transform: {}", name);
+
+            return new RegistrationResult(preset, fit, matches.size(), String.format(
+                    "Auto-registration successful (%d snapshots, %.1f µm RMS)", fit.inliers().size(), fit.rmsResidual()));
+
+        } catch (NoninvertibleTransformException e) {
+            logger.error("Initial transform is not invertible", e);
+            return failure(null, 0, "Initial transform is not invertible");
+        } catch (Exception e) {
+            logger.error("Auto-registration failed", e);
+            return failure(null, 0, "Auto-registration error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Locates one snapshot in the macro image.
+     *
+     * @return Match from the snapshot centre in macro pixels to its stage position, or null if the
+     *         snapshot is featureless or the correlation peak is not confident enough
+     */
+    private static PointMatch locateSnapshot(GrayImage macro, Snapshot snapshot, AffineTransform stageToMacro,
+                                             AutoRegistrationConfig config, int searchRadius,
+                                             boolean flipX, boolean flipY) {
+        BufferedImage image = snapshot.image();
+        double snapshotPixelSize = config.fovWidthUm() / image.getWidth();
+        GrayImage template = GrayImage.fromBufferedImage(image)
+                .flip(flipX, flipY)
+                .downsample(config.macroPixelSize() / snapshotPixelSize);
+
+        if (template.stdDev() < MIN_PATCH_STDDEV) {
+            logger.info("Snapshot at ({}, {}) is featureless, skipping", snapshot.stageX(), snapshot.stageY());
+            return null;
+        }
+
+        Point2D predicted = stageToMacro.transform(new Point2D.Double(snapshot.stageX(), snapshot.stageY()), null);
+        ImageRegistration.Match match = ImageRegistration.locate(macro, template,
+                predicted.getX() - template.width() / 2.0,
+                predicted.getY() - template.height() / 2.0,
+                searchRadius);
+        if (match == null || match.confidence() < config.minConfidence()) {
+            logger.info("Snapshot at ({}, {}) not located confidently ({})",
+                    snapshot.stageX(), snapshot.stageY(), match == null ? "no match" : match.confidence());
+            return null;
+        }
+
+        double centreX = match.x() + template.width() / 2.0;
+        double centreY = match.y() + template.height() / 2.0;
+        logger.info("Snapshot at stage ({}, {}) found at macro ({}, {}), predicted ({}, {}), confidence {}",
+                snapshot.stageX(), snapshot.stageY(),
+                String.format("%.1f", centreX), String.format("%.1f", centreY),
+                String.format("%.1f", predicted.getX()), String.format("%.1f", predicted.getY()),
+                String.format("%.1f", match.confidence()));
+        return new PointMatch(centreX, centreY, snapshot.stageX(), snapshot.stageY(), match.confidence());
+    }
+
+    private static RegistrationResult failure(AffineFit fit, int matched, String message) {
+        logger.warn("Auto-registration failed: {}", message);
+        return new RegistrationResult(null, fit, matched, message);
+    }
+
+    /**
+     * Creates a source that reads snapshots from a folder containing a {@code TileConfiguration.txt}
+     * with stage coordinates. The requested positions are ignored; every listed tile is returned.
+     * Tiles missing next to the configuration file are looked up in its subfolders (e.g. angle folders).
+     *
+     * @param folder Folder containing TileConfiguration.txt
+     * @return Folder-backed snapshot source
+     */
+    public static SnapshotSource folderSource(Path folder) {
+        return stagePositions -> {
+            Path config = folder.resolve("TileConfiguration.txt");
+            if (!Files.exists(config)) {
+                throw new IOException("TileConfiguration.txt not found in " + folder);
+            }
+            List<Snapshot> snapshots = new ArrayList<>();
+            for (String line : Files.readAllLines(config)) {
+                Matcher m = TILE_LINE.matcher(line);
+                if (!m.find()) {
+                    continue;
+                }
+                File file = findTile(folder, m.group(1));
+                if (file == null) {
+                    logger.warn("Snapshot {} listed in {} not found", m.group(1), config);
+                    continue;
+                }
+                BufferedImage image = ImageIO.read(file);
+                if (image == null) {
+                    logger.warn("Cannot read snapshot {}", file);
+                    continue;
+                }
+                snapshots.add(new Snapshot(image,
+                        Double.parseDouble(m.group(2).trim()),
+                        Double.parseDouble(m.group(3).trim())));
+            }
+            return snapshots;
+        };
+    }
+
+    private static File findTile(Path folder, String name) throws IOException {
+        File direct = folder.resolve(name).toFile();
+        if (direct.isFile()) {
+            return direct;
+        }
+        try (var subdirs = Files.list(folder)) {
+            return subdirs.filter(Files::isDirectory)
+                    .sorted()
+                    .map(dir -> dir.resolve(name).toFile())
+                    .filter(File::isFile)
+                    .findFirst()
+                    .orElse(null);
+        }
+    }
+
+    /**
+     * Creates a source that acquires snapshots through the microscope server. A TileConfiguration.txt
+     * with the requested stage positions is written to {@code regionFolder}, an acquisition is run
+     * with the given builder, and the tiles are then read back with {@link #folderSource(Path)}.
+     *
+     * @param socketClient Connected socket client
+     * @param builder Acquisition command configured for a single low-magnification pass; its projects
+     *                folder, sample, scan type and region must resolve to {@code regionFolder}
+     * @param regionFolder Folder the server reads the tile configuration from and writes tiles to
+     * @return Socket-backed snapshot source
+     */
+    public static SnapshotSource socketSource(MicroscopeSocketClient socketClient,
+                                              AcquisitionCommandBuilder builder,
+                                              Path regionFolder) {
+        return stagePositions -> {
+            Files.createDirectories(regionFolder);
+            List<String> lines = new ArrayList<>();
+            lines.add("dim = 2");
+            for (int i = 0; i < stagePositions.size(); i++) {
+                Point2D p = stagePositions.get(i);
+                lines.add(String.format(Locale.ROOT, "%d.tif; ; (%.3f, %.3f)", i, p.getX(), p.getY()));
+            }
+            Files.write(regionFolder.resolve("TileConfiguration.txt"), lines);
+
+            socketClient.startAcquisition(builder);
+            MicroscopeSocketClient.AcquisitionState state;
+            try {
+                state = socketClient.monitorAcquisition(null, SNAPSHOT_POLL_MS, SNAPSHOT_TIMEOUT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while acquiring registration snapshots", e);
+            }
+            if (state != MicroscopeSocketClient.AcquisitionState.COMPLETED) {
+                throw new IOException("Snapshot acquisition ended in state " + state);
+            }
+            return folderSource(regionFolder).acquire(stagePositions);
+        };
+    }
+}
@@ -9,6 +9,7 @@ import qupath.ext.qpsc.ui.UIFunctions;
 import qupath.ext.qpsc.ui.UnifiedAcquisitionController;
 import qupath.ext.qpsc.utilities.*;
 import qupath.ext.qpsc.controller.workflow.StitchingHelper;
+import qupath.ext.qpsc.controller.workflow.TileCleanupHelper;
 import qupath.lib.gui.QuPathGUI;
 import qupath.lib.gui.scripting.QPEx;
 import qupath.lib.projects.Project;
@@ -213,6 +214,9 @@ public class BoundedAcquisitionWorkflow {
 
                     double finalWSI_pixelSize_um = WSI_pixelSize_um;
 
+                    // Project log covers acquisition, stitching and cleanup
+                    ProjectLogger.Session logSession = ProjectLogger.start(tempTilePath.getParent().toFile());
+
                     // Handle angle overrides
                     CompletableFuture<List<qupath.ext.qpsc.modality.AngleExposure>> anglesFuture;
                     if (result.angleOverrides() != null && !result.angleOverrides().isEmpty()
@@ -271,7 +275,7 @@ public class BoundedAcquisitionWorkflow {
                         String boundsMode = "bounds";
 
                         // Start socket-based acquisition
-                        CompletableFuture<Void> acquisitionFuture = CompletableFuture.runAsync(() -> {
+                        CompletableFuture<Void> acquisitionFuture = CompletableFuture.runAsync(logSession.wrap(() -> {
                             try {
                                 // Build acquisition configuration
                                 // Create a SampleSetupResult-like object for the builder
@@ -307,6 +311,10 @@ public class BoundedAcquisitionWorkflow {
                                         modeWithIndex,
                                         boundsMode
                                 );
+                                // Stitching corrects the tiles as they were acquired, whatever the preference is by then
+                                FlatFieldCorrector.recordAcquisition(
+                                        Paths.get(projectsFolder, result.sampleName(), modeWithIndex, boundsMode),
+                                        config.clientFlatField());
 
                                 MicroscopeController.getInstance().startAcquisition(config.commandBuilder());
 
@@ -320,6 +328,8 @@ public class BoundedAcquisitionWorkflow {
                                 ) * angleCount;
 
                                 AtomicInteger progressCounter = new AtomicInteger(0);
+                                AcquisitionTimingStore.RunRecorder timingRecorder =
+                                        new AcquisitionTimingStore.RunRecorder(boundsMode);
 
                                 UIFunctions.ProgressHandle progressHandle = null;
                                 if (expectedFiles > 0) {
@@ -341,7 +351,10 @@ public class BoundedAcquisitionWorkflow {
 
                                 MicroscopeSocketClient.AcquisitionState finalState =
                                         socketClient.monitorAcquisition(
-                                                progress -> progressCounter.set(progress.current),
+                                                progress -> {
+                                                    progressCounter.set(progress.current);
+                                                    timingRecorder.onProgress(progress.current);
+                                                },
                                                 500, 300000
                                         );
 
@@ -351,6 +364,9 @@ public class BoundedAcquisitionWorkflow {
 
                                 if (finalState == MicroscopeSocketClient.AcquisitionState.COMPLETED) {
                                     logger.info("Acquisition completed successfully");
+                                    recordTiming(configFileLocation, configManager, result.modality(),
+                                            result.objective(), result.detector(), angleCount,
+                                            timingRecorder, tempTilePath.getParent());
                                 } else if (finalState == MicroscopeSocketClient.AcquisitionState.CANCELLED) {
                                     logger.warn("Acquisition was cancelled");
                                     Platform.runLater(() ->
@@ -370,7 +386,7 @@ public class BoundedAcquisitionWorkflow {
                                 logger.error("Acquisition failed", e);
                                 throw e instanceof RuntimeException ? (RuntimeException) e : new RuntimeException(e);
                             }
-                        });
+                        }));
 
                         // Handle stitching after acquisition
                         acquisitionFuture.thenCompose(ignored -> {
@@ -416,19 +432,15 @@ public class BoundedAcquisitionWorkflow {
                             });
 
                             // Handle cleanup after stitching
-                            stitchFuture.thenRun(() -> {
-                                String handling = QPPreferenceDialog.getTileHandlingMethodProperty();
-                                if ("Delete".equals(handling)) {
-                                    TileProcessingUtilities.deleteTilesAndFolder(tempTileDir);
-                                } else if ("Zip".equals(handling)) {
-                                    TileProcessingUtilities.zipTilesAndMove(tempTileDir);
-                                    TileProcessingUtilities.deleteTilesAndFolder(tempTileDir);
-                                }
+                            stitchFuture.thenRun(() -> TileCleanupHelper.performCleanup(tempTileDir)).whenComplete((v, ex) -> {
+                                writeTimingReport(Paths.get(tempTileDir).getParent());
+                                logSession.close();
                             });
 
                             return stitchFuture;
                         }).exceptionally(ex -> {
                             logger.error("Workflow failed", ex);
+                            logSession.close();
                             Throwable cause = ex.getCause();
                             String errorMessage = cause != null ? cause.getMessage() : ex.getMessage();
                             Platform.runLater(() ->
@@ -438,6 +450,7 @@ public class BoundedAcquisitionWorkflow {
                         });
 
                     }).exceptionally(ex -> {
+                        logSession.close();
                         Throwable cause = ex.getCause();
                         String message = cause != null ? cause.getMessage() : ex.getMessage();
 
@@ -466,4 +479,35 @@ public class BoundedAcquisitionWorkflow {
 
                 });
     }
+
+    /**
+     * Adds the per-image durations of a completed run to the timing history and
+     * exports them as CSV into the sample folder. Failures are logged and ignored.
+     */
+    private static void recordTiming(String configFileLocation, MicroscopeConfigManager configManager,
+                                     String modality, String objective, String detector, int angleCount,
+                                     AcquisitionTimingStore.RunRecorder recorder, java.nio.file.Path sampleFolder) {
+        try {
+            AcquisitionTimingStore.ProfileKey key = AcquisitionTimingStore.ProfileKey.forHardware(
+                    configManager, modality, objective, detector, angleCount);
+            List<AcquisitionTimingStore.TileDuration> durations = recorder.getDurations();
+            AcquisitionTimingStore.getInstance(configFileLocation).recordRun(key, durations);
+            AcquisitionTimingStore.exportDurationsCsv(
+                    sampleFolder.resolve(AcquisitionTimingStore.timestampedExportName()), key, durations);
+        } catch (Exception e) {
+            logger.warn("Failed to record acquisition timing: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the acquisition telemetry report into the project folder after stitching
+     * and cleanup. Failures are logged and ignored.
+     */
+    private static void writeTimingReport(java.nio.file.Path projectFolder) {
+        try {
+            AcquisitionTelemetry.getInstance().writeReport(projectFolder);
+        } catch (Exception e) {
+            logger.warn("Failed to write timing report: {}", e.getMessage());
+        }
+    }
 }
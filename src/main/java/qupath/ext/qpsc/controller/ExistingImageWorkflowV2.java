@@ -67,6 +67,7 @@ public class ExistingImageWorkflowV2 {
     private static class WorkflowOrchestrator {
         private final QuPathGUI gui;
         private final WorkflowState state;
+        private ProjectLogger.Session logSession;
 
         WorkflowOrchestrator() {
             this.gui = QuPathGUI.getInstance();
@@ -555,6 +556,10 @@ public class ExistingImageWorkflowV2 {
             if (state == null) return CompletableFuture.completedFuture(null);
 
             logger.info("Starting acquisition phase");
+            if (state.projectInfo != null && logSession == null) {
+                logSession = ProjectLogger.start(
+                        new File(state.projectInfo.getTempTileDirectory()).getParentFile());
+            }
 
             return new AcquisitionManager(gui, state).execute()
                     .thenApply(legacyState -> {
@@ -571,6 +576,7 @@ public class ExistingImageWorkflowV2 {
          */
         private CompletableFuture<WorkflowState> waitForCompletion(WorkflowState state) {
             if (state == null || state.stitchingFutures.isEmpty()) {
+                writeTimingReport(state);
                 return CompletableFuture.completedFuture(state);
             }
 
@@ -578,7 +584,24 @@ public class ExistingImageWorkflowV2 {
 
             return CompletableFuture.allOf(
                     state.stitchingFutures.toArray(new CompletableFuture[0])
-            ).thenApply(v -> state);
+            ).whenComplete((v, ex) -> writeTimingReport(state))
+                    .thenApply(v -> state);
+        }
+
+        /**
+         * Writes the acquisition telemetry report into the project folder once stitching is done.
+         */
+        private void writeTimingReport(WorkflowState state) {
+            if (state == null || state.projectInfo == null) {
+                return;
+            }
+            try {
+                java.nio.file.Path projectFolder =
+                        java.nio.file.Paths.get(state.projectInfo.getTempTileDirectory()).getParent();
+                AcquisitionTelemetry.getInstance().writeReport(projectFolder);
+            } catch (Exception e) {
+                logger.warn("Failed to write timing report: {}", e.getMessage());
+            }
         }
 
         /**
@@ -586,6 +609,10 @@ public class ExistingImageWorkflowV2 {
          */
         private void cleanup() {
             logger.info("Workflow completed - cleaning up");
+            if (logSession != null) {
+                logSession.close();
+                logSession = null;
+            }
         }
 
         /**
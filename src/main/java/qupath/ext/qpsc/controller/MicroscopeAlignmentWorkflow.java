@@ -5,6 +5,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import qupath.ext.qpsc.preferences.QPPreferenceDialog;
 import qupath.ext.qpsc.preferences.PersistentPreferences;
+import qupath.ext.qpsc.service.AcquisitionCommandBuilder;
 import qupath.ext.qpsc.ui.*;
 import qupath.ext.qpsc.utilities.*;
 
@@ -19,11 +20,14 @@ import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.List;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Enhanced workflow for creating and saving microscope alignment transforms.
@@ -516,9 +520,16 @@ public class MicroscopeAlignmentWorkflow {
                             MicroscopeController.getInstance().setCurrentTransform(fullResToStageTransform);
 
                             // Create and save the general macro→stage transform
-                            saveGeneralTransform(gui, alignConfig, fullResToStageTransform,
-                                    detectionResultsHolder[0], macroPixelSize, invertedX, invertedY,
-                                    transformManager, selectedScanner);
+                            AffineTransformManager.TransformPreset preset = saveGeneralTransform(gui, alignConfig,
+                                    fullResToStageTransform, detectionResultsHolder[0], macroPixelSize,
+                                    invertedX, invertedY, transformManager, selectedScanner);
+
+                            // The green box transform is only approximate; offer to refine it from snapshots
+                            if (preset != null && detectionResultsHolder[0].processedMacroImag() != null) {
+                                offerAutoRegistration(preset, detectionResultsHolder[0].processedMacroImag(),
+                                        macroPixelSize, sampleSetup, tempTileDirectory, modeWithIndex,
+                                        transformManager);
+                            }
 
                         }).exceptionally(ex -> {
                             logger.error("Error in transform setup", ex);
@@ -660,8 +671,9 @@ public class MicroscopeAlignmentWorkflow {
      * @param invertedY Whether Y axis is inverted (unused in current implementation)
      * @param transformManager Manager for saving transform presets
      * @param selectedScanner Name of the source scanner that created the macro image
+     * @return The saved preset, or null if the transform could not be created
      */
-    private static void saveGeneralTransform(
+    private static AffineTransformManager.TransformPreset saveGeneralTransform(
             QuPathGUI gui,
             MacroImageController.AlignmentConfig config,
             AffineTransform fullResToStageTransform,
@@ -676,16 +688,16 @@ public class MicroscopeAlignmentWorkflow {
             // Step 1: Get or detect data bounds (required for accurate alignment)
             Rectangle dataBounds = macroImageResults.dataBounds();
             if (dataBounds == null) {
-                // Attempt to detect bounds now
-                String scriptDir = new File(QPPreferenceDialog.getTissueDetectionScriptProperty()).getParent();
-                if (scriptDir != null) {
-                    logger.info("Detecting data bounds...");
-                    dataBounds = UIFunctions.executeWithProgress(
-                            "Processing Image",
-                            "Detecting image boundaries...\nAnalyzing image data - this may take a moment for large images.",
-                            () -> ImageProcessing.detectOcus40DataBounds(gui, scriptDir)
-                    );
-                }
+                // Attempt to detect bounds now; the classifier directory is only a fallback
+                String tissueScript = QPPreferenceDialog.getTissueDetectionScriptProperty();
+                String scriptDir = tissueScript != null && !tissueScript.isBlank()
+                        ? new File(tissueScript).getParent() : null;
+                logger.info("Detecting data bounds...");
+                dataBounds = UIFunctions.executeWithProgress(
+                        "Processing Image",
+                        "Detecting image boundaries...",
+                        () -> ImageProcessing.detectOcus40DataBounds(gui, scriptDir)
+                );
 
                 if (dataBounds == null) {
                     throw new IllegalStateException("Cannot create transform without data bounds detection");
@@ -823,6 +835,7 @@ public class MicroscopeAlignmentWorkflow {
                         String.format("Successfully saved alignment transform: %s", finalTransformName)
                 );
             });
+            return preset;
 
         } catch (Exception e) {
             logger.error("Failed to save transform", e);
@@ -832,9 +845,97 @@ public class MicroscopeAlignmentWorkflow {
                         "Save Error"
                 );
             });
+            return null;
         }
     }
 
+    /**
+     * Offers to refine a freshly saved transform with {@link AutoRegistrationWorkflow}.
+     * Snapshots are acquired at textured positions of the macro image with the sample setup's
+     * objective and detector, located in the macro image, and the fitted transform is saved as
+     * a new preset that becomes the default. The manual transform is kept if registration fails.
+     *
+     * @param initialPreset Transform just saved from the green box alignment
+     * @param macroImage Cropped and flipped macro image the preset was created against
+     * @param macroPixelSize Macro pixel size in micrometers
+     * @param sampleSetup Sample setup providing the hardware for the snapshots
+     * @param tempTileDirectory Tile directory of the current imaging mode
+     * @param modeWithIndex Imaging mode folder name, e.g. "ppm_10x_1"
+     * @param transformManager Manager the refined preset is saved to
+     */
+    private static void offerAutoRegistration(
+            AffineTransformManager.TransformPreset initialPreset,
+            BufferedImage macroImage,
+            double macroPixelSize,
+            SampleSetupController.SampleSetupResult sampleSetup,
+            String tempTileDirectory,
+            String modeWithIndex,
+            AffineTransformManager transformManager) {
+
+        Platform.runLater(() -> {
+            MicroscopeController controller = MicroscopeController.getInstance();
+            if (!controller.isConnected()) {
+                logger.info("Microscope server not connected - skipping auto-registration");
+                return;
+            }
+            boolean refine = qupath.fx.dialogs.Dialogs.showConfirmDialog("Refine Alignment",
+                    String.format("Refine transform '%s' automatically?%n%n" +
+                                    "Snapshots will be acquired at several positions on the slide and " +
+                                    "matched against the macro image. The stage will move.",
+                            initialPreset.getName()));
+            if (!refine) {
+                logger.info("User skipped auto-registration");
+                return;
+            }
+
+            CompletableFuture.supplyAsync(() -> {
+                try {
+                    String configPath = QPPreferenceDialog.getMicroscopeConfigFileProperty();
+                    MicroscopeConfigManager mgr = MicroscopeConfigManager.getInstance(configPath);
+                    double[] fov = controller.getCameraFOVFromConfig(
+                            sampleSetup.modality(), sampleSetup.objective(), sampleSetup.detector());
+                    double pixelSize = mgr.getModalityPixelSize(
+                            sampleSetup.modality(), sampleSetup.objective(), sampleSetup.detector());
+
+                    // Single pass without rotation; the server writes tiles next to the tile configuration
+                    String regionName = "auto_registration";
+                    Path regionFolder = Paths.get(tempTileDirectory, regionName);
+                    AcquisitionCommandBuilder builder = AcquisitionCommandBuilder.builder()
+                            .yamlPath(configPath)
+                            .projectsFolder(sampleSetup.projectsFolder().getAbsolutePath())
+                            .sampleLabel(sampleSetup.sampleName())
+                            .scanType(modeWithIndex)
+                            .regionName(regionName)
+                            .hardware(sampleSetup.objective(), sampleSetup.detector(), pixelSize);
+
+                    AutoRegistrationWorkflow.AutoRegistrationConfig config =
+                            AutoRegistrationWorkflow.AutoRegistrationConfig.withDefaults(
+                                    initialPreset, macroPixelSize, fov[0], fov[1]);
+                    return AutoRegistrationWorkflow.performAutoRegistration(macroImage, config,
+                            AutoRegistrationWorkflow.socketSource(controller.getSocketClient(), builder, regionFolder),
+                            transformManager);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }).thenAccept(result -> Platform.runLater(() -> {
+                if (result.isSuccess()) {
+                    PersistentPreferences.setSavedTransformName(result.preset().getName());
+                    qupath.fx.dialogs.Dialogs.showInfoNotification("Transform Saved",
+                            String.format("%s: %s", result.message(), result.preset().getName()));
+                } else {
+                    UIFunctions.notifyUserOfError(String.format("%s%n%nThe transform '%s' is kept.",
+                            result.message(), initialPreset.getName()), "Auto-Registration");
+                }
+            })).exceptionally(ex -> {
+                logger.error("Auto-registration failed", ex);
+                Platform.runLater(() -> UIFunctions.notifyUserOfError(
+                        "Auto-registration failed: " + ex.getMessage(),
+                        "Auto-Registration"));
+                return null;
+            });
+        });
+    }
+
     /**
      * Validates transforms against known ground truth points if available.
      * This is primarily for debugging and development.
@@ -3,6 +3,7 @@ package qupath.ext.qpsc.controller;
 import java.awt.geom.AffineTransform;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
@@ -48,6 +49,9 @@ public class MicroscopeController {
     /** Current affine transform for coordinate conversion */
     private final AtomicReference<AffineTransform> currentTransform = new AtomicReference<>();
 
+    /** Notified before each XY stage move, e.g. so position displays can poll faster */
+    private final List<Runnable> stageMoveListeners = new CopyOnWriteArrayList<>();
+
     /**
      * Private constructor for singleton pattern.
      * Initializes the socket connection to the microscope server.
@@ -168,6 +172,24 @@ public class MicroscopeController {
 // Remove the isWithinBoundsXY and isWithinBoundsZ methods entirely
 // Update the moveStageXY method:
 
+    /**
+     * Registers a listener that is called (on the moving thread) before each XY stage move.
+     *
+     * @param listener The listener
+     */
+    public void addStageMoveListener(Runnable listener) {
+        stageMoveListeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added with {@link #addStageMoveListener}.
+     *
+     * @param listener The listener
+     */
+    public void removeStageMoveListener(Runnable listener) {
+        stageMoveListeners.remove(listener);
+    }
+
     /**
      * Moves the stage in X,Y only. Z position is not affected.
      *
@@ -187,6 +209,14 @@ public class MicroscopeController {
             return;
         }
 
+        for (Runnable listener : stageMoveListeners) {
+            try {
+                listener.run();
+            } catch (Exception e) {
+                logger.debug("Stage move listener failed", e);
+            }
+        }
+
         try {
             socketClient.moveStageXY(x, y);
             logger.info("Successfully moved stage to XY: ({}, {})", x, y);
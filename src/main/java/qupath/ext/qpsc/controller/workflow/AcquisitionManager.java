@@ -2,6 +2,7 @@ package qupath.ext.qpsc.controller.workflow;
 
 import javafx.application.Platform;
 import javafx.scene.control.Alert;
+import javafx.scene.control.ButtonType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import qupath.ext.qpsc.controller.ExistingImageWorkflowV2.WorkflowState;
@@ -12,14 +13,29 @@ import qupath.ext.qpsc.modality.ModalityRegistry;
 import qupath.ext.qpsc.preferences.PersistentPreferences;
 import qupath.ext.qpsc.preferences.QPPreferenceDialog;
 import qupath.ext.qpsc.service.AcquisitionCommandBuilder;
+import qupath.ext.qpsc.service.AcquisitionEngine;
+import qupath.ext.qpsc.service.AcquisitionListener;
 import qupath.ext.qpsc.service.microscope.MicroscopeSocketClient;
 import qupath.ext.qpsc.ui.AnnotationAcquisitionDialog;
 import qupath.ext.qpsc.ui.DualProgressDialog;
+import qupath.ext.qpsc.ui.ProgressDialogListener;
 import qupath.ext.qpsc.ui.UIFunctions;
+import qupath.ext.qpsc.ui.stagemap.LiveScanPreview;
+import qupath.ext.qpsc.ui.stagemap.StageMapWindow;
 import qupath.ext.qpsc.service.AnnotationOrderingService;
 import qupath.ext.qpsc.utilities.AcquisitionConfigurationBuilder;
+import qupath.ext.qpsc.utilities.AcquisitionJournal;
+import qupath.ext.qpsc.utilities.AcquisitionPlanner;
+import qupath.ext.qpsc.utilities.AcquisitionTelemetry;
+import qupath.ext.qpsc.utilities.AcquisitionTimingStore;
+import qupath.ext.qpsc.utilities.FlatFieldCorrector;
 import qupath.ext.qpsc.utilities.MicroscopeConfigManager;
 import qupath.ext.qpsc.utilities.MinorFunctions;
+import qupath.ext.qpsc.utilities.ProjectLogger;
+import qupath.ext.qpsc.utilities.StoragePreflight;
+import qupath.ext.qpsc.utilities.TilePatch;
+import qupath.ext.qpsc.utilities.TileProcessingUtilities;
+import qupath.ext.qpsc.utilities.TileQualityMonitor;
 import qupath.ext.qpsc.utilities.TransformationFunctions;
 import qupath.ext.qpsc.utilities.ZFocusPredictionModel;
 import qupath.fx.dialogs.Dialogs;
@@ -33,15 +49,21 @@ import qupath.lib.scripting.QP;
 
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -81,9 +103,36 @@ public class AcquisitionManager {
     private final WorkflowState state;
     private DualProgressDialog dualProgressDialog;
 
+    /** Project log enabled by the workflow that created this manager; background tasks log to it */
+    private final String logProject;
+
     /** Z-focus prediction model for tilt correction across the slide */
     private final ZFocusPredictionModel zFocusModel = new ZFocusPredictionModel();
 
+    /** Hardware profile used to look up and record timing history for this run */
+    private AcquisitionTimingStore.ProfileKey timingProfileKey;
+
+    /** Whether each annotation's tiles are deleted once stitched, chosen in the storage preflight */
+    private volatile boolean deleteTilesAfterStitching;
+
+    /** Checkpoint journal of the current run in the sample folder, or null if it could not be opened */
+    private volatile AcquisitionJournal journal;
+
+    /** Interrupted run being resumed, or null for a fresh run */
+    private AcquisitionJournal.Run resumeRun;
+
+    /** Engine acquiring this run's annotations; its listener shows progress and journals it */
+    private volatile AcquisitionEngine engine;
+
+    /**
+     * Pending tile QC results by annotation name, consumed before the annotation is stitched, or
+     * at the end of the run when flagged tiles are not re-acquired automatically
+     */
+    private final Map<String, CompletableFuture<TileQualityMonitor.Report>> tileQcReports = new ConcurrentHashMap<>();
+
+    /** Annotation whose acquisition failed and stopped the run, or null */
+    private volatile PathObject failedAnnotation;
+
     /**
      * Creates a new acquisition manager.
      *
@@ -93,6 +142,7 @@ public class AcquisitionManager {
     public AcquisitionManager(QuPathGUI gui, WorkflowState state) {
         this.gui = gui;
         this.state = state;
+        this.logProject = ProjectLogger.getCurrentProjectPath();
     }
 
     /**
@@ -102,7 +152,9 @@ public class AcquisitionManager {
      * <ol>
      *   <li>Validates annotations with user confirmation</li>
      *   <li>Retrieves rotation angles for the imaging modality</li>
+     *   <li>Offers to resume an interrupted run of the same sample and modality</li>
      *   <li>Prepares tiles for acquisition</li>
+     *   <li>Checks that the output volume has the space and write speed for the run</li>
      *   <li>Processes each annotation sequentially</li>
      * </ol>
      *
@@ -119,7 +171,9 @@ public class AcquisitionManager {
                     }
                     return getRotationAngles();
                 })
+                .thenCompose(this::offerResume)
                 .thenCompose(this::prepareForAcquisition)
+                .thenCompose(this::checkStorage)
                 .thenCompose(this::processAnnotations)
                 .thenApply(success -> {
                     if (success) {
@@ -133,8 +187,11 @@ public class AcquisitionManager {
     }
 
     /**
-     * Saves timing data from the current acquisition to persistent preferences.
-     * This data will be used to improve time estimates in future acquisitions.
+     * Saves timing data from the current acquisition for future estimates.
+     *
+     * <p>The raw per-image durations are added to the {@link AcquisitionTimingStore} profile
+     * for this hardware configuration and exported as CSV into the sample folder. The legacy
+     * averaged values in {@link PersistentPreferences} are still updated for older callers.</p>
      */
     private void saveTimingDataToPreferences() {
         if (dualProgressDialog == null) {
@@ -142,15 +199,33 @@ public class AcquisitionManager {
             return;
         }
 
+        String modality = state.sample.modality();
+        String objective = state.sample.objective();
+
+        List<AcquisitionTimingStore.TileDuration> durations = dualProgressDialog.getTileDurations();
+        if (timingProfileKey != null && !durations.isEmpty()) {
+            try {
+                AcquisitionTimingStore.getInstance(QPPreferenceDialog.getMicroscopeConfigFileProperty())
+                        .recordRun(timingProfileKey, durations);
+            } catch (Exception e) {
+                logger.warn("Failed to record timing history: {}", e.getMessage());
+            }
+            try {
+                java.nio.file.Path sampleFolder = Paths.get(state.projectInfo.getTempTileDirectory()).getParent();
+                AcquisitionTimingStore.exportDurationsCsv(
+                        sampleFolder.resolve(AcquisitionTimingStore.timestampedExportName()),
+                        timingProfileKey, durations);
+            } catch (Exception e) {
+                logger.warn("Failed to export per-image durations: {}", e.getMessage());
+            }
+        }
+
         long[] timingData = dualProgressDialog.getFinalTimingData();
         if (timingData == null) {
             logger.debug("Insufficient timing data to save");
             return;
         }
 
-        String modality = state.sample.modality();
-        String objective = state.sample.objective();
-
         PersistentPreferences.updateTimingData(
                 timingData[0], // baseTileTimeMs
                 timingData[1], // adaptiveAfTimeMs
@@ -296,6 +371,9 @@ public class AcquisitionManager {
      *   <li>Transforms tile coordinates to stage space</li>
      * </ul>
      *
+     * <p>When resuming, annotations the interrupted run already tiled keep their tile folder and
+     * stage positions; only annotations new to the run are tiled.</p>
+     *
      * @param angleExposures List of rotation angles, or null for single acquisition
      * @return CompletableFuture with angle exposures for next phase
      */
@@ -337,16 +415,31 @@ public class AcquisitionManager {
 
             // Clean up old tiles
             TileHelper.deleteAllTiles(gui, state.sample.modality());
-            TileHelper.cleanupStaleFolders(
-                    state.projectInfo.getTempTileDirectory(),
-                    currentAnnotations
-            );
+            String tempTileDirectory = state.projectInfo.getTempTileDirectory();
+            List<PathObject> annotationsToTile = currentAnnotations;
+            if (resumeRun == null) {
+                TileHelper.cleanupStaleFolders(tempTileDirectory, currentAnnotations);
+            } else {
+                // Keep the tile positions the resumed run acquired with: tiling again from the
+                // current annotations could place new tiles next to old ones in one stitch
+                annotationsToTile = currentAnnotations.stream()
+                        .filter(annotation -> resumeRun.annotation(annotation.getName()) == null
+                                || !Files.isRegularFile(Paths.get(tempTileDirectory, annotation.getName(),
+                                        "TileConfiguration.txt")))
+                        .toList();
+                logger.info("Resuming {} - tiling only {} of {} annotations that the run has no tiles for",
+                        resumeRun.run(), annotationsToTile.size(), currentAnnotations.size());
+            }
+            if (annotationsToTile.isEmpty()) {
+                state.annotations = currentAnnotations;
+                return angleExposures;
+            }
 
             // Create fresh tiles
             TileHelper.createTilesForAnnotations(
-                    currentAnnotations,
+                    annotationsToTile,
                     state.sample,
-                    state.projectInfo.getTempTileDirectory(),
+                    tempTileDirectory,
                     state.projectInfo.getImagingModeWithIndex(),
                     state.pixelSize
             );
@@ -354,8 +447,9 @@ public class AcquisitionManager {
             // Transform tile configurations to stage coordinates
             try {
                 List<String> modifiedDirs = TransformationFunctions.transformTileConfiguration(
-                        state.projectInfo.getTempTileDirectory(),
-                        state.transform
+                        tempTileDirectory,
+                        state.transform,
+                        annotationsToTile.stream().map(PathObject::getName).collect(Collectors.toSet())
                 );
                 logger.info("Transformed tile configurations for: {}", modifiedDirs);
             } catch (IOException e) {
@@ -368,6 +462,231 @@ public class AcquisitionManager {
         });
     }
 
+    /**
+     * Offers to resume the last interrupted run of this sample recorded in the
+     * {@link AcquisitionJournal}, if it used the same modality and angles and its tiles are still
+     * on disk. When accepted, this run continues in the interrupted run's tile folder: annotations
+     * already acquired are only stitched if needed, partially acquired ones are completed by
+     * re-acquiring their missing tiles, and the rest are acquired as usual.
+     *
+     * @param angleExposures Rotation angles, or null if the workflow was cancelled
+     * @return CompletableFuture with the angle exposures, unchanged
+     */
+    private CompletableFuture<List<AngleExposure>> offerResume(List<AngleExposure> angleExposures) {
+        if (angleExposures == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Path sampleFolder = Paths.get(state.projectInfo.getTempTileDirectory()).getParent();
+        AcquisitionJournal.Run run;
+        try {
+            run = AcquisitionJournal.lastUnfinishedRun(sampleFolder);
+        } catch (IOException e) {
+            logger.warn("Could not read acquisition journal: {}", e.getMessage());
+            return CompletableFuture.completedFuture(angleExposures);
+        }
+        String currentMode = state.projectInfo.getImagingModeWithIndex();
+        if (run == null || run.tileDirectory() == null || !Files.isDirectory(Paths.get(run.tileDirectory()))
+                || !run.run().replaceAll("_\\d+$", "").equals(currentMode.replaceAll("_\\d+$", ""))
+                || !run.angles().equals(angleFolders(angleExposures))) {
+            return CompletableFuture.completedFuture(angleExposures);
+        }
+
+        long acquired = run.annotations().values().stream()
+                .filter(AcquisitionJournal.AnnotationRecord::acquired).count();
+        CompletableFuture<List<AngleExposure>> decision = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+            alert.setTitle("Resume Acquisition");
+            alert.setHeaderText("An earlier acquisition of this sample did not finish");
+            alert.setContentText(String.format(
+                    "%s: %d of %d annotations acquired.%n%nResume it? Finished annotations are skipped, "
+                            + "missing tiles are acquired and unfinished stitching is queued again.",
+                    run.run(), acquired, run.annotations().size()));
+            ButtonType resumeButton = new ButtonType("Resume");
+            ButtonType freshButton = new ButtonType("Start New Run");
+            alert.getButtonTypes().setAll(resumeButton, freshButton);
+            boolean resume = alert.showAndWait().orElse(freshButton) == resumeButton;
+            try (AcquisitionJournal previous = AcquisitionJournal.open(sampleFolder, run.run())) {
+                if (resume) {
+                    previous.runResumed();
+                } else {
+                    previous.runAbandoned();
+                }
+            } catch (IOException e) {
+                logger.warn("Could not update acquisition journal: {}", e.getMessage());
+            }
+            if (resume) {
+                logger.info("Resuming acquisition run {} in {}", run.run(), run.tileDirectory());
+                state.projectInfo.getDetails().put("tempTileDirectory", run.tileDirectory());
+                state.projectInfo.getDetails().put("imagingModeWithIndex", run.run());
+                resumeRun = run;
+            }
+            decision.complete(angleExposures);
+        });
+        return decision;
+    }
+
+    private static List<String> angleFolders(List<AngleExposure> angleExposures) {
+        return angleExposures == null ? List.of() : angleExposures.stream()
+                .map(ae -> String.valueOf(ae.ticks()))
+                .toList();
+    }
+
+    /**
+     * Checks that the output volume can absorb the acquisition before it starts.
+     *
+     * <p>Peak disk usage and the data rate of the camera are predicted from the tile counts
+     * just written and the detector configuration, then compared with the free space and a
+     * measured write throughput of the projects folder (see {@link StoragePreflight}). Runs that
+     * cannot fit are refused; runs that only fit when tiles are deleted after stitching, or that
+     * write faster than the disk, need confirmation. Failures of the check itself are logged
+     * and do not block the acquisition.</p>
+     *
+     * @param angleExposures Rotation angles, or null if the workflow was cancelled
+     * @return CompletableFuture with the angle exposures, or null if the user cancelled
+     */
+    private CompletableFuture<List<AngleExposure>> checkStorage(List<AngleExposure> angleExposures) {
+        if (angleExposures == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return CompletableFuture.supplyAsync(() -> {
+            try (AcquisitionTelemetry.Timer t = AcquisitionTelemetry.getInstance()
+                    .startPhase(AcquisitionTelemetry.PHASE_STORAGE_PREFLIGHT)) {
+                return runStoragePreflight(angleExposures);
+            } catch (Exception e) {
+                logger.warn("Storage preflight could not be completed, continuing: {}", e.getMessage());
+                return null;
+            }
+        }).thenCompose(result -> {
+            if (result == null || result.verdict() == StoragePreflight.Verdict.OK) {
+                return CompletableFuture.completedFuture(angleExposures);
+            }
+            CompletableFuture<List<AngleExposure>> decision = new CompletableFuture<>();
+            Platform.runLater(() -> decision.complete(
+                    confirmStorage(result) ? angleExposures : null));
+            return decision;
+        });
+    }
+
+    private StoragePreflight.Result runStoragePreflight(List<AngleExposure> angleExposures) throws IOException {
+        MicroscopeConfigManager configManager =
+                MicroscopeConfigManager.getInstance(QPPreferenceDialog.getMicroscopeConfigFileProperty());
+        String baseModality = state.sample.modality().replaceAll("(_\\d+)$", "");
+        AcquisitionPlanner.Hardware hardware = AcquisitionPlanner.Hardware.fromConfig(
+                configManager, baseModality, state.sample.objective(), state.sample.detector());
+        if (hardware == null) {
+            logger.warn("Skipping storage preflight - detector size not configured");
+            return null;
+        }
+
+        int anglesPerTile = Math.max(1, angleExposures.size());
+        long totalImages = 0;
+        long largestRegionImages = 0;
+        for (PathObject annotation : state.annotations) {
+            int tiles = MinorFunctions.countTifEntriesInTileConfig(
+                    List.of(state.projectInfo.getTempTileDirectory(), annotation.getName()));
+            long images = (long) tiles * anglesPerTile;
+            totalImages += images;
+            largestRegionImages = Math.max(largestRegionImages, images);
+        }
+
+        boolean flatField = QPPreferenceDialog.getClientFlatFieldCorrection()
+                && FlatFieldCorrector.resolveProfile(configManager, baseModality,
+                        state.sample.objective(), state.sample.detector()) != null;
+        boolean zipTiles = "Zip".equals(QPPreferenceDialog.getTileHandlingMethodProperty());
+        StoragePreflight.Estimate estimate = StoragePreflight.estimate(totalImages, hardware.bytesPerImage(),
+                largestRegionImages, QPPreferenceDialog.getTileOverlapPercentProperty(), flatField, zipTiles,
+                derivedBytesPerImage(configManager, angleExposures));
+
+        // Images are produced no faster than one exposure plus readout each
+        double fastestImageMs = hardware.readoutMs() + angleExposures.stream()
+                .mapToDouble(AngleExposure::exposureMs)
+                .min()
+                .orElse(0);
+        double requiredMBps = StoragePreflight.requiredThroughput(hardware.bytesPerImage(), fastestImageMs);
+
+        Path outputDir = Paths.get(state.projectInfo.getTempTileDirectory());
+        long freeBytes = Files.getFileStore(existingAncestor(outputDir)).getUsableSpace();
+        double writeMBps = StoragePreflight.measureWriteThroughput(outputDir);
+
+        StoragePreflight.Result result = StoragePreflight.evaluate(estimate, freeBytes, writeMBps, requiredMBps);
+        logger.info("Storage preflight: {}\n{}", result.verdict(), result.describe());
+        return result;
+    }
+
+    /**
+     * Size of the derived images (e.g. birefringence) that stitching computes from the angle
+     * images, spread over the images acquired per tile. Each derived image is a single 16-bit
+     * channel of the detector's size.
+     *
+     * @return Bytes per acquired image, 0 if the modality derives no images from these angles
+     */
+    private long derivedBytesPerImage(MicroscopeConfigManager configManager, List<AngleExposure> angleExposures) {
+        ModalityHandler handler = ModalityRegistry.getHandler(state.sample.modality());
+        int[] dims = configManager.getDetectorDimensions(state.sample.detector());
+        if (handler == null || dims == null || angleExposures.isEmpty()) {
+            return 0;
+        }
+        List<Double> angles = angleExposures.stream().map(AngleExposure::ticks).toList();
+        long producers = handler.getDerivedImageProducers().stream()
+                .filter(producer -> !producer.selectInputs(angles).isEmpty())
+                .count();
+        return producers * dims[0] * dims[1] * 2L / angleExposures.size();
+    }
+
+    /**
+     * Shows the storage preflight result. Must be called on the JavaFX Application Thread.
+     *
+     * @param result Preflight result that is not OK
+     * @return true if the acquisition should continue
+     */
+    private boolean confirmStorage(StoragePreflight.Result result) {
+        String details = result.describe();
+        switch (result.verdict()) {
+            case REFUSE -> {
+                UIFunctions.notifyUserOfError(
+                        "Not enough disk space for this acquisition, even if tiles are deleted after stitching.\n\n"
+                                + details + "\n\nFree up space or reduce the acquisition area.",
+                        "Insufficient Disk Space");
+                return false;
+            }
+            case DELETE_TILES -> {
+                Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+                alert.setTitle("Low Disk Space");
+                alert.setHeaderText("Not enough disk space to keep all tiles");
+                alert.setContentText(details + "\n\nThe acquisition fits if each region's tiles are "
+                        + "deleted once it has been stitched.");
+                ButtonType deleteButton = new ButtonType("Delete Tiles After Stitching");
+                alert.getButtonTypes().setAll(deleteButton, ButtonType.CANCEL);
+                if (alert.showAndWait().orElse(ButtonType.CANCEL) == deleteButton) {
+                    logger.info("Tiles will be deleted after stitching to save disk space");
+                    deleteTilesAfterStitching = true;
+                    return true;
+                }
+                return false;
+            }
+            case SLOW_DISK -> {
+                Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+                alert.setTitle("Slow Disk");
+                alert.setHeaderText("The output disk may not keep up with the camera");
+                alert.setContentText(details + "\n\nTile saving may slow down the acquisition. Continue?");
+                return alert.showAndWait().orElse(ButtonType.CANCEL) == ButtonType.OK;
+            }
+            default -> {
+                return true;
+            }
+        }
+    }
+
+    private static Path existingAncestor(Path path) {
+        Path p = path.toAbsolutePath();
+        while (p != null && !Files.exists(p)) {
+            p = p.getParent();
+        }
+        return p != null ? p : path.toAbsolutePath().getRoot();
+    }
+
     /**
      * Processes all annotations for acquisition.
      *
@@ -408,18 +727,43 @@ public class AcquisitionManager {
         // Reset the Z-focus prediction model for this acquisition session
         zFocusModel.reset();
 
+        // Start a fresh live preview in the Stage Map, if it is open
+        StageMapWindow.clearPreview();
+
+        openJournal(angleExposures);
+
         // Show initial progress notification
         showAcquisitionStartNotification(angleExposures);
 
+        // Look up timing history for this hardware profile
+        String configFileLocation = QPPreferenceDialog.getMicroscopeConfigFileProperty();
+        AcquisitionTimingStore.TimingProfile timingPrior = null;
+        try {
+            timingProfileKey = AcquisitionTimingStore.ProfileKey.forHardware(
+                    MicroscopeConfigManager.getInstance(configFileLocation),
+                    state.sample.modality(), state.sample.objective(), state.sample.detector(),
+                    angleExposures.isEmpty() ? 1 : angleExposures.size());
+            timingPrior = AcquisitionTimingStore.getInstance(configFileLocation).getProfile(timingProfileKey);
+        } catch (Exception e) {
+            logger.warn("Could not load timing history: {}", e.getMessage());
+        }
+        final AcquisitionTimingStore.TimingProfile finalTimingPrior = timingPrior;
+
         // Create and show dual progress dialog on JavaFX Application Thread
         CompletableFuture<DualProgressDialog> dialogSetup = new CompletableFuture<>();
         Platform.runLater(() -> {
             try {
                 DualProgressDialog dialog = new DualProgressDialog(state.annotations.size(), true);
+                dialog.setTimingPrior(finalTimingPrior);
                 dialog.setCancelCallback(v -> {
                     logger.info("User requested workflow cancellation via dual progress dialog");
                     try {
-                        MicroscopeController.getInstance().getSocketClient().cancelAcquisition();
+                        AcquisitionEngine runEngine = engine;
+                        if (runEngine != null) {
+                            runEngine.cancel();
+                        } else {
+                            MicroscopeController.getInstance().getSocketClient().cancelAcquisition();
+                        }
                     } catch (IOException e) {
                         logger.error("Failed to send cancel command", e);
                     }
@@ -440,6 +784,11 @@ public class AcquisitionManager {
             return CompletableFuture.completedFuture(false);
         }
 
+        // The dialogs only listen to the engine; the engine itself never touches the UI
+        engine = new AcquisitionEngine(MicroscopeController.getInstance().getSocketClient(),
+                AcquisitionListener.of(new ProgressDialogListener(progressDialog), journalListener()),
+                AcquisitionEngine.DEFAULT_POLL_INTERVAL_MS, ACQUISITION_TIMEOUT_MS);
+
         // Process each annotation sequentially
         CompletableFuture<Boolean> acquisitionChain = CompletableFuture.completedFuture(true);
 
@@ -448,6 +797,8 @@ public class AcquisitionManager {
             final int index = i + 1;
             final int total = state.annotations.size();
 
+            // Keep the stitching backlog within what the storage preflight planned for
+            acquisitionChain = acquisitionChain.thenCompose(ok -> awaitStitchBacklog().thenApply(v -> ok));
             acquisitionChain = acquisitionChain.thenCompose(previousSuccess -> {
                 if (!previousSuccess) {
                     logger.info("Stopping acquisition due to previous failure");
@@ -458,13 +809,19 @@ public class AcquisitionManager {
 
                 showProgressNotification(index, total, annotation.getName());
 
-                return performSingleAnnotationAcquisition(annotation, angleExposures, progressDialog)
+                CompletableFuture<Boolean> resumed = resumeAnnotation(annotation, angleExposures, progressDialog);
+                if (resumed != null) {
+                    return resumed;
+                }
+
+                return performSingleAnnotationAcquisition(annotation, angleExposures)
                         .thenApply(success -> {
                             if (success) {
                                 // Capture final Z for tilt correction model
                                 try {
                                     MicroscopeSocketClient socketClient = MicroscopeController.getInstance().getSocketClient();
                                     Double finalZ = socketClient.getLastAcquisitionFinalZ();
+                                    journal(j -> j.annotationAcquired(annotation.getName(), finalZ));
                                     if (finalZ != null && state.transform != null) {
                                         double[] stageCoords = TransformationFunctions.transformQuPathFullResToStage(
                                                 new double[]{annotation.getROI().getCentroidX(), annotation.getROI().getCentroidY()},
@@ -484,20 +841,45 @@ public class AcquisitionManager {
                                 if (progressDialog != null) {
                                     Platform.runLater(() -> progressDialog.completeCurrentAnnotation());
                                 }
-                                // Launch stitching asynchronously after successful acquisition
-                                launchStitching(annotation, angleExposures);
                             } else {
+                                journal(j -> j.annotationFailed(annotation.getName(), "Acquisition failed or was cancelled"));
+                                tileQcReports.remove(annotation.getName());
+                                if (progressDialog == null || !progressDialog.isCancelled()) {
+                                    failedAnnotation = annotation;
+                                }
                                 // Show error in dual progress dialog
                                 if (progressDialog != null) {
                                     Platform.runLater(() -> progressDialog.showError("Failed to acquire " + annotation.getName()));
                                 }
                             }
                             return success;
+                        })
+                        .thenCompose(success -> {
+                            if (!success) {
+                                return CompletableFuture.completedFuture(false);
+                            }
+                            // Patch tiles flagged by QC while the slide is still in place, then
+                            // launch stitching asynchronously
+                            return reacquireFlaggedTiles(annotation, angleExposures, progressDialog)
+                                    .thenApply(v -> {
+                                        launchStitching(annotation, angleExposures);
+                                        return true;
+                                    });
                         });
             });
         }
 
+        // Let the user patch the failed annotation and any flagged tiles while the slide is in place
+        acquisitionChain = acquisitionChain.thenCompose(success ->
+                offerTilePatches(angleExposures, progressDialog).thenApply(v -> success));
+
         return acquisitionChain.whenComplete((result, error) -> {
+            // Keep the journal open until queued stitching has reported back
+            AcquisitionJournal runJournal = journal;
+            if (runJournal != null) {
+                CompletableFuture.allOf(state.stitchingFutures.toArray(new CompletableFuture[0]))
+                        .whenComplete((v, e) -> runJournal.close());
+            }
             // Close dual progress dialog when workflow completes or fails
             if (progressDialog != null) {
                 if (error != null) {
@@ -527,48 +909,20 @@ public class AcquisitionManager {
      */
     private CompletableFuture<Boolean> performSingleAnnotationAcquisition(
             PathObject annotation,
-            List<AngleExposure> angleExposures,
-            DualProgressDialog progressDialog) {
+            List<AngleExposure> angleExposures) {
 
-        return CompletableFuture.supplyAsync(() -> {
+        return CompletableFuture.supplyAsync(ProjectLogger.wrap(() -> {
             try {
                 logger.info("Starting acquisition for annotation: {}", annotation.getName());
 
-                // Get configuration file path
                 String configFileLocation = QPPreferenceDialog.getMicroscopeConfigFileProperty();
-                MicroscopeConfigManager configManager = MicroscopeConfigManager.getInstance(configFileLocation);
-
-                // Extract modality base name
                 String modalityWithIndex = state.projectInfo.getImagingModeWithIndex();
-                String baseModality = state.sample.modality();
-
-                // Get WSI pixel size using explicit hardware configuration
-                double WSI_pixelSize_um;
-                try {
-                    WSI_pixelSize_um = configManager.getModalityPixelSize(baseModality, state.sample.objective(), state.sample.detector());
-                    logger.debug("Using explicit hardware config: obj={}, det={}, px={}",
-                            state.sample.objective(), state.sample.detector(), WSI_pixelSize_um);
-                } catch (IllegalArgumentException e) {
-                    throw new RuntimeException("Failed to get pixel size for selected hardware configuration: " + 
-                            baseModality + "/" + state.sample.objective() + "/" + state.sample.detector() + " - " + e.getMessage());
-                }
-
                 // Use the actual sample name from projectInfo (derived from project folder)
                 // This ensures the path matches where tiles were written
                 String actualSampleName = state.projectInfo.getSampleName();
 
-                // Build acquisition configuration using shared builder
                 AcquisitionConfigurationBuilder.AcquisitionConfiguration config =
-                    AcquisitionConfigurationBuilder.buildConfiguration(
-                        state.sample,
-                        configFileLocation,
-                        modalityWithIndex,
-                        annotation.getName(),
-                        angleExposures,
-                        state.sample.projectsFolder().getAbsolutePath(),
-                        actualSampleName,  // Use actual sample name from project folder
-                        WSI_pixelSize_um
-                    );
+                        buildConfiguration(annotation.getName(), angleExposures);
 
                 logger.info("Acquisition parameters for {}:", annotation.getName());
                 logger.info("  Config: {}", configFileLocation);
@@ -590,6 +944,10 @@ public class AcquisitionManager {
                         modalityWithIndex,
                         annotation.getName()
                 );
+                // Stitching corrects the tiles as they were acquired, whatever the preference is by then
+                FlatFieldCorrector.recordAcquisition(
+                        Paths.get(state.projectInfo.getTempTileDirectory(), annotation.getName()),
+                        config.clientFlatField());
 
                 // Apply Z-focus prediction if model is ready (tilt correction)
                 if (state.transform != null) {
@@ -611,40 +969,442 @@ public class AcquisitionManager {
                     }
                 }
 
-                // Start acquisition
-                MicroscopeController.getInstance().startAcquisition(config.commandBuilder());
-
-                // Monitor progress
-                return monitorAcquisition(annotation, angleExposures, progressDialog);
+                // Start acquisition and wait for it
+                journal(j -> j.annotationStarted(annotation.getName(), config.commandBuilder().buildSocketMessage()));
+                return acquireAnnotation(annotation, angleExposures, config.commandBuilder());
 
             } catch (Exception e) {
                 logger.error("Acquisition failed for {}", annotation.getName(), e);
                 showAcquisitionError(annotation.getName(), e.getMessage());
                 return false;
             }
+        }, logProject));
+    }
+
+    /**
+     * Opens the checkpoint journal for this run, continuing the resumed run's record if there is one.
+     */
+    private void openJournal(List<AngleExposure> angleExposures) {
+        Path tileDirectory = Paths.get(state.projectInfo.getTempTileDirectory());
+        try {
+            if (resumeRun != null) {
+                journal = AcquisitionJournal.open(tileDirectory.getParent(), resumeRun.run());
+            } else {
+                journal = AcquisitionJournal.open(tileDirectory.getParent(), state.projectInfo.getImagingModeWithIndex());
+                journal.runStarted(tileDirectory.toString(), angleFolders(angleExposures),
+                        state.annotations.stream().map(PathObject::getName).toList());
+            }
+        } catch (IOException e) {
+            logger.warn("Acquisition journal not available, this run cannot be resumed: {}", e.getMessage());
+            journal = null;
+        }
+    }
+
+    private void journal(Consumer<AcquisitionJournal> event) {
+        AcquisitionJournal current = journal;
+        if (current != null) {
+            event.accept(current);
+        }
+    }
+
+    /**
+     * Continues an annotation of the run being resumed from what is on disk.
+     *
+     * @return CompletableFuture with true if the annotation is done, or null if it has to be
+     *         acquired from the start
+     */
+    private CompletableFuture<Boolean> resumeAnnotation(PathObject annotation,
+                                                        List<AngleExposure> angleExposures,
+                                                        DualProgressDialog progressDialog) {
+        AcquisitionJournal.AnnotationRecord previous =
+                resumeRun == null ? null : resumeRun.annotation(annotation.getName());
+        if (previous == null || previous.command() == null) {
+            return null;
+        }
+        if (previous.isComplete()) {
+            logger.info("Skipping {} - acquired and stitched before the interruption", annotation.getName());
+            Platform.runLater(progressDialog::completeCurrentAnnotation);
+            return CompletableFuture.completedFuture(true);
+        }
+
+        CompletableFuture<Boolean> tilesReady;
+        if (previous.acquired()) {
+            logger.info("{} was acquired before the interruption - stitching again", annotation.getName());
+            tilesReady = CompletableFuture.completedFuture(true);
+        } else {
+            Path tileDir = Paths.get(state.projectInfo.getTempTileDirectory(), annotation.getName());
+            List<Integer> missing;
+            int total;
+            try {
+                missing = TilePatch.missingTiles(tileDir, angleFolders(angleExposures));
+                Map<String, double[]> positions =
+                        TransformationFunctions.readTilePositions(tileDir.resolve("TileConfiguration.txt"));
+                total = positions == null ? 0 : positions.size();
+            } catch (IOException e) {
+                logger.warn("Cannot check tiles of {} on disk, acquiring again: {}", annotation.getName(), e.getMessage());
+                return null;
+            }
+            if (missing.size() >= total) {
+                return null;
+            }
+            logger.info("{} had {} of {} tiles before the interruption", annotation.getName(),
+                    total - missing.size(), total);
+            if (missing.isEmpty()) {
+                journal(j -> j.annotationAcquired(annotation.getName(), null));
+                tilesReady = CompletableFuture.completedFuture(true);
+            } else {
+                tilesReady = reacquireTiles(annotation, angleExposures, missing, null);
+            }
+        }
+        return tilesReady.thenApply(ok -> {
+            if (!ok) {
+                Platform.runLater(() -> progressDialog.showError("Failed to complete " + annotation.getName()));
+                return false;
+            }
+            Platform.runLater(progressDialog::completeCurrentAnnotation);
+            launchStitching(annotation, angleExposures);
+            return true;
         });
     }
+
     /**
-     * Monitors acquisition progress with cancellation support.
+     * Builds the acquisition configuration of one region with the sample's hardware.
+     *
+     * @param regionName Region folder the server reads tile positions from and writes tiles to
+     * @param angleExposures Rotation angles for this acquisition
+     * @return The configuration, with its command builder ready to send
+     */
+    private AcquisitionConfigurationBuilder.AcquisitionConfiguration buildConfiguration(
+            String regionName, List<AngleExposure> angleExposures) {
+        String configFileLocation = QPPreferenceDialog.getMicroscopeConfigFileProperty();
+        MicroscopeConfigManager configManager = MicroscopeConfigManager.getInstance(configFileLocation);
+        String baseModality = state.sample.modality();
+
+        // Get WSI pixel size using explicit hardware configuration
+        double WSI_pixelSize_um;
+        try {
+            WSI_pixelSize_um = configManager.getModalityPixelSize(baseModality, state.sample.objective(), state.sample.detector());
+            logger.debug("Using explicit hardware config: obj={}, det={}, px={}",
+                    state.sample.objective(), state.sample.detector(), WSI_pixelSize_um);
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Failed to get pixel size for selected hardware configuration: " +
+                    baseModality + "/" + state.sample.objective() + "/" + state.sample.detector() + " - " + e.getMessage());
+        }
+
+        return AcquisitionConfigurationBuilder.buildConfiguration(
+                state.sample,
+                configFileLocation,
+                state.projectInfo.getImagingModeWithIndex(),
+                regionName,
+                angleExposures,
+                state.sample.projectsFolder().getAbsolutePath(),
+                state.projectInfo.getSampleName(),  // Use actual sample name from project folder
+                WSI_pixelSize_um
+        );
+    }
+
+    /**
+     * Re-acquires some of an annotation's tiles and writes them over the existing ones.
+     *
+     * <p>The selected tiles are acquired as a separate region (see {@link TilePatch}) at the stage
+     * positions of the annotation's {@code TileConfiguration.txt}, then moved into the annotation's
+     * tile folder. The caller decides whether to stitch afterwards; the rest of the tiles are not
+     * touched, so stitching again from disk does not need the microscope.</p>
+     *
+     * <p>The server accepts one focus hint per acquisition, so per-tile hints are reduced to their
+     * median. Without hints, the tilt model is asked for each tile position.</p>
+     *
+     * @param annotation Annotation whose tiles are re-acquired
+     * @param angleExposures Rotation angles the annotation was acquired with
+     * @param tileIndices Indices of the tiles to re-acquire
+     * @param zHints Focus hints in microns by tile index, or null
+     * @return CompletableFuture with true if all selected tiles were replaced
+     */
+    public CompletableFuture<Boolean> reacquireTiles(PathObject annotation,
+                                                     List<AngleExposure> angleExposures,
+                                                     Collection<Integer> tileIndices,
+                                                     Map<Integer, Double> zHints) {
+        return CompletableFuture.supplyAsync(ProjectLogger.wrap(() -> {
+            AcquisitionEngine runEngine = engine;
+            if (runEngine != null && runEngine.isCancelled()) {
+                logger.info("Not re-acquiring tiles of {} - the run was cancelled", annotation.getName());
+                return false;
+            }
+            String tempTileDir = state.projectInfo.getTempTileDirectory();
+            Path tileDir = Paths.get(tempTileDir, annotation.getName());
+            String patchName = TilePatch.patchRegionName(annotation.getName());
+            Path patchDir = Paths.get(tempTileDir, patchName);
+            try {
+                Map<String, double[]> selected = TilePatch.writePatchConfiguration(tileDir, patchDir, tileIndices);
+                logger.info("Re-acquiring {} tiles of {}: {}", selected.size(), annotation.getName(), tileIndices);
+
+                AcquisitionConfigurationBuilder.AcquisitionConfiguration config =
+                        buildConfiguration(patchName, angleExposures);
+                List<Double> hints = new ArrayList<>();
+                for (Map.Entry<String, double[]> entry : selected.entrySet()) {
+                    double[] p = entry.getValue();
+                    Double hint = zHints != null
+                            ? zHints.get(TileQualityMonitor.tileIndex(entry.getKey()))
+                            : zFocusModel.canPredict(zFocusModel.distanceFromLastPoint(p[0], p[1]))
+                                    ? zFocusModel.predictZ(p[0], p[1]).orElse(null) : null;
+                    if (hint != null) {
+                        hints.add(hint);
+                    }
+                }
+                if (!hints.isEmpty()) {
+                    Collections.sort(hints);
+                    double hintZ = hints.get(hints.size() / 2);
+                    config.commandBuilder().hintZ(hintZ);
+                    logger.info("Z hint for re-acquisition of {}: {} um (median of {})",
+                            annotation.getName(), String.format("%.2f", hintZ), hints.size());
+                }
+
+                List<String> angles = angleFolders(angleExposures);
+                int expected = selected.size() * Math.max(1, angles.size());
+                journal(j -> j.annotationStarted(annotation.getName(), config.commandBuilder().buildSocketMessage()));
+                AcquisitionEngine.Result result;
+                try {
+                    result = patchEngine(annotation.getName()).acquire(new AcquisitionEngine.Region(
+                            patchName, config.commandBuilder(), patchDir, angles, expected, false));
+                } finally {
+                    runListener().regionSubStep(annotation.getName(), null);
+                }
+                if (!result.isCompleted()) {
+                    logger.warn("Re-acquisition of {} ended in state {}; tiles left in {}",
+                            annotation.getName(), result.state(), patchDir);
+                    return false;
+                }
+
+                int merged = TilePatch.mergeTiles(patchDir, tileDir, angles, selected.keySet());
+                // Keep the QC results in step with the tiles on disk, so replaced tiles are not flagged again
+                if (Files.exists(tileDir.resolve(TileQualityMonitor.RESULTS_FILE))) {
+                    TileQualityMonitor.Report report = TileQualityMonitor.recheck(tileDir, angles, 0).join();
+                    logger.info("Tile QC of {} after re-acquisition: {}",
+                            annotation.getName(), report.summary().describe());
+                }
+                if (merged != expected) {
+                    return false;
+                }
+                journal(j -> j.annotationAcquired(annotation.getName(), result.finalZ()));
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (Exception e) {
+                logger.error("Re-acquisition failed for {}", annotation.getName(), e);
+                return false;
+            }
+        }, logProject));
+    }
+
+    /**
+     * Creates an engine for a patch acquisition. Patches are not counted as annotations in the
+     * progress dialog, so their progress is passed on to the run's listeners as a sub-step of the
+     * annotation, along with manual focus requests.
+     *
+     * @param annotationName Annotation the patch belongs to
+     */
+    private AcquisitionEngine patchEngine(String annotationName) {
+        AcquisitionListener runListener = runListener();
+        return new AcquisitionEngine(MicroscopeController.getInstance().getSocketClient(),
+                new AcquisitionListener() {
+                    @Override
+                    public void regionStarted(String region, int expectedFiles) {
+                        regionProgress(region, 0, expectedFiles);
+                    }
+
+                    @Override
+                    public void regionProgress(String region, int filesWritten, int expectedFiles) {
+                        runListener.regionSubStep(annotationName, String.format(
+                                "Re-acquiring tiles of %s: %d/%d images", annotationName, filesWritten, expectedFiles));
+                    }
+
+                    @Override
+                    public CompletableFuture<ManualFocusDecision> manualFocusRequested(String region,
+                                                                                      int retriesRemaining) {
+                        return runListener.manualFocusRequested(region, retriesRemaining);
+                    }
+                }, AcquisitionEngine.DEFAULT_POLL_INTERVAL_MS, ACQUISITION_TIMEOUT_MS);
+    }
+
+    /**
+     * @return Listeners of the current run, or the stitching dialogs alone outside a run
+     */
+    private AcquisitionListener runListener() {
+        AcquisitionEngine runEngine = engine;
+        return runEngine != null ? runEngine.getListener() : new ProgressDialogListener(null);
+    }
+
+    /**
+     * Re-acquires the tiles that tile QC flagged in a just-acquired annotation, if enabled in
+     * preferences. Runs before the annotation is stitched, so only the flagged tiles are acquired
+     * again and nothing has to be re-stitched. Otherwise the flagged tiles are offered to the user by
+     * {@link #offerTilePatches} at the end of the run.
+     *
+     * @return CompletableFuture that completes when re-acquisition is done or skipped
+     */
+    private CompletableFuture<Void> reacquireFlaggedTiles(PathObject annotation,
+                                                          List<AngleExposure> angleExposures,
+                                                          DualProgressDialog progressDialog) {
+        if (!QPPreferenceDialog.getReacquireFlaggedTiles()) {
+            // Left in tileQcReports for offerTilePatches at the end of the run
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<TileQualityMonitor.Report> qc = tileQcReports.remove(annotation.getName());
+        if (qc == null || (progressDialog != null && progressDialog.isCancelled())) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return qc.thenCompose(report -> {
+            List<Integer> flagged = report.tilesToReacquire();
+            if (flagged.isEmpty()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return reacquireTiles(annotation, angleExposures, flagged, null)
+                    .thenAccept(ok -> {
+                        if (!ok) {
+                            logger.warn("Flagged tiles of {} could not all be re-acquired; stitching what is on disk",
+                                    annotation.getName());
+                        }
+                    });
+        }).exceptionally(e -> {
+            logger.warn("Skipping re-acquisition of flagged tiles for {}: {}", annotation.getName(), e.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * Re-acquires tiles of an annotation and stitches it again, replacing the tiles in its folder.
+     *
+     * @param annotation Annotation whose tiles are patched
+     * @param angleExposures Rotation angles the annotation was acquired with
+     * @param tileIndices Indices of the tiles to re-acquire
+     * @return CompletableFuture with true if the tiles were replaced and stitching was queued
+     */
+    public CompletableFuture<Boolean> patchAnnotation(PathObject annotation,
+                                                      List<AngleExposure> angleExposures,
+                                                      Collection<Integer> tileIndices) {
+        return reacquireTiles(annotation, angleExposures, tileIndices, null)
+                .thenApply(ok -> {
+                    if (ok) {
+                        launchStitching(annotation, angleExposures);
+                    } else {
+                        logger.warn("Tiles {} of {} could not all be re-acquired; not stitching again",
+                                tileIndices, annotation.getName());
+                    }
+                    return ok;
+                });
+    }
+
+    /**
+     * Offers to patch the annotation that stopped the run, and, when flagged tiles are not
+     * re-acquired automatically, each stitched annotation that tile QC flagged. The user can edit
+     * the suggested tiles; every confirmed patch is re-acquired and queued for stitching again.
+     *
+     * @return CompletableFuture that completes once every offer has been answered and patched
+     */
+    private CompletableFuture<Void> offerTilePatches(List<AngleExposure> angleExposures,
+                                                     DualProgressDialog progressDialog) {
+        List<CompletableFuture<TileQualityMonitor.Report>> pendingQc = new ArrayList<>(tileQcReports.values());
+        return CompletableFuture.allOf(pendingQc.toArray(new CompletableFuture[0]))
+                .handle((v, e) -> null)
+                .thenRunAsync(ProjectLogger.wrap(() -> {
+                    if (progressDialog != null && progressDialog.isCancelled()) {
+                        return;
+                    }
+                    Path tempTileDir = Paths.get(state.projectInfo.getTempTileDirectory());
+                    PathObject failed = failedAnnotation;
+                    if (failed != null) {
+                        try {
+                            List<Integer> missing = TilePatch.missingTiles(
+                                    tempTileDir.resolve(failed.getName()), angleFolders(angleExposures));
+                            if (!missing.isEmpty()) {
+                                offerTilePatch(failed, angleExposures, missing,
+                                        "Acquisition of " + failed.getName() + " stopped with "
+                                                + missing.size() + " tiles missing or incomplete.");
+                            }
+                        } catch (IOException e) {
+                            logger.warn("Cannot check tiles of {} on disk: {}", failed.getName(), e.getMessage());
+                        }
+                    }
+                    if (deleteTilesAfterStitching) {
+                        // The flagged annotations' tiles are gone once they are stitched
+                        return;
+                    }
+                    // Don't replace tiles that are still being stitched
+                    CompletableFuture.allOf(state.stitchingFutures.toArray(new CompletableFuture[0]))
+                            .handle((v, e) -> null)
+                            .join();
+                    for (PathObject annotation : state.annotations) {
+                        if (tileQcReports.remove(annotation.getName()) == null) {
+                            continue;
+                        }
+                        try {
+                            List<Integer> flagged = TilePatch.flaggedTiles(tempTileDir.resolve(annotation.getName()));
+                            if (!flagged.isEmpty()) {
+                                offerTilePatch(annotation, angleExposures, flagged,
+                                        "Tile QC flagged " + flagged.size() + " tiles of " + annotation.getName()
+                                                + " as out of focus or saturated.");
+                            }
+                        } catch (IOException e) {
+                            logger.warn("Cannot read tile QC results of {}: {}", annotation.getName(), e.getMessage());
+                        }
+                    }
+                }));
+    }
+
+    /**
+     * Asks which tiles of an annotation to re-acquire, suggesting the given ones, and patches them.
+     * Blocks until the user has answered and the patch is done.
+     */
+    private void offerTilePatch(PathObject annotation, List<AngleExposure> angleExposures,
+                                List<Integer> suggested, String reason) {
+        CompletableFuture<String> answer = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            try {
+                answer.complete(Dialogs.showInputDialog("Re-acquire Tiles",
+                        reason + "\n\nTiles to re-acquire (e.g. 3, 5, 8-10), or cancel to keep them as they are:",
+                        suggested.stream().map(String::valueOf).collect(Collectors.joining(", "))));
+            } catch (Exception e) {
+                answer.completeExceptionally(e);
+            }
+        });
+        String text = answer.join();
+        if (text == null || text.isBlank()) {
+            logger.info("Not patching {}", annotation.getName());
+            return;
+        }
+        List<Integer> indices;
+        try {
+            indices = TilePatch.parseTileIndices(text);
+        } catch (IllegalArgumentException e) {
+            Platform.runLater(() -> Dialogs.showErrorNotification("Re-acquire Tiles", e.getMessage()));
+            return;
+        }
+        if (!indices.isEmpty()) {
+            patchAnnotation(annotation, angleExposures, indices).join();
+        }
+    }
+
+    /**
+     * Acquires one annotation through the run's {@link AcquisitionEngine} and waits for it.
      *
      * <p>This method:
      * <ul>
      *   <li>Calculates expected file count based on tiles and angles</li>
-     *   <li>Shows a progress bar with cancel button</li>
-     *   <li>Polls the microscope server for status updates</li>
-     *   <li>Handles user cancellation requests</li>
+     *   <li>Paints the live preview into the Stage Map, if it is open</li>
+     *   <li>Hands the region to the engine, which reports progress, manual focus requests
+     *       and tile QC to the run's listeners</li>
      * </ul>
      *
      * @param annotation The annotation being acquired
      * @param angleExposures Rotation angles for calculating expected files
+     * @param command Acquisition command for the annotation
      * @return true if completed successfully, false if cancelled/failed
      * @throws IOException if communication with microscope fails
      */
-    private boolean monitorAcquisition(PathObject annotation,
-                                       List<AngleExposure> angleExposures,
-                                       DualProgressDialog progressDialog) throws IOException {
-
-        MicroscopeSocketClient socketClient = MicroscopeController.getInstance().getSocketClient();
+    private boolean acquireAnnotation(PathObject annotation,
+                                      List<AngleExposure> angleExposures,
+                                      AcquisitionCommandBuilder command) throws IOException {
 
         // Calculate expected files with retry logic to handle timing issues
         // Use tempTileDirectory from projectInfo which has the correct path (including actual sample name)
@@ -670,179 +1430,98 @@ public class AcquisitionManager {
         logger.info("Expected files: {} ({}x{} angles)", expectedFiles, tilesPerAngle,
                 angleExposures != null ? angleExposures.size() : 1);
 
-        // Create progress counter
-        AtomicInteger progressCounter = new AtomicInteger(0);
-
-        // Start tracking this annotation in the dual progress dialog
-        if (progressDialog != null && !progressDialog.isCancelled()) {
-            Platform.runLater(() -> progressDialog.startAnnotation(annotation.getName(), expectedFiles));
+        LiveScanPreview preview = startLivePreview(tileDirPath, angleExposures);
+        AcquisitionEngine.Result result;
+        try {
+            result = engine.acquire(new AcquisitionEngine.Region(annotation.getName(), command,
+                    Paths.get(tileDirPath), angleFolders(angleExposures), expectedFiles,
+                    QPPreferenceDialog.getTileQualityChecks()));
+        } catch (InterruptedException e) {
+            logger.error("Acquisition monitoring interrupted", e);
+            throw new RuntimeException(e);
+        } finally {
+            if (preview != null) {
+                preview.stop();
+            }
         }
 
-        // Flag to track if we've read the acquisition metadata file
-        AtomicBoolean metadataRead = new AtomicBoolean(false);
-        // Flag to track if we're currently handling a manual focus request (to avoid showing multiple dialogs)
-        AtomicBoolean handlingManualFocus = new AtomicBoolean(false);
+        if (result.tileQc() != null) {
+            tileQcReports.put(annotation.getName(), result.tileQc());
+            result.tileQc().thenAccept(report -> {
+                List<Integer> reacquire = report.tilesToReacquire();
+                if (!reacquire.isEmpty()) {
+                    logger.warn("Tile QC suggests re-acquiring {} tiles of {}: {}",
+                            reacquire.size(), annotation.getName(), reacquire);
+                }
+            });
+        }
 
-        try {
-            // Monitor acquisition with regular status updates
-            MicroscopeSocketClient.AcquisitionState finalState =
-                    socketClient.monitorAcquisition(
-                            progress -> {
-                                progressCounter.set(progress.current);
-                                // Update dual progress dialog
-                                if (progressDialog != null && !progressDialog.isCancelled()) {
-                                    Platform.runLater(() -> progressDialog.updateCurrentAnnotationProgress(progress.current));
-                                }
+        // Check final state
+        switch (result.state()) {
+            case COMPLETED:
+                return true;
 
-                                // Check for manual focus request (only once per request)
-                                try {
-                                    int retriesRemaining = socketClient.isManualFocusRequested();
-                                    if (retriesRemaining >= 0 && !handlingManualFocus.get()) {
-                                        handlingManualFocus.set(true);
-                                        logger.info("Manual focus requested by server - showing dialog (retries remaining: {})", retriesRemaining);
-
-                                        // Pause timing tracking so user wait time doesn't inflate estimates
-                                        if (progressDialog != null) {
-                                            progressDialog.pauseTimingForManualFocus();
-                                        }
-
-                                        // Use CountDownLatch to block until dialog is closed and acknowledged
-                                        java.util.concurrent.CountDownLatch latch = new java.util.concurrent.CountDownLatch(1);
-
-                                        // Capture retries for use in Platform.runLater
-                                        final int retriesForDialog = retriesRemaining;
-
-                                        // Show dialog on JavaFX thread
-                                        Platform.runLater(() -> {
-                                            try {
-                                                UIFunctions.ManualFocusResult result = UIFunctions.showManualFocusDialog(retriesForDialog);
-
-                                                // Handle user's choice
-                                                try {
-                                                    switch (result) {
-                                                        case RETRY_AUTOFOCUS:
-                                                            socketClient.acknowledgeManualFocus();
-                                                            logger.info("User chose to retry autofocus");
-                                                            break;
-                                                        case USE_CURRENT_FOCUS:
-                                                            socketClient.skipAutofocusRetry();
-                                                            logger.info("User chose to use current focus");
-                                                            break;
-                                                        case CANCEL_ACQUISITION:
-                                                            socketClient.cancelAcquisition();
-                                                            logger.info("User chose to cancel acquisition");
-                                                            break;
-                                                    }
-                                                } catch (IOException e) {
-                                                    logger.error("Failed to send manual focus response", e);
-                                                }
-                                            } finally {
-                                                handlingManualFocus.set(false);
-                                                // Resume timing tracking after manual focus is handled
-                                                if (progressDialog != null) {
-                                                    progressDialog.resumeTimingAfterManualFocus();
-                                                }
-                                                latch.countDown();
-                                            }
-                                        });
-
-                                        // Block until dialog is closed and acknowledged
-                                        // Periodically check progress to prevent timeout during manual focus
-                                        try {
-                                            while (!latch.await(30, java.util.concurrent.TimeUnit.SECONDS)) {
-                                                // Ping server every 30 seconds to prevent timeout
-                                                try {
-                                                    socketClient.getAcquisitionProgress();
-                                                    logger.debug("Keepalive ping during manual focus");
-                                                } catch (IOException e) {
-                                                    logger.warn("Failed to ping server during manual focus", e);
-                                                }
-                                            }
-                                        } catch (InterruptedException e) {
-                                            logger.error("Interrupted while waiting for manual focus", e);
-                                            Thread.currentThread().interrupt();
-                                        }
-                                    }
-                                } catch (IOException e) {
-                                    logger.warn("Failed to check manual focus status: {}", e.getMessage());
-                                }
-
-                                // Check for acquisition metadata file (only once)
-                                if (!metadataRead.get() && progressDialog != null) {
-                                    java.nio.file.Path metadataPath = java.nio.file.Paths.get(tileDirPath, "acquisition_metadata.txt");
-                                    if (java.nio.file.Files.exists(metadataPath)) {
-                                        metadataRead.set(true);
-                                        try {
-                                            java.util.List<String> lines = java.nio.file.Files.readAllLines(metadataPath);
-                                            int timingWindowSize = 10;
-                                            int afNTiles = 5;
-                                            int totalTiles = 0;
-
-                                            for (String line : lines) {
-                                                if (line.startsWith("timing_window_size=")) {
-                                                    timingWindowSize = Integer.parseInt(line.substring("timing_window_size=".length()));
-                                                } else if (line.startsWith("af_n_tiles=")) {
-                                                    afNTiles = Integer.parseInt(line.substring("af_n_tiles=".length()));
-                                                } else if (line.startsWith("total_tiles=")) {
-                                                    totalTiles = Integer.parseInt(line.substring("total_tiles=".length()));
-                                                }
-                                            }
-
-                                            logger.info("Read acquisition metadata: window={}, af_positions={}, total_tiles={}",
-                                                    timingWindowSize, afNTiles, totalTiles);
-
-                                            // Update dialog with all timing parameters
-                                            final int finalTimingWindow = timingWindowSize;
-                                            final int finalAfNTiles = afNTiles;
-                                            final int finalTotalTiles = totalTiles;
-                                            Platform.runLater(() -> {
-                                                progressDialog.setTimingWindowSize(finalTimingWindow);
-                                                progressDialog.setAfNTiles(finalAfNTiles);
-                                                if (finalTotalTiles > 0) {
-                                                    progressDialog.setTotalTilesForAnnotation(finalTotalTiles);
-                                                }
-                                            });
-                                        } catch (Exception e) {
-                                            logger.warn("Failed to read acquisition metadata: {}", e.getMessage());
-                                        }
-                                    }
-                                }
-                            },
-                            500,    // Poll every 500ms for responsive UI
-                            ACQUISITION_TIMEOUT_MS
-                    );
+            case CANCELLED:
+                // User clicked cancel - no error notification needed, dialog already shows state
+                return false;
 
-            // Check final state
-            switch (finalState) {
-                case COMPLETED:
-                    logger.info("Acquisition completed successfully for {}", annotation.getName());
-                    return true;
+            case FAILED:
+                throw new RuntimeException("Acquisition failed on server: " + result.failureMessage());
 
-                case CANCELLED:
-                    logger.info("Acquisition was cancelled for {}", annotation.getName());
-                    // User clicked cancel - no error notification needed, dialog already shows state
-                    if (progressDialog != null && progressDialog.isCancelled()) {
-                        logger.info("Cancellation was initiated via dual progress dialog");
-                    }
-                    return false;
+            default:
+                logger.warn("Unexpected acquisition state: {}", result.state());
+                return false;
+        }
+    }
 
-                case FAILED:
-                    // Get detailed failure message from server
-                    String failureMessage = socketClient.getLastFailureMessage();
-                    String errorDetails = failureMessage != null ? failureMessage : "Unknown server error";
-                    logger.error("Server acquisition failed: {}", errorDetails);
-                    throw new RuntimeException("Acquisition failed on server: " + errorDetails);
+    /**
+     * Journals tile counts about every tenth of each annotation.
+     */
+    private AcquisitionListener journalListener() {
+        AtomicInteger journalStep = new AtomicInteger(1);
+        AtomicInteger nextJournalMilestone = new AtomicInteger(1);
+        return new AcquisitionListener() {
+            @Override
+            public void regionStarted(String region, int expectedFiles) {
+                journalStep.set(Math.max(1, expectedFiles / 10));
+                nextJournalMilestone.set(journalStep.get());
+            }
 
-                default:
-                    logger.warn("Unexpected acquisition state: {}", finalState);
-                    return false;
+            @Override
+            public void regionProgress(String region, int filesWritten, int expectedFiles) {
+                int milestone = nextJournalMilestone.get();
+                if (filesWritten >= milestone
+                        && nextJournalMilestone.compareAndSet(milestone, filesWritten + journalStep.get())) {
+                    journal(j -> j.progress(region, filesWritten));
+                }
             }
+        };
+    }
 
-        } catch (InterruptedException e) {
-            logger.error("Acquisition monitoring interrupted", e);
-            throw new RuntimeException(e);
-        } finally {
-            // No individual progress handle to close - dual dialog manages its own lifecycle
+    /**
+     * Starts painting this region's tiles into the Stage Map as they are written.
+     * Multi-angle acquisitions show the first angle.
+     *
+     * @return The running preview, or null if the Stage Map is closed or the FOV is unknown
+     */
+    private LiveScanPreview startLivePreview(String tileDirPath, List<AngleExposure> angleExposures) {
+        if (!StageMapWindow.isVisible()) {
+            return null;
+        }
+        try {
+            MicroscopeConfigManager configManager =
+                    MicroscopeConfigManager.getInstance(QPPreferenceDialog.getMicroscopeConfigFileProperty());
+            double[] fov = configManager.getModalityFOV(state.sample.modality(),
+                    state.sample.objective(), state.sample.detector());
+            if (fov == null) {
+                return null;
+            }
+            String previewAngle = angleExposures == null || angleExposures.isEmpty()
+                    ? null : String.valueOf(angleExposures.get(0).ticks());
+            return LiveScanPreview.start(Paths.get(tileDirPath), previewAngle, fov[0], fov[1]);
+        } catch (Exception e) {
+            logger.debug("Live Stage Map preview not started: {}", e.getMessage());
+            return null;
         }
     }
 
@@ -905,8 +1584,8 @@ public class AcquisitionManager {
         logger.debug("Derived projectsFolder for stitching: {}", projectsFolder);
 
         // Create stitching future - use projectInfo.getSampleName() for correct folder path
-        // Pass the dualProgressDialog so stitching status is shown in the unified progress window
-        CompletableFuture<Void> stitchFuture = StitchingHelper.performAnnotationStitching(
+        // Report to the run's listeners so stitching status is shown in the unified progress window
+        CompletableFuture<Map<String, String>> stitched = StitchingHelper.performAnnotationStitching(
                 annotation,
                 state.sample,
                 state.projectInfo.getImagingModeWithIndex(),
@@ -919,13 +1598,107 @@ public class AcquisitionManager {
                 MicroscopeController.getInstance().getCurrentTransform(),
                 state.projectInfo.getSampleName(),
                 projectsFolder.toString(),
-                dualProgressDialog
+                engine != null ? engine.getListener() : new ProgressDialogListener(dualProgressDialog)
         );
 
+        // Journal each angle from the images actually written; stitching carries on past failed angles
+        List<String> angles = angleFolders(angleExposures);
+        List<String> stitchedAngles = angles.isEmpty() ? List.of("") : angles;
+        stitchedAngles.forEach(angle ->
+                journal(j -> j.stitching(annotation.getName(), angle, AcquisitionJournal.StitchState.QUEUED)));
+        AcquisitionJournal runJournal = journal;
+        stitched = stitched.whenComplete((outputs, e) -> {
+            if (runJournal != null) {
+                stitchedAngles.forEach(angle -> runJournal.stitching(annotation.getName(), angle,
+                        e == null && isStitched(outputs.get(angle))
+                                ? AcquisitionJournal.StitchState.DONE : AcquisitionJournal.StitchState.FAILED));
+            }
+        });
+
+        CompletableFuture<Void> stitchFuture;
+        if (deleteTilesAfterStitching) {
+            Path annotationTileDir = Paths.get(tempTileDir, annotation.getName());
+            stitchFuture = stitched.thenAccept(outputs -> deleteStitchedTiles(annotationTileDir, outputs));
+        } else {
+            stitchFuture = stitched.thenAccept(outputs -> {});
+        }
+
         state.stitchingFutures.add(stitchFuture);
         logger.info("Launched stitching for annotation: {}", annotation.getName());
     }
 
+    /**
+     * When tiles are deleted as annotations are stitched, waits until at most one earlier
+     * annotation is still queued for or in stitching. At most two annotations then hold tiles
+     * at once, as {@link StoragePreflight#estimate} assumes; otherwise a slow stitch would let
+     * tiles of every acquired annotation pile up.
+     *
+     * @return Future completing when the next annotation may be acquired
+     */
+    private CompletableFuture<Void> awaitStitchBacklog() {
+        List<CompletableFuture<Void>> futures = state.stitchingFutures;
+        if (!deleteTilesAfterStitching || futures.size() < 2) {
+            return CompletableFuture.completedFuture(null);
+        }
+        logger.info("Waiting for earlier annotations to finish stitching before acquiring the next");
+        return CompletableFuture.allOf(futures.subList(0, futures.size() - 1).toArray(new CompletableFuture[0]))
+                .handle((v, e) -> null);
+    }
+
+    /**
+     * Deletes the tiles of an annotation whose stitched images were written. Each tile folder
+     * (angle, birefringence or sum) and its uncorrected copy in RawTiles is deleted only if its
+     * stitched OME-TIFF exists; folders that failed to stitch are kept so they can be stitched
+     * again. The annotation folder itself goes once no tile folder is left in it.
+     *
+     * @param annotationTileDir Tile folder of the annotation
+     * @param outputs Stitched image by tile folder name, "" for tiles directly in the annotation folder
+     */
+    private static void deleteStitchedTiles(Path annotationTileDir, Map<String, String> outputs) {
+        Path rawTiles = FlatFieldCorrector.rawTilesDirectory(annotationTileDir);
+        List<Path> folders;
+        try (var dirs = Files.list(annotationTileDir)) {
+            folders = dirs.filter(Files::isDirectory).toList();
+        } catch (IOException e) {
+            logger.warn("Could not list {} - keeping its tiles: {}", annotationTileDir, e.getMessage());
+            return;
+        }
+
+        if (folders.isEmpty()) {
+            if (isStitched(outputs.get(""))) {
+                TileProcessingUtilities.deleteTilesAndFolder(annotationTileDir.toString());
+            } else {
+                logger.warn("No stitched image for {} - keeping its tiles", annotationTileDir);
+            }
+            return;
+        }
+
+        int kept = 0;
+        for (Path folder : folders) {
+            String name = folder.getFileName().toString();
+            if (isStitched(outputs.get(name))) {
+                TileProcessingUtilities.deleteTilesAndFolder(folder.toString());
+                Path raw = rawTiles.resolve(name);
+                if (Files.isDirectory(raw)) {
+                    TileProcessingUtilities.deleteTilesAndFolder(raw.toString());
+                }
+            } else {
+                logger.warn("No stitched image for {} - keeping its tiles", folder);
+                kept++;
+            }
+        }
+        if (kept == 0) {
+            TileProcessingUtilities.deleteTilesAndFolder(annotationTileDir.toString());
+            if (Files.isDirectory(rawTiles)) {
+                TileProcessingUtilities.deleteTilesAndFolder(rawTiles.toString());
+            }
+        }
+    }
+
+    private static boolean isStitched(String outputPath) {
+        return outputPath != null && Files.isRegularFile(Paths.get(outputPath));
+    }
+
     /**
      * Estimates tile count based on annotation bounds and camera FOV.
      * This is used as a fallback when TileConfiguration files are not available.
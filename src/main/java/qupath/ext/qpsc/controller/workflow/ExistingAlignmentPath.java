@@ -549,19 +549,18 @@ public class ExistingAlignmentPath {
         // Special handling for Ocus40 scanner
         if ("Ocus40".equalsIgnoreCase(scannerName)) {
             try {
+                // The classifier directory is only needed if native detection fails
                 String tissueScriptPath = QPPreferenceDialog.getTissueDetectionScriptProperty();
-                if (tissueScriptPath != null && !tissueScriptPath.isBlank()) {
-                    File scriptFile = new File(tissueScriptPath);
-                    String scriptDirectory = scriptFile.getParent();
-
-                    Rectangle bounds = UIFunctions.executeWithProgress(
-                            "Processing Image",
-                            "Detecting image boundaries...\nThis may take a moment for large images.",
-                            () -> ImageProcessing.detectOcus40DataBounds(gui, scriptDirectory)
-                    );
-                    if (bounds != null) {
-                        return bounds;
-                    }
+                String scriptDirectory = tissueScriptPath != null && !tissueScriptPath.isBlank()
+                        ? new File(tissueScriptPath).getParent() : null;
+
+                Rectangle bounds = UIFunctions.executeWithProgress(
+                        "Processing Image",
+                        "Detecting image boundaries...",
+                        () -> ImageProcessing.detectOcus40DataBounds(gui, scriptDirectory)
+                );
+                if (bounds != null) {
+                    return bounds;
                 }
             } catch (Exception e) {
                 logger.warn("Ocus40 detection failed!!!! Using green box without changes to bounds, which will likely be wrong", e);
@@ -729,7 +728,7 @@ public class ExistingAlignmentPath {
                 currentEntry != null ? currentEntry.getImageName() : "null");
 
         ProjectImageEntry<BufferedImage> flippedEntry = null;
-        for (var entry : project.getImageList()) {
+        for (var entry : ImageMetadataIndex.forProject(project).getFlipped()) {
             String entryName = entry.getImageName();
 
             // Check if this entry has "(flipped" in name (indicates it's a flipped duplicate)
@@ -851,7 +850,7 @@ public class ExistingAlignmentPath {
 
         // Find the flipped entry
         ProjectImageEntry<BufferedImage> flippedEntry = null;
-        for (var entry : project.getImageList()) {
+        for (var entry : ImageMetadataIndex.forProject(project).getFlipped()) {
             String entryName = entry.getImageName();
             if (entryName != null && entryName.contains("(flipped")) {
                 if (hasCorrectFlipStatus(entry, requiresFlipX, requiresFlipY)) {
@@ -0,0 +1,270 @@
+package qupath.ext.qpsc.controller.workflow;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qupath.ext.qpsc.modality.AngleExposure;
+import qupath.ext.qpsc.modality.ModalityRegistry;
+import qupath.ext.qpsc.modality.ppm.RotationManager;
+import qupath.ext.qpsc.preferences.QPPreferenceDialog;
+import qupath.ext.qpsc.service.AcquisitionEngine;
+import qupath.ext.qpsc.service.SlideBatchQueue;
+import qupath.ext.qpsc.ui.SampleSetupController;
+import qupath.ext.qpsc.utilities.AcquisitionConfigurationBuilder;
+import qupath.ext.qpsc.utilities.AffineTransformManager;
+import qupath.ext.qpsc.utilities.FlatFieldCorrector;
+import qupath.ext.qpsc.utilities.MicroscopeConfigManager;
+import qupath.ext.qpsc.utilities.MinorFunctions;
+import qupath.ext.qpsc.utilities.ObjectiveUtils;
+import qupath.ext.qpsc.utilities.TilingRequest;
+import qupath.ext.qpsc.utilities.TilingUtilities;
+import qupath.ext.qpsc.utilities.TransformationFunctions;
+import qupath.lib.gui.QuPathGUI;
+import qupath.lib.images.ImageData;
+import qupath.lib.objects.PathObject;
+import qupath.lib.projects.Project;
+import qupath.lib.projects.ProjectIO;
+import qupath.lib.projects.ProjectImageEntry;
+
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Acquires the slides of a {@link SlideBatchQueue} from their QuPath projects, without dialogs.
+ *
+ * <p>For each job the runner loads the job's project and finds the image its slide alignment was
+ * saved for: the job's {@code alignment} is the image name passed to
+ * {@link AffineTransformManager#saveSlideAlignment}. The image's annotations of the job's classes
+ * are tiled over the camera field of view, the tile positions are converted to stage coordinates
+ * with the saved alignment, and each annotation is acquired with the batch's
+ * {@link AcquisitionEngine}. Angles are the modality's configured defaults. Stitching and import
+ * into the project run on the runner's stitching thread, so the queue can acquire the next slide
+ * meanwhile.</p>
+ *
+ * <p>Each project is loaded once per runner, or taken from the GUI if it is the open project, so
+ * jobs that share a project add their images to the same instance. Images are only opened in the
+ * GUI for its own project; a batch never switches the open project.</p>
+ *
+ * <p>Hardware changes are left to the acquisition command, which names the objective and detector
+ * of every region. Tiles go to {@code <projects folder>/<job sample>/<modality>_<magnification>_<n>},
+ * where the projects folder is the parent of the job's project folder, as for the interactive
+ * workflows.</p>
+ *
+ * <pre>{@code
+ * def engine = new AcquisitionEngine(MicroscopeController.getInstance().getSocketClient(), null)
+ * def queue = new SlideBatchQueue(engine, new ProjectSlideRunner(getQuPath(), null),
+ *         SlideBatchQueue.DEFAULT_MAX_PENDING_SLIDES)
+ * def results = queue.run(SlideBatchQueue.plan(jobs, insert, null, null))
+ * }</pre>
+ */
+public class ProjectSlideRunner implements SlideBatchQueue.SlideRunner {
+    private static final Logger logger = LoggerFactory.getLogger(ProjectSlideRunner.class);
+
+    /** Stitches one annotation at a time, as the interactive acquisition does */
+    private static final ExecutorService STITCH_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "slide-batch-stitching");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final QuPathGUI gui;
+    private final String detector;
+    /** Projects by .qpproj file, shared by all jobs of the batch */
+    private final Map<Path, Project<BufferedImage>> projects = new ConcurrentHashMap<>();
+
+    /**
+     * @param gui QuPath GUI the stitched images are shown in
+     * @param detector Detector to acquire with, or null for the configured default of each
+     *                 modality and objective
+     */
+    public ProjectSlideRunner(QuPathGUI gui, String detector) {
+        this.gui = Objects.requireNonNull(gui, "gui");
+        this.detector = detector;
+    }
+
+    @Override
+    public CompletableFuture<Void> acquire(SlideBatchQueue.Job job, AcquisitionEngine engine) throws Exception {
+        if (engine == null) {
+            throw new IllegalArgumentException("The batch needs an AcquisitionEngine to acquire slides");
+        }
+        String configPath = QPPreferenceDialog.getMicroscopeConfigFileProperty();
+        MicroscopeConfigManager mgr = MicroscopeConfigManager.getInstance(configPath);
+        String jobDetector = detector != null ? detector
+                : mgr.getDefaultDetectorForModalityObjective(job.modality(), job.objective());
+        if (jobDetector == null) {
+            throw new IOException("No detector configured for " + job.modality() + " / " + job.objective());
+        }
+
+        Project<BufferedImage> project = loadProject(job.project());
+        ProjectImageEntry<BufferedImage> entry = findEntry(project, job.alignment());
+        AffineTransform fullResToStage = AffineTransformManager.loadSlideAlignment(project, job.alignment());
+        if (fullResToStage == null) {
+            throw new IOException("No saved alignment for " + job.alignment() + " in " + project.getPath());
+        }
+
+        // Output folders follow the layout of the interactive workflows
+        File projectsFolder = project.getPath().toFile().getParentFile().getParentFile();
+        SampleSetupController.SampleSetupResult sample = new SampleSetupController.SampleSetupResult(
+                job.sample(), projectsFolder, job.modality(), job.objective(), jobDetector);
+        String modeWithIndex = MinorFunctions.getUniqueFolderName(Paths.get(projectsFolder.getAbsolutePath(),
+                job.sample(), ObjectiveUtils.createEnhancedFolderName(job.modality(), job.objective())).toString());
+        Path tileDirectory = Paths.get(projectsFolder.getAbsolutePath(), job.sample(), modeWithIndex);
+        double wsiPixelSize = mgr.getModalityPixelSize(job.modality(), job.objective(), jobDetector);
+        List<AngleExposure> angleExposures = new RotationManager(job.modality(), job.objective(), jobDetector)
+                .getDefaultAnglesWithExposure(job.modality())
+                .join();
+
+        List<PathObject> annotations = tileAnnotations(entry, job, mgr, jobDetector, tileDirectory, fullResToStage);
+        logger.info("Acquiring {} annotations of {} into {}", annotations.size(), job.sample(), tileDirectory);
+
+        List<CompletableFuture<?>> stitching = new ArrayList<>();
+        for (PathObject annotation : annotations) {
+            String regionName = annotation.getName();
+            AcquisitionConfigurationBuilder.AcquisitionConfiguration config =
+                    AcquisitionConfigurationBuilder.buildConfiguration(sample, configPath, modeWithIndex,
+                            regionName, angleExposures, projectsFolder.getAbsolutePath(), job.sample(), wsiPixelSize);
+            MinorFunctions.saveAcquisitionCommand(config.commandBuilder().buildSocketMessage(),
+                    projectsFolder.getAbsolutePath(), job.sample(), modeWithIndex, regionName);
+            FlatFieldCorrector.recordAcquisition(tileDirectory.resolve(regionName), config.clientFlatField());
+
+            AcquisitionEngine.Result result = engine.acquire(new AcquisitionEngine.Region(regionName,
+                    config.commandBuilder(), tileDirectory.resolve(regionName), angleFolders(angleExposures), 0,
+                    QPPreferenceDialog.getTileQualityChecks()));
+            switch (result.state()) {
+                case COMPLETED -> stitching.add(StitchingHelper.performAnnotationStitching(annotation, sample,
+                        modeWithIndex, angleExposures, wsiPixelSize, gui, project, entry, STITCH_EXECUTOR,
+                        ModalityRegistry.getHandler(job.modality()), fullResToStage, job.sample(),
+                        projectsFolder.getAbsolutePath(), engine.getListener()));
+                case CANCELLED -> {
+                    logger.info("Acquisition of {} cancelled at {}", job.sample(), regionName);
+                    return CompletableFuture.allOf(stitching.toArray(CompletableFuture[]::new));
+                }
+                case FAILED -> throw new IOException(regionName + ": " + result.failureMessage());
+                default -> throw new IOException(regionName + " ended in state " + result.state());
+            }
+        }
+        return CompletableFuture.allOf(stitching.toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Writes the tile configurations of the job's annotations in stage coordinates and saves the
+     * image data, whose annotations are renamed after their tile folders and locked.
+     *
+     * @return The annotations, named after their tile folders
+     */
+    private static List<PathObject> tileAnnotations(ProjectImageEntry<BufferedImage> entry,
+                                                    SlideBatchQueue.Job job,
+                                                    MicroscopeConfigManager mgr,
+                                                    String jobDetector,
+                                                    Path tileDirectory,
+                                                    AffineTransform fullResToStage) throws IOException {
+        ImageData<BufferedImage> imageData = entry.readImageData();
+        try {
+            List<PathObject> annotations = imageData.getHierarchy().getAnnotationObjects().stream()
+                    .filter(a -> a.getROI() != null && a.getClassification() != null
+                            && job.annotationClasses().contains(a.getClassification()))
+                    .toList();
+            if (annotations.isEmpty()) {
+                throw new IOException(String.format("No annotations of classes %s on %s",
+                        job.annotationClasses(), entry.getImageName()));
+            }
+
+            double[] fov = mgr.getModalityFOV(job.modality(), job.objective(), jobDetector);
+            if (fov == null) {
+                throw new IOException("No field of view configured for " + job.modality() + " / "
+                        + job.objective() + " / " + jobDetector);
+            }
+            double imagePixelSize = imageData.getServer().getPixelCalibration().getAveragedPixelSizeMicrons();
+
+            // Tiles are laid out in image pixels and transformed to the stage afterwards
+            Files.createDirectories(tileDirectory);
+            TilingUtilities.createTiles(new TilingRequest.Builder()
+                    .outputFolder(tileDirectory.toString())
+                    .modalityName(tileDirectory.getFileName().toString())
+                    .frameSize(fov[0] / imagePixelSize, fov[1] / imagePixelSize)
+                    .overlapPercent(QPPreferenceDialog.getTileOverlapPercentProperty())
+                    .annotations(annotations)
+                    .invertAxes(QPPreferenceDialog.getInvertedXProperty(), QPPreferenceDialog.getInvertedYProperty())
+                    .createDetections(false)
+                    .addBuffer(true)
+                    .pixelSizeMicrons(imagePixelSize)
+                    .hierarchy(imageData.getHierarchy())
+                    .build());
+            // Stitched images and their metadata refer to the annotations by these names
+            entry.saveImageData(imageData);
+            TransformationFunctions.transformTileConfiguration(tileDirectory.toString(), fullResToStage,
+                    annotations.stream().map(PathObject::getName).toList());
+            return annotations;
+        } finally {
+            try {
+                imageData.getServer().close();
+            } catch (Exception e) {
+                logger.debug("Could not close image server of {}: {}", entry.getImageName(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns the project at a path, loading it on first use. The GUI's project is used when it
+     * is the same file, so the batch and the user never hold two copies of one project.
+     */
+    private Project<BufferedImage> loadProject(Path path) throws IOException {
+        File file = path.toFile();
+        if (file.isDirectory()) {
+            File[] qpproj = file.listFiles((dir, name) -> name.endsWith(".qpproj"));
+            if (qpproj == null || qpproj.length == 0) {
+                throw new IOException("No QuPath project in " + path);
+            }
+            file = qpproj[0];
+        }
+        Path projectFile = file.toPath().toAbsolutePath().normalize();
+        Project<BufferedImage> open = gui.getProject();
+        if (open != null && open.getPath() != null
+                && projectFile.equals(open.getPath().toAbsolutePath().normalize())) {
+            return open;
+        }
+        Project<BufferedImage> project = projects.get(projectFile);
+        if (project == null) {
+            project = ProjectIO.loadProject(projectFile.toFile(), BufferedImage.class);
+            projects.put(projectFile, project);
+        }
+        return project;
+    }
+
+    /**
+     * Finds the image a slide alignment was saved for, by entry name or image file name.
+     */
+    private static ProjectImageEntry<BufferedImage> findEntry(Project<BufferedImage> project, String imageName)
+            throws IOException {
+        for (ProjectImageEntry<BufferedImage> entry : project.getImageList()) {
+            if (imageName.equals(entry.getImageName())) {
+                return entry;
+            }
+            for (URI uri : entry.getURIs()) {
+                if (uri.getPath() != null && imageName.equals(new File(uri.getPath()).getName())) {
+                    return entry;
+                }
+            }
+        }
+        throw new IOException("No image " + imageName + " in " + project.getPath());
+    }
+
+    private static List<String> angleFolders(List<AngleExposure> angleExposures) {
+        return angleExposures.stream()
+                .map(ae -> String.valueOf(ae.ticks()))
+                .toList();
+    }
+}
@@ -1,18 +1,22 @@
 package qupath.ext.qpsc.controller.workflow;
 
-import javafx.application.Platform;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import qupath.ext.qpsc.controller.MicroscopeController;
 import qupath.ext.qpsc.modality.AngleExposure;
+import qupath.ext.qpsc.modality.DerivedImageProducer;
 import qupath.ext.qpsc.modality.ModalityHandler;
 import qupath.ext.qpsc.preferences.QPPreferenceDialog;
+import qupath.ext.qpsc.service.AcquisitionListener;
+import qupath.ext.qpsc.utilities.AcquisitionTelemetry;
+import qupath.ext.qpsc.utilities.DerivedImageEngine;
+import qupath.ext.qpsc.utilities.FlatFieldCorrector;
 import qupath.ext.qpsc.utilities.StitchingConfiguration;
-import qupath.ext.qpsc.ui.DualProgressDialog;
+import qupath.ext.qpsc.ui.ProgressDialogListener;
 import qupath.ext.qpsc.ui.SampleSetupController;
-import qupath.ext.qpsc.ui.StitchingBlockingDialog;
-import qupath.ext.qpsc.ui.UIFunctions;
 import qupath.ext.qpsc.utilities.ImageMetadataManager;
+import qupath.ext.qpsc.utilities.MicroscopeConfigManager;
+import qupath.ext.qpsc.utilities.QPProjectFunctions;
 import qupath.ext.qpsc.utilities.TransformationFunctions;
 import qupath.ext.qpsc.utilities.TileProcessingUtilities;
 import qupath.lib.gui.QuPathGUI;
@@ -26,17 +30,17 @@ import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Helper class for image stitching operations.
@@ -154,8 +158,9 @@ public class StitchingHelper {
 
         return performAnnotationStitching(
                 annotation, sample, modeWithIndex, angleExposures,
-                pixelSize, gui, project, executor, handler, fullResToStage, sampleName, projectsFolder, null
-        );
+                pixelSize, gui, project, executor, handler, fullResToStage, sampleName, projectsFolder,
+                new ProgressDialogListener(null)
+        ).thenAccept(outputs -> {});
     }
 
     /**
@@ -174,10 +179,48 @@ public class StitchingHelper {
      * @param fullResToStage Transform from full-res pixels to stage coordinates
      * @param sampleName The actual sample folder name (from ProjectInfo, may differ from sample.sampleName())
      * @param projectsFolder The actual projects folder path (from ProjectInfo, may differ from sample.projectsFolder())
-     * @param dualProgressDialog Optional progress dialog for showing stitching status alongside acquisition progress (can be null)
-     * @return CompletableFuture that completes when all stitching is done
+     * @param listener Receives the stitching status, e.g. a {@link ProgressDialogListener}; null to stitch without reporting
+     * @return CompletableFuture that completes when all stitching is done, with the stitched image of
+     *         each tile folder (angle, birefringence or sum) that was stitched successfully ("" for
+     *         acquisitions without angles).
+     *         Angles that failed are missing from the map; the future itself does not fail.
      */
-    public static CompletableFuture<Void> performAnnotationStitching(
+    public static CompletableFuture<Map<String, String>> performAnnotationStitching(
+            PathObject annotation,
+            SampleSetupController.SampleSetupResult sample,
+            String modeWithIndex,
+            List<AngleExposure> angleExposures,
+            double pixelSize,
+            QuPathGUI gui,
+            Project<BufferedImage> project,
+            ExecutorService executor,
+            ModalityHandler handler,
+            AffineTransform fullResToStage,
+            String sampleName,
+            String projectsFolder,
+            AcquisitionListener listener) {
+
+        // The annotation was drawn on the image open in QuPath
+        ProjectImageEntry<BufferedImage> parentEntry = null;
+        if (gui.getViewer().hasServer() && gui.getImageData() != null) {
+            parentEntry = project.getEntry(gui.getImageData());
+        }
+        return performAnnotationStitching(annotation, sample, modeWithIndex, angleExposures, pixelSize,
+                gui, project, parentEntry, executor, handler, fullResToStage, sampleName, projectsFolder,
+                listener);
+    }
+
+    /**
+     * Performs stitching for a single annotation across all rotation angles, for an annotation
+     * of an image that need not be open in QuPath (e.g. in {@link ProjectSlideRunner}).
+     *
+     * @param parentEntry Project entry the annotation belongs to, recorded as the parent of the
+     *                    stitched images; null to take the flips from the preferences
+     * @see #performAnnotationStitching(PathObject, SampleSetupController.SampleSetupResult, String, List,
+     *      double, QuPathGUI, Project, ExecutorService, ModalityHandler, AffineTransform, String, String,
+     *      AcquisitionListener)
+     */
+    public static CompletableFuture<Map<String, String>> performAnnotationStitching(
             PathObject annotation,
             SampleSetupController.SampleSetupResult sample,
             String modeWithIndex,
@@ -185,12 +228,13 @@ public class StitchingHelper {
             double pixelSize,
             QuPathGUI gui,
             Project<BufferedImage> project,
+            ProjectImageEntry<BufferedImage> parentEntry,
             ExecutorService executor,
             ModalityHandler handler,
             AffineTransform fullResToStage,
             String sampleName,
             String projectsFolder,
-            DualProgressDialog dualProgressDialog) {
+            AcquisitionListener listener) {
 
         // Calculate metadata for this annotation
         // Use sample.sampleName() for file naming (source image name), not sampleName (project folder name)
@@ -198,46 +242,25 @@ public class StitchingHelper {
         // sample.sampleName() is the user-entered name (defaulted to source image file name)
         String displayName = sample.sampleName();
         StitchingMetadata metadata = calculateMetadata(
-                annotation, displayName, gui, project, fullResToStage
+                annotation, displayName, parentEntry, fullResToStage
         );
 
-        // Create blocking dialog on JavaFX thread before starting stitching
+        // Report the operation before starting stitching; listeners show it without blocking this thread
         final String operationId = sampleName + " - " + annotation.getName();
-        final StitchingBlockingDialog[] dialogRef = {null};
-        final CountDownLatch dialogLatch = new CountDownLatch(1);
-        try {
-            Platform.runLater(() -> {
-                try {
-                    dialogRef[0] = StitchingBlockingDialog.show(operationId, operationId);
-                    // Also register with DualProgressDialog if provided
-                    if (dualProgressDialog != null) {
-                        dualProgressDialog.registerStitchingOperation(operationId, operationId);
-                    }
-                } finally {
-                    dialogLatch.countDown();
-                }
-            });
-            // Wait for dialog creation to complete (max 5 seconds)
-            if (!dialogLatch.await(5, TimeUnit.SECONDS)) {
-                logger.warn("Timeout waiting for stitching blocking dialog creation");
-            }
-        } catch (Exception e) {
-            logger.warn("Failed to create stitching blocking dialog", e);
-        }
-        final StitchingBlockingDialog blockingDialog = dialogRef[0];
+        final AcquisitionListener events = listener != null ? listener : new AcquisitionListener() {};
+        events.stitchingStarted(operationId);
 
         if (angleExposures != null && angleExposures.size() > 1) {
             logger.info("Stitching {} angles for annotation: {}",
                     angleExposures.size(), annotation.getName());
 
             // For multi-angle acquisitions, do ONE batch stitch with "." as matching string
-            return CompletableFuture.runAsync(() -> {
+            return CompletableFuture.supplyAsync(() -> {
+                Map<String, String> stitchedByFolder = new LinkedHashMap<>();
                 try {
                     String annotationName = annotation.getName();
 
-                    if (blockingDialog != null) {
-                        blockingDialog.updateStatus(operationId, "Initializing multi-angle stitching for " + annotationName + "...");
-                    }
+                    events.stitchingStatus(operationId, "Initializing multi-angle stitching for " + annotationName + "...");
 
                     logger.info("Performing batch stitching for {} with {} angles",
                             annotationName, angleExposures.size());
@@ -251,23 +274,25 @@ public class StitchingHelper {
                     String compression = stitchingConfig.compressionType();
 
                     // Create enhanced parameters map for UtilityFunctions
-                    // NOTE: For multi-angle acquisitions, do NOT pass blockingDialog to individual angle
-                    // processing calls to prevent premature dialog closure. Dialog will be completed
-                    // manually after all angles/biref/sum are processed.
+                    // NOTE: For multi-angle acquisitions, do NOT pass the listener to individual angle
+                    // processing calls to prevent premature completion. The operation is completed
+                    // after all angles/biref/sum are processed.
                     Map<String, Object> stitchParams = new HashMap<>();
                     stitchParams.put("metadata", metadata);
-                    // Do NOT include blockingDialog or operationId for multi-angle case
+                    // Do NOT include listener or operationId for multi-angle case
+                    // Collect every angle/biref/sum output and import them with one project save
+                    List<QPProjectFunctions.ImageImport> importBatch = new ArrayList<>();
 
-                    if (blockingDialog != null) {
-                        blockingDialog.updateStatus(operationId, "Processing " + angleExposures.size() + " angles for " + annotationName + "...");
-                    }
+                    events.stitchingStatus(operationId, "Processing " + angleExposures.size() + " angles for " + annotationName + "...");
 
                     // Process each angle individually using directory isolation to prevent cross-matching
                     logger.info("Processing {} angle directories using isolation approach", angleExposures.size());
 
                     List<String> stitchedImages = new ArrayList<>();
+                    Map<Double, String> stitchedByAngle = new LinkedHashMap<>();
                     Path tileBaseDir = Paths.get(projectsFolder,
                                                sampleName, modeWithIndex, annotationName);
+                    applyClientFlatField(sample, tileBaseDir, angleExposures);
                     
                     logger.info("Starting multi-angle processing for {} angles in directory: {}", angleExposures.size(), tileBaseDir);
                     
@@ -292,9 +317,7 @@ public class StitchingHelper {
                         String angleStr = String.valueOf(angleExposure.ticks());
                         logger.info("Processing angle {} of {} - angle directory: {}", i + 1, angleExposures.size(), angleStr);
 
-                        if (blockingDialog != null) {
-                            blockingDialog.updateStatus(operationId, "Processing angle " + angleStr + " (" + (i + 1) + "/" + angleExposures.size() + ") for " + annotationName + "...");
-                        }
+                        events.stitchingStatus(operationId, "Processing angle " + angleStr + " (" + (i + 1) + "/" + angleExposures.size() + ") for " + annotationName + "...");
                         
                         try {
                             // Temporarily isolate this angle directory for processing
@@ -304,11 +327,13 @@ public class StitchingHelper {
                                     projectsFolder, sampleName,
                                     modeWithIndex, annotationName,
                                     compression, pixelSize, stitchingConfig.downsampleFactor(),
-                                    gui, project, handler, stitchParams
+                                    gui, project, handler, stitchParams, importBatch
                             );
                             
                             if (outPath != null) {
                                 stitchedImages.add(outPath);
+                                stitchedByAngle.put(angleExposure.ticks(), outPath);
+                                stitchedByFolder.put(angleStr, outPath);
                                 logger.info("Successfully processed angle {} ({}/{}) - output: {}", angleStr, i + 1, angleExposures.size(), outPath);
                             } else {
                                 logger.error("Angle processing returned null output path for angle: {}", angleStr);
@@ -335,9 +360,7 @@ public class StitchingHelper {
                     logger.info("Completed processing {} angles. Successfully stitched {} images.", angleExposures.size(), stitchedImages.size());
                     
                     // Process birefringence image if it exists
-                    if (blockingDialog != null) {
-                        blockingDialog.updateStatus(operationId, "Checking for birefringence results for " + annotationName + "...");
-                    }
+                    events.stitchingStatus(operationId, "Checking for birefringence results for " + annotationName + "...");
 
                     // Scan for any birefringence directory (ends with .biref)
                     String birefAngleStr = null;
@@ -376,9 +399,7 @@ public class StitchingHelper {
                             logger.warn("Could not list birefringence directory contents: {}", e.getMessage());
                         }
 
-                        if (blockingDialog != null) {
-                            blockingDialog.updateStatus(operationId, "Processing birefringence image for " + annotationName + "...");
-                        }
+                        events.stitchingStatus(operationId, "Processing birefringence image for " + annotationName + "...");
                         
                         try {
                             logger.info("Starting birefringence isolation processing for angle string: {}", birefAngleStr);
@@ -387,11 +408,12 @@ public class StitchingHelper {
                                     projectsFolder, sampleName,
                                     modeWithIndex, annotationName,
                                     compression, pixelSize, stitchingConfig.downsampleFactor(),
-                                    gui, project, handler, stitchParams
+                                    gui, project, handler, stitchParams, importBatch
                             );
                             
                             if (birefOutPath != null) {
                                 stitchedImages.add(birefOutPath);
+                                stitchedByFolder.put(birefAngleStr, birefOutPath);
                                 logger.info("Successfully processed birefringence image - output: {}", birefOutPath);
                             } else {
                                 logger.error("Birefringence processing returned null output path");
@@ -419,9 +441,7 @@ public class StitchingHelper {
                     }
 
                     // Process sum image if it exists
-                    if (blockingDialog != null) {
-                        blockingDialog.updateStatus(operationId, "Checking for sum results for " + annotationName + "...");
-                    }
+                    events.stitchingStatus(operationId, "Checking for sum results for " + annotationName + "...");
 
                     // Scan for any sum directory (ends with .sum)
                     String sumAngleStr = null;
@@ -460,9 +480,7 @@ public class StitchingHelper {
                             logger.warn("Could not list sum directory contents: {}", e.getMessage());
                         }
 
-                        if (blockingDialog != null) {
-                            blockingDialog.updateStatus(operationId, "Processing sum image for " + annotationName + "...");
-                        }
+                        events.stitchingStatus(operationId, "Processing sum image for " + annotationName + "...");
 
                         try {
                             logger.info("Starting sum isolation processing for angle string: {}", sumAngleStr);
@@ -471,11 +489,12 @@ public class StitchingHelper {
                                     projectsFolder, sampleName,
                                     modeWithIndex, annotationName,
                                     compression, pixelSize, stitchingConfig.downsampleFactor(),
-                                    gui, project, handler, stitchParams
+                                    gui, project, handler, stitchParams, importBatch
                             );
 
                             if (sumOutPath != null) {
                                 stitchedImages.add(sumOutPath);
+                                stitchedByFolder.put(sumAngleStr, sumOutPath);
                                 logger.info("Successfully processed sum image - output: {}", sumOutPath);
                             } else {
                                 logger.error("Sum processing returned null output path");
@@ -487,53 +506,40 @@ public class StitchingHelper {
                         logger.info("No sum directory found at: {}", sumPath);
                     }
 
+                    // Compute derived images (e.g. birefringence) that the server did not deliver as tiles
+                    if (handler != null && !handler.getDerivedImageProducers().isEmpty()) {
+                        events.stitchingStatus(operationId, "Computing derived images for " + annotationName + "...");
+                    }
+                    produceDerivedImages(tileBaseDir, handler, stitchedByAngle, compression, importBatch, stitchedImages);
+
                     // Return path of last successfully processed image
                     String outPath = stitchedImages.isEmpty() ? null : stitchedImages.get(stitchedImages.size() - 1);
 
                     logger.info("Batch stitching completed for {}, output: {}",
                             annotationName, outPath);
 
-                    // Complete the blocking dialog now that ALL angles/biref/sum are processed
-                    if (blockingDialog != null) {
-                        logger.info("Completing stitching dialog operation after all images processed");
-                        blockingDialog.completeOperation(operationId);
-                    }
-                    // Also complete in DualProgressDialog if provided
-                    if (dualProgressDialog != null) {
-                        dualProgressDialog.completeStitchingOperation(operationId);
-                    }
+                    TileProcessingUtilities.importStitchedImages(gui, project, importBatch, handler, true).join();
+
+                    // Complete the operation now that ALL angles/biref/sum are in the project
+                    logger.info("Completing stitching operation after all images imported");
+                    events.stitchingCompleted(operationId);
 
                 } catch (Exception e) {
                     logger.error("Stitching failed for {}", annotation.getName(), e);
 
                     // Mark operation as failed
-                    if (blockingDialog != null) {
-                        blockingDialog.failOperation(operationId, e.getMessage());
-                    }
-                    // Also mark failed in DualProgressDialog if provided
-                    if (dualProgressDialog != null) {
-                        dualProgressDialog.failStitchingOperation(operationId, e.getMessage());
-                    }
-                    if (blockingDialog == null) {
-                        Platform.runLater(() ->
-                                UIFunctions.notifyUserOfError(
-                                        String.format("Stitching failed for %s: %s",
-                                                annotation.getName(), e.getMessage()),
-                                        "Stitching Error"
-                                )
-                        );
-                    }
+                    events.stitchingFailed(operationId, e.getMessage());
                 }
+                return stitchedByFolder;
             }, executor);
         } else {
             // Single stitch for non-rotational acquisition (no angles)
-            return CompletableFuture.runAsync(() -> {
+            return CompletableFuture.supplyAsync(() -> {
+                Map<String, String> stitchedByFolder = new LinkedHashMap<>();
                 try {
                     String annotationName = annotation.getName();
 
-                    if (blockingDialog != null) {
-                        blockingDialog.updateStatus(operationId, "Initializing single stitching for " + annotationName + "...");
-                    }
+                    events.stitchingStatus(operationId, "Initializing single stitching for " + annotationName + "...");
 
                     logger.info("Stitching single acquisition for {}", annotationName);
                     logger.info("Metadata - offset: ({}, {}) um, flipX: {}, flipY: {}, parent: {}",
@@ -546,10 +552,9 @@ public class StitchingHelper {
                     // Create enhanced parameters map
                     Map<String, Object> stitchParams = new HashMap<>();
                     stitchParams.put("metadata", metadata);
+                    List<QPProjectFunctions.ImageImport> importBatch = new ArrayList<>();
 
-                    if (blockingDialog != null) {
-                        blockingDialog.updateStatus(operationId, "Processing single acquisition for " + annotationName + "...");
-                    }
+                    events.stitchingStatus(operationId, "Processing single acquisition for " + annotationName + "...");
 
                     // Check if we have exactly one angle (tiles are in angle subfolder)
                     String matchingString = annotationName;
@@ -557,6 +562,8 @@ public class StitchingHelper {
                         // Single angle case - tiles are in angle subfolder (e.g., "5.0")
                         matchingString = String.valueOf(angleExposures.get(0).ticks());
                         logger.info("Single angle acquisition - looking in subfolder: {}", matchingString);
+                        applyClientFlatField(sample,
+                                Paths.get(projectsFolder, sampleName, modeWithIndex, annotationName), angleExposures);
                     }
                     
                     String outPath = TileProcessingUtilities.stitchImagesAndUpdateProject(
@@ -571,39 +578,26 @@ public class StitchingHelper {
                             pixelSize,
                             1,
                             handler,
-                            stitchParams  // Pass metadata
+                            stitchParams,  // Pass metadata
+                            importBatch
                     );
 
                     logger.info("Stitching completed for {}, output: {}",
                             annotationName, outPath);
-
-                    // Note: Dialog completion is handled in TileProcessingUtilities after project import
-                    // But we complete the DualProgressDialog here since TileProcessingUtilities doesn't have access to it
-                    if (dualProgressDialog != null) {
-                        dualProgressDialog.completeStitchingOperation(operationId);
+                    if (outPath != null) {
+                        stitchedByFolder.put(matchingString.equals(annotationName) ? "" : matchingString, outPath);
                     }
 
+                    TileProcessingUtilities.importStitchedImages(gui, project, importBatch, handler, false).join();
+                    events.stitchingCompleted(operationId);
+
                 } catch (Exception e) {
                     logger.error("Stitching failed for {}", annotation.getName(), e);
 
                     // Mark operation as failed
-                    if (blockingDialog != null) {
-                        blockingDialog.failOperation(operationId, e.getMessage());
-                    }
-                    // Also mark failed in DualProgressDialog if provided
-                    if (dualProgressDialog != null) {
-                        dualProgressDialog.failStitchingOperation(operationId, e.getMessage());
-                    }
-                    if (blockingDialog == null) {
-                        Platform.runLater(() ->
-                                UIFunctions.notifyUserOfError(
-                                        String.format("Stitching failed for %s: %s",
-                                                annotation.getName(), e.getMessage()),
-                                        "Stitching Error"
-                                )
-                        );
-                    }
+                    events.stitchingFailed(operationId, e.getMessage());
                 }
+                return stitchedByFolder;
             }, executor);
         }
     }
@@ -638,31 +632,52 @@ public class StitchingHelper {
             String sampleName,
             String projectsFolder) {
 
+        return performRegionStitching(
+                regionName, sample, modeWithIndex, angleExposures, pixelSize, gui, project,
+                executor, handler, sampleName, projectsFolder, new ProgressDialogListener(null)
+        );
+    }
+
+    /**
+     * Performs stitching for a region identified by name, reporting its status to a listener.
+     *
+     * @param regionName The name of the region (e.g., "bounds" for BoundedAcquisitionWorkflow)
+     * @param sample Sample setup information
+     * @param modeWithIndex Imaging mode with index suffix
+     * @param angleExposures Rotation angles with exposure settings (empty for single acquisition)
+     * @param pixelSize Pixel size in micrometers
+     * @param gui QuPath GUI instance
+     * @param project QuPath project to update
+     * @param executor Executor service for async execution
+     * @param handler Modality handler for file naming
+     * @param sampleName The actual sample folder name (from ProjectInfo, may differ from sample.sampleName())
+     * @param projectsFolder The actual projects folder path (from ProjectInfo, may differ from sample.projectsFolder())
+     * @param listener Receives the stitching status; null to stitch without reporting
+     * @return CompletableFuture that completes when all stitching is done
+     */
+    public static CompletableFuture<Void> performRegionStitching(
+            String regionName,
+            SampleSetupController.SampleSetupResult sample,
+            String modeWithIndex,
+            List<AngleExposure> angleExposures,
+            double pixelSize,
+            QuPathGUI gui,
+            Project<BufferedImage> project,
+            ExecutorService executor,
+            ModalityHandler handler,
+            String sampleName,
+            String projectsFolder,
+            AcquisitionListener listener) {
+
         // Calculate metadata for Bounded Acquisition case (no actual annotation) - use explicit sampleName
         StitchingMetadata metadata = calculateMetadataForRegion(
                 regionName, sampleName, gui, project
         );
 
-        // Create blocking dialog on JavaFX thread before starting stitching
+        // Report the operation before starting stitching; listeners show it without blocking this thread
         final String operationId = sampleName + " - " + regionName;
-        final StitchingBlockingDialog[] dialogRef = {null};
-        final CountDownLatch dialogLatch = new CountDownLatch(1);
-        try {
-            Platform.runLater(() -> {
-                try {
-                    dialogRef[0] = StitchingBlockingDialog.show(operationId, operationId);
-                } finally {
-                    dialogLatch.countDown();
-                }
-            });
-            // Wait for dialog creation to complete (max 5 seconds)
-            if (!dialogLatch.await(5, TimeUnit.SECONDS)) {
-                logger.warn("Timeout waiting for stitching blocking dialog creation");
-            }
-        } catch (Exception e) {
-            logger.warn("Failed to create stitching blocking dialog", e);
-        }
-        final StitchingBlockingDialog blockingDialog = dialogRef[0];
+        final AcquisitionListener events = listener != null ? listener : new AcquisitionListener() {};
+        events.stitchingStarted(operationId);
 
         if (angleExposures != null && angleExposures.size() > 1) {
             logger.info("Stitching {} angles for region: {}", angleExposures.size(), regionName);
@@ -670,9 +685,7 @@ public class StitchingHelper {
             // For multi-angle acquisitions, do ONE batch stitch with "." as matching string
             return CompletableFuture.runAsync(() -> {
                 try {
-                    if (blockingDialog != null) {
-                        blockingDialog.updateStatus(operationId, "Initializing multi-angle stitching for " + regionName + "...");
-                    }
+                    events.stitchingStatus(operationId, "Initializing multi-angle stitching for " + regionName + "...");
 
                     logger.info("Performing batch stitching for {} with {} angles",
                             regionName, angleExposures.size());
@@ -686,23 +699,25 @@ public class StitchingHelper {
                     String compression = stitchingConfig.compressionType();
 
                     // Create enhanced parameters map for UtilityFunctions
-                    // NOTE: For multi-angle acquisitions, do NOT pass blockingDialog to individual angle
-                    // processing calls to prevent premature dialog closure. Dialog will be completed
-                    // manually after all angles/biref/sum are processed.
+                    // NOTE: For multi-angle acquisitions, do NOT pass the listener to individual angle
+                    // processing calls to prevent premature completion. The operation is completed
+                    // after all angles/biref/sum are processed.
                     Map<String, Object> stitchParams = new HashMap<>();
                     stitchParams.put("metadata", metadata);
-                    // Do NOT include blockingDialog or operationId for multi-angle case
+                    // Do NOT include listener or operationId for multi-angle case
+                    // Collect every angle/biref/sum output and import them with one project save
+                    List<QPProjectFunctions.ImageImport> importBatch = new ArrayList<>();
 
-                    if (blockingDialog != null) {
-                        blockingDialog.updateStatus(operationId, "Processing " + angleExposures.size() + " angles for " + regionName + "...");
-                    }
+                    events.stitchingStatus(operationId, "Processing " + angleExposures.size() + " angles for " + regionName + "...");
 
                     // Process each angle individually using directory isolation to prevent cross-matching
                     logger.info("Processing {} angle directories using isolation approach", angleExposures.size());
 
                     List<String> stitchedImages = new ArrayList<>();
+                    Map<Double, String> stitchedByAngle = new LinkedHashMap<>();
                     Path tileBaseDir = Paths.get(projectsFolder,
                                                sampleName, modeWithIndex, regionName);
+                    applyClientFlatField(sample, tileBaseDir, angleExposures);
                     
                     logger.info("Starting multi-angle processing for {} angles in directory: {}", angleExposures.size(), tileBaseDir);
                     
@@ -727,9 +742,7 @@ public class StitchingHelper {
                         String angleStr = String.valueOf(angleExposure.ticks());
                         logger.info("Processing angle {} of {} - angle directory: {}", i + 1, angleExposures.size(), angleStr);
 
-                        if (blockingDialog != null) {
-                            blockingDialog.updateStatus(operationId, "Processing angle " + angleStr + " (" + (i + 1) + "/" + angleExposures.size() + ") for " + regionName + "...");
-                        }
+                        events.stitchingStatus(operationId, "Processing angle " + angleStr + " (" + (i + 1) + "/" + angleExposures.size() + ") for " + regionName + "...");
                         
                         try {
                             // Temporarily isolate this angle directory for processing
@@ -739,11 +752,12 @@ public class StitchingHelper {
                                     projectsFolder, sampleName,
                                     modeWithIndex, regionName,
                                     compression, pixelSize, stitchingConfig.downsampleFactor(),
-                                    gui, project, handler, stitchParams
+                                    gui, project, handler, stitchParams, importBatch
                             );
                             
                             if (outPath != null) {
                                 stitchedImages.add(outPath);
+                                stitchedByAngle.put(angleExposure.ticks(), outPath);
                                 logger.info("Successfully processed angle {} ({}/{}) - output: {}", angleStr, i + 1, angleExposures.size(), outPath);
                             } else {
                                 logger.error("Angle processing returned null output path for angle: {}", angleStr);
@@ -770,9 +784,7 @@ public class StitchingHelper {
                     logger.info("Completed processing {} angles. Successfully stitched {} images.", angleExposures.size(), stitchedImages.size());
 
                     // Process birefringence image if it exists
-                    if (blockingDialog != null) {
-                        blockingDialog.updateStatus(operationId, "Checking for birefringence results for " + regionName + "...");
-                    }
+                    events.stitchingStatus(operationId, "Checking for birefringence results for " + regionName + "...");
 
                     // Scan for any birefringence directory (ends with .biref)
                     String birefAngleStr = null;
@@ -811,9 +823,7 @@ public class StitchingHelper {
                             logger.warn("Could not list birefringence directory contents: {}", e.getMessage());
                         }
 
-                        if (blockingDialog != null) {
-                            blockingDialog.updateStatus(operationId, "Processing birefringence image for " + regionName + "...");
-                        }
+                        events.stitchingStatus(operationId, "Processing birefringence image for " + regionName + "...");
                         
                         try {
                             logger.info("Starting birefringence isolation processing for angle string: {}", birefAngleStr);
@@ -822,7 +832,7 @@ public class StitchingHelper {
                                     projectsFolder, sampleName,
                                     modeWithIndex, regionName,
                                     compression, pixelSize, stitchingConfig.downsampleFactor(),
-                                    gui, project, handler, stitchParams
+                                    gui, project, handler, stitchParams, importBatch
                             );
 
                             if (birefOutPath != null) {
@@ -854,9 +864,7 @@ public class StitchingHelper {
                     }
 
                     // Process sum image if it exists
-                    if (blockingDialog != null) {
-                        blockingDialog.updateStatus(operationId, "Checking for sum results for " + regionName + "...");
-                    }
+                    events.stitchingStatus(operationId, "Checking for sum results for " + regionName + "...");
 
                     // Scan for any sum directory (ends with .sum)
                     String sumAngleStr = null;
@@ -895,9 +903,7 @@ public class StitchingHelper {
                             logger.warn("Could not list sum directory contents: {}", e.getMessage());
                         }
 
-                        if (blockingDialog != null) {
-                            blockingDialog.updateStatus(operationId, "Processing sum image for " + regionName + "...");
-                        }
+                        events.stitchingStatus(operationId, "Processing sum image for " + regionName + "...");
 
                         try {
                             logger.info("Starting sum isolation processing for angle string: {}", sumAngleStr);
@@ -906,7 +912,7 @@ public class StitchingHelper {
                                     projectsFolder, sampleName,
                                     modeWithIndex, regionName,
                                     compression, pixelSize, stitchingConfig.downsampleFactor(),
-                                    gui, project, handler, stitchParams
+                                    gui, project, handler, stitchParams, importBatch
                             );
 
                             if (sumOutPath != null) {
@@ -922,23 +928,27 @@ public class StitchingHelper {
                         logger.info("No sum directory found at: {}", sumPath);
                     }
 
+                    // Compute derived images (e.g. birefringence) that the server did not deliver as tiles
+                    if (handler != null && !handler.getDerivedImageProducers().isEmpty()) {
+                        events.stitchingStatus(operationId, "Computing derived images for " + regionName + "...");
+                    }
+                    produceDerivedImages(tileBaseDir, handler, stitchedByAngle, compression, importBatch, stitchedImages);
+
                     // Return path of last successfully processed image
                     String outPath = stitchedImages.isEmpty() ? null : stitchedImages.get(stitchedImages.size() - 1);
 
                     logger.info("Batch stitching completed for {}, output: {}",
                             regionName, outPath);
 
-                    // Complete the blocking dialog now that ALL angles/biref/sum are processed
-                    if (blockingDialog != null) {
-                        logger.info("Completing stitching dialog operation after all images processed");
-                        blockingDialog.completeOperation(operationId);
-                    }
+                    TileProcessingUtilities.importStitchedImages(gui, project, importBatch, handler, true).join();
+
+                    // Complete the operation now that ALL angles/biref/sum are in the project
+                    logger.info("Completing stitching operation after all images imported");
+                    events.stitchingCompleted(operationId);
 
                 } catch (Exception e) {
                     logger.error("Multi-angle stitching failed for region {}", regionName, e);
-                    if (blockingDialog != null) {
-                        blockingDialog.failOperation(operationId, e.getMessage());
-                    }
+                    events.stitchingFailed(operationId, e.getMessage());
                     throw new RuntimeException(e);
                 }
             }, executor);
@@ -949,9 +959,7 @@ public class StitchingHelper {
 
             return CompletableFuture.runAsync(() -> {
                 try {
-                    if (blockingDialog != null) {
-                        blockingDialog.updateStatus(operationId, "Stitching " + regionName + "...");
-                    }
+                    events.stitchingStatus(operationId, "Stitching " + regionName + "...");
 
                     logger.info("Metadata - offset: ({}, {}) um, flipX: {}, flipY: {}, parent: {}",
                             metadata.xOffset, metadata.yOffset, metadata.flipX, metadata.flipY,
@@ -965,8 +973,12 @@ public class StitchingHelper {
                     // Create enhanced parameters map for UtilityFunctions
                     Map<String, Object> stitchParams = new HashMap<>();
                     stitchParams.put("metadata", metadata);
-                    stitchParams.put("blockingDialog", blockingDialog);
-                    stitchParams.put("operationId", operationId);
+                    List<QPProjectFunctions.ImageImport> importBatch = new ArrayList<>();
+
+                    if (angleExposures != null && angleExposures.size() == 1) {
+                        applyClientFlatField(sample,
+                                Paths.get(projectsFolder, sampleName, modeWithIndex, regionName), angleExposures);
+                    }
 
                     // For single angle, use the region name as the matching pattern
                     String matchingPattern = regionName;
@@ -983,19 +995,19 @@ public class StitchingHelper {
                             pixelSize,
                             stitchingConfig.downsampleFactor(),
                             handler,
-                            stitchParams  // Pass metadata in parameters
+                            stitchParams,  // Pass metadata in parameters
+                            importBatch
                     );
 
                     logger.info("Single-angle stitching completed for {}, output: {}",
                             regionName, outPath);
 
-                    // Note: Dialog completion is handled in TileProcessingUtilities after project import
+                    TileProcessingUtilities.importStitchedImages(gui, project, importBatch, handler, false).join();
+                    events.stitchingCompleted(operationId);
 
                 } catch (Exception e) {
                     logger.error("Single-angle stitching failed for region {}", regionName, e);
-                    if (blockingDialog != null) {
-                        blockingDialog.failOperation(operationId, e.getMessage());
-                    }
+                    events.stitchingFailed(operationId, e.getMessage());
                     throw new RuntimeException(e);
                 }
             }, executor);
@@ -1058,20 +1070,14 @@ public class StitchingHelper {
      * Calculates metadata for a stitched image based on its parent annotation.
      *
      * @param sampleName The actual sample folder name (from ProjectInfo)
+     * @param parentEntry Entry the annotation belongs to, or null
      */
     private static StitchingMetadata calculateMetadata(
             PathObject annotation,
             String sampleName,
-            QuPathGUI gui,
-            Project<BufferedImage> project,
+            ProjectImageEntry<BufferedImage> parentEntry,
             AffineTransform fullResToStage) {
 
-        // Get parent entry (the current open image)
-        ProjectImageEntry<BufferedImage> parentEntry = null;
-        if (gui.getViewer().hasServer() && gui.getImageData() != null) {
-            parentEntry = project.getEntry(gui.getImageData());
-        }
-
         // Calculate offset from slide corner
         double[] offset = TransformationFunctions.calculateAnnotationOffsetFromSlideCorner(
                 annotation, fullResToStage);
@@ -1098,12 +1104,129 @@ public class StitchingHelper {
         );
     }
 
+    /**
+     * Flat-field corrects a region's tiles in QuPath when the region was acquired with
+     * server-side correction skipped, as recorded by {@link FlatFieldCorrector#recordAcquisition}
+     * (see AcquisitionConfigurationBuilder). The preference at stitch time does not matter.
+     *
+     * <p>Raw tiles are moved to {@link FlatFieldCorrector#rawTilesDirectory} and corrected tiles are
+     * written back to the angle folders that stitching reads. If correction fails the raw tiles are
+     * copied back so the region is still stitched.</p>
+     */
+    private static void applyClientFlatField(SampleSetupController.SampleSetupResult sample,
+                                             Path tileBaseDir, List<AngleExposure> angleExposures) {
+        if (angleExposures == null || angleExposures.isEmpty() || !Files.isDirectory(tileBaseDir)
+                || !FlatFieldCorrector.isClientCorrected(tileBaseDir)) {
+            return;
+        }
+        MicroscopeConfigManager configManager =
+                MicroscopeConfigManager.getInstance(QPPreferenceDialog.getMicroscopeConfigFileProperty());
+        FlatFieldCorrector.Profile profile = FlatFieldCorrector.resolveProfile(
+                configManager, sample.modality(), sample.objective(), sample.detector());
+        if (profile == null) {
+            return;
+        }
+
+        Path rawRegionDir = null;
+        try (AcquisitionTelemetry.Timer t = AcquisitionTelemetry.getInstance()
+                .startPhase(AcquisitionTelemetry.PHASE_FLAT_FIELD)) {
+            rawRegionDir = FlatFieldCorrector.archiveRawTiles(tileBaseDir, angleExposures);
+            FlatFieldCorrector.correctRegion(profile, rawRegionDir, tileBaseDir, angleExposures);
+        } catch (Exception e) {
+            logger.error("Flat-field correction failed for {} - stitching uncorrected tiles: {}",
+                    tileBaseDir, e.getMessage(), e);
+            if (rawRegionDir != null) {
+                restoreRawTiles(rawRegionDir, tileBaseDir, angleExposures);
+            }
+        }
+    }
+
+    private static void restoreRawTiles(Path rawRegionDir, Path tileBaseDir, List<AngleExposure> angleExposures) {
+        for (AngleExposure ae : angleExposures) {
+            String angleStr = String.valueOf(ae.ticks());
+            Path source = rawRegionDir.resolve(angleStr);
+            Path target = tileBaseDir.resolve(angleStr);
+            if (!Files.isDirectory(source)) {
+                continue;
+            }
+            try (var files = Files.list(source)) {
+                Files.createDirectories(target);
+                for (Path file : files.filter(Files::isRegularFile).toList()) {
+                    Files.copy(file, target.resolve(file.getFileName()),
+                            StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                logger.error("Could not restore raw tiles for angle {} from {}: {}", angleStr, source, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Runs the modality's derived image producers on the stitched angle images of one region and
+     * queues the results for import alongside the angle images.
+     *
+     * <p>A producer is skipped when the tile folder already holds a server-produced tile set for it
+     * (a directory ending in {@code .<name>}, e.g. {@code 7.0.biref}), since that set has been
+     * stitched already. Each derived image is imported with the metadata of its first input, with
+     * the producer name appended to the angle.</p>
+     */
+    private static void produceDerivedImages(Path tileBaseDir, ModalityHandler handler,
+                                             Map<Double, String> stitchedByAngle, String compression,
+                                             List<QPProjectFunctions.ImageImport> importBatch,
+                                             List<String> stitchedImages) {
+        if (handler == null) {
+            return;
+        }
+        List<DerivedImageProducer> producers = new ArrayList<>();
+        for (DerivedImageProducer producer : handler.getDerivedImageProducers()) {
+            String suffix = "." + producer.getName();
+            boolean delivered = false;
+            try (var dirs = Files.list(tileBaseDir)) {
+                delivered = dirs.anyMatch(path -> Files.isDirectory(path)
+                        && path.getFileName().toString().endsWith(suffix));
+            } catch (IOException e) {
+                logger.warn("Could not scan {} for {} tiles: {}", tileBaseDir, producer.getName(), e.getMessage());
+            }
+            if (delivered) {
+                logger.info("Server delivered '{}' tiles - not computing it locally", producer.getName());
+            } else {
+                producers.add(producer);
+            }
+        }
+        if (producers.isEmpty() || stitchedByAngle.isEmpty()) {
+            return;
+        }
+
+        for (DerivedImageEngine.DerivedImage derived :
+                DerivedImageEngine.produce(producers, stitchedByAngle, compression)) {
+            File source = new File(stitchedByAngle.get(derived.inputAngles().get(0)));
+            QPProjectFunctions.ImageImport template = null;
+            for (QPProjectFunctions.ImageImport queued : importBatch) {
+                if (queued.imageFile().getAbsoluteFile().equals(source.getAbsoluteFile())) {
+                    template = queued;
+                    break;
+                }
+            }
+            String name = derived.producer().getName();
+            importBatch.add(template == null
+                    ? QPProjectFunctions.ImageImport.withoutMetadata(derived.output(), false, false)
+                    : new QPProjectFunctions.ImageImport(derived.output(), template.flipX(), template.flipY(),
+                            template.applyMetadata(), template.parentEntry(),
+                            template.xOffset(), template.yOffset(), template.sampleName(),
+                            template.modality(), template.objective(),
+                            template.angle() != null ? template.angle() + "_" + name : name,
+                            template.annotationName(), template.imageIndex()));
+            stitchedImages.add(derived.output().getAbsolutePath());
+        }
+    }
+
     /**
      * Processes a single angle directory in isolation to prevent cross-matching issues
      * with the TileConfigurationTxtStrategy contains() logic.
      *
      * @param projectsFolder The root projects folder path
      * @param sampleName The actual sample folder name (from ProjectInfo)
+     * @param importBatch List the stitched image is queued on for a single project import
      */
     private static String processAngleWithIsolation(
             Path tileBaseDir, String angleStr,
@@ -1111,7 +1234,8 @@ public class StitchingHelper {
             String modeWithIndex, String regionName,
             String compression, double pixelSize, int downsampleFactor,
             QuPathGUI gui, Project<BufferedImage> project,
-            ModalityHandler handler, Map<String, Object> stitchParams) throws IOException {
+            ModalityHandler handler, Map<String, Object> stitchParams,
+            List<QPProjectFunctions.ImageImport> importBatch) throws IOException {
 
         logger.info("Processing angle {} with directory isolation for region {}", angleStr, regionName);
         logger.info("Tile base directory: {}", tileBaseDir);
@@ -1155,7 +1279,8 @@ public class StitchingHelper {
                     pixelSize,
                     downsampleFactor,
                     handler,
-                    stitchParams
+                    stitchParams,
+                    importBatch
             );
             
             logger.info("Isolation processing completed for angle {}, output: {}", angleStr, outPath);
@@ -3,9 +3,13 @@ package qupath.ext.qpsc.controller.workflow;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import qupath.ext.qpsc.preferences.QPPreferenceDialog;
+import qupath.ext.qpsc.utilities.FlatFieldCorrector;
 import qupath.ext.qpsc.utilities.TileProcessingUtilities;
 
 import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
  * Helper for tile cleanup operations after acquisition.
@@ -34,11 +38,22 @@ public class TileCleanupHelper {
      *   <li>Any other value - Keeps tiles in place</li>
      * </ul>
      *
-     * @param tempTileDir Path to the temporary tile directory
+     * <p>The uncorrected tiles that client-side flat-field correction keeps under
+     * {@code <sample>/RawTiles} are handled the same way.</p>
+     *
+     * @param tempTileDir Path to the temporary tile directory ({@code <projects>/<sample>/<mode>})
      */
     public static void performCleanup(String tempTileDir) {
         String handling = QPPreferenceDialog.getTileHandlingMethodProperty();
+        cleanup(tempTileDir, handling);
+
+        Path rawTiles = FlatFieldCorrector.rawTilesModeDirectory(Paths.get(tempTileDir));
+        if (Files.isDirectory(rawTiles)) {
+            cleanup(rawTiles.toString(), handling);
+        }
+    }
 
+    private static void cleanup(String tempTileDir, String handling) {
         logger.info("Performing tile cleanup - method: {}, path: {}", handling, tempTileDir);
 
         // Validate the path exists
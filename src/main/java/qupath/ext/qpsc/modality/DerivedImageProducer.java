@@ -0,0 +1,70 @@
+package qupath.ext.qpsc.modality;
+
+import java.util.List;
+
+/**
+ * Computes an additional image from the stitched images of a multi-angle acquisition.
+ *
+ * <p>Modality handlers return producers from {@link ModalityHandler#getDerivedImageProducers()}.
+ * After all angles of a region have been stitched, each producer chooses the angle images it
+ * needs and combines them pixel by pixel into a single-channel 16-bit image, which is written
+ * as its own pyramidal OME-TIFF and imported next to the angle images. Tiles are processed in
+ * parallel by {@link qupath.ext.qpsc.utilities.DerivedImageEngine}; implementations only
+ * provide the per-pixel arithmetic and must be stateless.</p>
+ *
+ * <p>Example (a producer averaging every angle):</p>
+ * <pre>{@code
+ * public class MeanProducer implements DerivedImageProducer {
+ *     public String getName() { return "mean"; }
+ *     public String getChannelName() { return "Mean"; }
+ *     public List<Double> selectInputs(List<Double> angles) { return angles; }
+ *     public void combine(int[][] inputs, int bands, int[] output) {
+ *         for (int i = 0; i < output.length; i++) {
+ *             int total = 0;
+ *             for (int[] input : inputs)
+ *                 for (int b = 0; b < bands; b++)
+ *                     total += input[i * bands + b];
+ *             output[i] = total / (inputs.length * bands);
+ *         }
+ *     }
+ * }
+ * }</pre>
+ *
+ * @see ModalityHandler#getDerivedImageProducers()
+ * @see qupath.ext.qpsc.modality.ppm.PPMDerivedImages
+ */
+public interface DerivedImageProducer {
+
+    /**
+     * Short filename-safe name, appended to the output file name (e.g. "biref").
+     *
+     * @return the producer name
+     */
+    String getName();
+
+    /**
+     * Name of the output channel shown in QuPath.
+     *
+     * @return the channel name
+     */
+    String getChannelName();
+
+    /**
+     * Chooses the angle images this producer combines.
+     *
+     * @param angles angles (in {@link AngleExposure#ticks()} units) for which a stitched image exists
+     * @return the angles to pass to {@link #combine}, in order, or an empty list if this
+     *         producer cannot run on the available angles
+     */
+    List<Double> selectInputs(List<Double> angles);
+
+    /**
+     * Combines one tile of the selected input images.
+     *
+     * @param inputs pixel samples of each input tile in the order returned by
+     *               {@link #selectInputs}, interleaved by band ({@code [pixel * bands + band]})
+     * @param bands number of bands per input pixel
+     * @param output receives one value per pixel; values are clamped to 0-65535 when written
+     */
+    void combine(int[][] inputs, int bands, int[] output);
+}
@@ -225,6 +225,24 @@ public interface ModalityHandler {
         return String.valueOf(angle);
     }
 
+    /**
+     * Returns producers for images computed from the stitched angle images of a multi-angle acquisition.
+     *
+     * <p>After every angle of a region has been stitched, each producer selects the angle images it
+     * needs and combines them tile by tile into an additional pyramidal image that is imported
+     * into the project with the angle images (e.g. birefringence for PPM). If the microscope server
+     * already delivered tiles for a derived image (a {@code <angle>.<name>} tile directory), that
+     * tile set is stitched instead and the producer is skipped.</p>
+     *
+     * @return the derived image producers for this modality. The default implementation returns
+     *         an empty list
+     * @see DerivedImageProducer
+     * @see qupath.ext.qpsc.utilities.DerivedImageEngine
+     */
+    default List<DerivedImageProducer> getDerivedImageProducers() {
+        return List.of();
+    }
+
     /**
      * Interface for modality-specific UI components that integrate with the acquisition dialog.
      * 
@@ -0,0 +1,134 @@
+package qupath.ext.qpsc.modality.ppm;
+
+import qupath.ext.qpsc.modality.DerivedImageProducer;
+
+import java.util.List;
+
+/**
+ * Birefringence and sum images computed from a PPM acquisition.
+ *
+ * <p>Both producers use the pair of polarizer angles +&theta;/&minus;&theta; with the smallest
+ * non-zero &theta; for which both stitched images exist (e.g. 7&deg; and &minus;7&deg;). The
+ * crossed (0&deg;) and uncrossed (90&deg;) images are not used.</p>
+ *
+ * <ul>
+ *   <li><strong>Birefringence:</strong> |I(+&theta;) &minus; I(&minus;&theta;)| summed over the
+ *       color channels. When normalized, the difference is divided by I(+&theta;) + I(&minus;&theta;)
+ *       and scaled to the full 16-bit range, which removes the dependence on illumination
+ *       intensity.</li>
+ *   <li><strong>Sum:</strong> I(+&theta;) + I(&minus;&theta;) summed over the color channels.</li>
+ * </ul>
+ *
+ * @see PPMModalityHandler#getDerivedImageProducers()
+ */
+public final class PPMDerivedImages {
+
+    private PPMDerivedImages() {}
+
+    /**
+     * Finds the +&theta;/&minus;&theta; pair with the smallest non-zero &theta;.
+     *
+     * @param angles available angles
+     * @return {@code [+θ, −θ]}, or an empty list if no such pair exists
+     */
+    static List<Double> selectOpposingPair(List<Double> angles) {
+        Double best = null;
+        for (double angle : angles) {
+            if (angle > 0 && (best == null || angle < best) && containsAngle(angles, -angle)) {
+                best = angle;
+            }
+        }
+        return best == null ? List.of() : List.of(best, -best);
+    }
+
+    private static boolean containsAngle(List<Double> angles, double target) {
+        for (double angle : angles) {
+            if (Math.abs(angle - target) < 1e-6) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * |I(+&theta;) &minus; I(&minus;&theta;)|, optionally normalized by the sum.
+     */
+    public static final class Birefringence implements DerivedImageProducer {
+        private final boolean normalize;
+
+        /**
+         * @param normalize whether to divide the difference by the sum of both images
+         */
+        public Birefringence(boolean normalize) {
+            this.normalize = normalize;
+        }
+
+        @Override
+        public String getName() {
+            return "biref";
+        }
+
+        @Override
+        public String getChannelName() {
+            return "Birefringence";
+        }
+
+        @Override
+        public List<Double> selectInputs(List<Double> angles) {
+            return selectOpposingPair(angles);
+        }
+
+        @Override
+        public void combine(int[][] inputs, int bands, int[] output) {
+            int[] plus = inputs[0];
+            int[] minus = inputs[1];
+            for (int i = 0; i < output.length; i++) {
+                int difference = 0;
+                int total = 0;
+                for (int b = i * bands, end = b + bands; b < end; b++) {
+                    difference += Math.abs(plus[b] - minus[b]);
+                    total += plus[b] + minus[b];
+                }
+                if (normalize) {
+                    output[i] = total == 0 ? 0 : (int) (65535L * difference / total);
+                } else {
+                    output[i] = difference;
+                }
+            }
+        }
+    }
+
+    /**
+     * I(+&theta;) + I(&minus;&theta;).
+     */
+    public static final class Sum implements DerivedImageProducer {
+
+        @Override
+        public String getName() {
+            return "sum";
+        }
+
+        @Override
+        public String getChannelName() {
+            return "Sum";
+        }
+
+        @Override
+        public List<Double> selectInputs(List<Double> angles) {
+            return selectOpposingPair(angles);
+        }
+
+        @Override
+        public void combine(int[][] inputs, int bands, int[] output) {
+            int[] plus = inputs[0];
+            int[] minus = inputs[1];
+            for (int i = 0; i < output.length; i++) {
+                int total = 0;
+                for (int b = i * bands, end = b + bands; b < end; b++) {
+                    total += plus[b] + minus[b];
+                }
+                output[i] = total;
+            }
+        }
+    }
+}
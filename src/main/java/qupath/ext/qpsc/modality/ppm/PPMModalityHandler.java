@@ -1,6 +1,7 @@
 package qupath.ext.qpsc.modality.ppm;
 
 import qupath.ext.qpsc.modality.AngleExposure;
+import qupath.ext.qpsc.modality.DerivedImageProducer;
 import qupath.ext.qpsc.modality.ModalityHandler;
 import qupath.ext.qpsc.modality.ppm.ui.PPMBoundingBoxUI;
 import qupath.lib.images.ImageData;
@@ -121,4 +122,19 @@ public class PPMModalityHandler implements ModalityHandler {
         }
         return adjusted;
     }
+
+    /**
+     * Returns the birefringence and sum producers for PPM acquisitions.
+     *
+     * <p>Both combine the +&theta; and &minus;&theta; stitched images; see {@link PPMDerivedImages}.
+     * Birefringence normalization follows {@link PPMPreferences#getBirefringenceNormalized()}.</p>
+     *
+     * @return birefringence and sum producers
+     */
+    @Override
+    public List<DerivedImageProducer> getDerivedImageProducers() {
+        return List.of(
+                new PPMDerivedImages.Birefringence(PPMPreferences.getBirefringenceNormalized()),
+                new PPMDerivedImages.Sum());
+    }
 }
@@ -1,5 +1,6 @@
 package qupath.ext.qpsc.modality.ppm;
 
+import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.StringProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -65,6 +66,10 @@ public class PPMPreferences {
     private static final StringProperty overrideMinusAngle =
             PathPrefs.createPersistentPreference("PPMOverrideMinusAngle", "-7.0");
 
+    // Derived image preferences
+    private static final BooleanProperty birefringenceNormalized =
+            PathPrefs.createPersistentPreference("PPMBirefringenceNormalized", false);
+
     static {
         // PPM exposure defaults are initialized with fallback values.
         // Use loadExposuresForProfile() to load profile-specific defaults.
@@ -287,5 +292,30 @@ public class PPMPreferences {
     public static void setOverrideMinusAngle(double angle) {
         overrideMinusAngle.set(String.valueOf(angle));
     }
-}
 
+    // =============== Derived Image Preferences ===============
+
+    /**
+     * Gets whether computed birefringence images are normalized by the sum of both angle images.
+     * @return true to write |I(+)-I(-)| / (I(+)+I(-)) scaled to 16 bits, false for the raw difference
+     */
+    public static boolean getBirefringenceNormalized() {
+        return birefringenceNormalized.get();
+    }
+
+    /**
+     * Sets whether computed birefringence images are normalized by the sum of both angle images.
+     * @param normalized true to normalize, false for the raw difference
+     */
+    public static void setBirefringenceNormalized(boolean normalized) {
+        birefringenceNormalized.set(normalized);
+    }
+
+    /**
+     * Property behind {@link #getBirefringenceNormalized()}, for the preference dialog.
+     * @return the persistent property
+     */
+    public static BooleanProperty birefringenceNormalizedProperty() {
+        return birefringenceNormalized;
+    }
+}
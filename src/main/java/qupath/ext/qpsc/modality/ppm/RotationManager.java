@@ -150,7 +150,7 @@ public class RotationManager {
      * @return CompletableFuture with list of default AngleExposure objects
      */
     public CompletableFuture<List<AngleExposure>> getDefaultAnglesWithExposure(String modalityName) {
-        logger.info("Getting default angles without dialog for modality: {}", modalityName);
+        logger.debug("Getting default angles without dialog for modality: {}", modalityName);
 
         for (RotationStrategy strategy : strategies) {
             if (strategy.appliesTo(modalityName) && strategy instanceof PPMRotationStrategy) {
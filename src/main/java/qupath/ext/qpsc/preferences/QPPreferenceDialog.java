@@ -6,6 +6,7 @@ import javafx.collections.ObservableList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import qupath.ext.basicstitching.config.StitchingConfig;
+import qupath.ext.qpsc.modality.ppm.PPMPreferences;
 import qupath.ext.qpsc.utilities.AffineTransformManager;
 import qupath.ext.qpsc.utilities.MacroImageAnalyzer;
 import qupath.ext.qpsc.utilities.MicroscopeConfigManager;
@@ -87,6 +88,18 @@ public class QPPreferenceDialog {
                     StitchingConfig.OutputFormat.OME_TIFF,
                     StitchingConfig.OutputFormat.class);
 
+    private static final BooleanProperty clientFlatFieldCorrectionProperty =
+            PathPrefs.createPersistentPreference("clientFlatFieldCorrection", false);
+
+    private static final BooleanProperty tileQualityChecksProperty =
+            PathPrefs.createPersistentPreference("tileQualityChecks", true);
+
+    private static final BooleanProperty reacquireFlaggedTilesProperty =
+            PathPrefs.createPersistentPreference("reacquireFlaggedTiles", false);
+
+    private static final BooleanProperty writeFlippedImagesProperty =
+            PathPrefs.createPersistentPreference("writeFlippedImages", false);
+
     // Filename configuration preferences
     // Note: These control what information appears in the filename
     // ALL information is stored in QuPath metadata regardless of these settings
@@ -197,6 +210,50 @@ public class QPPreferenceDialog {
                              "but less commonly used. ZARR provides 2-3x faster writing and 20-30% smaller files.")
                 .build());
 
+        items.add(new PropertyItemBuilder<>(clientFlatFieldCorrectionProperty, Boolean.class)
+                .name("Flat-field correction in QuPath")
+                .category(CATEGORY)
+                .description("Apply background (flat-field) correction to tiles in QuPath before stitching,\n" +
+                             "instead of on the microscope server during acquisition.\n" +
+                             "Uncorrected tiles are kept under <sample>/RawTiles so they can be\n" +
+                             "re-corrected later with new background images, unless the tile handling\n" +
+                             "method zips or deletes them along with the other tiles.")
+                .build());
+
+        items.add(new PropertyItemBuilder<>(tileQualityChecksProperty, Boolean.class)
+                .name("Real-time tile QC")
+                .category(CATEGORY)
+                .description("Check focus, saturation and tissue content of each tile while it is acquired.\n" +
+                             "Flagged tiles are counted in the progress dialog and listed in tile_qc.csv\n" +
+                             "in each region's tile folder.")
+                .build());
+
+        items.add(new PropertyItemBuilder<>(reacquireFlaggedTilesProperty, Boolean.class)
+                .name("Re-acquire tiles flagged by QC")
+                .category(CATEGORY)
+                .description("After each region, acquire tiles that real-time tile QC flagged as out of focus\n" +
+                             "or saturated again before the region is stitched.\n" +
+                             "Requires \"Real-time tile QC\".")
+                .build());
+
+        items.add(new PropertyItemBuilder<>(writeFlippedImagesProperty, Boolean.class)
+                .name("Write flipped images to disk")
+                .category(CATEGORY)
+                .description("When an image must be flipped to match the slide orientation, write the\n" +
+                             "flipped pixels once as a new OME-TIFF instead of flipping on the fly.\n" +
+                             "Flipped images then open at normal speed, at the cost of extra time\n" +
+                             "after stitching. The flipped copy is written next to the original\n" +
+                             "(e.g. image_flippedX.ome.tif), which is left unchanged.")
+                .build());
+
+        items.add(new PropertyItemBuilder<>(PPMPreferences.birefringenceNormalizedProperty(), Boolean.class)
+                .name("Normalize PPM birefringence images")
+                .category(CATEGORY)
+                .description("Write computed birefringence images as |I(+)-I(-)| / (I(+)+I(-)) scaled to\n" +
+                             "16 bits instead of the raw difference |I(+)-I(-)|.\n" +
+                             "Applies to images stitched after the change.")
+                .build());
+
         items.add(new PropertyItemBuilder<>(microscopeServerHostProperty, String.class)
                 .name("Microscope Server Host")
                 .category(CATEGORY)
@@ -325,6 +382,18 @@ public class QPPreferenceDialog {
     public static StitchingConfig.OutputFormat getOutputFormatProperty() {
         return outputFormatProperty.get();
     }
+    public static boolean getClientFlatFieldCorrection() {
+        return clientFlatFieldCorrectionProperty.get();
+    }
+    public static boolean getTileQualityChecks() {
+        return tileQualityChecksProperty.get();
+    }
+    public static boolean getReacquireFlaggedTiles() {
+        return reacquireFlaggedTilesProperty.get();
+    }
+    public static boolean getWriteFlippedImages() {
+        return writeFlippedImagesProperty.get();
+    }
     //TODO should this be here?
 
     private static ObservableList<String> getScannerChoices() {
@@ -0,0 +1,323 @@
+package qupath.ext.qpsc.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qupath.ext.qpsc.service.microscope.MicroscopeSocketClient;
+import qupath.ext.qpsc.utilities.TileQualityMonitor;
+import qupath.ext.qpsc.utilities.TransformationFunctions;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs region acquisitions on the microscope server without any user interface.
+ *
+ * <p>The engine sends the acquisition command, polls the server until the region is finished,
+ * forwards the server's manual focus requests, reads the server's timing metadata and, if asked,
+ * checks tiles with {@link TileQualityMonitor} as they are written. Everything it observes is
+ * reported to an {@link AcquisitionListener}; it never opens a window or waits for the JavaFX
+ * thread. This lets the workflow be driven from QuPath, where the progress dialogs are attached as
+ * listeners, as well as from a Groovy script, a command line batch or a test against a mock server:</p>
+ *
+ * <pre>{@code
+ * AcquisitionEngine engine = new AcquisitionEngine(client, new AcquisitionListener() {
+ *     public void regionProgress(String region, int files, int expected) {
+ *         println(region + ": " + files + "/" + expected);
+ *     }
+ * });
+ * AcquisitionEngine.Result result = engine.acquire(new AcquisitionEngine.Region(
+ *         "Tissue_1", command, tileFolder, List.of("0", "90"), 0, true));
+ * }</pre>
+ *
+ * <p>{@link #acquire} blocks the calling thread until the region is finished. Regions are
+ * acquired one at a time; the engine is reused for all regions of a run, so that cancelling it
+ * stops the whole run.</p>
+ */
+public class AcquisitionEngine {
+    private static final Logger logger = LoggerFactory.getLogger(AcquisitionEngine.class);
+
+    /** Default interval between status polls */
+    public static final long DEFAULT_POLL_INTERVAL_MS = 500;
+    /** Default time without progress before monitoring gives up */
+    public static final long DEFAULT_TIMEOUT_MS = 300000;
+
+    /** Metadata the server writes into the region folder once the acquisition is set up */
+    static final String METADATA_FILE = "acquisition_metadata.txt";
+    private static final String TILE_CONFIGURATION = "TileConfiguration.txt";
+    /** Maximum number of tiles live QC may fall behind the acquisition; later ones are checked at the end */
+    private static final int TILE_QC_MAX_BACKLOG = 20;
+    /** Interval between keepalive polls while a manual focus decision is pending */
+    private static final long MANUAL_FOCUS_KEEPALIVE_S = 30;
+
+    /**
+     * One region to acquire.
+     *
+     * @param name Region name, as passed to the server
+     * @param command Acquisition command for the region
+     * @param tileFolder Folder the server writes the region's tiles to, holding {@code TileConfiguration.txt}
+     * @param angles Angle subfolders, or empty if tiles are written into the region folder
+     * @param expectedFiles Image files expected across all angles, or 0 to count them from the
+     *                      tile configuration
+     * @param tileQc Whether to check tiles as they are written
+     */
+    public record Region(String name, AcquisitionCommandBuilder command, Path tileFolder,
+                         List<String> angles, int expectedFiles, boolean tileQc) {}
+
+    /**
+     * Outcome of a region acquisition.
+     *
+     * @param state Terminal state reported by the server; the last state seen if monitoring timed out
+     * @param finalZ Focus position the server finished at, or null if not reported
+     * @param failureMessage Server's failure description if the state is {@code FAILED}, else null
+     * @param tileQc Tile QC report, completed once all tiles are checked; null if QC was not requested
+     */
+    public record Result(MicroscopeSocketClient.AcquisitionState state, Double finalZ,
+                         String failureMessage, CompletableFuture<TileQualityMonitor.Report> tileQc) {
+
+        /**
+         * @return true if the server completed the region
+         */
+        public boolean isCompleted() {
+            return state == MicroscopeSocketClient.AcquisitionState.COMPLETED;
+        }
+    }
+
+    private final MicroscopeSocketClient client;
+    private final AcquisitionListener listener;
+    private final long pollIntervalMs;
+    private final long timeoutMs;
+    private volatile boolean cancelled;
+
+    /**
+     * Creates an engine with the default poll interval and timeout.
+     *
+     * @param client Connected socket client
+     * @param listener Receives progress and events, or null
+     */
+    public AcquisitionEngine(MicroscopeSocketClient client, AcquisitionListener listener) {
+        this(client, listener, DEFAULT_POLL_INTERVAL_MS, DEFAULT_TIMEOUT_MS);
+    }
+
+    /**
+     * @param client Connected socket client
+     * @param listener Receives progress and events, or null
+     * @param pollIntervalMs Interval between status polls
+     * @param timeoutMs Time without progress before monitoring gives up (0 for no timeout)
+     */
+    public AcquisitionEngine(MicroscopeSocketClient client, AcquisitionListener listener,
+                             long pollIntervalMs, long timeoutMs) {
+        this.client = client;
+        this.listener = listener != null ? listener : new AcquisitionListener() {};
+        this.pollIntervalMs = pollIntervalMs;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * @return The listener events are reported to
+     */
+    public AcquisitionListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Acquires one region and waits until the server has finished it.
+     *
+     * @param region Region to acquire
+     * @return Outcome of the acquisition
+     * @throws IOException if the command cannot be sent or the server stops responding
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public Result acquire(Region region) throws IOException, InterruptedException {
+        String name = region.name();
+        int expectedFiles = region.expectedFiles() > 0
+                ? region.expectedFiles()
+                : countExpectedFiles(region.tileFolder(), region.angles());
+
+        if (cancelled) {
+            logger.info("Not acquiring {} - the run was cancelled", name);
+            return new Result(MicroscopeSocketClient.AcquisitionState.CANCELLED, null, null, null);
+        }
+        client.clearLastAcquisitionFinalZ();
+        client.startAcquisition(region.command());
+        logger.info("Acquiring region {}: {} files expected", name, expectedFiles);
+        listener.regionStarted(name, expectedFiles);
+
+        TileQualityMonitor tileQc = region.tileQc()
+                ? TileQualityMonitor.start(region.tileFolder(), region.angles(), 0, TILE_QC_MAX_BACKLOG,
+                        (tile, summary) -> listener.tileQualityUpdated(name, summary))
+                : null;
+        AtomicBoolean metadataRead = new AtomicBoolean(false);
+        MicroscopeSocketClient.AcquisitionState state;
+        CompletableFuture<TileQualityMonitor.Report> qcReport = null;
+        try {
+            state = client.monitorAcquisition(progress -> {
+                listener.regionProgress(name, progress.current, expectedFiles);
+                if (tileQc != null) {
+                    tileQc.onTilesArrived();
+                }
+                handleManualFocus(name);
+                if (!metadataRead.get()) {
+                    metadataRead.set(readMetadata(name, region.tileFolder()));
+                }
+            }, pollIntervalMs, timeoutMs);
+        } finally {
+            if (tileQc != null) {
+                qcReport = tileQc.finish();
+            }
+        }
+
+        Double finalZ = null;
+        String failureMessage = null;
+        switch (state) {
+            case COMPLETED -> {
+                finalZ = client.getLastAcquisitionFinalZ();
+                logger.info("Acquisition completed for {}", name);
+            }
+            case FAILED -> {
+                String message = client.getLastFailureMessage();
+                failureMessage = message != null ? message : "Unknown server error";
+                logger.error("Server acquisition failed for {}: {}", name, failureMessage);
+            }
+            case CANCELLED -> logger.info("Acquisition cancelled for {}{}", name,
+                    cancelled ? " on request" : " by the server");
+            default -> logger.warn("Acquisition of {} ended in unexpected state {}", name, state);
+        }
+        listener.regionFinished(name, state);
+        return new Result(state, finalZ, failureMessage, qcReport);
+    }
+
+    /**
+     * Asks the server to cancel the running acquisition. Regions passed to {@link #acquire}
+     * afterwards are not started.
+     *
+     * @throws IOException if the request cannot be sent
+     */
+    public void cancel() throws IOException {
+        cancelled = true;
+        client.cancelAcquisition();
+    }
+
+    /**
+     * @return true if {@link #cancel} has been called
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Counts the image files a region will produce from its tile configuration.
+     *
+     * @param tileFolder Region tile folder
+     * @param angles Angle subfolders, or empty
+     * @return Tiles times angles, or 0 if the configuration cannot be read
+     */
+    public static int countExpectedFiles(Path tileFolder, List<String> angles) {
+        try {
+            Map<String, double[]> positions =
+                    TransformationFunctions.readTilePositions(tileFolder.resolve(TILE_CONFIGURATION));
+            return positions == null ? 0 : positions.size() * Math.max(1, angles.size());
+        } catch (IOException e) {
+            logger.warn("Could not count tiles in {}: {}", tileFolder, e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Passes a pending manual focus request to the listener and sends the decision back. Blocks the
+     * monitoring thread until a decision is made, polling the server so the connection stays alive.
+     */
+    private void handleManualFocus(String region) {
+        int retriesRemaining;
+        try {
+            retriesRemaining = client.isManualFocusRequested();
+        } catch (IOException e) {
+            logger.warn("Failed to check manual focus status: {}", e.getMessage());
+            return;
+        }
+        if (retriesRemaining < 0) {
+            return;
+        }
+        logger.info("Manual focus requested by server for {} (retries remaining: {})", region, retriesRemaining);
+
+        CompletableFuture<AcquisitionListener.ManualFocusDecision> pending =
+                listener.manualFocusRequested(region, retriesRemaining);
+        AcquisitionListener.ManualFocusDecision decision = AcquisitionListener.ManualFocusDecision.USE_CURRENT_FOCUS;
+        if (pending == null) {
+            logger.warn("No one to ask for manual focus on {} - continuing with the current focus", region);
+        } else {
+            try {
+                while (true) {
+                    try {
+                        decision = pending.get(MANUAL_FOCUS_KEEPALIVE_S, TimeUnit.SECONDS);
+                        break;
+                    } catch (TimeoutException e) {
+                        try {
+                            client.getAcquisitionProgress();
+                            logger.debug("Keepalive ping during manual focus");
+                        } catch (IOException ex) {
+                            logger.warn("Failed to ping server during manual focus", ex);
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                logger.error("Interrupted while waiting for manual focus", e);
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                logger.error("Manual focus request failed - cancelling acquisition", e.getCause());
+                decision = AcquisitionListener.ManualFocusDecision.CANCEL_ACQUISITION;
+            }
+        }
+
+        try {
+            switch (decision) {
+                case RETRY_AUTOFOCUS -> client.acknowledgeManualFocus();
+                case USE_CURRENT_FOCUS -> client.skipAutofocusRetry();
+                case CANCEL_ACQUISITION -> cancel();
+            }
+            logger.info("Manual focus for {}: {}", region, decision);
+        } catch (IOException e) {
+            logger.error("Failed to send manual focus response", e);
+        }
+    }
+
+    /**
+     * Reads the server's acquisition metadata file, if it has been written yet.
+     *
+     * @return true once the file has been read
+     */
+    private boolean readMetadata(String region, Path tileFolder) {
+        Path metadataPath = tileFolder.resolve(METADATA_FILE);
+        if (!Files.exists(metadataPath)) {
+            return false;
+        }
+        try {
+            int timingWindowSize = 10;
+            int afNTiles = 5;
+            int totalTiles = 0;
+            for (String line : Files.readAllLines(metadataPath)) {
+                if (line.startsWith("timing_window_size=")) {
+                    timingWindowSize = Integer.parseInt(line.substring("timing_window_size=".length()).trim());
+                } else if (line.startsWith("af_n_tiles=")) {
+                    afNTiles = Integer.parseInt(line.substring("af_n_tiles=".length()).trim());
+                } else if (line.startsWith("total_tiles=")) {
+                    totalTiles = Integer.parseInt(line.substring("total_tiles=".length()).trim());
+                }
+            }
+            logger.info("Read acquisition metadata: window={}, af_positions={}, total_tiles={}",
+                    timingWindowSize, afNTiles, totalTiles);
+            listener.timingMetadata(region, timingWindowSize, afNTiles, totalTiles);
+        } catch (Exception e) {
+            logger.warn("Failed to read acquisition metadata: {}", e.getMessage());
+        }
+        return true;
+    }
+}
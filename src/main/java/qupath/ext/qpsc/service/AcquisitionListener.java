@@ -0,0 +1,191 @@
+package qupath.ext.qpsc.service;
+
+import qupath.ext.qpsc.service.microscope.MicroscopeSocketClient;
+import qupath.ext.qpsc.utilities.TileQualityMonitor;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Progress and events of an acquisition run, independent of any user interface.
+ *
+ * <p>{@link AcquisitionEngine} and the stitching helpers report through this interface instead of
+ * touching dialogs, so the same workflow can run inside QuPath, from a script, or in a test against
+ * a mock server. Every method has a no-op default; implementations override what they display or
+ * record. Methods are called from worker threads and must not block, except where a decision is
+ * returned as a future.</p>
+ *
+ * <p>In the GUI the progress and stitching dialogs are attached through
+ * {@code qupath.ext.qpsc.ui.ProgressDialogListener}.</p>
+ */
+public interface AcquisitionListener {
+
+    /**
+     * What to do when the server cannot autofocus and asks for manual focus.
+     */
+    enum ManualFocusDecision {
+        /** Run autofocus again after manual adjustment */
+        RETRY_AUTOFOCUS,
+        /** Accept the current focus and continue */
+        USE_CURRENT_FOCUS,
+        /** Cancel the acquisition */
+        CANCEL_ACQUISITION
+    }
+
+    /**
+     * A region (annotation) acquisition has been started on the server.
+     *
+     * @param region Region name
+     * @param expectedFiles Number of image files expected across all angles
+     */
+    default void regionStarted(String region, int expectedFiles) {}
+
+    /**
+     * @param region Region name
+     * @param filesWritten Image files written so far
+     * @param expectedFiles Number of image files expected across all angles
+     */
+    default void regionProgress(String region, int filesWritten, int expectedFiles) {}
+
+    /**
+     * The server has written its acquisition metadata for the region.
+     *
+     * @param region Region name
+     * @param timingWindowSize Tiles the server averages over for timing
+     * @param afNTiles Number of autofocus positions
+     * @param totalTiles Tiles per angle, or 0 if not reported
+     */
+    default void timingMetadata(String region, int timingWindowSize, int afNTiles, int totalTiles) {}
+
+    /**
+     * @param region Region name
+     * @param summary Tile QC counts so far
+     */
+    default void tileQualityUpdated(String region, TileQualityMonitor.Summary summary) {}
+
+    /**
+     * The server asks for manual focus because autofocus failed.
+     *
+     * @param region Region name
+     * @param retriesRemaining Autofocus retries the server has left
+     * @return The decision, completed when known; null to leave the decision to another listener
+     *         or, failing that, to continue with the current focus
+     */
+    default CompletableFuture<ManualFocusDecision> manualFocusRequested(String region, int retriesRemaining) {
+        return null;
+    }
+
+    /**
+     * Progress of extra work on a region that is not counted in the region's own progress, such as
+     * re-acquiring flagged tiles.
+     *
+     * @param region Region name
+     * @param step Short description of the step and its progress, or null when the step is over
+     */
+    default void regionSubStep(String region, String step) {}
+
+    /**
+     * @param region Region name
+     * @param state Terminal state reported by the server
+     */
+    default void regionFinished(String region, MicroscopeSocketClient.AcquisitionState state) {}
+
+    /**
+     * @param operationId Stitching operation, usually {@code "<sample> - <region>"}
+     */
+    default void stitchingStarted(String operationId) {}
+
+    /**
+     * @param operationId Stitching operation
+     * @param status Human-readable step
+     */
+    default void stitchingStatus(String operationId, String status) {}
+
+    /**
+     * @param operationId Stitching operation, finished and imported
+     */
+    default void stitchingCompleted(String operationId) {}
+
+    /**
+     * @param operationId Stitching operation
+     * @param message Failure description
+     */
+    default void stitchingFailed(String operationId, String message) {}
+
+    /**
+     * Combines listeners so that each event reaches all of them, in order. The first non-null
+     * manual focus decision wins.
+     *
+     * @param listeners Listeners, null entries are ignored
+     * @return Combined listener
+     */
+    static AcquisitionListener of(AcquisitionListener... listeners) {
+        List<AcquisitionListener> all = Arrays.stream(listeners)
+                .filter(Objects::nonNull)
+                .toList();
+        return new AcquisitionListener() {
+            @Override
+            public void regionStarted(String region, int expectedFiles) {
+                all.forEach(l -> l.regionStarted(region, expectedFiles));
+            }
+
+            @Override
+            public void regionProgress(String region, int filesWritten, int expectedFiles) {
+                all.forEach(l -> l.regionProgress(region, filesWritten, expectedFiles));
+            }
+
+            @Override
+            public void timingMetadata(String region, int timingWindowSize, int afNTiles, int totalTiles) {
+                all.forEach(l -> l.timingMetadata(region, timingWindowSize, afNTiles, totalTiles));
+            }
+
+            @Override
+            public void tileQualityUpdated(String region, TileQualityMonitor.Summary summary) {
+                all.forEach(l -> l.tileQualityUpdated(region, summary));
+            }
+
+            @Override
+            public CompletableFuture<ManualFocusDecision> manualFocusRequested(String region, int retriesRemaining) {
+                for (AcquisitionListener l : all) {
+                    CompletableFuture<ManualFocusDecision> decision = l.manualFocusRequested(region, retriesRemaining);
+                    if (decision != null) {
+                        return decision;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public void regionSubStep(String region, String step) {
+                all.forEach(l -> l.regionSubStep(region, step));
+            }
+
+            @Override
+            public void regionFinished(String region, MicroscopeSocketClient.AcquisitionState state) {
+                all.forEach(l -> l.regionFinished(region, state));
+            }
+
+            @Override
+            public void stitchingStarted(String operationId) {
+                all.forEach(l -> l.stitchingStarted(operationId));
+            }
+
+            @Override
+            public void stitchingStatus(String operationId, String status) {
+                all.forEach(l -> l.stitchingStatus(operationId, status));
+            }
+
+            @Override
+            public void stitchingCompleted(String operationId) {
+                all.forEach(l -> l.stitchingCompleted(operationId));
+            }
+
+            @Override
+            public void stitchingFailed(String operationId, String message) {
+                all.forEach(l -> l.stitchingFailed(operationId, message));
+            }
+        };
+    }
+}
@@ -0,0 +1,383 @@
+package qupath.ext.qpsc.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qupath.ext.qpsc.ui.stagemap.StageInsert;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Runs acquisitions for several slides of a stage insert back to back.
+ *
+ * <p>Each {@link Job} names a slide position, the QuPath project and saved alignment for the
+ * slide, the annotation classes to acquire and the modality and objective to use.
+ * {@link #plan} orders the jobs so that the objective and modality change as rarely as possible
+ * and, within each hardware setup, the stage travels between slides by greedy nearest neighbour,
+ * as {@link AnnotationOrderingService} does for annotations. Changing objective or modality
+ * takes far longer than moving between slides, so hardware grouping comes first.</p>
+ *
+ * <p>{@link #run} hands each job to a {@link SlideRunner}, which acquires the slide and returns
+ * its stitching and cleanup as a future. The queue moves on to the next slide as soon as the
+ * acquisition is done, so slide N is stitched while slide N+1 is acquired. At most
+ * {@code maxPendingSlides} slides may wait for stitching; beyond that the queue waits, so a slow
+ * stitcher cannot fill the disk with raw tiles overnight. A failed slide is recorded and the
+ * batch continues with the next one.</p>
+ *
+ * <p>{@link qupath.ext.qpsc.controller.workflow.ProjectSlideRunner} acquires the jobs from their
+ * projects and saved alignments; other runners can be supplied from scripts or tests.</p>
+ *
+ * <pre>{@code
+ * SlideBatchQueue queue = new SlideBatchQueue(engine, runner, SlideBatchQueue.DEFAULT_MAX_PENDING_SLIDES);
+ * List<SlideBatchQueue.Job> plan = SlideBatchQueue.plan(jobs, insert, client.getStageXY(), null);
+ * List<SlideBatchQueue.JobResult> results = queue.run(plan);
+ * }</pre>
+ */
+public class SlideBatchQueue {
+    private static final Logger logger = LoggerFactory.getLogger(SlideBatchQueue.class);
+
+    /** Default number of slides that may wait for stitching while the next one is acquired */
+    public static final int DEFAULT_MAX_PENDING_SLIDES = 1;
+
+    /**
+     * Objective and modality a job needs.
+     *
+     * @param objective Objective identifier
+     * @param modality Modality name, e.g. "ppm" or "bf"
+     */
+    public record Hardware(String objective, String modality) {}
+
+    /**
+     * One slide to acquire.
+     *
+     * @param sample Sample name for the slide's output folders
+     * @param slide Slide position in the stage insert
+     * @param project QuPath project of the slide
+     * @param alignment Image name the slide alignment was saved under
+     * @param annotationClasses Annotation classes to acquire
+     * @param modality Modality name
+     * @param objective Objective identifier
+     */
+    public record Job(String sample, StageInsert.SlidePosition slide, Path project, String alignment,
+                      List<String> annotationClasses, String modality, String objective) {
+
+        public Job {
+            annotationClasses = annotationClasses == null ? List.of() : List.copyOf(annotationClasses);
+        }
+
+        /**
+         * @return The hardware setup this job needs
+         */
+        public Hardware hardware() {
+            return new Hardware(objective, modality);
+        }
+    }
+
+    /**
+     * Outcome of a job.
+     */
+    public enum Status {
+        /** Acquired, stitched and cleaned up */
+        COMPLETED,
+        /** Acquisition, hardware change or stitching failed */
+        FAILED,
+        /** Not acquired, or acquisition stopped, because the batch was cancelled */
+        CANCELLED
+    }
+
+    /**
+     * @param job The job
+     * @param status Outcome
+     * @param message Failure description, or null
+     */
+    public record JobResult(Job job, Status status, String message) {}
+
+    /**
+     * Acquires single slides for the queue.
+     */
+    public interface SlideRunner {
+
+        /**
+         * Switches the microscope to the objective and modality of the next jobs. Called before
+         * the first job and whenever the hardware setup changes.
+         *
+         * @param hardware Hardware setup for the next jobs
+         * @throws Exception if the change fails; the job is then marked failed
+         */
+        default void changeHardware(Hardware hardware) throws Exception {}
+
+        /**
+         * Acquires the job's slide and returns once the acquisition is finished.
+         *
+         * @param job Job to acquire
+         * @param engine The batch's engine, or null
+         * @return Stitching and cleanup of the slide, which may still be running; null if there is none
+         * @throws Exception if the slide cannot be acquired
+         */
+        CompletableFuture<Void> acquire(Job job, AcquisitionEngine engine) throws Exception;
+    }
+
+    /**
+     * Progress of a batch. Called from the thread running the batch.
+     */
+    public interface BatchListener {
+
+        /**
+         * @param job Job whose acquisition starts
+         * @param index Position of the job in the batch
+         * @param total Number of jobs in the batch
+         */
+        default void jobStarted(Job job, int index, int total) {}
+
+        /**
+         * @param result Final outcome of a job, once its stitching has finished
+         */
+        default void jobFinished(JobResult result) {}
+    }
+
+    private final AcquisitionEngine engine;
+    private final SlideRunner runner;
+    private final int maxPendingSlides;
+    private BatchListener listener = new BatchListener() {};
+    private volatile boolean cancelled;
+
+    /**
+     * @param engine Engine passed to the runner and cancelled with the batch, or null if the
+     *               runner acquires by other means
+     * @param runner Acquires single slides
+     * @param maxPendingSlides Slides that may wait for stitching while the next one is acquired;
+     *                         0 stitches each slide before the next is started
+     */
+    public SlideBatchQueue(AcquisitionEngine engine, SlideRunner runner, int maxPendingSlides) {
+        this.engine = engine;
+        this.runner = Objects.requireNonNull(runner, "runner");
+        this.maxPendingSlides = Math.max(0, maxPendingSlides);
+    }
+
+    /**
+     * @param listener Receives batch progress, or null
+     */
+    public void setListener(BatchListener listener) {
+        this.listener = listener != null ? listener : new BatchListener() {};
+    }
+
+    /**
+     * Orders jobs to minimise hardware changes and stage travel.
+     *
+     * <p>Jobs are grouped by objective and modality. The group matching the current hardware goes
+     * first; after that, the group with the slide closest to the stage. Within a group, the next
+     * job is the one whose slide is closest to the previous one, so jobs on the same slide stay
+     * together in their given order.</p>
+     *
+     * @param jobs Jobs in any order
+     * @param insert Stage insert holding the slides
+     * @param startXY Current stage position [x, y] in um, or null to start at the first job
+     * @param currentHardware Hardware setup the microscope is in, or null if unknown
+     * @return The jobs in acquisition order
+     */
+    public static List<Job> plan(List<Job> jobs, StageInsert insert, double[] startXY, Hardware currentHardware) {
+        Map<Hardware, List<Job>> groups = new LinkedHashMap<>();
+        for (Job job : jobs) {
+            groups.computeIfAbsent(job.hardware(), k -> new ArrayList<>()).add(job);
+        }
+
+        List<Job> ordered = new ArrayList<>(jobs.size());
+        double[] position = startXY;
+        Hardware hardware = currentHardware;
+        while (!groups.isEmpty()) {
+            if (hardware == null || !groups.containsKey(hardware)) {
+                hardware = nearestGroup(groups, insert, position);
+            }
+            List<Job> remaining = groups.remove(hardware);
+            while (!remaining.isEmpty()) {
+                Job next = remaining.remove(nearestJob(remaining, insert, position));
+                ordered.add(next);
+                position = insert.getSlideCenterStage(next.slide());
+            }
+        }
+
+        logger.info("Planned {} slide jobs: {} hardware changes, {} mm of stage travel",
+                ordered.size(), hardwareChanges(ordered, currentHardware),
+                String.format("%.1f", travelUm(ordered, insert, startXY) / 1000.0));
+        return ordered;
+    }
+
+    /**
+     * Counts the hardware changes needed to run jobs in the given order.
+     *
+     * @param jobs Jobs in acquisition order
+     * @param currentHardware Hardware setup the microscope is in, or null if unknown
+     * @return Number of changes, including the first if the current setup differs
+     */
+    public static int hardwareChanges(List<Job> jobs, Hardware currentHardware) {
+        int changes = 0;
+        Hardware hardware = currentHardware;
+        for (Job job : jobs) {
+            if (!job.hardware().equals(hardware)) {
+                changes++;
+                hardware = job.hardware();
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Stage travel between slide centres for jobs in the given order.
+     *
+     * @param jobs Jobs in acquisition order
+     * @param insert Stage insert holding the slides
+     * @param startXY Starting stage position [x, y] in um, or null to start at the first job
+     * @return Travel in um
+     */
+    public static double travelUm(List<Job> jobs, StageInsert insert, double[] startXY) {
+        double travel = 0;
+        double[] position = startXY;
+        for (Job job : jobs) {
+            double[] center = insert.getSlideCenterStage(job.slide());
+            if (position != null) {
+                travel += AnnotationOrderingService.euclideanDistance(position, center);
+            }
+            position = center;
+        }
+        return travel;
+    }
+
+    private static Hardware nearestGroup(Map<Hardware, List<Job>> groups, StageInsert insert, double[] position) {
+        Hardware nearest = null;
+        double nearestDist = Double.MAX_VALUE;
+        for (Map.Entry<Hardware, List<Job>> group : groups.entrySet()) {
+            List<Job> jobs = group.getValue();
+            double dist = distance(jobs.get(nearestJob(jobs, insert, position)), insert, position);
+            if (nearest == null || dist < nearestDist) {
+                nearest = group.getKey();
+                nearestDist = dist;
+            }
+        }
+        return nearest;
+    }
+
+    private static int nearestJob(List<Job> jobs, StageInsert insert, double[] position) {
+        int nearestIdx = 0;
+        double nearestDist = Double.MAX_VALUE;
+        for (int i = 0; i < jobs.size(); i++) {
+            double dist = distance(jobs.get(i), insert, position);
+            if (dist < nearestDist) {
+                nearestIdx = i;
+                nearestDist = dist;
+            }
+        }
+        return nearestIdx;
+    }
+
+    private static double distance(Job job, StageInsert insert, double[] position) {
+        return position == null ? 0
+                : AnnotationOrderingService.euclideanDistance(position, insert.getSlideCenterStage(job.slide()));
+    }
+
+    /**
+     * Runs the jobs in the given order and waits until all slides are stitched.
+     *
+     * @param jobs Jobs in acquisition order, usually from {@link #plan}
+     * @return Outcome of each job, in the same order
+     * @throws InterruptedException if the calling thread is interrupted; stitching already
+     *                              queued keeps running
+     */
+    public List<JobResult> run(List<Job> jobs) throws InterruptedException {
+        long startNanos = System.nanoTime();
+        JobResult[] results = new JobResult[jobs.size()];
+        Deque<Pending> pending = new ArrayDeque<>();
+        Hardware hardware = null;
+
+        for (int i = 0; i < jobs.size(); i++) {
+            Job job = jobs.get(i);
+            if (cancelled) {
+                results[i] = finish(new JobResult(job, Status.CANCELLED, null));
+                continue;
+            }
+            // Bound the stitching backlog before starting another slide
+            while (pending.size() > maxPendingSlides) {
+                awaitOldest(pending, results);
+            }
+
+            try {
+                if (!job.hardware().equals(hardware)) {
+                    logger.info("Changing hardware to {} / {} for {}", job.objective(), job.modality(), job.sample());
+                    runner.changeHardware(job.hardware());
+                    hardware = job.hardware();
+                }
+                logger.info("Acquiring slide {} of {}: {} at {}", i + 1, jobs.size(), job.sample(), job.slide());
+                listener.jobStarted(job, i, jobs.size());
+                CompletableFuture<Void> postProcessing = runner.acquire(job, engine);
+                pending.add(new Pending(i, job, postProcessing != null
+                        ? postProcessing : CompletableFuture.completedFuture(null), cancelled));
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                logger.error("Slide job {} failed", job.sample(), e);
+                // The hardware may be in an unknown state, so change it again for the next job
+                hardware = null;
+                results[i] = finish(new JobResult(job, Status.FAILED, e.getMessage()));
+            }
+        }
+        while (!pending.isEmpty()) {
+            awaitOldest(pending, results);
+        }
+
+        long completed = Arrays.stream(results).filter(r -> r.status() == Status.COMPLETED).count();
+        logger.info("Slide batch finished: {} of {} jobs completed in {} min", completed, jobs.size(),
+                String.format("%.1f", (System.nanoTime() - startNanos) / 60e9));
+        return List.of(results);
+    }
+
+    /**
+     * Cancels the batch: the running acquisition is stopped and no further slides are started.
+     * Stitching of slides already acquired is left to finish.
+     *
+     * @throws IOException if the cancel request cannot be sent to the server
+     */
+    public void cancel() throws IOException {
+        cancelled = true;
+        if (engine != null) {
+            engine.cancel();
+        }
+    }
+
+    /**
+     * @return true if {@link #cancel} has been called
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    private record Pending(int index, Job job, CompletableFuture<Void> postProcessing, boolean cancelled) {}
+
+    private void awaitOldest(Deque<Pending> pending, JobResult[] results) throws InterruptedException {
+        Pending oldest = pending.peekFirst();
+        JobResult result;
+        try {
+            oldest.postProcessing().get();
+            // A slide whose acquisition was cancelled still gets its tiles stitched
+            result = new JobResult(oldest.job(), oldest.cancelled() ? Status.CANCELLED : Status.COMPLETED, null);
+        } catch (ExecutionException e) {
+            logger.error("Stitching of slide {} failed", oldest.job().sample(), e.getCause());
+            result = new JobResult(oldest.job(), Status.FAILED, e.getCause().getMessage());
+        }
+        pending.removeFirst();
+        results[oldest.index()] = finish(result);
+    }
+
+    private JobResult finish(JobResult result) {
+        listener.jobFinished(result);
+        return result;
+    }
+}
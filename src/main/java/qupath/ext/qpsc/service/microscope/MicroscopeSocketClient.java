@@ -3,6 +3,7 @@ package qupath.ext.qpsc.service.microscope;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import qupath.ext.qpsc.service.AcquisitionCommandBuilder;
+import qupath.ext.qpsc.utilities.AcquisitionTelemetry;
 
 import java.nio.charset.StandardCharsets;
 import java.util.function.Consumer;
@@ -462,6 +463,7 @@ public class MicroscopeSocketClient implements AutoCloseable {
         synchronized (socketLock) {
             ensureConnected();
 
+            long startNanos = System.nanoTime();
             try {
                 // Send command (8 bytes)
                 output.write(Command.ACQUIRE.getValue());
@@ -484,10 +486,13 @@ public class MicroscopeSocketClient implements AutoCloseable {
                 int originalTimeout = socket.getSoTimeout();
                 socket.setSoTimeout(30000); // 30 seconds for acknowledgment
 
+                long ackStartNanos = System.nanoTime();
                 try {
                     // Wait for acknowledgment from server (16 bytes like STATUS response)
                     byte[] ackResponse = new byte[16];
                     input.readFully(ackResponse);
+                    AcquisitionTelemetry.getInstance().recordPhase(
+                            AcquisitionTelemetry.PHASE_ACK_WAIT, System.nanoTime() - ackStartNanos);
                     String ackStr = new String(ackResponse, StandardCharsets.UTF_8).trim();
 
                     if (!ackStr.startsWith("STARTED")) {
@@ -500,9 +505,13 @@ public class MicroscopeSocketClient implements AutoCloseable {
                 }
 
                 lastActivityTime.set(System.currentTimeMillis());
+                AcquisitionTelemetry.getInstance().recordCommand(Command.ACQUIRE.name(), System.nanoTime() - startNanos);
                 logger.info("Acquisition command sent successfully");
 
             } catch (IOException | InterruptedException e) {
+                if (e instanceof SocketTimeoutException) {
+                    AcquisitionTelemetry.getInstance().increment(AcquisitionTelemetry.COUNTER_TIMEOUTS);
+                }
                 handleIOException(new IOException("Failed to send acquisition command", e));
                 throw new IOException("Failed to send acquisition command", e);
             }
@@ -1650,6 +1659,7 @@ public class MicroscopeSocketClient implements AutoCloseable {
         synchronized (socketLock) {
             ensureConnected();
 
+            long startNanos = System.nanoTime();
             try {
                 // Send command
                 output.write(command.getValue());
@@ -1667,12 +1677,17 @@ public class MicroscopeSocketClient implements AutoCloseable {
                     byte[] response = new byte[expectedResponseBytes];
                     input.readFully(response);
                     lastActivityTime.set(System.currentTimeMillis());
+                    AcquisitionTelemetry.getInstance().recordCommand(command.name(), System.nanoTime() - startNanos);
                     return response;
                 }
 
+                AcquisitionTelemetry.getInstance().recordCommand(command.name(), System.nanoTime() - startNanos);
                 return new byte[0];
 
             } catch (IOException e) {
+                if (e instanceof SocketTimeoutException) {
+                    AcquisitionTelemetry.getInstance().increment(AcquisitionTelemetry.COUNTER_TIMEOUTS);
+                }
                 handleIOException(e);
                 throw e;
             }
@@ -1727,10 +1742,12 @@ public class MicroscopeSocketClient implements AutoCloseable {
             while (attempts < maxReconnectAttempts && !connected.get() && !shuttingDown.get()) {
                 attempts++;
                 logger.info("Reconnection attempt {} of {}", attempts, maxReconnectAttempts);
+                AcquisitionTelemetry.getInstance().increment(AcquisitionTelemetry.COUNTER_RECONNECT_ATTEMPTS);
 
                 try {
                     Thread.sleep(reconnectDelayMs);
                     connect();
+                    AcquisitionTelemetry.getInstance().increment(AcquisitionTelemetry.COUNTER_RECONNECTS);
                     logger.info("Successfully reconnected to microscope server");
                     break;
                 } catch (Exception e) {
@@ -1760,6 +1777,7 @@ public class MicroscopeSocketClient implements AutoCloseable {
                         logger.debug("Health check passed");
                     } catch (Exception e) {
                         logger.warn("Health check failed: {}", e.getMessage());
+                        AcquisitionTelemetry.getInstance().increment(AcquisitionTelemetry.COUNTER_HEALTH_CHECK_FAILURES);
                         connected.set(false);
                         scheduleReconnection();
                     }
@@ -2099,6 +2117,10 @@ public class MicroscopeSocketClient implements AutoCloseable {
         AcquisitionState lastState = AcquisitionState.IDLE;
         int retryCount = 0;
         final int maxInitialRetries = 3;
+        // Telemetry: per-image server time is measured between progress increments
+        AcquisitionTelemetry telemetry = AcquisitionTelemetry.getInstance();
+        long monitorStartNanos = System.nanoTime();
+        long lastImageNanos = monitorStartNanos;
 
         while (true) {
             try {
@@ -2113,6 +2135,8 @@ public class MicroscopeSocketClient implements AutoCloseable {
                         currentState == AcquisitionState.FAILED ||
                         currentState == AcquisitionState.CANCELLED) {
                     logger.info("Acquisition reached terminal state: {}", currentState);
+                    telemetry.recordPhase(AcquisitionTelemetry.PHASE_SERVER_ACQUISITION,
+                            System.nanoTime() - monitorStartNanos);
                     return currentState;
                 }
 
@@ -2142,6 +2166,15 @@ public class MicroscopeSocketClient implements AutoCloseable {
 
                             // Check if progress was actually made
                             if (progress.current > lastProgressCount) {
+                                long nowNanos = System.nanoTime();
+                                int advanced = progress.current - Math.max(lastProgressCount, 0);
+                                if (advanced > 0) {
+                                    long perImage = (nowNanos - lastImageNanos) / advanced;
+                                    for (int i = 0; i < advanced; i++) {
+                                        telemetry.recordPhase(AcquisitionTelemetry.PHASE_SERVER_IMAGE, perImage);
+                                    }
+                                }
+                                lastImageNanos = nowNanos;
                                 lastProgressUpdateTime.set(System.currentTimeMillis());
                                 lastProgressCount = progress.current;
                                 logger.debug("Progress updated: {}/{} files, resetting timeout", progress.current, progress.total);
@@ -2167,6 +2200,7 @@ public class MicroscopeSocketClient implements AutoCloseable {
                     if (timeSinceProgress > timeoutMs) {
                         logger.warn("No progress for {} ms (last progress: {} files), timing out",
                                 timeSinceProgress, lastProgressCount);
+                        telemetry.increment(AcquisitionTelemetry.COUNTER_TIMEOUTS);
                         break;
                     }
                 }
@@ -15,6 +15,7 @@ import javafx.stage.Stage;
 import javafx.util.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import qupath.ext.qpsc.utilities.AcquisitionTimingStore;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -77,6 +78,16 @@ public class DualProgressDialog {
     private final java.util.concurrent.ConcurrentLinkedDeque<Long> allTileTimes = new java.util.concurrent.ConcurrentLinkedDeque<>();
     private final AtomicBoolean firstTileProcessed = new AtomicBoolean(false);
 
+    // Raw per-image durations for the whole run (exported and fed to AcquisitionTimingStore)
+    private final List<AcquisitionTimingStore.TileDuration> tileDurations = Collections.synchronizedList(new ArrayList<>());
+
+    // Historical timing for this hardware profile, used until enough live data is collected
+    private volatile AcquisitionTimingStore.TimingProfile timingPrior;
+
+    // Profile of tileDurations, rebuilt on the FX thread only when images have completed since
+    private AcquisitionTimingStore.TimingProfile liveProfile;
+    private int liveProfileSize = -1;
+
     // Per-annotation tracking for tile counts in future annotations
     private final List<Integer> futureTileCounts = Collections.synchronizedList(new ArrayList<>());
 
@@ -96,6 +107,12 @@ public class DualProgressDialog {
     private final ListView<String> stitchingListView;
     private final Label stitchingCountLabel;
 
+    // Real-time tile QC summary - hidden until the first tile is checked
+    private final Label tileQcLabel;
+
+    // Work on the current annotation outside its tile count, e.g. re-acquiring flagged tiles
+    private volatile String subStep;
+
     /**
      * Creates a new dual progress dialog with default timing window size.
      *
@@ -151,6 +168,12 @@ public class DualProgressDialog {
         stitchingSection.setVisible(false);
         stitchingSection.setManaged(false); // Don't take space when hidden
 
+        tileQcLabel = new Label();
+        tileQcLabel.setWrapText(true);
+        tileQcLabel.setStyle("-fx-font-size: 10px;");
+        tileQcLabel.setVisible(false);
+        tileQcLabel.setManaged(false);
+
         // Layout
         VBox vbox = new VBox(8);
         vbox.setStyle("-fx-padding: 15;");
@@ -171,6 +194,7 @@ public class DualProgressDialog {
             currentHeader,
             currentProgressBar,
             currentProgressLabel,
+            tileQcLabel,       // Tile QC - hidden until the first tile is checked
             new Separator(),
             stitchingSection,  // Stitching status - hidden until active
             timeLabel,
@@ -285,6 +309,14 @@ public class DualProgressDialog {
                     firstTileProcessed.set(true);
                     logger.info("First tile time (likely includes full AF): {} ms", tileTime);
                 }
+
+                // Record one raw duration per completed image; batched completions share the interval
+                int completedNow = filesCompleted - previousProgress;
+                long perImage = tileTime / completedNow;
+                for (int i = previousProgress + 1; i <= filesCompleted; i++) {
+                    tileDurations.add(new AcquisitionTimingStore.TileDuration(
+                            currentAnnotationName, i, perImage, now));
+                }
             }
             lastTileCompletionTime.set(now);
             totalTilesCompleted.addAndGet(filesCompleted - previousProgress);
@@ -374,6 +406,31 @@ public class DualProgressDialog {
         }
     }
 
+    /**
+     * Sets historical timing distributions for the current hardware profile.
+     * The prior is used for the remaining-time estimate until enough live timing
+     * data has been collected in this run.
+     *
+     * @param prior Stored timing profile, or null if none exists
+     */
+    public void setTimingPrior(AcquisitionTimingStore.TimingProfile prior) {
+        this.timingPrior = prior;
+        if (prior != null) {
+            logger.info("Using timing history from {} previous runs for initial estimates", prior.getRuns());
+        }
+    }
+
+    /**
+     * Returns the raw per-image durations recorded so far in this run.
+     *
+     * @return Copy of the recorded durations in acquisition order
+     */
+    public List<AcquisitionTimingStore.TileDuration> getTileDurations() {
+        synchronized (tileDurations) {
+            return new ArrayList<>(tileDurations);
+        }
+    }
+
     /**
      * Pauses timing tracking when manual focus is requested.
      * This prevents user wait time from inflating the time estimates.
@@ -407,6 +464,41 @@ public class DualProgressDialog {
         }
     }
 
+    /**
+     * Shows a step of the current annotation that is not counted in its progress, such as
+     * re-acquiring flagged tiles, in the status line.
+     * Thread-safe; may be called from any thread.
+     *
+     * @param step Step description, or null to return to the normal status
+     */
+    public void setSubStep(String step) {
+        this.subStep = step;
+    }
+
+    /**
+     * Shows the tile QC counts of the current annotation. Flagged tiles are highlighted.
+     * Thread-safe; may be called from QC worker threads.
+     *
+     * @param checked Tiles checked so far
+     * @param outOfFocus Tiles flagged out of focus
+     * @param saturated Tiles flagged saturated
+     * @param blank Tiles flagged blank
+     */
+    public void updateTileQc(int checked, int outOfFocus, int saturated, int blank) {
+        String text = String.format("Tile QC: %d checked, %d out of focus, %d saturated, %d blank",
+                checked, outOfFocus, saturated, blank);
+        boolean flagged = outOfFocus > 0 || saturated > 0;
+        Platform.runLater(() -> {
+            tileQcLabel.setText(text);
+            tileQcLabel.setStyle(flagged
+                    ? "-fx-font-size: 10px; -fx-text-fill: #c06000; -fx-font-weight: bold;"
+                    : "-fx-font-size: 10px; -fx-text-fill: gray;");
+            tileQcLabel.setVisible(true);
+            tileQcLabel.setManaged(true);
+            stage.sizeToScene();
+        });
+    }
+
     /**
      * Updates the display with current progress and time estimates.
      */
@@ -437,7 +529,10 @@ public class DualProgressDialog {
         }
         
         // Update status
-        if (completed == 0 && currentFiles == 0) {
+        String step = subStep;
+        if (step != null) {
+            statusLabel.setText(step);
+        } else if (completed == 0 && currentFiles == 0) {
             statusLabel.setText("Initializing workflow...");
         } else if (completed < totalAnnotations) {
             statusLabel.setText("Acquiring data...");
@@ -449,6 +544,19 @@ public class DualProgressDialog {
         updateTimeEstimate(now, completed);
     }
     
+    /**
+     * Returns the timing profile of this run's durations. Building it sorts every duration, so
+     * it is rebuilt only when new durations have been recorded, not on every refresh.
+     */
+    private AcquisitionTimingStore.TimingProfile liveProfile() {
+        int size = tileDurations.size();
+        if (liveProfile == null || size != liveProfileSize) {
+            liveProfile = AcquisitionTimingStore.TimingProfile.fromDurations(getTileDurations());
+            liveProfileSize = size;
+        }
+        return liveProfile;
+    }
+
     /**
      * Updates time estimation display for the complete workflow.
      * Uses component-based estimation that separates tile time from autofocus time.
@@ -471,17 +579,16 @@ public class DualProgressDialog {
         int windowSize = timingWindowSize.get();
         int tilesCollected = allTileTimes.size();
 
-        // Need minimum tiles to perform statistical analysis
+        // Need minimum tiles to perform statistical analysis, unless history is available
         int minTilesForEstimate = Math.min(windowSize, 5);
-        if (tilesCollected < minTilesForEstimate) {
+        AcquisitionTimingStore.TimingProfile prior = timingPrior;
+        boolean usePrior = tilesCollected < minTilesForEstimate && prior != null && prior.isUsable();
+        if (tilesCollected < minTilesForEstimate && !usePrior) {
             int tilesNeeded = minTilesForEstimate - tilesCollected;
             timeLabel.setText(String.format("Collecting timing data... %d tiles remaining", tilesNeeded));
             return;
         }
 
-        // Calculate time components using statistical separation
-        TimingComponents timing = calculateTimingComponents();
-
         // Calculate remaining work
         int currentProgress = currentAnnotationProgress.get();
         int tilesRemainingCurrentAnnotation = Math.max(0, currentAnnotationExpectedFiles - currentProgress);
@@ -529,6 +636,26 @@ public class DualProgressDialog {
         // Remaining full autofocus operations (one per remaining annotation)
         int remainingFullAf = remainingAnnotations;
 
+        // Prefer distribution-based estimate (with confidence interval) from live data,
+        // falling back to stored history before enough live data exists
+        AcquisitionTimingStore.TimingProfile profile = usePrior
+                ? prior
+                : liveProfile();
+        AcquisitionTimingStore.Estimate estimate = AcquisitionTimingStore.estimate(
+                profile, totalTilesRemaining, totalRemainingAdaptiveAf, remainingFullAf);
+        if (estimate != null) {
+            timeLabel.setText(String.format("Time remaining: %s (95%%: %s - %s)%s\n%d tiles, %d AF ops",
+                    formatTime(estimate.expectedMs() / 1000),
+                    formatTime(estimate.lowerMs() / 1000),
+                    formatTime(estimate.upperMs() / 1000),
+                    usePrior ? " from history" : "",
+                    totalTilesRemaining, totalRemainingAdaptiveAf + remainingFullAf));
+            return;
+        }
+
+        // Calculate time components using statistical separation
+        TimingComponents timing = calculateTimingComponents();
+
         // Calculate estimated remaining time
         // Time = (remaining tiles * base tile time) + (remaining adaptive AF * adaptive AF added time)
         //      + (remaining full AF * full AF added time)
@@ -540,7 +667,7 @@ public class DualProgressDialog {
         long remainingSeconds = totalRemainingMs / 1000;
 
         // Build informative display
-        String estimate = formatTime(remainingSeconds);
+        String estimateText = formatTime(remainingSeconds);
         if (logger.isDebugEnabled()) {
             logger.debug("Time estimate breakdown: {} tiles @ {}ms = {}ms, {} adaptive AF @ {}ms = {}ms, " +
                             "{} full AF @ {}ms = {}ms, total = {}s",
@@ -551,7 +678,7 @@ public class DualProgressDialog {
         }
 
         timeLabel.setText(String.format("Time remaining: %s (%d tiles, %d AF ops)",
-                estimate, totalTilesRemaining, totalRemainingAdaptiveAf + remainingFullAf));
+                estimateText, totalTilesRemaining, totalRemainingAdaptiveAf + remainingFullAf));
     }
 
     /**
@@ -14,19 +14,27 @@ import javafx.util.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import qupath.ext.qpsc.controller.workflow.AlignmentHelper;
+import qupath.ext.qpsc.modality.AngleExposure;
 import qupath.ext.qpsc.modality.ModalityHandler;
 import qupath.ext.qpsc.modality.ModalityRegistry;
 import qupath.ext.qpsc.preferences.PersistentPreferences;
 import qupath.ext.qpsc.preferences.QPPreferenceDialog;
+import qupath.ext.qpsc.utilities.AcquisitionPlanner;
+import qupath.ext.qpsc.utilities.AcquisitionTimingStore;
 import qupath.ext.qpsc.utilities.AffineTransformManager;
 import qupath.ext.qpsc.utilities.MicroscopeConfigManager;
 import qupath.ext.qpsc.utilities.SampleNameValidator;
+import qupath.ext.qpsc.utilities.TilingUtilities;
 import qupath.lib.gui.QuPathGUI;
 import qupath.lib.objects.PathObject;
+import qupath.lib.regions.ImagePlane;
+import qupath.lib.roi.ROIs;
+import qupath.lib.roi.interfaces.ROI;
 
 import java.io.File;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -869,14 +877,13 @@ public class ExistingImageAcquisitionController {
                     return;
                 }
 
-                // Get FOV in microns
-                double[] fov = configManager.getModalityFOV(modality, objective, detector);
-                if (fov == null) {
+                // Simulate the acquisition with the real tiling grid and configured hardware
+                AcquisitionPlanner.Hardware hardware =
+                        AcquisitionPlanner.Hardware.fromConfig(configManager, modality, objective, detector);
+                if (hardware == null) {
                     previewTilesLabel.setText("Tiles: -- (FOV not available)");
                     return;
                 }
-                double fovWidthMicrons = fov[0];
-                double fovHeightMicrons = fov[1];
 
                 // Get image pixel size to convert annotation bounds from pixels to microns
                 double imagePixelSize = 1.0; // Default if no image
@@ -886,14 +893,16 @@ public class ExistingImageAcquisitionController {
                             .getPixelCalibration().getAveragedPixelSizeMicrons();
                 }
 
-                // Calculate actual tile count from annotation bounds
                 double overlapPercent = QPPreferenceDialog.getTileOverlapPercentProperty();
-                int totalTiles = calculateTileCount(fovWidthMicrons, fovHeightMicrons,
-                        overlapPercent, imagePixelSize);
+                List<AngleExposure> angles = AcquisitionPlanner.resolveAngles(configManager, modality,
+                        objective, detector, modalityUI != null ? modalityUI.getAngleOverrides() : null);
+                AcquisitionPlanner.Plan plan = AcquisitionPlanner.plan(hardware,
+                        createPlanRegions(hardware, imagePixelSize), overlapPercent, angles,
+                        QPPreferenceDialog.getInvertedXProperty(), QPPreferenceDialog.getInvertedYProperty());
 
-                // Get angle count from modality handler
-                int angleCount = getAngleCountForModality(modality);
-                int totalImages = totalTiles * angleCount;
+                int totalTiles = plan.tiles();
+                int angleCount = plan.angleCount();
+                int totalImages = plan.totalImages();
 
                 // Update labels with actual counts
                 if (angleCount > 1) {
@@ -903,39 +912,43 @@ public class ExistingImageAcquisitionController {
                     previewTilesLabel.setText(String.format("Tiles: %,d", totalTiles));
                 }
 
-                // Time estimate using persistent timing data if available
+                // Time estimate using timing history for this hardware profile if available
                 String timeEstimate;
-                if (PersistentPreferences.hasTimingData()) {
-                    // Use stored timing data from previous acquisitions
-                    // Default to 5 AF positions per annotation if not configured
-                    int afPositionsPerAnnotation = 5;
-                    try {
-                        // Try to get AF positions from autofocus config
-                        String configPath = QPPreferenceDialog.getMicroscopeConfigFileProperty();
-                        MicroscopeConfigManager configManager = MicroscopeConfigManager.getInstance(configPath);
-                        Map<String, Object> afParams = configManager.getAutofocusParams(objective);
-                        if (afParams != null && afParams.get("n_tiles") instanceof Number) {
-                            afPositionsPerAnnotation = ((Number) afParams.get("n_tiles")).intValue();
-                        }
-                    } catch (Exception e) {
-                        logger.debug("Could not get AF positions from config, using default: {}", e.getMessage());
-                    }
+                int numAnnotations = annotations.size();
+                int afPositionsPerAnnotation = numAnnotations == 0 ? 0
+                        : (plan.afPositions() + numAnnotations - 1) / numAnnotations;
+
+                AcquisitionTimingStore.Estimate profileEstimate = null;
+                try {
+                    String configPath = QPPreferenceDialog.getMicroscopeConfigFileProperty();
+                    AcquisitionTimingStore.ProfileKey key = AcquisitionTimingStore.ProfileKey.forHardware(
+                            configManager, modality, objective, detector, angleCount);
+                    profileEstimate = AcquisitionTimingStore.getInstance(configPath)
+                            .estimateAcquisition(key, totalImages, afPositionsPerAnnotation, numAnnotations);
+                } catch (Exception e) {
+                    logger.debug("Could not read timing history: {}", e.getMessage());
+                }
 
-                    int numAnnotations = annotations.size();
+                if (profileEstimate != null) {
+                    timeEstimate = String.format("%s (95%%: %s - %s, %d previous runs)",
+                            formatTime(profileEstimate.expectedMs() / 1000.0),
+                            formatTime(profileEstimate.lowerMs() / 1000.0),
+                            formatTime(profileEstimate.upperMs() / 1000.0),
+                            profileEstimate.runs());
+                } else if (PersistentPreferences.hasTimingData()) {
+                    // Use legacy averaged timing data from previous acquisitions
                     long estimatedMs = PersistentPreferences.estimateAcquisitionTime(
                             totalTiles, afPositionsPerAnnotation, numAnnotations);
                     double estimatedSeconds = estimatedMs / 1000.0;
                     timeEstimate = formatTime(estimatedSeconds) + " (based on previous acquisitions)";
                 } else {
-                    // Fallback: ~2 seconds per image (conservative estimate)
-                    double estimatedSeconds = totalImages * 2.0;
-                    timeEstimate = formatTime(estimatedSeconds) + " (estimate)";
+                    // Fallback: simulated stage moves, exposures and autofocus
+                    timeEstimate = formatTime(plan.totalSeconds()) + " (estimate)";
                 }
                 previewTimeLabel.setText("Estimated Time: " + timeEstimate);
 
-                // Storage estimate: ~4 MB per image
-                double estimatedMB = totalImages * 4.0;
-                String storageEstimate = formatStorage(estimatedMB);
+                // Uncompressed size of all images from the detector size and bit depth
+                String storageEstimate = formatStorage(plan.bytes() / (1024.0 * 1024.0));
                 previewStorageLabel.setText("Estimated Storage: " + storageEstimate);
 
             } catch (Exception e) {
@@ -944,74 +957,39 @@ public class ExistingImageAcquisitionController {
         }
 
         /**
-         * Calculates the total tile count for all annotations.
+         * Creates the planner regions for all annotations, in stage microns, matching the
+         * buffered and ROI-filtered tiling used for annotation acquisitions.
          *
-         * @param fovWidthMicrons FOV width in microns
-         * @param fovHeightMicrons FOV height in microns
-         * @param overlapPercent Overlap percentage
+         * @param hardware Hardware model providing the frame size
          * @param imagePixelSize Image pixel size in microns
-         * @return Total number of tiles
+         * @return One region per annotation
          */
-        private int calculateTileCount(double fovWidthMicrons, double fovHeightMicrons,
-                                        double overlapPercent, double imagePixelSize) {
-            if (annotations.isEmpty()) {
-                return 0;
-            }
-
-            // Effective FOV size considering overlap
-            double effectiveFovWidth = fovWidthMicrons * (1 - overlapPercent / 100.0);
-            double effectiveFovHeight = fovHeightMicrons * (1 - overlapPercent / 100.0);
-
-            int totalTiles = 0;
+        private List<AcquisitionPlanner.Region> createPlanRegions(AcquisitionPlanner.Hardware hardware,
+                                                                  double imagePixelSize) {
+            List<AcquisitionPlanner.Region> regions = new ArrayList<>();
             for (PathObject ann : annotations) {
-                if (ann.getROI() != null) {
-                    // Get annotation bounds in pixels, convert to microns
-                    double annWidthMicrons = ann.getROI().getBoundsWidth() * imagePixelSize;
-                    double annHeightMicrons = ann.getROI().getBoundsHeight() * imagePixelSize;
-
-                    // Add buffer (half FOV on each side) like TilingUtilities does
-                    annWidthMicrons += fovWidthMicrons;
-                    annHeightMicrons += fovHeightMicrons;
-
-                    // Calculate tiles for this annotation
-                    int tilesX = (int) Math.ceil(annWidthMicrons / effectiveFovWidth);
-                    int tilesY = (int) Math.ceil(annHeightMicrons / effectiveFovHeight);
-                    totalTiles += tilesX * tilesY;
-                }
-            }
-
-            return totalTiles;
-        }
-
-        /**
-         * Gets the estimated number of angles for a modality (for preview purposes).
-         *
-         * <p>This method provides a synchronous estimate for the preview panel.
-         * It uses angle overrides if available from the modality UI, otherwise
-         * returns a reasonable default based on the modality type.
-         *
-         * @param modality The modality name
-         * @return Estimated number of angles (minimum 1)
-         */
-        private int getAngleCountForModality(String modality) {
-            if (modality == null) return 1;
-
-            ModalityHandler handler = ModalityRegistry.getHandler(modality);
-            if (handler != null) {
-                // Use angle overrides if available from modalityUI (most accurate)
-                if (modalityUI != null) {
-                    Map<String, Double> overrides = modalityUI.getAngleOverrides();
-                    if (overrides != null && !overrides.isEmpty()) {
-                        return overrides.size();
-                    }
-                }
-                // For PPM modalities, use default of 4 angles (typical configuration)
-                // This avoids blocking the UI thread with async calls for a preview estimate
-                if (modality.toLowerCase().startsWith("ppm")) {
-                    return 4; // Typical PPM: 0, +7, -7, 90 degrees
+                ROI roi = ann.getROI();
+                if (roi == null) {
+                    continue;
                 }
+                // Add buffer (half FOV on each side) like TilingUtilities does
+                double x = roi.getBoundsX() * imagePixelSize - hardware.frameWidthUm() / 2.0;
+                double y = roi.getBoundsY() * imagePixelSize - hardware.frameHeightUm() / 2.0;
+                double w = roi.getBoundsWidth() * imagePixelSize + hardware.frameWidthUm();
+                double h = roi.getBoundsHeight() * imagePixelSize + hardware.frameHeightUm();
+
+                // Keep the tiles the acquisition keeps: those touching the annotation
+                Predicate<TilingUtilities.GridTile> touchesRoi = tile -> {
+                    ROI tileROI = ROIs.createRectangleROI(
+                            tile.x() / imagePixelSize, tile.y() / imagePixelSize,
+                            tile.width() / imagePixelSize, tile.height() / imagePixelSize,
+                            ImagePlane.getDefaultPlane());
+                    return roi.contains(tileROI.getCentroidX(), tileROI.getCentroidY())
+                            || roi.getGeometry().intersects(tileROI.getGeometry());
+                };
+                regions.add(new AcquisitionPlanner.Region(ann.getName(), x, y, w, h, touchesRoi));
             }
-            return 1;
+            return regions;
         }
 
         private String formatTime(double seconds) {
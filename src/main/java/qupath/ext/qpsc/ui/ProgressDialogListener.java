@@ -0,0 +1,165 @@
+package qupath.ext.qpsc.ui;
+
+import javafx.application.Platform;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qupath.ext.qpsc.service.AcquisitionListener;
+import qupath.ext.qpsc.utilities.TileQualityMonitor;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Shows the events of a headless acquisition run in the QuPath dialogs.
+ *
+ * <p>Region progress and sub-steps, timing metadata and tile QC go to an optional {@link DualProgressDialog};
+ * manual focus requests open {@link UIFunctions#showManualFocusDialog}; stitching operations are
+ * shown in the {@link StitchingBlockingDialog} and, if present, in the progress dialog. All dialog
+ * work is posted to the JavaFX thread in event order, so callers never wait for a window to
+ * appear.</p>
+ */
+public class ProgressDialogListener implements AcquisitionListener {
+    private static final Logger logger = LoggerFactory.getLogger(ProgressDialogListener.class);
+
+    private final DualProgressDialog progressDialog;
+    /** Blocking dialog per stitching operation; only touched on the JavaFX thread */
+    private final Map<String, StitchingBlockingDialog> blockingDialogs = new HashMap<>();
+
+    /**
+     * @param progressDialog Acquisition progress dialog, or null to show stitching only
+     */
+    public ProgressDialogListener(DualProgressDialog progressDialog) {
+        this.progressDialog = progressDialog;
+    }
+
+    private boolean showsProgress() {
+        return progressDialog != null && !progressDialog.isCancelled();
+    }
+
+    @Override
+    public void regionStarted(String region, int expectedFiles) {
+        if (showsProgress()) {
+            Platform.runLater(() -> progressDialog.startAnnotation(region, expectedFiles));
+        }
+    }
+
+    @Override
+    public void regionProgress(String region, int filesWritten, int expectedFiles) {
+        if (showsProgress()) {
+            Platform.runLater(() -> progressDialog.updateCurrentAnnotationProgress(filesWritten));
+        }
+    }
+
+    @Override
+    public void regionSubStep(String region, String step) {
+        if (progressDialog != null) {
+            progressDialog.setSubStep(step);
+        }
+    }
+
+    @Override
+    public void timingMetadata(String region, int timingWindowSize, int afNTiles, int totalTiles) {
+        if (progressDialog == null) {
+            return;
+        }
+        Platform.runLater(() -> {
+            progressDialog.setTimingWindowSize(timingWindowSize);
+            progressDialog.setAfNTiles(afNTiles);
+            if (totalTiles > 0) {
+                progressDialog.setTotalTilesForAnnotation(totalTiles);
+            }
+        });
+    }
+
+    @Override
+    public void tileQualityUpdated(String region, TileQualityMonitor.Summary summary) {
+        if (showsProgress()) {
+            progressDialog.updateTileQc(summary.checked(), summary.outOfFocus(),
+                    summary.saturated(), summary.blank());
+        }
+    }
+
+    @Override
+    public CompletableFuture<ManualFocusDecision> manualFocusRequested(String region, int retriesRemaining) {
+        // Keep the user's wait out of the timing estimates
+        if (progressDialog != null) {
+            progressDialog.pauseTimingForManualFocus();
+        }
+        CompletableFuture<ManualFocusDecision> decision = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            try {
+                UIFunctions.ManualFocusResult result = UIFunctions.showManualFocusDialog(retriesRemaining);
+                decision.complete(switch (result) {
+                    case RETRY_AUTOFOCUS -> ManualFocusDecision.RETRY_AUTOFOCUS;
+                    case USE_CURRENT_FOCUS -> ManualFocusDecision.USE_CURRENT_FOCUS;
+                    case CANCEL_ACQUISITION -> ManualFocusDecision.CANCEL_ACQUISITION;
+                });
+            } catch (Exception e) {
+                decision.completeExceptionally(e);
+            } finally {
+                if (progressDialog != null) {
+                    progressDialog.resumeTimingAfterManualFocus();
+                }
+            }
+        });
+        return decision;
+    }
+
+    @Override
+    public void stitchingStarted(String operationId) {
+        Platform.runLater(() -> {
+            try {
+                blockingDialogs.put(operationId, StitchingBlockingDialog.show(operationId, operationId));
+            } catch (Exception e) {
+                logger.warn("Failed to create stitching blocking dialog", e);
+            }
+        });
+        if (progressDialog != null) {
+            progressDialog.registerStitchingOperation(operationId, operationId);
+        }
+    }
+
+    @Override
+    public void stitchingStatus(String operationId, String status) {
+        Platform.runLater(() -> {
+            StitchingBlockingDialog blockingDialog = blockingDialogs.get(operationId);
+            if (blockingDialog != null) {
+                blockingDialog.updateStatus(operationId, status);
+            }
+        });
+        if (progressDialog != null) {
+            progressDialog.updateStitchingStatus(operationId, status);
+        }
+    }
+
+    @Override
+    public void stitchingCompleted(String operationId) {
+        Platform.runLater(() -> {
+            StitchingBlockingDialog blockingDialog = blockingDialogs.remove(operationId);
+            if (blockingDialog != null) {
+                blockingDialog.completeOperation(operationId);
+            }
+        });
+        if (progressDialog != null) {
+            progressDialog.completeStitchingOperation(operationId);
+        }
+    }
+
+    @Override
+    public void stitchingFailed(String operationId, String message) {
+        Platform.runLater(() -> {
+            StitchingBlockingDialog blockingDialog = blockingDialogs.remove(operationId);
+            if (blockingDialog != null) {
+                blockingDialog.failOperation(operationId, message);
+            } else {
+                UIFunctions.notifyUserOfError(
+                        String.format("Stitching failed for %s: %s", operationId, message),
+                        "Stitching Error");
+            }
+        });
+        if (progressDialog != null) {
+            progressDialog.failStitchingOperation(operationId, message);
+        }
+    }
+}
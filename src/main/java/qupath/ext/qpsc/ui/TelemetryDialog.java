@@ -0,0 +1,159 @@
+package qupath.ext.qpsc.ui;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.VBox;
+import javafx.stage.DirectoryChooser;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qupath.ext.qpsc.utilities.AcquisitionTelemetry;
+import qupath.ext.qpsc.utilities.AcquisitionTelemetry.LatencySummary;
+import qupath.lib.gui.QuPathGUI;
+
+import java.io.File;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Non-modal window showing p50/p95/max latency per workflow phase and socket command
+ * from {@link AcquisitionTelemetry}, plus the reconnect and timeout counters.
+ *
+ * <p>The table refreshes once per second while the window is open. The same data is
+ * written to {@code timing_report.json}/{@code timing_report.csv} in the project folder
+ * at the end of each acquisition; the Export button writes it on demand. Reset is the only
+ * place the recorders are cleared, so a report covers all runs since the last reset.</p>
+ */
+public class TelemetryDialog {
+
+    private static final Logger logger = LoggerFactory.getLogger(TelemetryDialog.class);
+
+    private static TelemetryDialog instance;
+
+    private final Stage stage;
+    private final ObservableList<LatencySummary> rows = FXCollections.observableArrayList();
+    private final Label countersLabel = new Label();
+    private final Timeline refreshTimeline;
+
+    /**
+     * Shows the telemetry window, creating it if necessary.
+     * If already visible, brings it to front.
+     */
+    public static void show() {
+        Platform.runLater(() -> {
+            if (instance == null) {
+                instance = new TelemetryDialog();
+            }
+            instance.refresh();
+            instance.refreshTimeline.play();
+            if (!instance.stage.isShowing()) {
+                instance.stage.show();
+            } else {
+                instance.stage.toFront();
+            }
+        });
+    }
+
+    private TelemetryDialog() {
+        stage = new Stage();
+        stage.setTitle("Acquisition Telemetry");
+        stage.initModality(Modality.NONE);
+        QuPathGUI gui = QuPathGUI.getInstance();
+        if (gui != null && gui.getStage() != null) {
+            stage.initOwner(gui.getStage());
+        }
+
+        TableView<LatencySummary> table = new TableView<>(rows);
+        table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY_FLEX_LAST_COLUMN);
+        table.setPlaceholder(new Label("No timings recorded yet"));
+        table.getColumns().add(textColumn("Type", LatencySummary::category));
+        table.getColumns().add(textColumn("Name", LatencySummary::name));
+        table.getColumns().add(numberColumn("Count", s -> String.valueOf(s.count())));
+        table.getColumns().add(numberColumn("p50 (ms)", s -> formatMs(s.p50Ms())));
+        table.getColumns().add(numberColumn("p95 (ms)", s -> formatMs(s.p95Ms())));
+        table.getColumns().add(numberColumn("Max (ms)", s -> formatMs(s.maxMs())));
+        table.getColumns().add(numberColumn("Total (s)", s -> String.format("%.1f", s.totalMs() / 1000.0)));
+        VBox.setVgrow(table, Priority.ALWAYS);
+
+        Button resetButton = new Button("Reset");
+        resetButton.setOnAction(e -> {
+            AcquisitionTelemetry.getInstance().reset();
+            refresh();
+        });
+
+        Button exportButton = new Button("Export...");
+        exportButton.setOnAction(e -> exportReport());
+
+        Region spacer = new Region();
+        HBox.setHgrow(spacer, Priority.ALWAYS);
+        HBox bottomBar = new HBox(8, countersLabel, spacer, resetButton, exportButton);
+        bottomBar.setAlignment(Pos.CENTER_LEFT);
+
+        VBox root = new VBox(8, table, bottomBar);
+        root.setPadding(new Insets(10));
+
+        stage.setScene(new Scene(root, 720, 420));
+
+        refreshTimeline = new Timeline(new KeyFrame(Duration.seconds(1), e -> refresh()));
+        refreshTimeline.setCycleCount(Timeline.INDEFINITE);
+        stage.setOnHidden(e -> refreshTimeline.stop());
+    }
+
+    private void refresh() {
+        AcquisitionTelemetry telemetry = AcquisitionTelemetry.getInstance();
+        rows.setAll(telemetry.snapshot());
+        Map<String, Long> counters = telemetry.getCounters();
+        countersLabel.setText(String.format("Reconnects: %d/%d attempts   Timeouts: %d   Health check failures: %d",
+                counters.getOrDefault(AcquisitionTelemetry.COUNTER_RECONNECTS, 0L),
+                counters.getOrDefault(AcquisitionTelemetry.COUNTER_RECONNECT_ATTEMPTS, 0L),
+                counters.getOrDefault(AcquisitionTelemetry.COUNTER_TIMEOUTS, 0L),
+                counters.getOrDefault(AcquisitionTelemetry.COUNTER_HEALTH_CHECK_FAILURES, 0L)));
+    }
+
+    private void exportReport() {
+        DirectoryChooser chooser = new DirectoryChooser();
+        chooser.setTitle("Select folder for timing report");
+        File dir = chooser.showDialog(stage);
+        if (dir == null) {
+            return;
+        }
+        try {
+            AcquisitionTelemetry.getInstance().writeReport(dir.toPath());
+            logger.info("Exported timing report to {}", dir);
+        } catch (Exception ex) {
+            logger.error("Failed to export timing report", ex);
+            UIFunctions.notifyUserOfError("Failed to export timing report:\n" + ex.getMessage(), "Export Error");
+        }
+    }
+
+    private static TableColumn<LatencySummary, String> textColumn(String title,
+                                                                  Function<LatencySummary, String> getter) {
+        TableColumn<LatencySummary, String> column = new TableColumn<>(title);
+        column.setCellValueFactory(c -> new ReadOnlyStringWrapper(getter.apply(c.getValue())));
+        return column;
+    }
+
+    private static TableColumn<LatencySummary, String> numberColumn(String title,
+                                                                    Function<LatencySummary, String> getter) {
+        TableColumn<LatencySummary, String> column = textColumn(title, getter);
+        column.setStyle("-fx-alignment: CENTER-RIGHT;");
+        return column;
+    }
+
+    private static String formatMs(double ms) {
+        return ms >= 100 ? String.format("%.0f", ms) : String.format("%.1f", ms);
+    }
+}
@@ -15,10 +15,13 @@ import javafx.util.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import qupath.ext.qpsc.controller.MicroscopeController;
+import qupath.ext.qpsc.modality.AngleExposure;
 import qupath.ext.qpsc.modality.ModalityHandler;
 import qupath.ext.qpsc.modality.ModalityRegistry;
 import qupath.ext.qpsc.preferences.PersistentPreferences;
 import qupath.ext.qpsc.preferences.QPPreferenceDialog;
+import qupath.ext.qpsc.utilities.AcquisitionPlanner;
+import qupath.ext.qpsc.utilities.AcquisitionTimingStore;
 import qupath.ext.qpsc.utilities.MicroscopeConfigManager;
 import qupath.ext.qpsc.utilities.SampleNameValidator;
 import qupath.lib.gui.QuPathGUI;
@@ -831,43 +834,18 @@ public class UnifiedAcquisitionController {
                     return;
                 }
 
-                // Calculate FOV
-                double[] fov = configManager.getModalityFOV(modality, objective, detector);
-                if (fov == null) {
+                // Simulate the acquisition with the real tiling grid and configured hardware
+                AcquisitionPlanner.Hardware hardware =
+                        AcquisitionPlanner.Hardware.fromConfig(configManager, modality, objective, detector);
+                if (hardware == null) {
                     showPreviewPlaceholder("Could not calculate FOV for selected hardware");
                     return;
                 }
 
-                double frameWidth = fov[0];
-                double frameHeight = fov[1];
+                double frameWidth = hardware.frameWidthUm();
+                double frameHeight = hardware.frameHeightUm();
 
-                // Calculate tile grid
-                double overlapPercent = QPPreferenceDialog.getTileOverlapPercentProperty();
-                double stepX = frameWidth * (1.0 - overlapPercent / 100.0);
-                double stepY = frameHeight * (1.0 - overlapPercent / 100.0);
-
-                int tilesX = (int) Math.ceil(width / stepX);
-                int tilesY = (int) Math.ceil(height / stepY);
-                int totalTiles = tilesX * tilesY;
-
-                // Get angle count from modality - use sensible defaults for preview
-                // PPM typically has 4 angles, other modalities have 1
-                int angleCount = 1;
-                if ("ppm".equalsIgnoreCase(modality)) {
-                    angleCount = 4;  // PPM default: minus, zero, plus, uncrossed
-                }
-
-                int totalImages = totalTiles * angleCount;
-
-                // Estimate time (rough: 2 seconds per image including movement and exposure)
-                double estimatedSeconds = totalImages * 2.0;
-                String timeEstimate = formatTime(estimatedSeconds);
-
-                // Estimate storage (rough: 4MB per image for 16-bit 2048x2048)
-                double estimatedMB = totalImages * 4.0;
-                String storageEstimate = formatStorage(estimatedMB);
-
-                // Update calculated bounds
+                // Calculated bounds
                 double x1, y1, x2, y2;
                 if (isStartSizeMode) {
                     x1 = startX;
@@ -883,6 +861,48 @@ public class UnifiedAcquisitionController {
                     x2 = Math.max(startX, endX);
                     y2 = Math.max(startY, endY);
                 }
+
+                double overlapPercent = QPPreferenceDialog.getTileOverlapPercentProperty();
+                List<AngleExposure> angles = AcquisitionPlanner.resolveAngles(configManager, modality,
+                        objective, detector, modalityUI != null ? modalityUI.getAngleOverrides() : null);
+                AcquisitionPlanner.Plan plan = AcquisitionPlanner.plan(hardware,
+                        List.of(AcquisitionPlanner.Region.boundingBox("bounds", x1, y1, x2, y2, hardware)),
+                        overlapPercent, angles,
+                        QPPreferenceDialog.getInvertedXProperty(), QPPreferenceDialog.getInvertedYProperty());
+
+                AcquisitionPlanner.RegionPlan grid = plan.regions().get(0);
+                int tilesX = grid.columns();
+                int tilesY = grid.rows();
+                int totalTiles = plan.tiles();
+                int angleCount = plan.angleCount();
+                int totalImages = plan.totalImages();
+
+                // Estimate time from timing history for this hardware profile if available,
+                // otherwise from the simulated stage moves, exposures and autofocus
+                String timeEstimate;
+                AcquisitionTimingStore.Estimate profileEstimate = null;
+                try {
+                    AcquisitionTimingStore.ProfileKey key = AcquisitionTimingStore.ProfileKey.forHardware(
+                            configManager, modality, objective, detector, angleCount);
+                    profileEstimate = AcquisitionTimingStore
+                            .getInstance(QPPreferenceDialog.getMicroscopeConfigFileProperty())
+                            .estimateAcquisition(key, totalImages, plan.afPositions(), 1);
+                } catch (Exception e) {
+                    logger.debug("Could not read timing history: {}", e.getMessage());
+                }
+                if (profileEstimate != null) {
+                    timeEstimate = String.format("%s (95%%: %s - %s)",
+                            formatTime(profileEstimate.expectedMs() / 1000.0),
+                            formatTime(profileEstimate.lowerMs() / 1000.0),
+                            formatTime(profileEstimate.upperMs() / 1000.0));
+                } else {
+                    timeEstimate = formatTime(plan.totalSeconds());
+                }
+
+                // Uncompressed size of all images from the detector size and bit depth
+                String storageEstimate = formatStorage(plan.bytes() / (1024.0 * 1024.0));
+
+                // Update calculated bounds
                 calculatedBoundsLabel.setText(String.format(
                         "Calculated bounds: (%.1f, %.1f) to (%.1f, %.1f)", x1, y1, x2, y2));
                 calculatedBoundsLabel.setStyle("-fx-font-size: 11px; -fx-text-fill: #28a745;");
@@ -0,0 +1,137 @@
+package qupath.ext.qpsc.ui.stagemap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qupath.ext.qpsc.utilities.TileSampler;
+import qupath.ext.qpsc.utilities.TransformationFunctions;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paints thumbnails of tiles into the Stage Map while a region is being acquired.
+ * <p>
+ * A low-priority daemon thread polls the region's tile folder for new tiles listed in its
+ * {@code TileConfiguration.txt} (stage coordinates, written before acquisition starts), reads
+ * each one with {@link TileSampler} at a few pixels across and hands it to {@link StageMapWindow#addPreviewTile}.
+ * Operators can then spot out-of-focus or badly exposed areas mid-run instead of after stitching.
+ * <p>
+ * The acquisition never waits for the preview: tiles are read after the server has written them,
+ * usually from the OS file cache, and the Stage Map batches its pixel uploads per frame. Nothing
+ * is started when the Stage Map is not open.
+ */
+public final class LiveScanPreview {
+
+    private static final Logger logger = LoggerFactory.getLogger(LiveScanPreview.class);
+
+    /** Maximum thumbnail width or height in pixels; tiles cover only a few screen pixels */
+    static final int THUMBNAIL_SIZE = 16;
+    private static final long POLL_INTERVAL_MS = 500;
+    /** Files younger than this may still be being written */
+    private static final long SETTLE_MS = 300;
+    private static final int MAX_READ_ATTEMPTS = 3;
+
+    private final Path regionFolder;
+    private final Path tileFolder;
+    private final Path configFile;
+    private final double fovWidthUm;
+    private final double fovHeightUm;
+    private final ScheduledExecutorService executor;
+
+    /** Tiles not painted yet, by file name, in acquisition order */
+    private Map<String, double[]> pending;
+    private final Map<String, Integer> failedReads = new HashMap<>();
+
+    private LiveScanPreview(Path regionFolder, Path tileFolder, double fovWidthUm, double fovHeightUm) {
+        this.regionFolder = regionFolder;
+        this.tileFolder = tileFolder;
+        this.configFile = regionFolder.resolve("TileConfiguration.txt");
+        this.fovWidthUm = fovWidthUm;
+        this.fovHeightUm = fovHeightUm;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "StageMap-LivePreview");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+    }
+
+    /**
+     * Starts previewing a region if the Stage Map is open.
+     *
+     * @param regionFolder Region tile folder holding {@code TileConfiguration.txt} in stage microns
+     * @param previewAngle Angle subfolder whose tiles are shown, or null; tiles missing from it
+     *                     are looked up in the region folder
+     * @param fovWidthUm Camera field of view width in microns
+     * @param fovHeightUm Camera field of view height in microns
+     * @return The running preview, or null if the Stage Map is not open
+     */
+    public static LiveScanPreview start(Path regionFolder, String previewAngle,
+                                        double fovWidthUm, double fovHeightUm) {
+        if (!StageMapWindow.isVisible() || fovWidthUm <= 0 || fovHeightUm <= 0) {
+            return null;
+        }
+        Path tileFolder = previewAngle == null ? regionFolder : regionFolder.resolve(previewAngle);
+        LiveScanPreview preview = new LiveScanPreview(regionFolder, tileFolder, fovWidthUm, fovHeightUm);
+        preview.executor.scheduleWithFixedDelay(preview::poll, POLL_INTERVAL_MS, POLL_INTERVAL_MS,
+                TimeUnit.MILLISECONDS);
+        logger.info("Live Stage Map preview started for {}", tileFolder);
+        return preview;
+    }
+
+    /**
+     * Paints the tiles written since the last poll, then stops. Returns immediately.
+     */
+    public void stop() {
+        executor.execute(this::poll);
+        executor.shutdown();
+    }
+
+    private void poll() {
+        try {
+            if (pending == null) {
+                pending = TransformationFunctions.readTilePositions(configFile);
+                if (pending == null) {
+                    return;
+                }
+            }
+            long settledBefore = System.currentTimeMillis() - SETTLE_MS;
+            Iterator<Map.Entry<String, double[]>> it = pending.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, double[]> entry = it.next();
+                File file = tileFolder.resolve(entry.getKey()).toFile();
+                if (!file.isFile()) {
+                    file = regionFolder.resolve(entry.getKey()).toFile();
+                }
+                if (!file.isFile() || file.lastModified() > settledBefore) {
+                    continue;
+                }
+                TileSampler.Sample thumbnail;
+                try {
+                    thumbnail = TileSampler.sample(file.toPath(), THUMBNAIL_SIZE);
+                } catch (IOException e) {
+                    // Retry a few times in case the file was still being flushed
+                    if (failedReads.merge(entry.getKey(), 1, Integer::sum) >= MAX_READ_ATTEMPTS) {
+                        logger.debug("Skipping unreadable preview tile {}: {}", file, e.getMessage());
+                        it.remove();
+                    }
+                    continue;
+                }
+                double[] position = entry.getValue();
+                StageMapWindow.addPreviewTile(new StageMapCanvas.PreviewTile(position[0], position[1],
+                        fovWidthUm, fovHeightUm, thumbnail.width(), thumbnail.height(), thumbnail.toArgb()));
+                it.remove();
+            }
+        } catch (Exception e) {
+            // The preview is best effort and must never disturb the acquisition
+            logger.debug("Live preview poll failed: {}", e.getMessage());
+        }
+    }
+}
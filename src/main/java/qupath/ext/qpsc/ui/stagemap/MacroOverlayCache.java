@@ -0,0 +1,119 @@
+package qupath.ext.qpsc.ui.stagemap;
+
+import javafx.embed.swing.SwingFXUtils;
+import javafx.scene.image.Image;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qupath.ext.qpsc.utilities.AffineTransformManager;
+import qupath.lib.projects.Project;
+
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of macro overlays and slide alignments for the Stage Map.
+ * <p>
+ * Each sample's alignment ({@code alignmentFiles/<sample>_alignment.json}) and saved macro image
+ * ({@code alignmentFiles/<sample>_alignment.png}) are read once. The macro image is kept already
+ * converted to a JavaFX {@link Image}, so switching between images in QuPath and toggling the
+ * overlay cost no disk reads or pixel conversion. Entries are reloaded when the modification
+ * time of either file changes, e.g. after a new alignment is saved.
+ */
+class MacroOverlayCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(MacroOverlayCache.class);
+
+    /**
+     * A macro image ready for display with its alignment.
+     *
+     * @param image Macro image converted for JavaFX
+     * @param transform Maps macro pixels to stage microns
+     */
+    record Overlay(Image image, AffineTransform transform) {}
+
+    private static final class Entry {
+        private long alignmentModified = -1;
+        private AffineTransform alignment;
+        private long imageModified = -1;
+        private Image image;
+    }
+
+    /** Entries keyed by alignment file path without extension */
+    private static final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private MacroOverlayCache() {
+        // Static utility class
+    }
+
+    /**
+     * Gets the slide alignment of a sample, reading it only if the file changed.
+     *
+     * @param project The current project
+     * @param sampleName The sample name alignments are saved under
+     * @return A copy of the alignment, or null if none is saved
+     */
+    static AffineTransform getAlignment(Project<BufferedImage> project, String sampleName) {
+        File file = alignmentFile(project, sampleName, ".json");
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+        Entry entry = entries.computeIfAbsent(key(file), k -> new Entry());
+        synchronized (entry) {
+            long modified = file.lastModified();
+            if (entry.alignmentModified != modified) {
+                entry.alignment = AffineTransformManager.loadSlideAlignment(project, sampleName);
+                entry.alignmentModified = modified;
+            }
+            return entry.alignment == null ? null : new AffineTransform(entry.alignment);
+        }
+    }
+
+    /**
+     * Gets the macro overlay of a sample, reading and converting it only if a file changed.
+     *
+     * @param project The current project
+     * @param sampleName The sample name alignments are saved under
+     * @return The overlay, or null if the alignment or macro image is missing
+     */
+    static Overlay getOverlay(Project<BufferedImage> project, String sampleName) {
+        AffineTransform transform = getAlignment(project, sampleName);
+        File file = alignmentFile(project, sampleName, ".png");
+        if (transform == null || file == null || !file.isFile()) {
+            return null;
+        }
+        Entry entry = entries.computeIfAbsent(key(file), k -> new Entry());
+        synchronized (entry) {
+            long modified = file.lastModified();
+            if (entry.imageModified != modified) {
+                BufferedImage macroImage = AffineTransformManager.loadSavedMacroImage(project, sampleName);
+                entry.image = macroImage == null ? null : SwingFXUtils.toFXImage(macroImage, null);
+                entry.imageModified = modified;
+                logger.debug("Cached macro overlay for sample: {}", sampleName);
+            }
+            return entry.image == null ? null : new Overlay(entry.image, transform);
+        }
+    }
+
+    /**
+     * Drops all cached overlays.
+     */
+    static void clear() {
+        entries.clear();
+    }
+
+    private static File alignmentFile(Project<BufferedImage> project, String sampleName, String extension) {
+        if (project == null || project.getPath() == null || sampleName == null) {
+            return null;
+        }
+        File projectDir = project.getPath().toFile().getParentFile();
+        return new File(new File(projectDir, "alignmentFiles"), sampleName + "_alignment" + extension);
+    }
+
+    private static String key(File file) {
+        String path = file.getAbsolutePath();
+        return path.substring(0, path.lastIndexOf('.'));
+    }
+}
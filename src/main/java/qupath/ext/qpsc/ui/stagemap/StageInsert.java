@@ -307,6 +307,22 @@ public class StageInsert {
         return originYUm + heightUm;
     }
 
+    /**
+     * Returns the stage coordinates of the centre of a slide in this insert.
+     * Accounts for axis inversion.
+     *
+     * @param slide A slide position of this insert
+     * @return Centre as [x, y] in stage coordinates (um)
+     */
+    public double[] getSlideCenterStage(SlidePosition slide) {
+        double offsetX = slide.getXOffsetUm() + slide.getWidthUm() / 2.0;
+        double offsetY = slide.getYOffsetUm() + slide.getHeightUm() / 2.0;
+        return new double[] {
+                xAxisInverted ? originXUm - offsetX : originXUm + offsetX,
+                yAxisInverted ? originYUm - offsetY : originYUm + offsetY
+        };
+    }
+
     // ========== Position Validation ==========
 
     /**
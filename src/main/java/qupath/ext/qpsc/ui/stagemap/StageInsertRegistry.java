@@ -2,6 +2,7 @@ package qupath.ext.qpsc.ui.stagemap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import qupath.ext.qpsc.utilities.ConfigChangeEvent;
 import qupath.ext.qpsc.utilities.MicroscopeConfigManager;
 
 import java.util.*;
@@ -35,6 +36,9 @@ public class StageInsertRegistry {
     /** Flag indicating if configurations have been loaded */
     private static boolean initialized = false;
 
+    /** Config manager whose changes to stage.inserts trigger a reload */
+    private static MicroscopeConfigManager watchedManager;
+
     // Default safety margin around slides
     private static final double DEFAULT_SLIDE_MARGIN_UM = 2000.0;
 
@@ -81,6 +85,16 @@ public class StageInsertRegistry {
     public static synchronized void loadFromConfig(MicroscopeConfigManager configManager) {
         inserts.clear();
 
+        if (configManager != null && configManager != watchedManager) {
+            watchedManager = configManager;
+            configManager.addChangeListener(event -> {
+                if (event.affects(ConfigChangeEvent.Source.CONFIG, "stage", "inserts")) {
+                    logger.info("Stage insert configuration changed, reloading");
+                    loadFromConfig(configManager);
+                }
+            });
+        }
+
         if (configManager == null) {
             logger.warn("MicroscopeConfigManager is null, using default insert configurations");
             loadDefaultConfigurations();
@@ -1,7 +1,9 @@
 package qupath.ext.qpsc.ui.stagemap;
 
 import javafx.application.Platform;
+import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
 import javafx.scene.image.PixelWriter;
 import javafx.scene.image.WritableImage;
 import javafx.scene.layout.Pane;
@@ -14,6 +16,7 @@ import javafx.scene.shape.StrokeLineCap;
 import javafx.scene.text.Font;
 import javafx.scene.text.Text;
 import javafx.scene.text.TextAlignment;
+import javafx.scene.transform.Affine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -22,6 +25,8 @@ import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiConsumer;
 
 /**
@@ -30,18 +35,21 @@ import java.util.function.BiConsumer;
  * This implementation avoids the hardware texture corruption issues that affect
  * Canvas-based rendering when MicroManager's Live Mode is toggled. It uses:
  * <ul>
- *   <li>WritableImage for static background elements (painted via PixelWriter)</li>
+ *   <li>WritableImage for static background elements, rasterized by {@link StageMapRenderer}</li>
  *   <li>JavaFX Shape nodes for dynamic overlays (crosshair, FOV, target)</li>
  * </ul>
  * <p>
- * This design also supports future "live preview scan" functionality where
- * RGB color data can be progressively painted into the WritableImage.
+ * During acquisition, thumbnails of completed tiles are painted into the WritableImage
+ * at their stage positions as a live preview scan (see {@link LiveScanPreview}). They are
+ * kept in stage coordinates so a resize or zone toggle redraws them, and tiles arriving
+ * between two FX pulses are uploaded together.
  * <p>
  * Displays:
  * <ul>
  *   <li>Stage insert outline (dark gray rectangle)</li>
  *   <li>Slide positions (light blue rectangles)</li>
  *   <li>Legal/illegal zone overlay (green/red tint)</li>
+ *   <li>Live preview of acquired tiles</li>
  *   <li>Current objective position (green crosshair)</li>
  *   <li>Camera field of view (orange rectangle)</li>
  *   <li>Target position on hover (blue dashed crosshair)</li>
@@ -71,10 +79,32 @@ public class StageMapCanvas extends StackPane {
     private static final double CROSSHAIR_GAP = 2;  // pixels gap between circle and lines
     private static final double INSERT_PADDING = 20;  // pixels padding around insert
 
+    /**
+     * A downsampled image of one acquired tile for the live preview scan.
+     *
+     * @param stageX Tile center X in stage microns
+     * @param stageY Tile center Y in stage microns
+     * @param widthUm Width covered on the stage in microns
+     * @param heightUm Height covered on the stage in microns
+     * @param width Thumbnail width in pixels
+     * @param height Thumbnail height in pixels
+     * @param argb Opaque thumbnail pixels, row by row
+     */
+    public record PreviewTile(double stageX, double stageY, double widthUm, double heightUm,
+                              int width, int height, int[] argb) {}
+
     // ========== Image Layer ==========
     private WritableImage backgroundImage;
     private ImageView backgroundView;
     private PixelWriter pixelWriter;
+    private final StageMapRenderer renderer = new StageMapRenderer(
+            argb(BACKGROUND_COLOR), argb(INSERT_BACKGROUND), argb(ILLEGAL_ZONE), argb(LEGAL_ZONE),
+            argb(SLIDE_FILL), argb(SLIDE_BORDER));
+
+    // ========== Live Preview Layer ==========
+    private final List<PreviewTile> previewTiles = new ArrayList<>();  // FX thread only
+    private final ConcurrentLinkedQueue<PreviewTile> pendingPreviewTiles = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean previewFlushScheduled = new AtomicBoolean(false);
 
     // ========== Shape Overlay Layer ==========
     private Pane overlayPane;
@@ -248,11 +278,21 @@ public class StageMapCanvas extends StackPane {
      */
     public void setInsert(StageInsert insert) {
         this.currentInsert = insert;
+        renderer.setInsert(insert);
         calculateScale();
         renderBackground();
         updateOverlays();
     }
 
+    /**
+     * Gets the current zoom, for deciding whether a position change is visible.
+     *
+     * @return Screen pixels per stage micron
+     */
+    public double getPixelsPerMicron() {
+        return scale;
+    }
+
     /**
      * Updates the current stage position (crosshair location).
      */
@@ -320,33 +360,83 @@ public class StageMapCanvas extends StackPane {
      * @param blockSize Size of the color block in pixels
      */
     public void paintColorBlock(double stageX, double stageY, int r, int g, int b, int blockSize) {
-        if (!renderingEnabled || currentInsert == null) {
+        if (scale <= 0) {
             return;
         }
+        double sizeUm = blockSize / scale;
+        addPreviewTile(new PreviewTile(stageX, stageY, sizeUm, sizeUm, 1, 1,
+                new int[]{0xFF000000 | (r << 16) | (g << 8) | b}));
+    }
 
-        double[] screenPos = stageToScreen(stageX, stageY);
-        if (screenPos == null) {
-            return;
+    /**
+     * Adds a tile thumbnail to the live preview scan. May be called from any thread; tiles
+     * added before the next FX pulse are drawn together and uploaded with one
+     * {@code setPixels} call.
+     *
+     * @param tile The tile thumbnail
+     */
+    public void addPreviewTile(PreviewTile tile) {
+        pendingPreviewTiles.add(tile);
+        if (previewFlushScheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::flushPreviewTiles);
         }
+    }
 
-        int sx = (int) screenPos[0];
-        int sy = (int) screenPos[1];
-        Color color = Color.rgb(r, g, b);
-
-        // Paint a small block centered on the position
-        int halfSize = blockSize / 2;
-        int imgWidth = (int) backgroundImage.getWidth();
-        int imgHeight = (int) backgroundImage.getHeight();
+    /**
+     * Removes all live preview tiles. May be called from any thread.
+     */
+    public void clearPreview() {
+        Platform.runLater(() -> {
+            pendingPreviewTiles.clear();
+            if (!previewTiles.isEmpty()) {
+                previewTiles.clear();
+                renderBackground();
+            }
+        });
+    }
 
-        for (int dx = -halfSize; dx <= halfSize; dx++) {
-            for (int dy = -halfSize; dy <= halfSize; dy++) {
-                int px = sx + dx;
-                int py = sy + dy;
-                if (px >= 0 && px < imgWidth && py >= 0 && py < imgHeight) {
-                    pixelWriter.setColor(px, py, color);
-                }
+    /**
+     * Draws the queued preview tiles into the background buffer and uploads the rectangle
+     * they cover.
+     */
+    private void flushPreviewTiles() {
+        previewFlushScheduled.set(false);
+        int iw = (int) backgroundImage.getWidth();
+        int ih = (int) backgroundImage.getHeight();
+        boolean canDraw = renderingEnabled && currentInsert != null && renderer.pixels().length == iw * ih;
+
+        int minX = iw, minY = ih, maxX = 0, maxY = 0;
+        PreviewTile tile;
+        while ((tile = pendingPreviewTiles.poll()) != null) {
+            previewTiles.add(tile);
+            if (!canDraw) {
+                continue;
             }
+            int[] rect = drawPreviewTile(tile);
+            minX = Math.min(minX, Math.max(0, rect[0]));
+            minY = Math.min(minY, Math.max(0, rect[1]));
+            maxX = Math.max(maxX, Math.min(iw, rect[0] + rect[2]));
+            maxY = Math.max(maxY, Math.min(ih, rect[1] + rect[3]));
         }
+        if (minX < maxX && minY < maxY) {
+            pixelWriter.setPixels(minX, minY, maxX - minX, maxY - minY, PixelFormat.getIntArgbPreInstance(),
+                    renderer.pixels(), minY * iw + minX, iw);
+        }
+    }
+
+    /**
+     * Draws a preview tile into the renderer buffer.
+     *
+     * @return The screen rectangle {x, y, width, height} of the tile, before clipping
+     */
+    private int[] drawPreviewTile(PreviewTile tile) {
+        double[] center = stageToScreen(tile.stageX(), tile.stageY());
+        int w = Math.max(1, (int) Math.round(tile.widthUm() * scale));
+        int h = Math.max(1, (int) Math.round(tile.heightUm() * scale));
+        int x = (int) Math.round(center[0] - w / 2.0);
+        int y = (int) Math.round(center[1] - h / 2.0);
+        renderer.drawImage(x, y, w, h, tile.argb(), tile.width(), tile.height());
+        return new int[]{x, y, w, h};
     }
 
     // ========== Coordinate Conversion ==========
@@ -463,48 +553,20 @@ public class StageMapCanvas extends StackPane {
             backgroundView.setImage(backgroundImage);
         }
 
-        // Fill background
-        fillRect(0, 0, iw, ih, BACKGROUND_COLOR);
+        // Compose the background into one ARGB buffer and upload it in a single call
+        int[] pixels = renderer.render(iw, ih, scale, offsetX, offsetY, showLegalZones);
+        if (currentInsert != null) {
+            for (PreviewTile tile : previewTiles) {
+                drawPreviewTile(tile);
+            }
+        }
+        pixelWriter.setPixels(0, 0, iw, ih, PixelFormat.getIntArgbPreInstance(), pixels, 0, iw);
 
         if (currentInsert == null) {
             // Show message when no insert configured
             return;
         }
 
-        // Draw insert background
-        int insertX = (int) offsetX;
-        int insertY = (int) offsetY;
-        int insertW = (int) (currentInsert.getWidthUm() * scale);
-        int insertH = (int) (currentInsert.getHeightUm() * scale);
-        fillRect(insertX, insertY, insertW, insertH, INSERT_BACKGROUND);
-
-        // Draw legal/illegal zones
-        if (showLegalZones) {
-            // First fill with illegal zone color
-            fillRectBlend(insertX, insertY, insertW, insertH, ILLEGAL_ZONE);
-
-            // Then overlay legal zones around slides
-            double marginPx = currentInsert.getSlideMarginUm() * scale;
-            for (StageInsert.SlidePosition slide : currentInsert.getSlides()) {
-                int zx = (int) (offsetX + slide.getXOffsetUm() * scale - marginPx);
-                int zy = (int) (offsetY + slide.getYOffsetUm() * scale - marginPx);
-                int zw = (int) (slide.getWidthUm() * scale + 2 * marginPx);
-                int zh = (int) (slide.getHeightUm() * scale + 2 * marginPx);
-                fillRectBlend(zx, zy, zw, zh, LEGAL_ZONE);
-            }
-        }
-
-        // Draw slides
-        for (StageInsert.SlidePosition slide : currentInsert.getSlides()) {
-            int sx = (int) (offsetX + slide.getXOffsetUm() * scale);
-            int sy = (int) (offsetY + slide.getYOffsetUm() * scale);
-            int sw = (int) (slide.getWidthUm() * scale);
-            int sh = (int) (slide.getHeightUm() * scale);
-
-            fillRect(sx, sy, sw, sh, SLIDE_FILL);
-            drawRectBorder(sx, sy, sw, sh, SLIDE_BORDER, 2);
-        }
-
         // Update insert border shape
         insertBorderRect.setX(offsetX);
         insertBorderRect.setY(offsetY);
@@ -548,45 +610,8 @@ public class StageMapCanvas extends StackPane {
         overlayPane.getChildren().addAll(slideLabels);
     }
 
-    private void fillRect(int x, int y, int w, int h, Color color) {
-        int imgW = (int) backgroundImage.getWidth();
-        int imgH = (int) backgroundImage.getHeight();
-
-        for (int px = Math.max(0, x); px < Math.min(imgW, x + w); px++) {
-            for (int py = Math.max(0, y); py < Math.min(imgH, y + h); py++) {
-                pixelWriter.setColor(px, py, color);
-            }
-        }
-    }
-
-    private void fillRectBlend(int x, int y, int w, int h, Color color) {
-        int imgW = (int) backgroundImage.getWidth();
-        int imgH = (int) backgroundImage.getHeight();
-
-        for (int px = Math.max(0, x); px < Math.min(imgW, x + w); px++) {
-            for (int py = Math.max(0, y); py < Math.min(imgH, y + h); py++) {
-                Color existing = backgroundImage.getPixelReader().getColor(px, py);
-                Color blended = blendColors(existing, color);
-                pixelWriter.setColor(px, py, blended);
-            }
-        }
-    }
-
-    private Color blendColors(Color base, Color overlay) {
-        double alpha = overlay.getOpacity();
-        double r = base.getRed() * (1 - alpha) + overlay.getRed() * alpha;
-        double g = base.getGreen() * (1 - alpha) + overlay.getGreen() * alpha;
-        double b = base.getBlue() * (1 - alpha) + overlay.getBlue() * alpha;
-        return Color.color(r, g, b);
-    }
-
-    private void drawRectBorder(int x, int y, int w, int h, Color color, int thickness) {
-        // Top and bottom
-        fillRect(x, y, w, thickness, color);
-        fillRect(x, y + h - thickness, w, thickness, color);
-        // Left and right
-        fillRect(x, y, thickness, h, color);
-        fillRect(x + w - thickness, y, thickness, h, color);
+    private static int argb(Color color) {
+        return StageMapRenderer.toArgb(color.getRed(), color.getGreen(), color.getBlue(), color.getOpacity());
     }
 
     // ========== Overlay Updates ==========
@@ -749,15 +774,33 @@ public class StageMapCanvas extends StackPane {
             clearMacroOverlay();
             return;
         }
+        setMacroOverlay(SwingFXUtils.toFXImage(macroImage, null), transform);
+    }
+
+    /**
+     * Sets and displays the macro image overlay from an already converted image.
+     * <p>
+     * The image is drawn at its own pixel size and placed by a transform on the view, so rotation
+     * and shear in the alignment are shown as they are and resizing the canvas only updates the
+     * transform.
+     *
+     * @param macroImage The processed macro image
+     * @param transform The AffineTransform mapping macro pixels to stage microns
+     */
+    public void setMacroOverlay(Image macroImage, AffineTransform transform) {
+        if (macroImage == null || transform == null) {
+            clearMacroOverlay();
+            return;
+        }
 
         this.macroTransform = transform;
-        this.macroWidth = macroImage.getWidth();
-        this.macroHeight = macroImage.getHeight();
+        this.macroWidth = (int) macroImage.getWidth();
+        this.macroHeight = (int) macroImage.getHeight();
         this.macroOverlayVisible = true;
 
-        // Convert BufferedImage to JavaFX Image
-        javafx.scene.image.Image fxImage = SwingFXUtils.toFXImage(macroImage, null);
-        macroOverlayView.setImage(fxImage);
+        if (macroOverlayView.getImage() != macroImage) {
+            macroOverlayView.setImage(macroImage);
+        }
 
         // Update position and size
         updateMacroOverlayPosition();
@@ -774,10 +817,11 @@ public class StageMapCanvas extends StackPane {
         macroTransform = null;
         macroOverlayView.setVisible(false);
         macroOverlayView.setImage(null);
+        macroOverlayView.getTransforms().clear();
     }
 
     /**
-     * Updates the macro overlay position based on the current scale and offset.
+     * Updates the macro overlay transform based on the current scale and offset.
      * Called when the canvas resizes or the insert changes.
      */
     private void updateMacroOverlayPosition() {
@@ -785,48 +829,22 @@ public class StageMapCanvas extends StackPane {
             return;
         }
 
-        // Transform the four corners of the macro image to stage coordinates, then to screen
-        double[][] macroCorners = {
-            {0, 0},
-            {macroWidth, 0},
-            {0, macroHeight},
-            {macroWidth, macroHeight}
-        };
-
-        double minScreenX = Double.MAX_VALUE;
-        double maxScreenX = -Double.MAX_VALUE;
-        double minScreenY = Double.MAX_VALUE;
-        double maxScreenY = -Double.MAX_VALUE;
-
-        for (double[] corner : macroCorners) {
-            // Transform macro pixel -> stage microns
-            double[] stagePos = new double[2];
-            macroTransform.transform(corner, 0, stagePos, 0, 1);
-
-            // Transform stage microns -> screen pixels
-            double[] screenPos = stageToScreen(stagePos[0], stagePos[1]);
-            if (screenPos != null) {
-                minScreenX = Math.min(minScreenX, screenPos[0]);
-                maxScreenX = Math.max(maxScreenX, screenPos[0]);
-                minScreenY = Math.min(minScreenY, screenPos[1]);
-                maxScreenY = Math.max(maxScreenY, screenPos[1]);
-            }
-        }
+        // Stage microns -> screen pixels, matching stageToScreen()
+        double sx = currentInsert.isXAxisInverted() ? -scale : scale;
+        double sy = currentInsert.isYAxisInverted() ? -scale : scale;
+        AffineTransform macroToScreen = new AffineTransform(sx, 0, 0, sy,
+                offsetX - sx * currentInsert.getOriginXUm(),
+                offsetY - sy * currentInsert.getOriginYUm());
+        // Then macro pixels -> stage microns
+        macroToScreen.concatenate(macroTransform);
 
-        // Only update if we got valid coordinates
-        if (minScreenX != Double.MAX_VALUE) {
-            double screenWidth = maxScreenX - minScreenX;
-            double screenHeight = maxScreenY - minScreenY;
+        macroOverlayView.setX(0);
+        macroOverlayView.setY(0);
+        macroOverlayView.getTransforms().setAll(new Affine(
+                macroToScreen.getScaleX(), macroToScreen.getShearX(), macroToScreen.getTranslateX(),
+                macroToScreen.getShearY(), macroToScreen.getScaleY(), macroToScreen.getTranslateY()));
 
-            macroOverlayView.setX(minScreenX);
-            macroOverlayView.setY(minScreenY);
-            macroOverlayView.setFitWidth(screenWidth);
-            macroOverlayView.setFitHeight(screenHeight);
-
-            logger.trace("Macro overlay positioned at ({}, {}) size {}x{}",
-                String.format("%.1f", minScreenX), String.format("%.1f", minScreenY),
-                String.format("%.1f", screenWidth), String.format("%.1f", screenHeight));
-        }
+        logger.trace("Macro overlay transform: {}", macroToScreen);
     }
 
     // ========== Size Handling ==========
@@ -0,0 +1,249 @@
+package qupath.ext.qpsc.ui.stagemap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rasterizes the static Stage Map background into an ARGB pixel buffer.
+ * <p>
+ * Fills and alpha blends work on whole rows of an {@code int[]} with integer arithmetic, so
+ * a full re-render allocates nothing per pixel and the result is pushed to the image with a
+ * single {@code setPixels} call. All colors are opaque after compositing, so the buffer is
+ * valid as both plain and premultiplied ARGB.
+ * <p>
+ * The zone and slide layers are kept as rectangles in insert microns and are only rebuilt
+ * when the insert changes; a resize just rasterizes them again at the new scale. The class
+ * does not use JavaFX and can render off the FX thread; the buffer is reused between renders,
+ * so callers must not render concurrently.
+ */
+class StageMapRenderer {
+
+    /**
+     * A rectangle in insert microns, relative to the insert origin.
+     */
+    record Rect(double x, double y, double width, double height) {}
+
+    private final int backgroundColor;
+    private final int insertColor;
+    private final int illegalZoneColor;
+    private final int legalZoneColor;
+    private final int slideFillColor;
+    private final int slideBorderColor;
+
+    private StageInsert insert;
+    private List<Rect> zoneLayer = List.of();
+    private List<Rect> slideLayer = List.of();
+
+    private int width;
+    private int height;
+    private int[] pixels = new int[0];
+
+    /**
+     * @param backgroundColor Color outside the insert
+     * @param insertColor Insert background
+     * @param illegalZoneColor Translucent tint over the whole insert
+     * @param legalZoneColor Translucent tint around slides
+     * @param slideFillColor Slide fill
+     * @param slideBorderColor Slide border
+     */
+    StageMapRenderer(int backgroundColor, int insertColor, int illegalZoneColor, int legalZoneColor,
+                     int slideFillColor, int slideBorderColor) {
+        this.backgroundColor = backgroundColor;
+        this.insertColor = insertColor;
+        this.illegalZoneColor = illegalZoneColor;
+        this.legalZoneColor = legalZoneColor;
+        this.slideFillColor = slideFillColor;
+        this.slideBorderColor = slideBorderColor;
+    }
+
+    /**
+     * Sets the insert to draw and rebuilds the zone and slide layers.
+     *
+     * @param insert The insert, or null to draw only the background
+     */
+    void setInsert(StageInsert insert) {
+        this.insert = insert;
+        if (insert == null) {
+            zoneLayer = List.of();
+            slideLayer = List.of();
+            return;
+        }
+        double margin = insert.getSlideMarginUm();
+        List<Rect> zones = new ArrayList<>();
+        List<Rect> slides = new ArrayList<>();
+        for (StageInsert.SlidePosition slide : insert.getSlides()) {
+            zones.add(new Rect(slide.getXOffsetUm() - margin, slide.getYOffsetUm() - margin,
+                    slide.getWidthUm() + 2 * margin, slide.getHeightUm() + 2 * margin));
+            slides.add(new Rect(slide.getXOffsetUm(), slide.getYOffsetUm(),
+                    slide.getWidthUm(), slide.getHeightUm()));
+        }
+        zoneLayer = List.copyOf(zones);
+        slideLayer = List.copyOf(slides);
+    }
+
+    /**
+     * Renders the background.
+     *
+     * @param width Image width in pixels
+     * @param height Image height in pixels
+     * @param scale Screen pixels per micron
+     * @param offsetX Screen x of the insert origin
+     * @param offsetY Screen y of the insert origin
+     * @param showLegalZones Whether to tint legal and illegal zones
+     * @return The pixel buffer, row by row with a stride of {@code width}; reused by the next render
+     */
+    int[] render(int width, int height, double scale, double offsetX, double offsetY, boolean showLegalZones) {
+        if (width != this.width || height != this.height) {
+            this.width = width;
+            this.height = height;
+            pixels = new int[width * height];
+        }
+
+        Arrays.fill(pixels, backgroundColor);
+        if (insert == null) {
+            return pixels;
+        }
+
+        int insertX = (int) offsetX;
+        int insertY = (int) offsetY;
+        int insertW = (int) (insert.getWidthUm() * scale);
+        int insertH = (int) (insert.getHeightUm() * scale);
+        fill(insertX, insertY, insertW, insertH, insertColor);
+
+        if (showLegalZones) {
+            blend(insertX, insertY, insertW, insertH, illegalZoneColor);
+            for (Rect zone : zoneLayer) {
+                blend((int) (offsetX + zone.x() * scale), (int) (offsetY + zone.y() * scale),
+                        (int) (zone.width() * scale), (int) (zone.height() * scale), legalZoneColor);
+            }
+        }
+
+        for (Rect slide : slideLayer) {
+            int sx = (int) (offsetX + slide.x() * scale);
+            int sy = (int) (offsetY + slide.y() * scale);
+            int sw = (int) (slide.width() * scale);
+            int sh = (int) (slide.height() * scale);
+            fill(sx, sy, sw, sh, slideFillColor);
+            drawBorder(sx, sy, sw, sh, slideBorderColor, 2);
+        }
+        return pixels;
+    }
+
+    /**
+     * Fills a rectangle, clipped to the image.
+     */
+    void fill(int x, int y, int w, int h, int argb) {
+        int x0 = Math.max(0, x);
+        int x1 = Math.min(width, x + w);
+        int y0 = Math.max(0, y);
+        int y1 = Math.min(height, y + h);
+        if (x0 >= x1) {
+            return;
+        }
+        for (int py = y0; py < y1; py++) {
+            int row = py * width;
+            Arrays.fill(pixels, row + x0, row + x1, argb);
+        }
+    }
+
+    /**
+     * Blends a translucent color over a rectangle, clipped to the image.
+     */
+    void blend(int x, int y, int w, int h, int argb) {
+        int alpha = argb >>> 24;
+        if (alpha == 0) {
+            return;
+        }
+        if (alpha == 255) {
+            fill(x, y, w, h, argb);
+            return;
+        }
+        int x0 = Math.max(0, x);
+        int x1 = Math.min(width, x + w);
+        int y0 = Math.max(0, y);
+        int y1 = Math.min(height, y + h);
+        for (int py = y0; py < y1; py++) {
+            int row = py * width;
+            for (int i = row + x0; i < row + x1; i++) {
+                pixels[i] = blendArgb(pixels[i], argb);
+            }
+        }
+    }
+
+    /**
+     * Draws an opaque ARGB image scaled to a rectangle, clipped to the image. Scaling is
+     * nearest neighbour; preview thumbnails only cover a few screen pixels.
+     *
+     * @param x Left edge in screen pixels
+     * @param y Top edge in screen pixels
+     * @param w Width in screen pixels
+     * @param h Height in screen pixels
+     * @param image Source pixels, row by row
+     * @param imageWidth Source width
+     * @param imageHeight Source height
+     */
+    void drawImage(int x, int y, int w, int h, int[] image, int imageWidth, int imageHeight) {
+        if (w <= 0 || h <= 0 || imageWidth <= 0 || imageHeight <= 0) {
+            return;
+        }
+        int x0 = Math.max(0, x);
+        int x1 = Math.min(width, x + w);
+        int y0 = Math.max(0, y);
+        int y1 = Math.min(height, y + h);
+        for (int py = y0; py < y1; py++) {
+            int srcRow = (int) ((long) (py - y) * imageHeight / h) * imageWidth;
+            int row = py * width;
+            for (int px = x0; px < x1; px++) {
+                pixels[row + px] = image[srcRow + (int) ((long) (px - x) * imageWidth / w)];
+            }
+        }
+    }
+
+    /**
+     * @return The buffer of the last render, with a stride of its width; preview tiles are drawn
+     * into it between renders
+     */
+    int[] pixels() {
+        return pixels;
+    }
+
+    private void drawBorder(int x, int y, int w, int h, int argb, int thickness) {
+        fill(x, y, w, thickness, argb);
+        fill(x, y + h - thickness, w, thickness, argb);
+        fill(x, y, thickness, h, argb);
+        fill(x + w - thickness, y, thickness, h, argb);
+    }
+
+    /**
+     * Blends a translucent color over an opaque one.
+     *
+     * @param base Opaque ARGB color
+     * @param overlay ARGB color whose alpha is the blend weight
+     * @return Opaque blended color
+     */
+    static int blendArgb(int base, int overlay) {
+        int a = overlay >>> 24;
+        int ia = 255 - a;
+        int r = (((base >> 16) & 0xFF) * ia + ((overlay >> 16) & 0xFF) * a + 127) / 255;
+        int g = (((base >> 8) & 0xFF) * ia + ((overlay >> 8) & 0xFF) * a + 127) / 255;
+        int b = ((base & 0xFF) * ia + (overlay & 0xFF) * a + 127) / 255;
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+
+    /**
+     * Packs color components into an ARGB int.
+     *
+     * @param red Red, 0-1
+     * @param green Green, 0-1
+     * @param blue Blue, 0-1
+     * @param opacity Opacity, 0-1
+     * @return ARGB color
+     */
+    static int toArgb(double red, double green, double blue, double opacity) {
+        return ((int) Math.round(opacity * 255) << 24)
+                | ((int) Math.round(red * 255) << 16)
+                | ((int) Math.round(green * 255) << 8)
+                | (int) Math.round(blue * 255);
+    }
+}
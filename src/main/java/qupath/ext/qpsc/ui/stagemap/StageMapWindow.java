@@ -6,6 +6,7 @@ import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
+import javafx.scene.image.Image;
 import javafx.scene.layout.*;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
@@ -13,7 +14,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import qupath.ext.qpsc.controller.MicroscopeController;
 import qupath.ext.qpsc.preferences.QPPreferenceDialog;
-import qupath.ext.qpsc.utilities.AffineTransformManager;
+import qupath.ext.qpsc.utilities.ImageMetadataIndex;
 import qupath.ext.qpsc.utilities.ImageMetadataManager;
 import qupath.ext.qpsc.utilities.MicroscopeConfigManager;
 import qupath.ext.qpsc.utilities.QPProjectFunctions;
@@ -27,11 +28,14 @@ import java.awt.Desktop;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Floating window displaying a visual map of the microscope stage.
@@ -54,7 +58,7 @@ public class StageMapWindow {
     private static final Logger logger = LoggerFactory.getLogger(StageMapWindow.class);
 
     // ========== Singleton ==========
-    private static StageMapWindow instance;
+    private static volatile StageMapWindow instance;
 
     // ========== Window Components ==========
     private Stage stage;
@@ -66,7 +70,15 @@ public class StageMapWindow {
 
     // ========== State ==========
     private ScheduledExecutorService positionPoller;
+    private ScheduledFuture<?> nextPoll;
+    private final Object pollLock = new Object();
+    private final Runnable stageMoveListener = this::requestFastPolling;
     private volatile boolean isPolling = false;
+    private volatile long fastPollingUntilMs = 0;  // Poll fast until this time
+    private double[] lastPolledPosition;  // Poller thread only
+    private volatile double[] lastRenderedPosition;  // null forces the next update to render
+    private final AtomicReference<double[]> pendingPosition = new AtomicReference<>();  // At most one FX update queued
+    private double[] lastFov;  // Poller thread only
     private volatile boolean dialogShowing = false;  // Pause updates while dialogs are shown
     private volatile int consecutiveErrors = 0;  // Track polling failures
     private static final int MAX_CONSECUTIVE_ERRORS = 10;  // Pause polling after this many errors
@@ -74,15 +86,20 @@ public class StageMapWindow {
 
     // ========== Macro Overlay State ==========
     private CheckBox macroOverlayCheckbox;
-    private BufferedImage currentMacroImage = null;
+    private Image currentMacroImage = null;
     private AffineTransform currentMacroTransform = null;
     private String currentMacroSampleName = null;
     private ChangeListener<ImageData<?>> imageChangeListener = null;
 
     // ========== Configuration ==========
-    // Poll interval for position updates - lower = more responsive but more network traffic
-    // 200ms provides smooth tracking without overwhelming the socket connection
-    private static final long POLL_INTERVAL_MS = 200;
+    // Position polling adapts to stage motion: fast while the stage moves for smooth tracking,
+    // slow when idle to keep socket traffic low (e.g. during acquisitions)
+    private static final long FAST_POLL_INTERVAL_MS = 50;
+    private static final long IDLE_POLL_INTERVAL_MS = 1000;
+    // Keep polling fast this long after a move command or the last observed motion
+    private static final long FAST_POLL_HOLD_MS = 1500;
+    // Position changes smaller than this are treated as noise, not motion
+    private static final double MOTION_THRESHOLD_UM = 0.5;
     private static final double WINDOW_WIDTH = 420;
     private static final double WINDOW_HEIGHT = 380;
     private static final double CANVAS_WIDTH = 380;
@@ -130,6 +147,29 @@ public class StageMapWindow {
         return instance != null && instance.stage != null && instance.stage.isShowing();
     }
 
+    /**
+     * Adds a tile thumbnail to the live preview scan of the open Stage Map.
+     * Does nothing if the window has not been opened. May be called from any thread.
+     *
+     * @param tile The tile thumbnail
+     */
+    public static void addPreviewTile(StageMapCanvas.PreviewTile tile) {
+        StageMapWindow window = instance;
+        if (window != null && window.canvas != null) {
+            window.canvas.addPreviewTile(tile);
+        }
+    }
+
+    /**
+     * Clears the live preview scan of the open Stage Map. May be called from any thread.
+     */
+    public static void clearPreview() {
+        StageMapWindow window = instance;
+        if (window != null && window.canvas != null) {
+            window.canvas.clearPreview();
+        }
+    }
+
     /**
      * Disposes of the window and resets the singleton for a clean re-open.
      * This prevents stale state issues when reopening after the microscope
@@ -403,25 +443,57 @@ public class StageMapWindow {
             t.setDaemon(true);
             return t;
         });
-        positionPoller.scheduleAtFixedRate(
-                this::pollPosition,
-                0,
-                POLL_INTERVAL_MS,
-                TimeUnit.MILLISECONDS);
         isPolling = true;
+        lastRenderedPosition = null;
+        MicroscopeController.getInstance().addStageMoveListener(stageMoveListener);
+        scheduleNextPoll(0);
 
-        logger.debug("Started position polling ({}ms interval)", POLL_INTERVAL_MS);
+        logger.debug("Started adaptive position polling ({}ms moving, {}ms idle)",
+                FAST_POLL_INTERVAL_MS, IDLE_POLL_INTERVAL_MS);
     }
 
     private void stopPositionPolling() {
         if (positionPoller != null && !positionPoller.isShutdown()) {
+            MicroscopeController.getInstance().removeStageMoveListener(stageMoveListener);
             positionPoller.shutdownNow();
             isPolling = false;
             logger.debug("Stopped position polling");
         }
     }
 
+    /**
+     * Switches to fast polling because the stage is about to move, polling immediately
+     * if the next poll is still waiting out the idle interval.
+     */
+    private void requestFastPolling() {
+        fastPollingUntilMs = System.currentTimeMillis() + FAST_POLL_HOLD_MS;
+        lastRenderedPosition = null;
+        synchronized (pollLock) {
+            // If cancel fails the poll is running and will reschedule itself at the fast rate
+            if (nextPoll != null && nextPoll.cancel(false)) {
+                scheduleNextPoll(0);
+            }
+        }
+    }
+
+    private void scheduleNextPoll(long delayMs) {
+        synchronized (pollLock) {
+            if (positionPoller != null && !positionPoller.isShutdown()) {
+                nextPoll = positionPoller.schedule(this::pollPosition, delayMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
     private void pollPosition() {
+        try {
+            doPollPosition();
+        } finally {
+            boolean fast = System.currentTimeMillis() < fastPollingUntilMs;
+            scheduleNextPoll(fast ? FAST_POLL_INTERVAL_MS : IDLE_POLL_INTERVAL_MS);
+        }
+    }
+
+    private void doPollPosition() {
         // Skip updates if window is not visible or dialogs are showing
         if (dialogShowing || stage == null || !stage.isShowing()) {
             return;
@@ -440,27 +512,22 @@ public class StageMapWindow {
                 // Reset error counter on success
                 consecutiveErrors = 0;
 
-                Platform.runLater(() -> {
-                    // Double-check state on FX thread
-                    if (dialogShowing || stage == null || !stage.isShowing()) {
-                        return;
-                    }
-                    canvas.updatePosition(pos[0], pos[1]);
-                    positionLabel.setText(String.format("Pos: %.1f, %.1f um", pos[0], pos[1]));
-                    statusLabel.setText("");
-                    statusLabel.setStyle("-fx-text-fill: #888;");
-
-                    // Update target label based on mouse position
-                    double[] target = canvas.getTargetPosition();
-                    if (target != null) {
-                        StageInsert insert = insertComboBox.getValue();
-                        boolean isLegal = insert != null && insert.isPositionLegal(target[0], target[1]);
-                        targetLabel.setText(String.format("Target: %.1f, %.1f", target[0], target[1]));
-                        targetLabel.setStyle(isLegal ? "-fx-text-fill: #7ab;" : "-fx-text-fill: #fa7;");
-                    } else {
-                        targetLabel.setText("");
+                // Motion seen by polling (e.g. moves made by the server during acquisition)
+                // keeps the fast rate
+                if (lastPolledPosition != null
+                        && (Math.abs(pos[0] - lastPolledPosition[0]) > MOTION_THRESHOLD_UM
+                        || Math.abs(pos[1] - lastPolledPosition[1]) > MOTION_THRESHOLD_UM)) {
+                    fastPollingUntilMs = System.currentTimeMillis() + FAST_POLL_HOLD_MS;
+                }
+                lastPolledPosition = pos;
+
+                if (isVisibleChange(pos)) {
+                    // Only queue a new FX update if the previous one has run; otherwise it will
+                    // pick up this position
+                    if (pendingPosition.getAndSet(pos) == null) {
+                        Platform.runLater(this::renderPendingPosition);
                     }
-                });
+                }
 
                 // Update FOV if available
                 if (!dialogShowing && stage != null && stage.isShowing()) {
@@ -476,6 +543,43 @@ public class StageMapWindow {
         }
     }
 
+    /**
+     * @return true if the position differs from the last rendered one by at least a screen pixel
+     */
+    private boolean isVisibleChange(double[] pos) {
+        double[] rendered = lastRenderedPosition;
+        if (rendered == null || canvas == null) {
+            return true;
+        }
+        double pixelsPerMicron = canvas.getPixelsPerMicron();
+        return Math.abs(pos[0] - rendered[0]) * pixelsPerMicron >= 1
+                || Math.abs(pos[1] - rendered[1]) * pixelsPerMicron >= 1;
+    }
+
+    private void renderPendingPosition() {
+        double[] pos = pendingPosition.getAndSet(null);
+        // Double-check state on FX thread
+        if (pos == null || dialogShowing || stage == null || !stage.isShowing()) {
+            return;
+        }
+        lastRenderedPosition = pos;
+        canvas.updatePosition(pos[0], pos[1]);
+        positionLabel.setText(String.format("Pos: %.1f, %.1f um", pos[0], pos[1]));
+        statusLabel.setText("");
+        statusLabel.setStyle("-fx-text-fill: #888;");
+
+        // Update target label based on mouse position
+        double[] target = canvas.getTargetPosition();
+        if (target != null) {
+            StageInsert insert = insertComboBox.getValue();
+            boolean isLegal = insert != null && insert.isPositionLegal(target[0], target[1]);
+            targetLabel.setText(String.format("Target: %.1f, %.1f", target[0], target[1]));
+            targetLabel.setStyle(isLegal ? "-fx-text-fill: #7ab;" : "-fx-text-fill: #fa7;");
+        } else {
+            targetLabel.setText("");
+        }
+    }
+
     private void handlePollingError() {
         consecutiveErrors++;
 
@@ -503,6 +607,7 @@ public class StageMapWindow {
      */
     public void resetPollingErrors() {
         consecutiveErrors = 0;
+        lastRenderedPosition = null;
         logger.info("Stage Map polling errors reset");
     }
 
@@ -520,7 +625,8 @@ public class StageMapWindow {
 
             if (modality != null && objective != null && detector != null) {
                 double[] fov = config.getModalityFOV(modality, objective, detector);
-                if (fov != null && fov.length >= 2) {
+                if (fov != null && fov.length >= 2 && !Arrays.equals(fov, lastFov)) {
+                    lastFov = fov;
                     Platform.runLater(() -> canvas.updateFOV(fov[0], fov[1]));
                 }
             }
@@ -712,13 +818,12 @@ public class StageMapWindow {
                 return;
             }
 
-            // Try to load macro image and transform
-            BufferedImage macroImage = AffineTransformManager.loadSavedMacroImage(project, sampleName);
-            AffineTransform transform = AffineTransformManager.loadSlideAlignment(project, sampleName);
+            // Macro image and transform are read from disk only when their files change
+            MacroOverlayCache.Overlay overlay = MacroOverlayCache.getOverlay(project, sampleName);
 
-            if (macroImage != null && transform != null) {
-                currentMacroImage = macroImage;
-                currentMacroTransform = transform;
+            if (overlay != null) {
+                currentMacroImage = overlay.image();
+                currentMacroTransform = overlay.transform();
                 currentMacroSampleName = sampleName;
                 macroOverlayCheckbox.setDisable(false);
                 logger.info("Macro overlay available for sample: {}", sampleName);
@@ -755,7 +860,7 @@ public class StageMapWindow {
         String imageName = QPProjectFunctions.getActualImageFileName(imageData);
         if (imageName != null && !imageName.isEmpty()) {
             // Check if alignment exists for this name
-            if (AffineTransformManager.loadSlideAlignment(project, imageName) != null) {
+            if (MacroOverlayCache.getAlignment(project, imageName) != null) {
                 logger.debug("Found alignment using image name: {}", imageName);
                 return imageName;
             }
@@ -767,7 +872,7 @@ public class StageMapWindow {
             // Try sample_name metadata
             String sampleName = ImageMetadataManager.getSampleName(entry);
             if (sampleName != null && !sampleName.isEmpty()) {
-                if (AffineTransformManager.loadSlideAlignment(project, sampleName) != null) {
+                if (MacroOverlayCache.getAlignment(project, sampleName) != null) {
                     logger.debug("Found alignment using sample_name metadata: {}", sampleName);
                     return sampleName;
                 }
@@ -776,7 +881,7 @@ public class StageMapWindow {
             // Try base_image metadata
             String baseImage = ImageMetadataManager.getBaseImage(entry);
             if (baseImage != null && !baseImage.isEmpty()) {
-                if (AffineTransformManager.loadSlideAlignment(project, baseImage) != null) {
+                if (MacroOverlayCache.getAlignment(project, baseImage) != null) {
                     logger.debug("Found alignment using base_image metadata: {}", baseImage);
                     return baseImage;
                 }
@@ -786,16 +891,14 @@ public class StageMapWindow {
             if (ImageMetadataManager.isFlipped(entry)) {
                 String originalId = ImageMetadataManager.getOriginalImageId(entry);
                 if (originalId != null) {
-                    for (ProjectImageEntry<BufferedImage> e : project.getImageList()) {
-                        if (originalId.equals(e.getID())) {
-                            String origBase = ImageMetadataManager.getBaseImage(e);
-                            if (origBase != null && !origBase.isEmpty()) {
-                                if (AffineTransformManager.loadSlideAlignment(project, origBase) != null) {
-                                    logger.debug("Found alignment using original image's base_image: {}", origBase);
-                                    return origBase;
-                                }
+                    ProjectImageEntry<BufferedImage> original = ImageMetadataIndex.forProject(project).getById(originalId);
+                    if (original != null) {
+                        String origBase = ImageMetadataManager.getBaseImage(original);
+                        if (origBase != null && !origBase.isEmpty()) {
+                            if (MacroOverlayCache.getAlignment(project, origBase) != null) {
+                                logger.debug("Found alignment using original image's base_image: {}", origBase);
+                                return origBase;
                             }
-                            break;
                         }
                     }
                 }
@@ -3,6 +3,7 @@ package qupath.ext.qpsc.utilities;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import qupath.ext.qpsc.modality.AngleExposure;
+import qupath.ext.qpsc.preferences.QPPreferenceDialog;
 import qupath.ext.qpsc.service.AcquisitionCommandBuilder;
 import qupath.ext.qpsc.ui.SampleSetupController;
 import qupath.ext.qpsc.modality.ppm.ui.PPMAngleSelectionController;
@@ -35,6 +36,7 @@ public class AcquisitionConfigurationBuilder {
         double afRange,
         List<String> processingSteps,
         boolean whiteBalanceEnabled,
+        boolean clientFlatField,
         AcquisitionCommandBuilder commandBuilder
     ) {}
     
@@ -80,6 +82,17 @@ public class AcquisitionConfigurationBuilder {
             bgFolder = Paths.get(bgBaseFolder, detector, baseModality, magnification).toString();
             logger.info("Constructed background folder path: {}", bgFolder);
         }
+
+        // With client-side flat-field correction the server saves raw tiles and
+        // StitchingHelper corrects them before stitching (see FlatFieldCorrector)
+        boolean serverBackgroundCorrection = bgEnabled && bgFolder != null;
+        boolean clientFlatField = false;
+        if (serverBackgroundCorrection && QPPreferenceDialog.getClientFlatFieldCorrection()
+                && FlatFieldCorrector.resolveProfile(configManager, baseModality, objective, detector) != null) {
+            logger.info("Background correction will be applied in QuPath; server will save raw tiles");
+            serverBackgroundCorrection = false;
+            clientFlatField = true;
+        }
         
         // Get autofocus parameters
         Map<String, Object> afParams = configManager.getAutofocusParams(objective);
@@ -113,7 +126,7 @@ public class AcquisitionConfigurationBuilder {
         if (configManager.detectorRequiresDebayering(detector)) {
             processingSteps.add("debayer");
         }
-        if (bgEnabled && bgFolder != null) {
+        if (serverBackgroundCorrection) {
             processingSteps.add("background_correction");
         }
         
@@ -141,7 +154,7 @@ public class AcquisitionConfigurationBuilder {
                 .whiteBalance(whiteBalanceEnabled);
         
         // Only add background correction if enabled and configured
-        if (bgEnabled && bgMethod != null && bgFolder != null) {
+        if (serverBackgroundCorrection && bgMethod != null) {
             // Perform background validation to determine which angles should have correction disabled
             List<Double> disabledAngles = new ArrayList<>();
             try {
@@ -186,6 +199,7 @@ public class AcquisitionConfigurationBuilder {
             afRange,
             processingSteps,
             whiteBalanceEnabled,
+            clientFlatField,
             acquisitionBuilder
         );
     }
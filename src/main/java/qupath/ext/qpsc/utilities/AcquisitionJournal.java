@@ -0,0 +1,411 @@
+package qupath.ext.qpsc.utilities;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only record of an acquisition run, kept in the sample folder so that a run interrupted
+ * by a crash of QuPath or the microscope server can be resumed.
+ *
+ * <p>Each event is one JSON line, written and flushed to the device before the call returns.
+ * The journal records per run the tile folder, angles and annotations; per annotation the command
+ * sent, tile counts reached, completion with the final Z and the stitching state of each angle.
+ * A line cut short by a crash is ignored when the journal is read back.</p>
+ *
+ * <p>{@link #lastUnfinishedRun} replays the journal and returns the most recent run that still has
+ * annotations to acquire or stitch. Write failures are logged and never stop an acquisition.</p>
+ */
+public final class AcquisitionJournal implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(AcquisitionJournal.class);
+
+    /** Journal file in the sample folder */
+    public static final String FILE_NAME = "acquisition_journal.jsonl";
+
+    /** Stitching state of one angle of an annotation */
+    public enum StitchState {
+        QUEUED,
+        DONE,
+        FAILED
+    }
+
+    /**
+     * Replayed state of one annotation.
+     *
+     * @param name Annotation name
+     * @param command Acquisition command last sent for it, or null
+     * @param filesReached Highest file count recorded for that command
+     * @param acquired Whether the acquisition completed
+     * @param finalZ Focus position at the end of the acquisition, or null
+     * @param stitching Stitching state by angle ({@code ""} for single-angle acquisitions)
+     */
+    public record AnnotationRecord(String name, String command, int filesReached,
+                                   boolean acquired, Double finalZ, Map<String, StitchState> stitching) {
+
+        /**
+         * @return Whether the annotation was acquired and every angle stitched
+         */
+        public boolean isComplete() {
+            return acquired && !stitching.isEmpty()
+                    && stitching.values().stream().allMatch(s -> s == StitchState.DONE);
+        }
+    }
+
+    /**
+     * Replayed state of one run.
+     *
+     * @param run Run identifier, the indexed imaging mode folder (e.g. {@code ppm_20x_1})
+     * @param tileDirectory Folder holding the run's annotation tile folders
+     * @param angles Angle folder names, empty for single-angle acquisitions
+     * @param annotations Annotations the run was started with, by name
+     * @param abandoned Whether the user declined to resume the run
+     */
+    public record Run(String run, String tileDirectory, List<String> angles,
+                      Map<String, AnnotationRecord> annotations, boolean abandoned) {
+
+        /**
+         * @return Whether nothing is left to acquire or stitch
+         */
+        public boolean isComplete() {
+            return annotations.values().stream().allMatch(AnnotationRecord::isComplete);
+        }
+
+        /**
+         * @param name Annotation name
+         * @return Recorded state, or null if the run did not include it
+         */
+        public AnnotationRecord annotation(String name) {
+            return annotations.get(name);
+        }
+    }
+
+    private final Path file;
+    private final String run;
+    private final FileChannel channel;
+    private final Gson gson = new Gson();
+
+    private AcquisitionJournal(Path file, String run, FileChannel channel) {
+        this.file = file;
+        this.run = run;
+        this.channel = channel;
+    }
+
+    /**
+     * Opens the journal of a sample folder for appending, creating it if needed.
+     *
+     * @param sampleFolder Sample folder holding the run folders
+     * @param run Run identifier, the indexed imaging mode folder
+     * @return The journal
+     * @throws IOException if the file cannot be opened
+     */
+    public static AcquisitionJournal open(Path sampleFolder, String run) throws IOException {
+        Files.createDirectories(sampleFolder);
+        Path file = sampleFolder.resolve(FILE_NAME);
+        boolean truncated = false;
+        if (Files.exists(file) && Files.size(file) > 0) {
+            try (FileChannel reader = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer last = ByteBuffer.allocate(1);
+                reader.read(last, reader.size() - 1);
+                truncated = last.get(0) != '\n';
+            }
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        // Terminate a line cut short by a crash so that it does not swallow the next event
+        if (truncated) {
+            channel.write(ByteBuffer.wrap(new byte[]{'\n'}));
+        }
+        return new AcquisitionJournal(file, run, channel);
+    }
+
+    /**
+     * @return The run this journal appends to
+     */
+    public String getRun() {
+        return run;
+    }
+
+    /**
+     * Records the start of a run.
+     *
+     * @param tileDirectory Folder holding the run's annotation tile folders
+     * @param angles Angle folder names, empty for single-angle acquisitions
+     * @param annotations Names of the annotations to acquire, in order
+     */
+    public void runStarted(String tileDirectory, List<String> angles, List<String> annotations) {
+        JsonObject entry = event("run_started", null);
+        entry.addProperty("tile_directory", tileDirectory);
+        entry.add("angles", gson.toJsonTree(angles));
+        entry.add("annotations", gson.toJsonTree(annotations));
+        append(entry);
+    }
+
+    /** Records that an unfinished run is being resumed. */
+    public void runResumed() {
+        append(event("run_resumed", null));
+    }
+
+    /** Records that the user chose not to resume the run; it is no longer offered. */
+    public void runAbandoned() {
+        append(event("run_abandoned", null));
+    }
+
+    /**
+     * Records an acquisition command sent for an annotation. Earlier results of the annotation
+     * are superseded.
+     *
+     * @param annotation Annotation name
+     * @param command Socket message sent to the server
+     */
+    public void annotationStarted(String annotation, String command) {
+        JsonObject entry = event("annotation_started", annotation);
+        entry.addProperty("command", command);
+        append(entry);
+    }
+
+    /**
+     * Records a progress milestone.
+     *
+     * @param annotation Annotation name
+     * @param files Files written so far
+     */
+    public void progress(String annotation, int files) {
+        JsonObject entry = event("progress", annotation);
+        entry.addProperty("files", files);
+        append(entry);
+    }
+
+    /**
+     * Records that an annotation was acquired completely.
+     *
+     * @param annotation Annotation name
+     * @param finalZ Focus position at the end of the acquisition, or null
+     */
+    public void annotationAcquired(String annotation, Double finalZ) {
+        JsonObject entry = event("annotation_acquired", annotation);
+        if (finalZ != null) {
+            entry.addProperty("final_z", finalZ);
+        }
+        append(entry);
+    }
+
+    /**
+     * Records that an annotation's acquisition failed or was cancelled.
+     *
+     * @param annotation Annotation name
+     * @param reason Short description
+     */
+    public void annotationFailed(String annotation, String reason) {
+        JsonObject entry = event("annotation_failed", annotation);
+        entry.addProperty("reason", reason);
+        append(entry);
+    }
+
+    /**
+     * Records the stitching state of one angle of an annotation.
+     *
+     * @param annotation Annotation name
+     * @param angle Angle folder name, {@code ""} for single-angle acquisitions
+     * @param state New state
+     */
+    public void stitching(String annotation, String angle, StitchState state) {
+        JsonObject entry = event("stitching", annotation);
+        entry.addProperty("angle", angle);
+        entry.addProperty("state", state.name());
+        append(entry);
+    }
+
+    private JsonObject event(String type, String annotation) {
+        JsonObject entry = new JsonObject();
+        entry.addProperty("time", Instant.now().toString());
+        entry.addProperty("run", run);
+        entry.addProperty("event", type);
+        if (annotation != null) {
+            entry.addProperty("annotation", annotation);
+        }
+        return entry;
+    }
+
+    private synchronized void append(JsonObject entry) {
+        if (!channel.isOpen()) {
+            return;
+        }
+        ByteBuffer line = ByteBuffer.wrap((gson.toJson(entry) + "\n").getBytes(StandardCharsets.UTF_8));
+        try {
+            while (line.hasRemaining()) {
+                channel.write(line);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            logger.warn("Could not write acquisition journal {}: {}", file, e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.debug("Could not close acquisition journal {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Replays the journal of a sample folder.
+     *
+     * @param sampleFolder Sample folder holding the journal
+     * @return Runs in the order they were started, empty if there is no journal
+     * @throws IOException if the journal cannot be read
+     */
+    public static List<Run> read(Path sampleFolder) throws IOException {
+        Path file = sampleFolder.resolve(FILE_NAME);
+        if (!Files.exists(file)) {
+            return List.of();
+        }
+        Map<String, RunBuilder> runs = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            JsonObject entry;
+            try {
+                entry = JsonParser.parseString(line).getAsJsonObject();
+            } catch (RuntimeException e) {
+                logger.debug("Skipping unreadable journal line: {}", line);
+                continue;
+            }
+            String runId = string(entry, "run");
+            String type = string(entry, "event");
+            if (runId == null || type == null) {
+                continue;
+            }
+            if (type.equals("run_started")) {
+                runs.put(runId, new RunBuilder(entry));
+                continue;
+            }
+            RunBuilder run = runs.get(runId);
+            if (run != null) {
+                run.apply(type, entry);
+            }
+        }
+        return runs.values().stream().map(RunBuilder::build).toList();
+    }
+
+    /**
+     * Finds the most recent run that was neither completed nor abandoned.
+     *
+     * @param sampleFolder Sample folder holding the journal
+     * @return The run, or null if there is none
+     * @throws IOException if the journal cannot be read
+     */
+    public static Run lastUnfinishedRun(Path sampleFolder) throws IOException {
+        List<Run> runs = read(sampleFolder);
+        for (int i = runs.size() - 1; i >= 0; i--) {
+            Run run = runs.get(i);
+            if (!run.abandoned() && !run.isComplete()) {
+                return run;
+            }
+        }
+        return null;
+    }
+
+    private static String string(JsonObject entry, String key) {
+        JsonElement element = entry.get(key);
+        return element == null || element.isJsonNull() ? null : element.getAsString();
+    }
+
+    private static final class RunBuilder {
+        private final String run;
+        private final String tileDirectory;
+        private final List<String> angles = new ArrayList<>();
+        private final Map<String, AnnotationBuilder> annotations = new LinkedHashMap<>();
+        private boolean abandoned;
+
+        RunBuilder(JsonObject started) {
+            run = string(started, "run");
+            tileDirectory = string(started, "tile_directory");
+            if (started.get("angles") instanceof JsonArray array) {
+                array.forEach(e -> angles.add(e.getAsString()));
+            }
+            if (started.get("annotations") instanceof JsonArray array) {
+                array.forEach(e -> annotations.put(e.getAsString(), new AnnotationBuilder(e.getAsString())));
+            }
+        }
+
+        void apply(String type, JsonObject entry) {
+            switch (type) {
+                case "run_abandoned" -> abandoned = true;
+                case "run_resumed" -> abandoned = false;
+                default -> {
+                    String name = string(entry, "annotation");
+                    if (name != null) {
+                        annotations.computeIfAbsent(name, AnnotationBuilder::new).apply(type, entry);
+                    }
+                }
+            }
+        }
+
+        Run build() {
+            Map<String, AnnotationRecord> records = new LinkedHashMap<>();
+            annotations.forEach((name, a) -> records.put(name, a.build()));
+            return new Run(run, tileDirectory, List.copyOf(angles), records, abandoned);
+        }
+    }
+
+    private static final class AnnotationBuilder {
+        private final String name;
+        private String command;
+        private int filesReached;
+        private boolean acquired;
+        private Double finalZ;
+        private final Map<String, StitchState> stitching = new LinkedHashMap<>();
+
+        AnnotationBuilder(String name) {
+            this.name = name;
+        }
+
+        void apply(String type, JsonObject entry) {
+            switch (type) {
+                case "annotation_started" -> {
+                    // A new attempt: earlier results no longer describe the tiles on disk
+                    command = string(entry, "command");
+                    filesReached = 0;
+                    acquired = false;
+                    finalZ = null;
+                    stitching.clear();
+                }
+                case "progress" -> filesReached = Math.max(filesReached, entry.get("files").getAsInt());
+                case "annotation_acquired" -> {
+                    acquired = true;
+                    finalZ = entry.has("final_z") ? entry.get("final_z").getAsDouble() : null;
+                }
+                case "annotation_failed" -> acquired = false;
+                case "stitching" -> stitching.put(string(entry, "angle"), StitchState.valueOf(string(entry, "state")));
+                default -> logger.debug("Ignoring unknown journal event {}", type);
+            }
+        }
+
+        AnnotationRecord build() {
+            return new AnnotationRecord(name, command, filesReached, acquired, finalZ,
+                    Map.copyOf(stitching));
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package qupath.ext.qpsc.utilities;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qupath.ext.qpsc.modality.AngleExposure;
+import qupath.ext.qpsc.modality.ModalityRegistry;
+import qupath.ext.qpsc.modality.ppm.RotationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Simulates an acquisition without touching the microscope, for the estimates shown in the
+ * acquisition dialogs.
+ * <p>
+ * Tiles come from the same grid as the real acquisition ({@link TilingUtilities#computeTileGrid}),
+ * angles and exposures from the modality configuration, and stage, rotation, autofocus and
+ * camera times from the microscope configuration. The plan is pure arithmetic over the tile
+ * list, so it is cheap enough to recompute whenever a dialog field changes.
+ * <p>
+ * Optional configuration keys, with the defaults used when they are missing:
+ * <ul>
+ *   <li>{@code stage.speed_um_per_s} - XY stage speed (5000)</li>
+ *   <li>{@code stage.settle_ms} - settle time after each XY or Z move (50)</li>
+ *   <li>{@code modalities.<modality>.rotation_ms} - time per rotation stage move (300)</li>
+ *   <li>{@code id_detector.<detector>.readout_ms} - readout and save time per image (60)</li>
+ *   <li>{@code id_detector.<detector>.bit_depth} - bits per sample (8 for debayered color, else 16)</li>
+ * </ul>
+ * Recorded timing history ({@link AcquisitionTimingStore}) remains the better predictor for a
+ * profile once it exists; the plan is the fallback and the source of tile, image and storage counts.
+ */
+public final class AcquisitionPlanner {
+    private static final Logger logger = LoggerFactory.getLogger(AcquisitionPlanner.class);
+
+    static final double DEFAULT_STAGE_SPEED_UM_PER_S = 5000;
+    static final double DEFAULT_SETTLE_MS = 50;
+    static final double DEFAULT_ROTATION_MS = 300;
+    static final double DEFAULT_READOUT_MS = 60;
+    static final double DEFAULT_EXPOSURE_MS = 50;
+    static final int DEFAULT_AF_EVERY_N_TILES = 5;
+    static final int DEFAULT_AF_STEPS = 11;
+
+    /** Rotation managers by modality and hardware; the dialogs resolve angles on every field change */
+    private static final Map<String, RotationManager> rotationManagers = new ConcurrentHashMap<>();
+    /** Configurations whose reloads clear {@link #rotationManagers} */
+    private static final Set<MicroscopeConfigManager> watchedConfigs = ConcurrentHashMap.newKeySet();
+
+    private AcquisitionPlanner() {
+        // Static utility class
+    }
+
+    /**
+     * Timing and size model of the hardware used for an acquisition.
+     *
+     * @param frameWidthUm Field of view width in microns
+     * @param frameHeightUm Field of view height in microns
+     * @param bytesPerImage Uncompressed size of one saved image
+     * @param stageSpeedUmPerS XY stage speed; both axes move at once
+     * @param settleMs Settle time after each XY or Z move
+     * @param rotationMs Time per rotation stage move
+     * @param readoutMs Readout and save time per image, on top of the exposure
+     * @param afEveryNTiles Autofocus runs every this many tiles
+     * @param afSteps Z positions imaged per autofocus
+     */
+    public record Hardware(double frameWidthUm, double frameHeightUm, long bytesPerImage,
+                           double stageSpeedUmPerS, double settleMs, double rotationMs, double readoutMs,
+                           int afEveryNTiles, int afSteps) {
+
+        /**
+         * Reads the hardware model from the microscope configuration, using defaults for
+         * missing timing values.
+         *
+         * @param mgr Configuration manager
+         * @param modality Modality name
+         * @param objective Objective ID
+         * @param detector Detector ID
+         * @return The model, or null if the detector size or field of view is not configured
+         */
+        @SuppressWarnings("unchecked")
+        public static Hardware fromConfig(MicroscopeConfigManager mgr, String modality,
+                                          String objective, String detector) {
+            int[] dims = mgr.getDetectorDimensions(detector);
+            double[] fov = dims == null ? null : mgr.getModalityFOV(modality, objective, detector);
+            if (fov == null) {
+                return null;
+            }
+
+            Map<String, Object> detectorData = null;
+            Map<String, Object> detectors = mgr.getResourceSection("id_detector");
+            if (detectors != null && detectors.get(detector) instanceof Map<?, ?> data) {
+                detectorData = (Map<String, Object>) data;
+            }
+            boolean color = mgr.detectorRequiresDebayering(detector);
+            int bitDepth = (int) number(detectorData, "bit_depth", color ? 8 : 16);
+            long bytesPerImage = (long) dims[0] * dims[1] * (color ? 3 : 1) * ((bitDepth + 7) / 8);
+
+            int afEvery = DEFAULT_AF_EVERY_N_TILES;
+            int afSteps = DEFAULT_AF_STEPS;
+            Map<String, Object> af = mgr.getAutofocusParams(objective);
+            if (af != null) {
+                afEvery = (int) number(af, "n_tiles", afEvery);
+                afSteps = (int) number(af, "n_steps", afSteps);
+            }
+
+            return new Hardware(
+                    fov[0], fov[1], bytesPerImage,
+                    orDefault(mgr.getDouble("stage", "speed_um_per_s"), DEFAULT_STAGE_SPEED_UM_PER_S),
+                    orDefault(mgr.getDouble("stage", "settle_ms"), DEFAULT_SETTLE_MS),
+                    orDefault(mgr.getDouble("modalities", modality, "rotation_ms"), DEFAULT_ROTATION_MS),
+                    number(detectorData, "readout_ms", DEFAULT_READOUT_MS),
+                    Math.max(1, afEvery), Math.max(1, afSteps));
+        }
+    }
+
+    /**
+     * An area to tile, in stage microns.
+     *
+     * @param name Region name, for display
+     * @param x Left edge of the grid area
+     * @param y Top edge of the grid area
+     * @param width Width of the grid area
+     * @param height Height of the grid area
+     * @param tileFilter Tiles to keep, or null to keep the whole grid
+     */
+    public record Region(String name, double x, double y, double width, double height,
+                         Predicate<TilingUtilities.GridTile> tileFilter) {
+
+        /**
+         * @return A rectangular region with no tile filter
+         */
+        public static Region of(String name, double x, double y, double width, double height) {
+            return new Region(name, x, y, width, height, null);
+        }
+
+        /**
+         * Creates the region tiled for a bounding box acquisition, which is expanded by half a
+         * frame on every side so the corners are imaged in full.
+         *
+         * @param name Region name
+         * @param minX Left edge of the bounding box
+         * @param minY Top edge of the bounding box
+         * @param maxX Right edge of the bounding box
+         * @param maxY Bottom edge of the bounding box
+         * @param hardware Hardware model providing the frame size
+         * @return The expanded region
+         */
+        public static Region boundingBox(String name, double minX, double minY, double maxX, double maxY,
+                                         Hardware hardware) {
+            return of(name,
+                    minX - hardware.frameWidthUm() / 2.0,
+                    minY - hardware.frameHeightUm() / 2.0,
+                    Math.abs(maxX - minX) + hardware.frameWidthUm(),
+                    Math.abs(maxY - minY) + hardware.frameHeightUm());
+        }
+    }
+
+    /**
+     * Tile counts of one region.
+     *
+     * @param name Region name
+     * @param columns Grid columns
+     * @param rows Grid rows
+     * @param tiles Tiles kept after filtering
+     */
+    public record RegionPlan(String name, int columns, int rows, int tiles) {}
+
+    /**
+     * A simulated acquisition. Times are in milliseconds.
+     *
+     * @param regions Per-region tile counts
+     * @param tiles Total tiles
+     * @param angles Angles imaged at every tile
+     * @param totalImages Total images (tiles x angles)
+     * @param travelUm Total XY stage travel
+     * @param stageMs Stage moves and settling
+     * @param exposureMs Exposure plus readout of all images
+     * @param rotationMs Rotation stage moves
+     * @param autofocusMs Autofocus
+     * @param afPositions Autofocus positions of all regions, one every {@code afEveryNTiles} tiles
+     * @param bytes Uncompressed size of all images
+     */
+    public record Plan(List<RegionPlan> regions, int tiles, List<AngleExposure> angles, int totalImages,
+                       double travelUm, double stageMs, double exposureMs, double rotationMs,
+                       double autofocusMs, int afPositions, long bytes) {
+
+        /** @return Number of angles per tile */
+        public int angleCount() {
+            return angles.size();
+        }
+
+        /** @return Estimated duration in milliseconds */
+        public double totalMs() {
+            return stageMs + exposureMs + rotationMs + autofocusMs;
+        }
+
+        /** @return Estimated duration in seconds */
+        public double totalSeconds() {
+            return totalMs() / 1000.0;
+        }
+    }
+
+    /**
+     * Resolves the angles that would be acquired, without showing the angle selection dialog.
+     * Modalities without rotation yield a single image per tile at the configured exposure.
+     *
+     * @param mgr Configuration manager
+     * @param modality Modality name
+     * @param objective Objective ID
+     * @param detector Detector ID
+     * @param overrides Angle overrides from the modality UI, or null
+     * @return Angles with exposures; never empty
+     */
+    public static List<AngleExposure> resolveAngles(MicroscopeConfigManager mgr, String modality,
+                                                    String objective, String detector,
+                                                    Map<String, Double> overrides) {
+        List<AngleExposure> angles = rotationManager(mgr, modality, objective, detector)
+                .getDefaultAnglesWithExposure(modality)
+                .getNow(List.of());
+        if (!angles.isEmpty() && overrides != null && !overrides.isEmpty()) {
+            angles = ModalityRegistry.getHandler(modality).applyAngleOverrides(angles, overrides);
+        }
+        if (!angles.isEmpty()) {
+            return angles;
+        }
+
+        double exposure = DEFAULT_EXPOSURE_MS;
+        Map<String, Object> exposures = mgr.getModalityExposures(modality, objective, detector);
+        if (exposures != null) {
+            for (Object value : exposures.values()) {
+                if (value instanceof Number n && n.doubleValue() > 0) {
+                    exposure = n.doubleValue();
+                    break;
+                }
+            }
+        }
+        return List.of(new AngleExposure(0.0, exposure));
+    }
+
+    /**
+     * Returns the cached rotation manager for a modality and hardware. A manager reads its angles
+     * and exposures when it is built, so the cache is dropped when the configuration is reloaded.
+     */
+    private static RotationManager rotationManager(MicroscopeConfigManager mgr, String modality,
+                                                   String objective, String detector) {
+        if (watchedConfigs.add(mgr)) {
+            mgr.addChangeListener(event -> rotationManagers.clear());
+        }
+        return rotationManagers.computeIfAbsent(modality + "|" + objective + "|" + detector,
+                key -> new RotationManager(modality, objective, detector));
+    }
+
+    /**
+     * Simulates an acquisition.
+     *
+     * @param hardware Hardware model
+     * @param regions Areas to tile, in acquisition order
+     * @param overlapPercent Tile overlap
+     * @param angles Angles imaged at every tile
+     * @param invertX Whether the stage X axis is inverted
+     * @param invertY Whether the stage Y axis is inverted
+     * @return The plan
+     */
+    public static Plan plan(Hardware hardware, List<Region> regions, double overlapPercent,
+                            List<AngleExposure> angles, boolean invertX, boolean invertY) {
+        double exposurePerTile = 0;
+        double minExposure = Double.MAX_VALUE;
+        for (AngleExposure angle : angles) {
+            exposurePerTile += angle.exposureMs() + hardware.readoutMs();
+            minExposure = Math.min(minExposure, angle.exposureMs());
+        }
+        if (angles.isEmpty()) {
+            minExposure = DEFAULT_EXPOSURE_MS;
+        }
+        // Autofocus images at the shortest exposure, with a Z move before each image
+        double afMs = hardware.afSteps() * (minExposure + hardware.readoutMs() + hardware.settleMs());
+        int rotationsPerTile = angles.size() > 1 ? angles.size() : 0;
+
+        List<RegionPlan> regionPlans = new ArrayList<>(regions.size());
+        int tiles = 0;
+        int afPositions = 0;
+        double travel = 0;
+        double stageMs = 0;
+        double lastX = Double.NaN;
+        double lastY = Double.NaN;
+
+        for (Region region : regions) {
+            List<TilingUtilities.GridTile> grid = TilingUtilities.computeTileGrid(
+                    region.x(), region.y(), region.width(), region.height(),
+                    hardware.frameWidthUm(), hardware.frameHeightUm(), overlapPercent, invertX, invertY);
+            int columns = 0;
+            int rows = 0;
+            int kept = 0;
+            for (TilingUtilities.GridTile tile : grid) {
+                columns = Math.max(columns, tile.column() + 1);
+                rows = Math.max(rows, tile.row() + 1);
+                if (region.tileFilter() != null && !region.tileFilter().test(tile)) {
+                    continue;
+                }
+                double x = tile.centerX();
+                double y = tile.centerY();
+                if (!Double.isNaN(lastX)) {
+                    double dx = Math.abs(x - lastX);
+                    double dy = Math.abs(y - lastY);
+                    travel += Math.hypot(dx, dy);
+                    stageMs += Math.max(dx, dy) / hardware.stageSpeedUmPerS() * 1000.0 + hardware.settleMs();
+                }
+                lastX = x;
+                lastY = y;
+                kept++;
+            }
+            regionPlans.add(new RegionPlan(region.name(), columns, rows, kept));
+            tiles += kept;
+            afPositions += (kept + hardware.afEveryNTiles() - 1) / hardware.afEveryNTiles();
+        }
+
+        int totalImages = tiles * Math.max(1, angles.size());
+        logger.debug("Planned {} tiles in {} regions, {} images, {} um stage travel",
+                tiles, regions.size(), totalImages, Math.round(travel));
+        return new Plan(regionPlans, tiles, List.copyOf(angles), totalImages, travel, stageMs,
+                tiles * exposurePerTile,
+                (double) tiles * rotationsPerTile * hardware.rotationMs(),
+                afPositions * afMs,
+                afPositions,
+                totalImages * hardware.bytesPerImage());
+    }
+
+    private static double orDefault(Double value, double defaultValue) {
+        return value != null && value > 0 ? value : defaultValue;
+    }
+
+    private static double number(Map<String, Object> map, String key, double defaultValue) {
+        if (map != null && map.get(key) instanceof Number n && n.doubleValue() > 0) {
+            return n.doubleValue();
+        }
+        return defaultValue;
+    }
+}
@@ -0,0 +1,381 @@
+package qupath.ext.qpsc.utilities;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Process-wide latency and counter telemetry for acquisition workflows.
+ *
+ * <p>Two families of latency recorders are kept:</p>
+ * <ul>
+ *   <li><b>Commands</b> - one recorder per socket command sent by
+ *       {@link qupath.ext.qpsc.service.microscope.MicroscopeSocketClient} (round-trip time)</li>
+ *   <li><b>Phases</b> - one recorder per workflow phase (acknowledgment wait, per-image server
+ *       time, tile counting, stitching, project import, cleanup)</li>
+ * </ul>
+ *
+ * <p>Recorders are fixed-size log-linear histograms in the style of HdrHistogram: values are
+ * stored in microseconds with 64 sub-buckets per power of two, so percentiles are accurate to
+ * about 1.6% without retaining individual samples. Recording is lock-free and safe to call from
+ * the socket, monitoring and stitching threads.</p>
+ *
+ * <p>Workflows call {@link #writeReport(Path)} at the end of a run, which writes
+ * {@code timing_report.json} and {@code timing_report.csv} into the project folder next to
+ * {@code acquisition.log}. Runs don't reset the recorders, since stitching of the previous run
+ * may still be recording when the next one starts; the report covers everything since the last
+ * {@link #reset()}, which is done from {@link qupath.ext.qpsc.ui.TelemetryDialog}, where the
+ * current values can be viewed at any time.</p>
+ *
+ * @since 0.3.0
+ */
+public final class AcquisitionTelemetry {
+    private static final Logger logger = LoggerFactory.getLogger(AcquisitionTelemetry.class);
+
+    public static final String CATEGORY_COMMAND = "command";
+    public static final String CATEGORY_PHASE = "phase";
+
+    /** Wait for the server's STARTED acknowledgment after an ACQUIRE command */
+    public static final String PHASE_ACK_WAIT = "acquisition_ack_wait";
+    /** Server time per acquired image, measured from progress updates */
+    public static final String PHASE_SERVER_IMAGE = "server_image";
+    /** Total server acquisition time for one monitored acquisition */
+    public static final String PHASE_SERVER_ACQUISITION = "server_acquisition";
+    /** Reading TileConfiguration files including retry sleeps */
+    public static final String PHASE_TILE_COUNT = "tile_count_retry";
+    /** Disk space and write throughput check before acquisition */
+    public static final String PHASE_STORAGE_PREFLIGHT = "storage_preflight";
+    /** Client-side flat-field correction of one region's tiles */
+    public static final String PHASE_FLAT_FIELD = "flat_field";
+    /** Stitching of one tile set into a pyramid */
+    public static final String PHASE_STITCHING = "stitching";
+    /** Computing and writing one derived image (e.g. birefringence) from stitched angle images */
+    public static final String PHASE_DERIVED_IMAGE = "derived_image";
+    /** Adding one image to the QuPath project */
+    public static final String PHASE_PROJECT_IMPORT = "project_import";
+    /** Deleting or archiving temporary tiles */
+    public static final String PHASE_CLEANUP = "cleanup";
+
+    public static final String COUNTER_RECONNECT_ATTEMPTS = "reconnect_attempts";
+    public static final String COUNTER_RECONNECTS = "reconnects";
+    public static final String COUNTER_TIMEOUTS = "timeouts";
+    public static final String COUNTER_HEALTH_CHECK_FAILURES = "health_check_failures";
+
+    public static final String REPORT_JSON = "timing_report.json";
+    public static final String REPORT_CSV = "timing_report.csv";
+
+    private static final AcquisitionTelemetry INSTANCE = new AcquisitionTelemetry();
+
+    private final Map<String, LatencyHistogram> commands = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> phases = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private volatile long startedAtMs = System.currentTimeMillis();
+
+    AcquisitionTelemetry() {
+    }
+
+    /**
+     * @return The shared telemetry instance
+     */
+    public static AcquisitionTelemetry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Records the round-trip time of a socket command.
+     *
+     * @param command Command name (e.g. "GETXY")
+     * @param nanos Elapsed time in nanoseconds
+     */
+    public void recordCommand(String command, long nanos) {
+        commands.computeIfAbsent(command, k -> new LatencyHistogram()).recordNanos(nanos);
+    }
+
+    /**
+     * Records the duration of one occurrence of a workflow phase.
+     *
+     * @param phase Phase name, normally one of the {@code PHASE_*} constants
+     * @param nanos Elapsed time in nanoseconds
+     */
+    public void recordPhase(String phase, long nanos) {
+        phases.computeIfAbsent(phase, k -> new LatencyHistogram()).recordNanos(nanos);
+    }
+
+    /**
+     * Starts timing a workflow phase. Use with try-with-resources:
+     * <pre>{@code
+     * try (var t = AcquisitionTelemetry.getInstance().startPhase(AcquisitionTelemetry.PHASE_STITCHING)) {
+     *     // stitch
+     * }
+     * }</pre>
+     *
+     * @param phase Phase name
+     * @return Timer that records the elapsed time when closed
+     */
+    public Timer startPhase(String phase) {
+        return new Timer(phase);
+    }
+
+    /**
+     * Increments a named counter.
+     *
+     * @param counter Counter name, normally one of the {@code COUNTER_*} constants
+     */
+    public void increment(String counter) {
+        counters.computeIfAbsent(counter, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * @param counter Counter name
+     * @return Current counter value, 0 if never incremented
+     */
+    public long getCounter(String counter) {
+        AtomicLong value = counters.get(counter);
+        return value == null ? 0 : value.get();
+    }
+
+    /**
+     * @return Snapshot of all counters, sorted by name
+     */
+    public Map<String, Long> getCounters() {
+        Map<String, Long> result = new TreeMap<>();
+        counters.forEach((k, v) -> result.put(k, v.get()));
+        return result;
+    }
+
+    /**
+     * Returns summaries for all recorders that have at least one value, phases first.
+     *
+     * @return Immutable list of summaries
+     */
+    public List<LatencySummary> snapshot() {
+        List<LatencySummary> result = new ArrayList<>();
+        addSummaries(result, CATEGORY_PHASE, phases);
+        addSummaries(result, CATEGORY_COMMAND, commands);
+        return Collections.unmodifiableList(result);
+    }
+
+    private static void addSummaries(List<LatencySummary> out, String category, Map<String, LatencyHistogram> map) {
+        new TreeMap<>(map).forEach((name, histogram) -> {
+            if (histogram.getCount() > 0) {
+                out.add(histogram.summarize(category, name));
+            }
+        });
+    }
+
+    /**
+     * Clears all recorders and counters, so later reports start from now.
+     */
+    public void reset() {
+        commands.clear();
+        phases.clear();
+        counters.clear();
+        startedAtMs = System.currentTimeMillis();
+        logger.debug("Acquisition telemetry reset");
+    }
+
+    /**
+     * Writes {@value #REPORT_JSON} and {@value #REPORT_CSV} into the given directory,
+     * replacing any previous report.
+     *
+     * @param directory Project folder (the folder containing {@code acquisition.log})
+     * @throws IOException if either file cannot be written
+     */
+    public void writeReport(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        List<LatencySummary> summaries = snapshot();
+        Map<String, Long> counterSnapshot = getCounters();
+        DateTimeFormatter fmt = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("started", LocalDateTime.ofInstant(
+                java.time.Instant.ofEpochMilli(startedAtMs), java.time.ZoneId.systemDefault()).format(fmt));
+        report.put("written", LocalDateTime.now().format(fmt));
+        report.put("counters", counterSnapshot);
+        report.put("latencies", summaries);
+
+        Gson gson = new GsonBuilder().setPrettyPrinting().serializeSpecialFloatingPointValues().create();
+        Files.writeString(directory.resolve(REPORT_JSON), gson.toJson(report), StandardCharsets.UTF_8);
+
+        try (BufferedWriter writer = Files.newBufferedWriter(directory.resolve(REPORT_CSV), StandardCharsets.UTF_8)) {
+            writer.write("category,name,count,p50_ms,p95_ms,p99_ms,max_ms,mean_ms,total_ms");
+            writer.newLine();
+            for (LatencySummary s : summaries) {
+                writer.write(String.format(Locale.ROOT, "%s,%s,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f",
+                        s.category(), csv(s.name()), s.count(), s.p50Ms(), s.p95Ms(), s.p99Ms(),
+                        s.maxMs(), s.meanMs(), s.totalMs()));
+                writer.newLine();
+            }
+            for (Map.Entry<String, Long> e : counterSnapshot.entrySet()) {
+                writer.write("counter," + csv(e.getKey()) + "," + e.getValue() + ",,,,,,");
+                writer.newLine();
+            }
+        }
+        logger.info("Wrote timing report ({} recorders, {} counters) to {}",
+                summaries.size(), counterSnapshot.size(), directory);
+    }
+
+    private static String csv(String value) {
+        if (value.contains(",") || value.contains("\"")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    /**
+     * Summary of one latency recorder. All times are in milliseconds.
+     */
+    public record LatencySummary(String category, String name, long count,
+                                 double p50Ms, double p95Ms, double p99Ms,
+                                 double maxMs, double meanMs, double totalMs) {
+    }
+
+    /**
+     * Auto-closeable phase timer returned by {@link #startPhase(String)}.
+     */
+    public final class Timer implements AutoCloseable {
+        private final String phase;
+        private final long startNanos = System.nanoTime();
+        private boolean closed;
+
+        private Timer(String phase) {
+            this.phase = phase;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                recordPhase(phase, System.nanoTime() - startNanos);
+            }
+        }
+    }
+
+    /**
+     * Fixed-size log-linear latency histogram.
+     *
+     * <p>Values below 128 µs are stored exactly. Larger values are stored in buckets whose
+     * width is 1/64 of their power-of-two range, giving a worst-case relative error of about
+     * 1.6%. Values above ~2.4 hours share the top bucket; the exact maximum is tracked
+     * separately.</p>
+     */
+    public static final class LatencyHistogram {
+        private static final int SUB_BUCKET_BITS = 7;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;        // 128
+        private static final int HALF_SUB_BUCKETS = SUB_BUCKETS >> 1;      // 64
+        private static final int MAX_SHIFT = 26;                           // ~2^33 µs
+        private static final int BUCKET_COUNT = SUB_BUCKETS + MAX_SHIFT * HALF_SUB_BUCKETS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalMicros = new AtomicLong();
+        private final AtomicLong maxMicros = new AtomicLong();
+
+        /**
+         * Records a value given in nanoseconds. Negative values are recorded as zero.
+         *
+         * @param nanos Elapsed time in nanoseconds
+         */
+        public void recordNanos(long nanos) {
+            recordMicros(TimeUnit.NANOSECONDS.toMicros(Math.max(0, nanos)));
+        }
+
+        /**
+         * Records a value given in microseconds.
+         *
+         * @param micros Elapsed time in microseconds
+         */
+        public void recordMicros(long micros) {
+            long value = Math.max(0, micros);
+            counts.incrementAndGet(indexFor(value));
+            count.incrementAndGet();
+            totalMicros.addAndGet(value);
+            maxMicros.accumulateAndGet(value, Math::max);
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getMaxMicros() {
+            return maxMicros.get();
+        }
+
+        public double getMeanMicros() {
+            long n = count.get();
+            return n == 0 ? 0 : (double) totalMicros.get() / n;
+        }
+
+        /**
+         * Returns the value at the given percentile, as the highest value equivalent to the
+         * bucket containing that rank (never larger than the recorded maximum).
+         *
+         * @param percentile Percentile in [0, 100]
+         * @return Value in microseconds, 0 if empty
+         */
+        public long getValueAtPercentile(double percentile) {
+            long total = count.get();
+            if (total == 0) {
+                return 0;
+            }
+            double p = Math.min(100.0, Math.max(0.0, percentile));
+            long target = Math.max(1, (long) Math.ceil(p / 100.0 * total));
+            long cumulative = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                cumulative += counts.get(i);
+                if (cumulative >= target) {
+                    if (i == BUCKET_COUNT - 1) {
+                        return maxMicros.get();
+                    }
+                    return Math.min(highestEquivalentValue(i), maxMicros.get());
+                }
+            }
+            return maxMicros.get();
+        }
+
+        LatencySummary summarize(String category, String name) {
+            return new LatencySummary(category, name, getCount(),
+                    getValueAtPercentile(50) / 1000.0,
+                    getValueAtPercentile(95) / 1000.0,
+                    getValueAtPercentile(99) / 1000.0,
+                    getMaxMicros() / 1000.0,
+                    getMeanMicros() / 1000.0,
+                    totalMicros.get() / 1000.0);
+        }
+
+        static int indexFor(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int shift = (63 - Long.numberOfLeadingZeros(value)) - (SUB_BUCKET_BITS - 1);
+            if (shift > MAX_SHIFT) {
+                return BUCKET_COUNT - 1;
+            }
+            int sub = (int) (value >>> shift) - HALF_SUB_BUCKETS;
+            return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + sub;
+        }
+
+        static long highestEquivalentValue(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int shift = (index - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+            long sub = (index - SUB_BUCKETS) % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+            return ((sub + 1) << shift) - 1;
+        }
+    }
+}
@@ -0,0 +1,529 @@
+package qupath.ext.qpsc.utilities;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * Persistent store of acquisition timing distributions, keyed by hardware profile.
+ *
+ * <p>Each profile (modality, objective, detector, angle count, autofocus settings) keeps
+ * bounded sample distributions for three timing components rather than a single average:</p>
+ * <ul>
+ *   <li><b>Base image time</b> - one image without autofocus (stage move + exposure + save)</li>
+ *   <li><b>Adaptive AF added time</b> - extra time for images where adaptive autofocus ran</li>
+ *   <li><b>Full AF added time</b> - extra time for the first image of each annotation</li>
+ * </ul>
+ *
+ * <p>Distributions are updated after every run from the raw per-image durations and are
+ * used for both pre-run estimates in the acquisition dialogs and the live ETA in
+ * {@link qupath.ext.qpsc.ui.DualProgressDialog}. Estimates carry a 95% confidence interval
+ * derived from the sample variance.</p>
+ *
+ * <p>The store is saved as {@code acquisition_timing.json} next to the microscope
+ * configuration, so switching objectives no longer discards history for the previous one.</p>
+ *
+ * @since 0.3.0
+ */
+public class AcquisitionTimingStore {
+    private static final Logger logger = LoggerFactory.getLogger(AcquisitionTimingStore.class);
+    private static final String TIMING_FILE = "acquisition_timing.json";
+
+    /** Maximum samples retained per distribution; older samples are discarded first */
+    static final int MAX_SAMPLES = 1000;
+
+    /** z-score for the two-sided 95% confidence interval */
+    private static final double Z_95 = 1.96;
+
+    private static AcquisitionTimingStore instance;
+
+    private final Path storePath;
+    private final Map<String, TimingProfile> profiles;
+    private final Gson gson;
+
+    /**
+     * Creates a timing store backed by a file in the given directory.
+     *
+     * @param configDirectory Directory containing the microscope configuration files
+     */
+    public AcquisitionTimingStore(String configDirectory) {
+        this.storePath = Paths.get(configDirectory, TIMING_FILE);
+        this.gson = new GsonBuilder().setPrettyPrinting().create();
+        this.profiles = loadProfiles();
+        logger.info("Loaded {} timing profiles from {}", profiles.size(), storePath);
+    }
+
+    /**
+     * Returns the shared store for the given microscope configuration file.
+     * The store is re-created if the configuration directory changes.
+     *
+     * @param configFileLocation Path to the microscope YAML configuration
+     * @return Shared AcquisitionTimingStore instance
+     */
+    public static synchronized AcquisitionTimingStore getInstance(String configFileLocation) {
+        String configDir = new File(configFileLocation).getAbsoluteFile().getParent();
+        if (instance == null || !instance.storePath.getParent().toString().equals(configDir)) {
+            instance = new AcquisitionTimingStore(configDir);
+        }
+        return instance;
+    }
+
+    // ==================== Profile key ====================
+
+    /**
+     * Identifies a hardware/acquisition profile for timing purposes.
+     *
+     * @param modality Base modality name (e.g., "ppm")
+     * @param objective Objective ID
+     * @param detector Detector ID
+     * @param angleCount Number of images per tile position
+     * @param autofocusSignature Compact description of the autofocus settings
+     */
+    public record ProfileKey(String modality, String objective, String detector,
+                             int angleCount, String autofocusSignature) {
+
+        /**
+         * Builds a key from explicit autofocus parameters.
+         */
+        public static ProfileKey of(String modality, String objective, String detector,
+                                    int angleCount, int afTiles, int afSteps, double afRange) {
+            String af = String.format(Locale.US, "tiles=%d,steps=%d,range=%.1f", afTiles, afSteps, afRange);
+            return new ProfileKey(modality, objective, detector, Math.max(1, angleCount), af);
+        }
+
+        /**
+         * Builds a key using the autofocus settings configured for the objective.
+         * Falls back to the same defaults as {@link AcquisitionConfigurationBuilder}.
+         */
+        public static ProfileKey forHardware(MicroscopeConfigManager configManager, String modality,
+                                             String objective, String detector, int angleCount) {
+            int afTiles = 5;
+            int afSteps = 11;
+            double afRange = 50.0;
+            Map<String, Object> afParams = configManager != null ? configManager.getAutofocusParams(objective) : null;
+            if (afParams != null) {
+                if (afParams.get("n_tiles") instanceof Number n) afTiles = n.intValue();
+                if (afParams.get("n_steps") instanceof Number n) afSteps = n.intValue();
+                if (afParams.get("search_range_um") instanceof Number n) afRange = n.doubleValue();
+            }
+            return of(modality, objective, detector, angleCount, afTiles, afSteps, afRange);
+        }
+
+        /**
+         * @return Stable string used as the key in the persisted JSON
+         */
+        public String id() {
+            return modality + "|" + objective + "|" + detector + "|" + angleCount + "|" + autofocusSignature;
+        }
+    }
+
+    // ==================== Distributions ====================
+
+    /**
+     * Bounded sample distribution of durations in milliseconds.
+     * Keeps the most recent {@link #MAX_SAMPLES} samples.
+     */
+    public static class SampleDistribution {
+        private final List<Long> samples = new ArrayList<>();
+
+        public synchronized void add(long valueMs) {
+            samples.add(valueMs);
+            while (samples.size() > MAX_SAMPLES) {
+                samples.remove(0);
+            }
+        }
+
+        public synchronized void addAll(Collection<Long> values) {
+            values.forEach(this::add);
+        }
+
+        public synchronized int count() {
+            return samples.size();
+        }
+
+        public synchronized double mean() {
+            return samples.stream().mapToLong(Long::longValue).average().orElse(0);
+        }
+
+        /**
+         * @return Sample variance (n-1 denominator), or 0 with fewer than two samples
+         */
+        public synchronized double variance() {
+            int n = samples.size();
+            if (n < 2) {
+                return 0;
+            }
+            double mean = mean();
+            double sumSq = 0;
+            for (long s : samples) {
+                sumSq += (s - mean) * (s - mean);
+            }
+            return sumSq / (n - 1);
+        }
+
+        /**
+         * @param p Percentile in [0, 100]
+         * @return Nearest-rank percentile, or 0 if empty
+         */
+        public synchronized long percentile(double p) {
+            if (samples.isEmpty()) {
+                return 0;
+            }
+            List<Long> sorted = new ArrayList<>(samples);
+            Collections.sort(sorted);
+            int rank = (int) Math.ceil(p / 100.0 * sorted.size());
+            return sorted.get(Math.min(sorted.size() - 1, Math.max(0, rank - 1)));
+        }
+
+        synchronized List<Long> snapshot() {
+            return new ArrayList<>(samples);
+        }
+    }
+
+    /**
+     * Timing distributions for a single hardware profile.
+     */
+    public static class TimingProfile {
+        private final SampleDistribution baseImage = new SampleDistribution();
+        private final SampleDistribution adaptiveAf = new SampleDistribution();
+        private final SampleDistribution fullAf = new SampleDistribution();
+        private int runs;
+        private String lastUpdated;
+
+        public SampleDistribution getBaseImage() { return baseImage; }
+        public SampleDistribution getAdaptiveAf() { return adaptiveAf; }
+        public SampleDistribution getFullAf() { return fullAf; }
+        public int getRuns() { return runs; }
+        public String getLastUpdated() { return lastUpdated; }
+
+        /**
+         * @return true if there are enough base samples to produce an estimate
+         */
+        public boolean isUsable() {
+            return baseImage.count() >= 5;
+        }
+
+        /**
+         * Builds a profile from the raw per-image durations of a single run.
+         *
+         * @param durations Per-image durations in acquisition order
+         * @return Profile containing the separated timing components
+         */
+        public static TimingProfile fromDurations(List<TileDuration> durations) {
+            TimingProfile profile = new TimingProfile();
+            profile.addRun(durations);
+            return profile;
+        }
+
+        /**
+         * Separates the raw durations into timing components and adds them.
+         *
+         * <p>The first image of each annotation is treated as the full autofocus image.
+         * The remaining images are split using the same threshold as the live estimator:
+         * anything above max(2 x lower quartile, 1.5 x median) is treated as adaptive AF.</p>
+         */
+        void addRun(List<TileDuration> durations) {
+            if (durations == null || durations.isEmpty()) {
+                return;
+            }
+            List<Long> regular = new ArrayList<>();
+            List<Long> firstImages = new ArrayList<>();
+            for (TileDuration d : durations) {
+                if (d.indexInAnnotation() == 1) {
+                    firstImages.add(d.durationMs());
+                } else {
+                    regular.add(d.durationMs());
+                }
+            }
+            if (regular.isEmpty()) {
+                return;
+            }
+
+            List<Long> sorted = new ArrayList<>(regular);
+            Collections.sort(sorted);
+            long base = sorted.get(sorted.size() / 4);
+            long median = sorted.get(sorted.size() / 2);
+            long afThreshold = Math.max(base * 2, median + median / 2);
+
+            for (long t : regular) {
+                if (t > afThreshold) {
+                    adaptiveAf.add(t - base);
+                } else {
+                    baseImage.add(t);
+                }
+            }
+            for (long t : firstImages) {
+                fullAf.add(Math.max(0, t - base));
+            }
+            runs++;
+            lastUpdated = LocalDateTime.now().toString();
+        }
+    }
+
+    /**
+     * Raw duration of a single acquired image.
+     *
+     * @param annotationName Annotation (region) the image belongs to
+     * @param indexInAnnotation 1-based index of the image within its annotation
+     * @param durationMs Time since the previous image completed, excluding manual focus pauses
+     * @param completedAtMs Wall clock time the image was reported complete
+     */
+    public record TileDuration(String annotationName, int indexInAnnotation, long durationMs, long completedAtMs) {}
+
+    /**
+     * Collects per-image durations from progress callbacks for workflows that do not use
+     * {@link qupath.ext.qpsc.ui.DualProgressDialog}. Thread-safe.
+     */
+    public static class RunRecorder {
+        private final String annotationName;
+        private final List<TileDuration> durations = new ArrayList<>();
+        private long lastCompletionMs = System.currentTimeMillis();
+        private int lastCount = 0;
+
+        /**
+         * @param annotationName Name of the region being acquired
+         */
+        public RunRecorder(String annotationName) {
+            this.annotationName = annotationName;
+        }
+
+        /**
+         * Records completed images from a cumulative progress count.
+         *
+         * @param completed Cumulative number of images completed
+         */
+        public synchronized void onProgress(int completed) {
+            if (completed <= lastCount) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            long perImage = (now - lastCompletionMs) / (completed - lastCount);
+            for (int i = lastCount + 1; i <= completed; i++) {
+                durations.add(new TileDuration(annotationName, i, perImage, now));
+            }
+            lastCount = completed;
+            lastCompletionMs = now;
+        }
+
+        /**
+         * @return Copy of the recorded durations
+         */
+        public synchronized List<TileDuration> getDurations() {
+            return new ArrayList<>(durations);
+        }
+    }
+
+    /**
+     * Time estimate with a 95% confidence interval.
+     *
+     * @param expectedMs Expected duration
+     * @param lowerMs Lower bound of the 95% interval
+     * @param upperMs Upper bound of the 95% interval
+     * @param runs Number of previous runs the estimate is based on (0 for live-only data)
+     */
+    public record Estimate(long expectedMs, long lowerMs, long upperMs, int runs) {}
+
+    // ==================== Estimation ====================
+
+    /**
+     * Estimates the time to acquire the given work with a profile's distributions.
+     *
+     * <p>Each component contributes n x mean to the expectation. The variance combines the
+     * per-image spread (n x var) with the uncertainty of the mean itself (n^2 x var / samples),
+     * so small histories produce wide intervals.</p>
+     *
+     * @param profile Timing distributions to use
+     * @param images Number of images to acquire
+     * @param adaptiveAfOps Number of adaptive autofocus operations
+     * @param fullAfOps Number of full autofocus operations
+     * @return Estimate, or null if the profile has insufficient data
+     */
+    public static Estimate estimate(TimingProfile profile, int images, int adaptiveAfOps, int fullAfOps) {
+        if (profile == null || !profile.isUsable()) {
+            return null;
+        }
+        double expected = 0;
+        double variance = 0;
+
+        double[] parts = component(profile.baseImage, images, 500);
+        expected += parts[0];
+        variance += parts[1];
+        parts = component(profile.adaptiveAf, adaptiveAfOps, 1000);
+        expected += parts[0];
+        variance += parts[1];
+        parts = component(profile.fullAf, fullAfOps, 2000);
+        expected += parts[0];
+        variance += parts[1];
+
+        double halfWidth = Z_95 * Math.sqrt(variance);
+        return new Estimate(
+                Math.round(expected),
+                Math.round(Math.max(0, expected - halfWidth)),
+                Math.round(expected + halfWidth),
+                profile.runs);
+    }
+
+    /**
+     * Returns [expected, variance] for n operations of one component.
+     * Falls back to a minimum mean and a 50% relative spread if the component has no samples.
+     */
+    private static double[] component(SampleDistribution dist, int n, long fallbackMeanMs) {
+        if (n <= 0) {
+            return new double[] {0, 0};
+        }
+        int samples = dist.count();
+        if (samples == 0) {
+            double spread = fallbackMeanMs * 0.5;
+            return new double[] {n * (double) fallbackMeanMs, (double) n * n * spread * spread};
+        }
+        double mean = dist.mean();
+        double var = dist.variance();
+        if (samples < 2) {
+            var = (mean * 0.5) * (mean * 0.5);
+        }
+        return new double[] {n * mean, n * var + (double) n * n * var / samples};
+    }
+
+    /**
+     * Estimates a complete acquisition for a stored profile.
+     *
+     * @param key Hardware profile
+     * @param totalImages Total images (tiles x angles) across all annotations
+     * @param afPositionsPerAnnotation Autofocus positions per annotation (first is full AF)
+     * @param numAnnotations Number of annotations
+     * @return Estimate, or null if no usable history exists for this profile
+     */
+    public Estimate estimateAcquisition(ProfileKey key, int totalImages, int afPositionsPerAnnotation, int numAnnotations) {
+        int adaptive = Math.max(0, afPositionsPerAnnotation - 1) * numAnnotations;
+        return estimate(getProfile(key), totalImages, adaptive, numAnnotations);
+    }
+
+    // ==================== Store access ====================
+
+    /**
+     * @param key Hardware profile
+     * @return The stored profile, or null if no runs have been recorded for it
+     */
+    public synchronized TimingProfile getProfile(ProfileKey key) {
+        return key == null ? null : profiles.get(key.id());
+    }
+
+    /**
+     * @return Unmodifiable view of all stored profile IDs
+     */
+    public synchronized Set<String> getProfileIds() {
+        return Collections.unmodifiableSet(new TreeSet<>(profiles.keySet()));
+    }
+
+    /**
+     * Adds the raw durations of a completed run to the profile and persists the store.
+     *
+     * @param key Hardware profile used for the run
+     * @param durations Per-image durations in acquisition order
+     */
+    public synchronized void recordRun(ProfileKey key, List<TileDuration> durations) {
+        if (key == null || durations == null || durations.size() < 5) {
+            logger.debug("Not recording timing run for {} - insufficient data", key);
+            return;
+        }
+        TimingProfile profile = profiles.computeIfAbsent(key.id(), k -> new TimingProfile());
+        profile.addRun(durations);
+        persist();
+        logger.info("Recorded timing run for {}: {} images, base p50={}ms p95={}ms ({} runs)",
+                key.id(), durations.size(), profile.baseImage.percentile(50),
+                profile.baseImage.percentile(95), profile.runs);
+    }
+
+    /**
+     * Removes all stored timing history.
+     */
+    public synchronized void clear() {
+        profiles.clear();
+        persist();
+    }
+
+    /**
+     * Writes raw per-image durations as CSV for offline analysis.
+     *
+     * @param outputFile Destination CSV file
+     * @param key Hardware profile used for the run (written to every row)
+     * @param durations Per-image durations
+     * @throws IOException if the file cannot be written
+     */
+    public static void exportDurationsCsv(Path outputFile, ProfileKey key, List<TileDuration> durations)
+            throws IOException {
+        Files.createDirectories(outputFile.getParent());
+        try (BufferedWriter writer = Files.newBufferedWriter(outputFile, StandardCharsets.UTF_8)) {
+            writer.write("annotation,index,duration_ms,completed_at_ms,modality,objective,detector,angles,autofocus");
+            writer.newLine();
+            for (TileDuration d : durations) {
+                writer.write(String.join(",",
+                        csv(d.annotationName()),
+                        String.valueOf(d.indexInAnnotation()),
+                        String.valueOf(d.durationMs()),
+                        String.valueOf(d.completedAtMs()),
+                        csv(key.modality()),
+                        csv(key.objective()),
+                        csv(key.detector()),
+                        String.valueOf(key.angleCount()),
+                        csv(key.autofocusSignature())));
+                writer.newLine();
+            }
+        }
+        logger.info("Exported {} per-image durations to {}", durations.size(), outputFile);
+    }
+
+    /**
+     * Builds a timestamped file name for a duration export.
+     */
+    public static String timestampedExportName() {
+        return "tile_timings_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".csv";
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    private Map<String, TimingProfile> loadProfiles() {
+        if (!Files.exists(storePath)) {
+            return new LinkedHashMap<>();
+        }
+        try {
+            String json = Files.readString(storePath);
+            var type = new TypeToken<LinkedHashMap<String, TimingProfile>>(){}.getType();
+            Map<String, TimingProfile> loaded = gson.fromJson(json, type);
+            return loaded != null ? loaded : new LinkedHashMap<>();
+        } catch (Exception e) {
+            logger.error("Failed to load timing profiles from {}", storePath, e);
+            return new LinkedHashMap<>();
+        }
+    }
+
+    private void persist() {
+        try {
+            Files.writeString(storePath, gson.toJson(profiles));
+            logger.debug("Persisted {} timing profiles to {}", profiles.size(), storePath);
+        } catch (IOException e) {
+            logger.error("Failed to persist timing profiles to {}", storePath, e);
+        }
+    }
+}
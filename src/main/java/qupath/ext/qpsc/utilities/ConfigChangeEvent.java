@@ -0,0 +1,286 @@
+package qupath.ext.qpsc.utilities;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Describes what changed between two loaded versions of the microscope configuration.
+ *
+ * <p>Emitted by {@link MicroscopeConfigManager} after a reload has been published. Each
+ * {@link Change} carries the file it came from, the key path, the old and new values, and a
+ * {@link Kind} so that listeners can invalidate only what depends on the change, e.g.</p>
+ * <pre>{@code
+ * configManager.addChangeListener(event -> {
+ *     if (event.affects(ConfigChangeEvent.Kind.PIXEL_SIZE, ConfigChangeEvent.Kind.DETECTOR)) {
+ *         fovCache.clear();
+ *     }
+ * });
+ * }</pre>
+ *
+ * <p>Paths are flattened to leaf values. List elements that are maps with an {@code id} key are
+ * addressed by that ID rather than by position, so that
+ * {@code hardware.objectives.LOCI_OBJECTIVE_OLYMPUS_20X_POL_001.pixel_size_xy_um.LOCI_DETECTOR_JAI_001}
+ * names the pixel size of one objective/detector pair regardless of list order. Other list
+ * elements are addressed as {@code [index]}.</p>
+ */
+public final class ConfigChangeEvent {
+
+    /** Configuration file a change was read from */
+    public enum Source {
+        /** Main microscope configuration (config_{microscope}.yml) */
+        CONFIG,
+        /** Shared hardware resources (resources/resources_LOCI.yml) */
+        RESOURCES,
+        /** External autofocus settings (autofocus_{microscope}.yml), keyed by objective */
+        AUTOFOCUS,
+        /** External imaging profiles and background correction (imageprocessing_{microscope}.yml) */
+        IMAGEPROCESSING
+    }
+
+    /** What a change affects, for cache invalidation */
+    public enum Kind {
+        /** hardware.objectives.*.pixel_size_xy_um */
+        PIXEL_SIZE,
+        /** Detector definitions in resources (dimensions affect field of view) */
+        DETECTOR,
+        /** Other hardware definitions */
+        HARDWARE,
+        /** stage.* (limits, inserts) */
+        STAGE,
+        /** modalities.* */
+        MODALITY,
+        /** Per-objective autofocus parameters */
+        AUTOFOCUS,
+        /** Exposure, gain and white balance profiles */
+        IMAGING_PROFILE,
+        /** Background correction settings */
+        BACKGROUND_CORRECTION,
+        /** Anything else */
+        OTHER
+    }
+
+    /**
+     * A single changed leaf value.
+     *
+     * @param source File the value was read from
+     * @param kind What the change affects
+     * @param path Key path to the value
+     * @param oldValue Previous value, or null if the path was added
+     * @param newValue New value, or null if the path was removed
+     */
+    public record Change(Source source, Kind kind, List<String> path, Object oldValue, Object newValue) {
+
+        public boolean isAdded() {
+            return oldValue == null;
+        }
+
+        public boolean isRemoved() {
+            return newValue == null;
+        }
+
+        /**
+         * @param prefix Leading path segments
+         * @return true if this change is at or below the given path
+         */
+        public boolean isUnder(String... prefix) {
+            if (prefix.length > path.size()) {
+                return false;
+            }
+            for (int i = 0; i < prefix.length; i++) {
+                if (!prefix[i].equals(path.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            String where = String.join(".", path);
+            if (kind == Kind.PIXEL_SIZE && path.size() == 5) {
+                where = "pixel size for " + path.get(2) + " with " + path.get(4);
+            }
+            if (isAdded()) {
+                return where + " added (" + newValue + ")";
+            }
+            if (isRemoved()) {
+                return where + " removed (was " + oldValue + ")";
+            }
+            return where + " changed from " + oldValue + " to " + newValue;
+        }
+    }
+
+    private final String configPath;
+    private final List<Change> changes;
+
+    ConfigChangeEvent(String configPath, List<Change> changes) {
+        this.configPath = configPath;
+        this.changes = List.copyOf(changes);
+    }
+
+    /**
+     * Compares two versions of the configuration files.
+     *
+     * @param configPath Path of the main configuration file
+     * @param before Previous contents, one map per source
+     * @param after New contents, one map per source
+     * @return Event listing every changed leaf value (possibly none)
+     */
+    static ConfigChangeEvent diff(String configPath, Map<Source, ? extends Map<String, ?>> before,
+                                  Map<Source, ? extends Map<String, ?>> after) {
+        List<Change> changes = new ArrayList<>();
+        for (Source source : Source.values()) {
+            Map<List<String>, Object> oldLeaves = flatten(before.get(source));
+            Map<List<String>, Object> newLeaves = flatten(after.get(source));
+            for (Map.Entry<List<String>, Object> e : oldLeaves.entrySet()) {
+                Object newValue = newLeaves.get(e.getKey());
+                if (!Objects.equals(e.getValue(), newValue)) {
+                    changes.add(new Change(source, classify(source, e.getKey()), e.getKey(), e.getValue(), newValue));
+                }
+            }
+            for (Map.Entry<List<String>, Object> e : newLeaves.entrySet()) {
+                if (!oldLeaves.containsKey(e.getKey())) {
+                    changes.add(new Change(source, classify(source, e.getKey()), e.getKey(), null, e.getValue()));
+                }
+            }
+        }
+        return new ConfigChangeEvent(configPath, changes);
+    }
+
+    private static Map<List<String>, Object> flatten(Map<String, ?> data) {
+        Map<List<String>, Object> leaves = new LinkedHashMap<>();
+        if (data != null) {
+            flatten(new ArrayList<>(), data, leaves);
+        }
+        return leaves;
+    }
+
+    private static void flatten(List<String> path, Object value, Map<List<String>, Object> leaves) {
+        if (value instanceof Map<?, ?> map) {
+            for (Map.Entry<?, ?> e : map.entrySet()) {
+                path.add(String.valueOf(e.getKey()));
+                flatten(path, e.getValue(), leaves);
+                path.remove(path.size() - 1);
+            }
+        } else if (value instanceof List<?> list) {
+            for (int i = 0; i < list.size(); i++) {
+                Object element = list.get(i);
+                Object id = element instanceof Map<?, ?> m ? m.get("id") : null;
+                path.add(id != null ? String.valueOf(id) : "[" + i + "]");
+                flatten(path, element, leaves);
+                path.remove(path.size() - 1);
+            }
+        } else if (value != null) {
+            // First occurrence wins if two list elements share an ID
+            leaves.putIfAbsent(List.copyOf(path), value);
+        }
+    }
+
+    private static Kind classify(Source source, List<String> path) {
+        String first = path.isEmpty() ? "" : path.get(0);
+        switch (source) {
+            case AUTOFOCUS:
+                return Kind.AUTOFOCUS;
+            case IMAGEPROCESSING:
+                if (first.equals("imaging_profiles")) {
+                    return Kind.IMAGING_PROFILE;
+                }
+                return first.equals("background_correction") ? Kind.BACKGROUND_CORRECTION : Kind.OTHER;
+            case RESOURCES:
+                return first.equals("id_detector") ? Kind.DETECTOR : Kind.HARDWARE;
+            default:
+                break;
+        }
+        switch (first) {
+            case "hardware":
+                return path.size() > 3 && path.get(1).equals("objectives")
+                        && path.get(3).equals("pixel_size_xy_um") ? Kind.PIXEL_SIZE : Kind.HARDWARE;
+            case "stage":
+                return Kind.STAGE;
+            case "modalities":
+                return Kind.MODALITY;
+            default:
+                return Kind.OTHER;
+        }
+    }
+
+    /**
+     * @return Path of the main configuration file that was reloaded
+     */
+    public String getConfigPath() {
+        return configPath;
+    }
+
+    /**
+     * @return All changed values, in file order
+     */
+    public List<Change> getChanges() {
+        return changes;
+    }
+
+    /**
+     * @return true if the reload did not change any value
+     */
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    /**
+     * @return The kinds of change present in this event
+     */
+    public Set<Kind> getKinds() {
+        Set<Kind> kinds = EnumSet.noneOf(Kind.class);
+        for (Change change : changes) {
+            kinds.add(change.kind());
+        }
+        return Collections.unmodifiableSet(kinds);
+    }
+
+    /**
+     * @param kinds Kinds of interest
+     * @return true if any change is of one of the given kinds
+     */
+    public boolean affects(Kind... kinds) {
+        for (Change change : changes) {
+            for (Kind kind : kinds) {
+                if (change.kind() == kind) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param source File of interest
+     * @param prefix Leading path segments
+     * @return true if any value at or below the path in the given file changed
+     */
+    public boolean affects(Source source, String... prefix) {
+        for (Change change : changes) {
+            if (change.source() == source && change.isUnder(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param kind Kind of interest
+     * @return Changes of the given kind
+     */
+    public List<Change> getChanges(Kind kind) {
+        return changes.stream().filter(c -> c.kind() == kind).toList();
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigChangeEvent[" + configPath + ", " + changes.size() + " changes]";
+    }
+}
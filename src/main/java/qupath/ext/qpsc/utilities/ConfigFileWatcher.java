@@ -0,0 +1,132 @@
+package qupath.ext.qpsc.utilities;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a fixed set of configuration files and runs a reload action after they change.
+ *
+ * <p>Editors typically save in several steps (truncate, write, rename), each of which produces a
+ * file system event. Events are therefore debounced: the reload runs once the watched files have
+ * been quiet for {@link #DEBOUNCE_MS}. The reload runs on a background thread, never on the
+ * JavaFX application thread.</p>
+ *
+ * <p>Files that do not exist yet are still watched, so creating e.g. an imageprocessing file for
+ * the first time also triggers a reload.</p>
+ */
+class ConfigFileWatcher implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ConfigFileWatcher.class);
+
+    /** Quiet period after the last change before reloading */
+    static final long DEBOUNCE_MS = 500;
+
+    private final WatchService watchService;
+    private final Set<Path> files = new HashSet<>();
+    private final Runnable onChange;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "qpsc-config-reload");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Thread pollThread;
+    private ScheduledFuture<?> pending;
+
+    /**
+     * @param files Files to watch; their parent directories must exist
+     * @param onChange Action to run after a change
+     * @throws IOException if a directory cannot be registered
+     */
+    ConfigFileWatcher(List<Path> files, Runnable onChange) throws IOException {
+        this.onChange = onChange;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        Set<Path> dirs = new HashSet<>();
+        for (Path file : files) {
+            Path absolute = file.toAbsolutePath().normalize();
+            this.files.add(absolute);
+            dirs.add(absolute.getParent());
+        }
+        for (Path dir : dirs) {
+            if (dir.toFile().isDirectory()) {
+                dir.register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY,
+                        StandardWatchEventKinds.ENTRY_DELETE);
+            } else {
+                logger.debug("Not watching missing configuration directory {}", dir);
+            }
+        }
+        this.pollThread = new Thread(this::poll, "qpsc-config-watcher");
+        this.pollThread.setDaemon(true);
+    }
+
+    void start() {
+        pollThread.start();
+        logger.info("Watching configuration files for changes: {}", files);
+    }
+
+    private void poll() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path dir = (Path) key.watchable();
+                boolean relevant = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.context() instanceof Path name && files.contains(dir.resolve(name))) {
+                        logger.debug("Configuration file event {} for {}", event.kind().name(), dir.resolve(name));
+                        relevant = true;
+                    }
+                }
+                if (relevant) {
+                    schedule();
+                }
+                if (!key.reset()) {
+                    logger.warn("Configuration directory {} is no longer accessible; stopped watching it", dir);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed
+        }
+    }
+
+    private synchronized void schedule() {
+        if (pending != null) {
+            pending.cancel(false);
+        }
+        pending = executor.schedule(this::runReload, DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void runReload() {
+        try {
+            onChange.run();
+        } catch (Exception e) {
+            logger.error("Error reloading configuration after file change", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        pollThread.interrupt();
+        executor.shutdownNow();
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.debug("Error closing configuration watch service", e);
+        }
+    }
+}
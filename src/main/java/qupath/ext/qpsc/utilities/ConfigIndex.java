@@ -0,0 +1,247 @@
+package qupath.ext.qpsc.utilities;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, flattened snapshot of a microscope configuration for fast key-path lookups.
+ *
+ * <p>Every key path that {@link MicroscopeConfigManager#getConfigItem(String...)} can resolve is
+ * stored in a single hash map, including paths that continue through {@code LOCI-...} references
+ * into {@code resources_LOCI.yml}. References are resolved once when the index is built, using the
+ * same section-guessing rule as the lookup walk, so a lookup is one string join and one hash probe.</p>
+ *
+ * <p>Numeric values are parsed at build time; {@link #getDouble} and {@link #getInteger} return the
+ * parsed value without re-parsing. Map and list values are the objects loaded from YAML, exactly as
+ * returned by the map walk.</p>
+ *
+ * <p>Instances are built by {@link MicroscopeConfigManager} on load and on every reload, and
+ * published through a volatile field, so readers never lock.</p>
+ */
+public final class ConfigIndex {
+    private static final Logger logger = LoggerFactory.getLogger(ConfigIndex.class);
+
+    /** Joins path segments; a control character cannot appear in YAML keys written by hand */
+    private static final char SEPARATOR = '\u001F';
+
+    /** Guards against reference cycles between resource entries */
+    private static final int MAX_REFERENCE_DEPTH = 8;
+
+    /**
+     * Indexed value with numeric conversions precomputed.
+     *
+     * @param value Raw value (String, Number, Boolean, Map or List; may be null)
+     * @param doubleValue Value as a double, or null if not numeric
+     * @param intValue Value as an integer (numbers are truncated), or null if not an integer
+     */
+    public record Entry(Object value, Double doubleValue, Integer intValue) {}
+
+    private final Map<String, Entry> entries;
+
+    /** hardware.objectives[].pixel_size_xy_um, keyed by objective ID then detector ID */
+    private final Map<String, Map<String, Double>> hardwarePixelSizes;
+
+    private ConfigIndex(Map<String, Entry> entries, Map<String, Map<String, Double>> hardwarePixelSizes) {
+        this.entries = Map.copyOf(entries);
+        this.hardwarePixelSizes = Map.copyOf(hardwarePixelSizes);
+    }
+
+    /**
+     * Builds an index of the configuration, resolving LOCI references against the resources.
+     *
+     * @param configData Parsed microscope configuration
+     * @param resourceData Parsed resources_LOCI.yml
+     * @return Immutable index
+     */
+    static ConfigIndex build(Map<String, Object> configData, Map<String, Object> resourceData) {
+        Map<String, Entry> entries = new HashMap<>();
+        StringBuilder path = new StringBuilder();
+        for (Map.Entry<?, ?> e : ((Map<?, ?>) configData).entrySet()) {
+            if (e.getKey() instanceof String key) {
+                index(entries, path, key, e.getValue(), resourceData, 0);
+            }
+        }
+        logger.debug("Built configuration index with {} key paths", entries.size());
+        return new ConfigIndex(entries, indexPixelSizes(entries.get("hardware" + SEPARATOR + "objectives")));
+    }
+
+    /**
+     * Tabulates pixel sizes from the hardware objectives list. The first objective with a given ID
+     * wins for each detector, matching a linear scan of the list.
+     */
+    private static Map<String, Map<String, Double>> indexPixelSizes(Entry objectivesEntry) {
+        Map<String, Map<String, Double>> result = new HashMap<>();
+        if (objectivesEntry == null || !(objectivesEntry.value() instanceof List<?> objectives)) {
+            return result;
+        }
+        for (Object obj : objectives) {
+            if (obj instanceof Map<?, ?> objective
+                    && objective.get("id") instanceof String id
+                    && objective.get("pixel_size_xy_um") instanceof Map<?, ?> sizes) {
+                Map<String, Double> byDetector = result.computeIfAbsent(id, k -> new HashMap<>());
+                for (Map.Entry<?, ?> size : sizes.entrySet()) {
+                    if (size.getKey() instanceof String detector && size.getValue() instanceof Number n) {
+                        byDetector.putIfAbsent(detector, n.doubleValue());
+                    }
+                }
+            }
+        }
+        result.replaceAll((k, v) -> Map.copyOf(v));
+        return result;
+    }
+
+    private static void index(Map<String, Entry> entries, StringBuilder path, String key, Object value,
+                              Map<String, Object> resourceData, int depth) {
+        int start = path.length();
+        if (start > 0) {
+            path.append(SEPARATOR);
+        }
+        path.append(key);
+        entries.put(path.toString(), toEntry(value));
+
+        if (value instanceof Map<?, ?> map) {
+            for (Map.Entry<?, ?> child : map.entrySet()) {
+                // Lookups use String keys, so e.g. numeric YAML keys are unreachable (as with the map walk)
+                if (child.getKey() instanceof String childKey) {
+                    index(entries, path, childKey, child.getValue(), resourceData, depth);
+                }
+            }
+        } else if (value instanceof String id && id.startsWith("LOCI") && depth < MAX_REFERENCE_DEPTH) {
+            // Further keys below a LOCI reference continue in the matching resource entry
+            Object resolved = resolveReference(key, id, resourceData);
+            if (resolved instanceof Map<?, ?> resolvedMap) {
+                for (Map.Entry<?, ?> child : resolvedMap.entrySet()) {
+                    if (child.getKey() instanceof String childKey) {
+                        index(entries, path, childKey, child.getValue(), resourceData, depth + 1);
+                    }
+                }
+            }
+        }
+        path.setLength(start);
+    }
+
+    /**
+     * Resolves a LOCI reference the same way as the lookup walk: the first resource section whose
+     * name contains the parent key, falling back to the first section.
+     */
+    static Object resolveReference(String parentField, String id, Map<String, Object> resourceData) {
+        String section = findResourceSection(parentField, resourceData);
+        if (section == null) {
+            return null;
+        }
+        Object sectionObj = resourceData.get(section);
+        return sectionObj instanceof Map<?, ?> secMap ? secMap.get(id.replace('-', '_')) : null;
+    }
+
+    static String findResourceSection(String parentField, Map<String, Object> resourceData) {
+        String field = parentField.toLowerCase();
+        for (String section : resourceData.keySet()) {
+            if (section.toLowerCase().contains(field)) {
+                return section;
+            }
+        }
+        return resourceData.keySet().stream().findFirst().orElse(null);
+    }
+
+    private static Entry toEntry(Object value) {
+        if (value instanceof Number n) {
+            return new Entry(value, n.doubleValue(), n.intValue());
+        }
+        if (value instanceof String s) {
+            Double d = null;
+            Integer i = null;
+            try {
+                d = Double.parseDouble(s);
+                i = Integer.parseInt(s);
+            } catch (NumberFormatException e) {
+                // Not numeric (or not an integer); leave the remaining conversions null
+            }
+            return new Entry(value, d, i);
+        }
+        return new Entry(value, null, null);
+    }
+
+    private static String key(String... keys) {
+        if (keys.length == 1) {
+            return keys[0];
+        }
+        StringBuilder sb = new StringBuilder(keys.length * 16);
+        for (int i = 0; i < keys.length; i++) {
+            if (i > 0) {
+                sb.append(SEPARATOR);
+            }
+            sb.append(keys[i]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param keys Key path
+     * @return The indexed entry, or null if the path does not resolve
+     */
+    public Entry lookup(String... keys) {
+        return keys.length == 0 ? null : entries.get(key(keys));
+    }
+
+    public boolean contains(String... keys) {
+        return lookup(keys) != null;
+    }
+
+    public Object get(String... keys) {
+        Entry e = lookup(keys);
+        return e == null ? null : e.value();
+    }
+
+    public String getString(String... keys) {
+        return get(keys) instanceof String s ? s : null;
+    }
+
+    public Double getDouble(String... keys) {
+        Entry e = lookup(keys);
+        return e == null ? null : e.doubleValue();
+    }
+
+    public Integer getInteger(String... keys) {
+        Entry e = lookup(keys);
+        return e == null ? null : e.intValue();
+    }
+
+    public Boolean getBoolean(String... keys) {
+        Object v = get(keys);
+        if (v instanceof Boolean b) {
+            return b;
+        }
+        return v == null ? null : Boolean.parseBoolean(v.toString());
+    }
+
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> getSection(String... keys) {
+        return get(keys) instanceof Map<?, ?> m ? (Map<String, Object>) m : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<Object> getList(String... keys) {
+        return get(keys) instanceof List<?> l ? (List<Object>) l : null;
+    }
+
+    /**
+     * @param objectiveId Objective ID from hardware.objectives
+     * @param detectorId Detector ID
+     * @return Pixel size in microns, or null if not configured
+     */
+    public Double getHardwarePixelSize(String objectiveId, String detectorId) {
+        Map<String, Double> byDetector = objectiveId == null ? null : hardwarePixelSizes.get(objectiveId);
+        return byDetector == null || detectorId == null ? null : byDetector.get(detectorId);
+    }
+
+    /**
+     * @return Number of indexed key paths
+     */
+    public int size() {
+        return entries.size();
+    }
+}
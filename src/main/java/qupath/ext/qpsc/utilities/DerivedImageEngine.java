@@ -0,0 +1,305 @@
+package qupath.ext.qpsc.utilities;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qupath.ext.qpsc.modality.DerivedImageProducer;
+import qupath.lib.common.ColorTools;
+import qupath.lib.images.servers.AbstractTileableImageServer;
+import qupath.lib.images.servers.ImageChannel;
+import qupath.lib.images.servers.ImageServer;
+import qupath.lib.images.servers.ImageServerBuilder.ServerBuilder;
+import qupath.lib.images.servers.ImageServerMetadata;
+import qupath.lib.images.servers.PixelType;
+import qupath.lib.images.servers.TileRequest;
+import qupath.lib.images.writers.ome.OMEPyramidWriter;
+import qupath.lib.regions.RegionRequest;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes images computed by {@link DerivedImageProducer}s from the stitched angle images of a
+ * multi-angle acquisition.
+ *
+ * <p>The selected angle images are opened through {@link ImageServerCache} and wrapped in a server whose tiles are
+ * computed on demand from the matching input tiles. That server is written with
+ * {@link OMEPyramidWriter}, which requests tiles in parallel, so the derived image is computed
+ * tile by tile without holding whole images in memory and without an intermediate tile set on
+ * disk. Lower pyramid levels are computed from the lower levels of the inputs.</p>
+ *
+ * <p>Output is always an OME-TIFF next to the first input, named
+ * {@code <first input name>_<producer name>.ome.tif}. Derived images hold 16-bit measurements, so
+ * lossy compression settings are replaced by the lossless default.</p>
+ */
+public class DerivedImageEngine {
+    private static final Logger logger = LoggerFactory.getLogger(DerivedImageEngine.class);
+
+    private static final int TILE_SIZE = 512;
+
+    /** Angles closer than this are the same angle, as in the producers' input selection */
+    private static final double ANGLE_TOLERANCE = 1e-6;
+
+    private DerivedImageEngine() {}
+
+    /**
+     * Result of one producer.
+     *
+     * @param producer The producer that ran
+     * @param inputAngles Angles that were combined, in input order
+     * @param output Written OME-TIFF
+     */
+    public record DerivedImage(DerivedImageProducer producer, List<Double> inputAngles, File output) {}
+
+    /**
+     * Runs each producer whose inputs are available and writes its output.
+     * Failures of one producer are logged and do not stop the others.
+     *
+     * @param producers Producers to run
+     * @param stitchedByAngle Stitched image path for each angle
+     * @param compression OME pyramid compression name (e.g. "DEFAULT", "JPEG")
+     * @return The images that were written
+     */
+    public static List<DerivedImage> produce(List<DerivedImageProducer> producers,
+                                             Map<Double, String> stitchedByAngle,
+                                             String compression) {
+        List<DerivedImage> results = new ArrayList<>();
+        List<Double> angles = new ArrayList<>(stitchedByAngle.keySet());
+        for (DerivedImageProducer producer : producers) {
+            List<Double> inputAngles = producer.selectInputs(angles);
+            if (inputAngles.isEmpty()) {
+                logger.info("Skipping derived image '{}': required angles not among {}", producer.getName(), angles);
+                continue;
+            }
+            List<String> inputPaths = new ArrayList<>();
+            try (AcquisitionTelemetry.Timer t = AcquisitionTelemetry.getInstance()
+                    .startPhase(AcquisitionTelemetry.PHASE_DERIVED_IMAGE)) {
+                for (Double angle : inputAngles) {
+                    String path = pathForAngle(stitchedByAngle, angle);
+                    if (path == null) {
+                        throw new IOException("No stitched image for angle " + angle);
+                    }
+                    inputPaths.add(path);
+                }
+                File output = outputFile(inputPaths.get(0), producer.getName());
+                write(producer, inputPaths, output, compression);
+                results.add(new DerivedImage(producer, inputAngles, output));
+                logger.info("Wrote derived image '{}' from angles {}: {}", producer.getName(), inputAngles, output);
+            } catch (Exception e) {
+                logger.error("Failed to compute derived image '{}' from {}: {}",
+                        producer.getName(), inputPaths, e.getMessage(), e);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Computes one derived image and writes it as a pyramidal OME-TIFF.
+     *
+     * @param producer The producer
+     * @param inputPaths Stitched images in the order returned by {@link DerivedImageProducer#selectInputs}
+     * @param output File to write
+     * @param compression OME pyramid compression name
+     * @throws IOException if an input cannot be read or the output cannot be written
+     */
+    public static void write(DerivedImageProducer producer, List<String> inputPaths,
+                             File output, String compression) throws IOException {
+        List<ImageServerCache.Lease> leases = new ArrayList<>();
+        List<ImageServer<BufferedImage>> inputs = new ArrayList<>();
+        try {
+            // Shared with the project import that follows, so each input header is parsed once
+            for (String path : inputPaths) {
+                ImageServerCache.Lease lease = ImageServerCache.getInstance().open(new File(path));
+                leases.add(lease);
+                inputs.add(lease.server());
+            }
+            DerivedImageServer server = new DerivedImageServer(producer, inputs, output.getName());
+            logger.info("Computing '{}' ({} x {}, {} levels) from {}", producer.getName(),
+                    server.getWidth(), server.getHeight(), server.nResolutions(), inputPaths);
+
+            OMEPyramidWriter writer = new OMEPyramidWriter.Builder(server)
+                    .compression(losslessCompression(compression))
+                    .tileSize(TILE_SIZE)
+                    .downsamples(server.getPreferredDownsamples())
+                    .parallelize()
+                    .build();
+            writer.writeSeries(output.getAbsolutePath());
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Unable to write " + output + ": " + e.getMessage(), e);
+        } finally {
+            for (ImageServerCache.Lease lease : leases) {
+                lease.close();
+            }
+        }
+    }
+
+    /**
+     * Looks up the stitched image of an angle selected by a producer, matching angles within
+     * {@link #ANGLE_TOLERANCE} as the producers do, so a computed angle such as {@code -best} finds
+     * its image even if it is not bit-identical to the stitched angle.
+     *
+     * @return The stitched image path, or null if there is none for the angle
+     */
+    static String pathForAngle(Map<Double, String> stitchedByAngle, double angle) {
+        String exact = stitchedByAngle.get(angle);
+        if (exact != null) {
+            return exact;
+        }
+        for (Map.Entry<Double, String> entry : stitchedByAngle.entrySet()) {
+            if (Math.abs(entry.getKey() - angle) < ANGLE_TOLERANCE) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    static File outputFile(String firstInput, String name) {
+        File input = new File(firstInput);
+        String base = input.getName();
+        for (String extension : List.of(".ome.tif", ".ome.zarr", ".tif")) {
+            if (base.endsWith(extension)) {
+                base = base.substring(0, base.length() - extension.length());
+                break;
+            }
+        }
+        return new File(input.getParentFile(), base + "_" + name + ".ome.tif");
+    }
+
+    private static OMEPyramidWriter.CompressionType losslessCompression(String compression) {
+        OMEPyramidWriter.CompressionType type;
+        try {
+            type = OMEPyramidWriter.CompressionType.valueOf(compression);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return OMEPyramidWriter.CompressionType.DEFAULT;
+        }
+        if (type == OMEPyramidWriter.CompressionType.JPEG || type == OMEPyramidWriter.CompressionType.J2K_LOSSY) {
+            logger.info("Using lossless compression instead of {} for 16-bit derived image", type);
+            return OMEPyramidWriter.CompressionType.DEFAULT;
+        }
+        return type;
+    }
+
+    /**
+     * Single-channel 16-bit server whose tiles combine the corresponding tiles of its inputs.
+     * Pyramid levels follow the first input.
+     */
+    static class DerivedImageServer extends AbstractTileableImageServer {
+        private final DerivedImageProducer producer;
+        private final List<ImageServer<BufferedImage>> inputs;
+        private final ImageServerMetadata metadata;
+
+        DerivedImageServer(DerivedImageProducer producer, List<ImageServer<BufferedImage>> inputs, String name) {
+            this.producer = producer;
+            this.inputs = List.copyOf(inputs);
+
+            ImageServerMetadata first = inputs.get(0).getMetadata();
+            int width = Integer.MAX_VALUE;
+            int height = Integer.MAX_VALUE;
+            for (ImageServer<BufferedImage> input : inputs) {
+                width = Math.min(width, input.getWidth());
+                height = Math.min(height, input.getHeight());
+            }
+            if (width != first.getWidth() || height != first.getHeight()) {
+                logger.warn("Derived image inputs differ in size; using the common area {} x {}", width, height);
+            }
+            this.metadata = new ImageServerMetadata.Builder(first)
+                    .name(name)
+                    .width(width)
+                    .height(height)
+                    .rgb(false)
+                    .pixelType(PixelType.UINT16)
+                    .channels(List.of(ImageChannel.getInstance(producer.getChannelName(), ColorTools.packRGB(255, 255, 255))))
+                    .levelsFromDownsamples(inputs.get(0).getPreferredDownsamples())
+                    .build();
+        }
+
+        @Override
+        protected BufferedImage readTile(TileRequest tileRequest) throws IOException {
+            int width = tileRequest.getTileWidth();
+            int height = tileRequest.getTileHeight();
+
+            int[][] samples = new int[inputs.size()][];
+            int bands = -1;
+            for (int i = 0; i < inputs.size(); i++) {
+                ImageServer<BufferedImage> input = inputs.get(i);
+                BufferedImage img = input.readRegion(RegionRequest.createInstance(input.getPath(),
+                        tileRequest.getDownsample(),
+                        tileRequest.getImageX(), tileRequest.getImageY(),
+                        tileRequest.getImageWidth(), tileRequest.getImageHeight(),
+                        tileRequest.getZ(), tileRequest.getT()));
+                Raster raster = img.getRaster();
+                if (bands < 0) {
+                    bands = raster.getNumBands();
+                } else if (raster.getNumBands() != bands) {
+                    throw new IOException("Derived image inputs have different channel counts: "
+                            + bands + " and " + raster.getNumBands());
+                }
+                // Rounding at lower levels can make input tiles a pixel smaller than requested
+                samples[i] = new int[width * height * bands];
+                int w = Math.min(width, raster.getWidth());
+                int h = Math.min(height, raster.getHeight());
+                int[] row = new int[w * bands];
+                for (int y = 0; y < h; y++) {
+                    raster.getPixels(0, y, w, 1, row);
+                    System.arraycopy(row, 0, samples[i], y * width * bands, row.length);
+                }
+            }
+
+            int[] values = new int[width * height];
+            producer.combine(samples, bands, values);
+            for (int i = 0; i < values.length; i++) {
+                values[i] = Math.max(0, Math.min(65535, values[i]));
+            }
+
+            BufferedImage tile = new BufferedImage(width, height, BufferedImage.TYPE_USHORT_GRAY);
+            WritableRaster raster = tile.getRaster();
+            raster.setPixels(0, 0, width, height, values);
+            return tile;
+        }
+
+        @Override
+        protected ServerBuilder<BufferedImage> createServerBuilder() {
+            // Only used for writing; not stored in projects
+            return null;
+        }
+
+        @Override
+        protected String createID() {
+            List<String> paths = new ArrayList<>();
+            for (ImageServer<BufferedImage> input : inputs) {
+                paths.add(input.getPath());
+            }
+            return "qpsc-derived:" + producer.getName() + ":" + paths;
+        }
+
+        @Override
+        public Collection<URI> getURIs() {
+            Set<URI> uris = new LinkedHashSet<>();
+            for (ImageServer<BufferedImage> input : inputs) {
+                uris.addAll(input.getURIs());
+            }
+            return uris;
+        }
+
+        @Override
+        public String getServerType() {
+            return "QPSC derived image (" + producer.getName() + ")";
+        }
+
+        @Override
+        public ImageServerMetadata getOriginalMetadata() {
+            return metadata;
+        }
+    }
+}
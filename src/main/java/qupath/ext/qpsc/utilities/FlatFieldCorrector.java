@@ -0,0 +1,507 @@
+package qupath.ext.qpsc.utilities;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qupath.ext.qpsc.modality.AngleExposure;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Client-side flat-field (background) correction of acquired tiles.
+ *
+ * <p>Normally the microscope server corrects each tile during acquisition. With the
+ * "Flat-field correction in QuPath" preference the server skips that step and tiles are corrected
+ * here before stitching:</p>
+ * <ol>
+ *   <li>{@link #archiveRawTiles} moves the uncorrected angle directories of a region to
+ *       {@code <sample>/RawTiles/<mode>/<region>/<angle>}.</li>
+ *   <li>{@link #correctRegion} writes corrected tiles back to the region directory, where stitching
+ *       expects them. Tiles are processed in parallel.</li>
+ * </ol>
+ * <p>Because the raw tiles are kept, {@link #correctRegion} can be run again later with new
+ * background images, followed by a normal re-stitch, without reacquiring. Tile cleanup zips or
+ * deletes them together with the region's tiles when the tile handling preference says so.</p>
+ *
+ * <p>Whether a region was acquired for client-side correction is recorded in its
+ * {@value #CORRECTION_FILE} by {@link #recordAcquisition} when the acquisition starts, so a later
+ * stitch follows the acquisition rather than the current preference. The record also tells
+ * {@link #archiveRawTiles} whether the region's tiles are freshly acquired (and replace any raw
+ * tiles archived earlier) or were already corrected by a previous stitch.</p>
+ *
+ * <p>Background images ({@code <angle>.tif} in the folder of a {@code background_settings.yml})
+ * are read once and converted to per-pixel float gain or offset maps, cached by
+ * (modality, objective, detector, angle, exposure). A cached map is reloaded when its background
+ * file changes. Angles without a background image, or whose acquisition exposure differs from the
+ * background exposure, are copied uncorrected, matching the server's behavior.</p>
+ */
+public class FlatFieldCorrector {
+    private static final Logger logger = LoggerFactory.getLogger(FlatFieldCorrector.class);
+
+    /** Name of the folder under the sample folder that keeps uncorrected tiles */
+    public static final String RAW_TILES_FOLDER = "RawTiles";
+
+    /** File in the region tile directory recording how the acquisition is flat-field corrected */
+    public static final String CORRECTION_FILE = "flat_field.properties";
+
+    /** Exposure difference (ms) above which a background image is not used */
+    private static final double EXPOSURE_TOLERANCE_MS = 0.1;
+
+    private static final int MAX_CACHED_MAPS = 16;
+
+    private static final Map<Key, GainMap> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, GainMap> eldest) {
+            return size() > MAX_CACHED_MAPS;
+        }
+    };
+
+    private FlatFieldCorrector() {}
+
+    /** How a background image is applied */
+    public enum Method {
+        /** raw * mean(background) / background */
+        DIVIDE,
+        /** raw - background + mean(background) */
+        SUBTRACT;
+
+        /**
+         * @param method Method name from the imageprocessing configuration
+         * @return The method; "subtract" gives SUBTRACT, anything else DIVIDE
+         */
+        public static Method fromConfig(String method) {
+            return method != null && method.trim().equalsIgnoreCase("subtract") ? SUBTRACT : DIVIDE;
+        }
+    }
+
+    /**
+     * Cache key of one gain map.
+     */
+    public record Key(String modality, String objective, String detector, double angle, double exposureMs) {}
+
+    /**
+     * Background correction settings for one modality/objective/detector combination.
+     *
+     * @param modality Base modality (e.g. "ppm")
+     * @param objective Objective ID
+     * @param detector Detector ID
+     * @param backgroundFolder Folder holding {@code <angle>.tif} background images
+     * @param method How backgrounds are applied
+     * @param backgroundExposures Exposure (ms) each background image was acquired with, by angle
+     */
+    public record Profile(String modality, String objective, String detector, File backgroundFolder,
+                          Method method, Map<Double, Double> backgroundExposures) {
+
+        /**
+         * @param angle Angle in ticks
+         * @return The background image for the angle (may not exist)
+         */
+        public File backgroundFile(double angle) {
+            return new File(backgroundFolder, angle + ".tif");
+        }
+    }
+
+    /**
+     * Looks up the background correction settings configured for a modality and hardware.
+     *
+     * @param configManager Microscope configuration
+     * @param modality Base modality (e.g. "ppm")
+     * @param objective Objective ID
+     * @param detector Detector ID
+     * @return The profile, or null if background correction is disabled or no background
+     *         images have been collected for this combination
+     */
+    public static Profile resolveProfile(MicroscopeConfigManager configManager,
+                                         String modality, String objective, String detector) {
+        if (!configManager.isBackgroundCorrectionEnabled(modality)) {
+            return null;
+        }
+        String baseFolder = configManager.getBackgroundCorrectionFolder(modality);
+        BackgroundSettingsReader.BackgroundSettings settings =
+                BackgroundSettingsReader.findBackgroundSettings(baseFolder, modality, objective, detector);
+        if (settings == null) {
+            logger.info("No background images for {}/{}/{} - flat-field correction unavailable",
+                    modality, objective, detector);
+            return null;
+        }
+        Map<Double, Double> exposures = new HashMap<>();
+        for (AngleExposure ae : settings.angleExposures) {
+            exposures.put(ae.ticks(), ae.exposureMs());
+        }
+        return new Profile(modality, objective, detector,
+                new File(settings.settingsFilePath).getParentFile(),
+                Method.fromConfig(configManager.getBackgroundCorrectionMethod(modality)),
+                exposures);
+    }
+
+    /**
+     * Per-pixel correction derived from one background image.
+     */
+    public static final class GainMap {
+        private final Method method;
+        private final int width;
+        private final int height;
+        private final int bands;
+        /** Gain (DIVIDE) or offset (SUBTRACT) per sample, interleaved by band */
+        private final float[] values;
+        private final long sourceModified;
+
+        GainMap(Method method, Raster background, long sourceModified) {
+            this.method = method;
+            this.width = background.getWidth();
+            this.height = background.getHeight();
+            this.bands = background.getNumBands();
+            this.sourceModified = sourceModified;
+
+            int[] samples = background.getPixels(0, 0, width, height, (int[]) null);
+            double[] mean = new double[bands];
+            for (int i = 0; i < samples.length; i++) {
+                mean[i % bands] += samples[i];
+            }
+            for (int b = 0; b < bands; b++) {
+                mean[b] /= (double) width * height;
+            }
+            values = new float[samples.length];
+            for (int i = 0; i < samples.length; i++) {
+                double m = mean[i % bands];
+                values[i] = method == Method.DIVIDE
+                        ? (float) (m / Math.max(samples[i], 1))
+                        : (float) (m - samples[i]);
+            }
+        }
+
+        /**
+         * Applies the correction to a tile with the same size and band count as the background.
+         *
+         * @param raw Uncorrected tile
+         * @return Corrected tile of the same image type
+         */
+        public BufferedImage apply(BufferedImage raw) {
+            Raster in = raw.getRaster();
+            if (in.getWidth() != width || in.getHeight() != height || in.getNumBands() != bands) {
+                throw new IllegalArgumentException(String.format(
+                        "Tile is %d x %d x %d but background is %d x %d x %d",
+                        in.getWidth(), in.getHeight(), in.getNumBands(), width, height, bands));
+            }
+            int[] max = new int[bands];
+            for (int b = 0; b < bands; b++) {
+                int bits = in.getSampleModel().getSampleSize(b);
+                max[b] = bits >= 31 ? Integer.MAX_VALUE : (1 << bits) - 1;
+            }
+
+            WritableRaster out = raw.getColorModel().createCompatibleWritableRaster(width, height);
+            int[] row = new int[width * bands];
+            for (int y = 0; y < height; y++) {
+                in.getPixels(0, y, width, 1, row);
+                int offset = y * width * bands;
+                for (int i = 0; i < row.length; i++) {
+                    float v = method == Method.DIVIDE ? row[i] * values[offset + i] : row[i] + values[offset + i];
+                    row[i] = Math.max(0, Math.min(max[i % bands], Math.round(v)));
+                }
+                out.setPixels(0, y, width, 1, row);
+            }
+            return new BufferedImage(raw.getColorModel(), out, raw.isAlphaPremultiplied(), null);
+        }
+    }
+
+    /**
+     * Returns the gain map for a background image, loading it on first use or when the file changed.
+     *
+     * @param key Cache key
+     * @param backgroundFile Background image
+     * @param method How the background is applied
+     * @return The gain map
+     * @throws IOException if the background image cannot be read
+     */
+    public static GainMap getGainMap(Key key, File backgroundFile, Method method) throws IOException {
+        long modified = backgroundFile.lastModified();
+        synchronized (cache) {
+            GainMap cached = cache.get(key);
+            if (cached != null && cached.method == method && cached.sourceModified == modified) {
+                return cached;
+            }
+        }
+        BufferedImage background = ImageIO.read(backgroundFile);
+        if (background == null) {
+            throw new IOException("Unsupported background image format: " + backgroundFile);
+        }
+        GainMap map = new GainMap(method, background.getRaster(), modified);
+        synchronized (cache) {
+            cache.put(key, map);
+        }
+        logger.info("Loaded flat-field {} map for angle {} from {}", method, key.angle(), backgroundFile);
+        return map;
+    }
+
+    /**
+     * Discards all cached gain maps.
+     */
+    public static void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * @param tileBaseDir Region tile directory ({@code <projects>/<sample>/<mode>/<region>})
+     * @return Where {@link #archiveRawTiles} keeps the region's uncorrected tiles
+     */
+    public static Path rawTilesDirectory(Path tileBaseDir) {
+        return rawTilesModeDirectory(tileBaseDir.getParent()).resolve(tileBaseDir.getFileName());
+    }
+
+    /**
+     * @param modeDir Acquisition directory ({@code <projects>/<sample>/<mode>})
+     * @return Where {@link #archiveRawTiles} keeps the uncorrected tiles of all its regions
+     */
+    public static Path rawTilesModeDirectory(Path modeDir) {
+        return modeDir.getParent().resolve(RAW_TILES_FOLDER).resolve(modeDir.getFileName());
+    }
+
+    /**
+     * Records how a region's tiles are corrected, before they are acquired. Replaces any record of
+     * an earlier acquisition of the same region.
+     *
+     * @param tileBaseDir Region tile directory
+     * @param clientCorrection Whether the server saves raw tiles for correction in QuPath
+     * @throws IOException if the record cannot be written
+     */
+    public static void recordAcquisition(Path tileBaseDir, boolean clientCorrection) throws IOException {
+        Properties record = new Properties();
+        record.setProperty("correction", clientCorrection ? "client" : "server");
+        record.setProperty("archived", "false");
+        writeRecord(tileBaseDir, record);
+    }
+
+    /**
+     * @param tileBaseDir Region tile directory
+     * @return Whether the region was acquired for client-side correction. Regions acquired before
+     *         the mode was recorded count as client-corrected if they have archived raw tiles.
+     */
+    public static boolean isClientCorrected(Path tileBaseDir) {
+        Properties record = readRecord(tileBaseDir);
+        if (record == null) {
+            return Files.isDirectory(rawTilesDirectory(tileBaseDir));
+        }
+        return "client".equals(record.getProperty("correction"));
+    }
+
+    /**
+     * Moves the uncorrected angle directories of a region to {@link #rawTilesDirectory}.
+     *
+     * <p>The first call after {@link #recordAcquisition} replaces raw tiles archived from an
+     * earlier acquisition. Later calls (re-stitching) leave archived angles untouched, since the
+     * region directory then holds tiles corrected by the previous stitch.</p>
+     *
+     * @param tileBaseDir Region tile directory
+     * @param angleExposures Acquired angles
+     * @return The raw tile directory of the region
+     * @throws IOException if a directory cannot be moved
+     */
+    public static Path archiveRawTiles(Path tileBaseDir, List<AngleExposure> angleExposures) throws IOException {
+        Path rawRegionDir = rawTilesDirectory(tileBaseDir);
+        Files.createDirectories(rawRegionDir);
+        Properties record = readRecord(tileBaseDir);
+        boolean freshTiles = record != null && !Boolean.parseBoolean(record.getProperty("archived"));
+        for (AngleExposure ae : angleExposures) {
+            String angle = String.valueOf(ae.ticks());
+            Path angleDir = tileBaseDir.resolve(angle);
+            Path rawAngleDir = rawRegionDir.resolve(angle);
+            if (!Files.isDirectory(angleDir)) {
+                continue;
+            }
+            if (Files.exists(rawAngleDir)) {
+                if (!freshTiles) {
+                    continue;
+                }
+                logger.info("Replacing raw tiles of an earlier acquisition in {}", rawAngleDir);
+                deleteRecursively(rawAngleDir);
+            }
+            Files.move(angleDir, rawAngleDir);
+            logger.debug("Archived raw tiles {} -> {}", angleDir, rawAngleDir);
+        }
+        if (freshTiles) {
+            record.setProperty("archived", "true");
+            writeRecord(tileBaseDir, record);
+        }
+        return rawRegionDir;
+    }
+
+    private static Properties readRecord(Path tileBaseDir) {
+        Path file = tileBaseDir.resolve(CORRECTION_FILE);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        Properties record = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            record.load(reader);
+            return record;
+        } catch (IOException e) {
+            logger.warn("Cannot read flat-field record {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private static void writeRecord(Path tileBaseDir, Properties record) throws IOException {
+        Files.createDirectories(tileBaseDir);
+        try (Writer writer = Files.newBufferedWriter(tileBaseDir.resolve(CORRECTION_FILE))) {
+            record.store(writer, "QPSC flat-field correction of this acquisition");
+        }
+    }
+
+    private static void deleteRecursively(Path folder) throws IOException {
+        try (Stream<Path> paths = Files.walk(folder)) {
+            for (Path path : paths.sorted((a, b) -> b.getNameCount() - a.getNameCount()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Writes flat-field corrected tiles for every angle of a region.
+     *
+     * <p>Angles without a usable background image are copied unchanged, so that the output
+     * directory always holds a complete tile set for stitching.</p>
+     *
+     * @param profile Background settings
+     * @param rawRegionDir Directory with one uncorrected sub-directory per angle
+     * @param outputRegionDir Directory to write one corrected sub-directory per angle to
+     * @param angleExposures Acquired angles and exposures
+     * @return Number of tiles corrected
+     * @throws IOException if tiles cannot be read or written
+     */
+    public static int correctRegion(Profile profile, Path rawRegionDir, Path outputRegionDir,
+                                    List<AngleExposure> angleExposures) throws IOException {
+        int corrected = 0;
+        for (AngleExposure ae : angleExposures) {
+            String angle = String.valueOf(ae.ticks());
+            Path input = rawRegionDir.resolve(angle);
+            if (!Files.isDirectory(input)) {
+                logger.warn("No raw tiles for angle {} in {}", angle, rawRegionDir);
+                continue;
+            }
+            Path output = outputRegionDir.resolve(angle);
+            GainMap map = gainMapFor(profile, ae);
+            if (map == null) {
+                copyTiles(input, output);
+            } else {
+                corrected += correctTiles(input, output, map);
+            }
+        }
+        logger.info("Flat-field corrected {} tiles from {} into {}", corrected, rawRegionDir, outputRegionDir);
+        return corrected;
+    }
+
+    private static GainMap gainMapFor(Profile profile, AngleExposure ae) throws IOException {
+        File backgroundFile = profile.backgroundFile(ae.ticks());
+        Double backgroundExposure = profile.backgroundExposures().get(ae.ticks());
+        if (!backgroundFile.isFile() || backgroundExposure == null) {
+            logger.warn("No background image for angle {} - tiles left uncorrected", ae.ticks());
+            return null;
+        }
+        if (Math.abs(backgroundExposure - ae.exposureMs()) > EXPOSURE_TOLERANCE_MS) {
+            logger.warn("Background for angle {} was acquired at {} ms but tiles at {} ms - tiles left uncorrected",
+                    ae.ticks(), backgroundExposure, ae.exposureMs());
+            return null;
+        }
+        Key key = new Key(profile.modality(), profile.objective(), profile.detector(), ae.ticks(), backgroundExposure);
+        return getGainMap(key, backgroundFile, profile.method());
+    }
+
+    /**
+     * Corrects all TIFF tiles of one directory in parallel. Other files (e.g. TileConfiguration.txt)
+     * are copied unchanged.
+     *
+     * @param inputDir Directory with uncorrected tiles
+     * @param outputDir Directory to write to; created if needed
+     * @param map Correction to apply
+     * @return Number of tiles corrected
+     * @throws IOException if a tile cannot be read or written
+     */
+    public static int correctTiles(Path inputDir, Path outputDir, GainMap map) throws IOException {
+        Files.createDirectories(outputDir);
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(inputDir)) {
+            files = stream.filter(Files::isRegularFile).toList();
+        }
+
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (Path file : files) {
+            Path target = outputDir.resolve(file.getFileName());
+            tasks.add(() -> {
+                if (!isTiff(file)) {
+                    Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING);
+                    return false;
+                }
+                BufferedImage raw = ImageIO.read(file.toFile());
+                if (raw == null) {
+                    throw new IOException("Unsupported tile format: " + file);
+                }
+                if (!ImageIO.write(map.apply(raw), "tiff", target.toFile())) {
+                    throw new IOException("No TIFF writer available for " + target);
+                }
+                return true;
+            });
+        }
+
+        int threads = Math.max(1, Math.min(tasks.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "qpsc-flat-field");
+            t.setDaemon(true);
+            return t;
+        });
+        int corrected = 0;
+        try {
+            for (Future<Boolean> result : pool.invokeAll(tasks)) {
+                if (result.get()) {
+                    corrected++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while correcting tiles in " + inputDir, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException io ? io : new IOException(cause.getMessage(), cause);
+        } finally {
+            pool.shutdownNow();
+        }
+        return corrected;
+    }
+
+    private static void copyTiles(Path inputDir, Path outputDir) throws IOException {
+        Files.createDirectories(outputDir);
+        try (Stream<Path> stream = Files.list(inputDir)) {
+            for (Path file : stream.filter(Files::isRegularFile).toList()) {
+                Files.copy(file, outputDir.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    private static boolean isTiff(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".tif") || name.endsWith(".tiff");
+    }
+}
@@ -0,0 +1,230 @@
+package qupath.ext.qpsc.utilities;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qupath.lib.common.GeneralTools;
+import qupath.lib.images.servers.AbstractTileableImageServer;
+import qupath.lib.images.servers.ImageServer;
+import qupath.lib.images.servers.ImageServerBuilder.ServerBuilder;
+import qupath.lib.images.servers.ImageServerMetadata;
+import qupath.lib.images.servers.TileRequest;
+import qupath.lib.images.writers.ome.OMEPyramidWriter;
+import qupath.lib.regions.RegionRequest;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+
+/**
+ * Writes a physically flipped copy of an image as a pyramidal OME-TIFF.
+ *
+ * <p>Adding a flipped image to a project through a {@code TransformedServerBuilder} makes every
+ * later tile read go through an affine transform, which is slow to render and loses associated
+ * images. When the flip is known at stitching time it is cheaper to write the flipped pixels
+ * once: the source is wrapped in a server whose tiles read the mirrored source region and
+ * reverse it, and that server is written with {@link OMEPyramidWriter}, which requests tiles in
+ * parallel. Lower pyramid levels are read from the lower levels of the source.</p>
+ *
+ * <p>The result is a plain OME-TIFF that QuPath opens with its native reader. Pixel calibration
+ * and channels are copied from the source. {@link #flippedCopy} keeps it next to the original,
+ * which is never modified, so importing the original again cannot flip it twice.</p>
+ */
+public class FlippedImageWriter {
+    private static final Logger logger = LoggerFactory.getLogger(FlippedImageWriter.class);
+
+    private static final int TILE_SIZE = 512;
+
+    private FlippedImageWriter() {}
+
+    /**
+     * @param file An image file
+     * @return true if the file is a TIFF that {@link #flippedCopy} can write a flipped copy of
+     */
+    public static boolean canRewrite(File file) {
+        String name = file.getName().toLowerCase();
+        return file.isFile() && (name.endsWith(".tif") || name.endsWith(".tiff"));
+    }
+
+    /**
+     * Writes a flipped copy of an image.
+     *
+     * @param source Image to flip; not closed
+     * @param flipX Whether to mirror horizontally
+     * @param flipY Whether to mirror vertically
+     * @param output OME-TIFF to write
+     * @param compression Compression of the output
+     * @throws IOException if the source cannot be read or the output cannot be written
+     */
+    public static void write(ImageServer<BufferedImage> source, boolean flipX, boolean flipY,
+                             File output, OMEPyramidWriter.CompressionType compression) throws IOException {
+        FlippedServer server = new FlippedServer(source, flipX, flipY, output.getName());
+        long start = System.currentTimeMillis();
+        try {
+            new OMEPyramidWriter.Builder(server)
+                    .compression(compression)
+                    .tileSize(TILE_SIZE)
+                    .downsamples(server.getPreferredDownsamples())
+                    .parallelize()
+                    .build()
+                    .writeSeries(output.getAbsolutePath());
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Unable to write flipped image " + output + ": " + e.getMessage(), e);
+        }
+        logger.info("Wrote flipped image (flipX={}, flipY={}) {} in {} ms",
+                flipX, flipY, output, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * @param original Image file
+     * @param flipX Whether the copy is mirrored horizontally
+     * @param flipY Whether the copy is mirrored vertically
+     * @return The sibling file holding the flipped copy, e.g. {@code image_flippedX.ome.tif}
+     */
+    public static File flippedFile(File original, boolean flipX, boolean flipY) {
+        String suffix = flipX && flipY ? "_flippedXY" : flipX ? "_flippedX" : "_flippedY";
+        return new File(original.getParentFile(),
+                GeneralTools.stripExtension(original.getName()) + suffix + ".ome.tif");
+    }
+
+    /**
+     * Returns a flipped copy of a TIFF at {@link #flippedFile}, writing it unless a copy exists that
+     * is at least as new as the original. The copy is written to a temporary file first, so an
+     * existing copy is untouched if writing fails.
+     *
+     * @param original TIFF to flip; never modified
+     * @param source Open server of the original, or null to open one
+     * @param flipX Whether to mirror horizontally
+     * @param flipY Whether to mirror vertically
+     * @param compression Compression of the copy
+     * @return The flipped copy
+     * @throws IOException if the flipped copy cannot be written or moved into place
+     */
+    public static File flippedCopy(File original, ImageServer<BufferedImage> source, boolean flipX, boolean flipY,
+                                   OMEPyramidWriter.CompressionType compression) throws IOException {
+        File flipped = flippedFile(original, flipX, flipY);
+        if (flipped.isFile() && flipped.lastModified() >= original.lastModified()) {
+            logger.info("Reusing flipped image {}", flipped);
+            return flipped;
+        }
+        File temp = new File(flipped.getParentFile(), flipped.getName() + ".flipping.ome.tif");
+        try {
+            if (source != null) {
+                write(source, flipX, flipY, temp, compression);
+            } else {
+                try (ImageServerCache.Lease lease = ImageServerCache.getInstance().open(original)) {
+                    write(lease.server(), flipX, flipY, temp, compression);
+                }
+            }
+            // Close cached readers of an outdated copy before replacing it
+            ImageServerCache.getInstance().invalidate(flipped);
+            Files.move(temp.toPath(), flipped.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+        return flipped;
+    }
+
+    /**
+     * Server whose tiles are the mirrored tiles of another server.
+     */
+    static class FlippedServer extends AbstractTileableImageServer {
+        private final ImageServer<BufferedImage> source;
+        private final boolean flipX;
+        private final boolean flipY;
+        private final ImageServerMetadata metadata;
+
+        FlippedServer(ImageServer<BufferedImage> source, boolean flipX, boolean flipY, String name) {
+            this.source = source;
+            this.flipX = flipX;
+            this.flipY = flipY;
+            this.metadata = new ImageServerMetadata.Builder(source.getMetadata())
+                    .name(name)
+                    .levelsFromDownsamples(source.getPreferredDownsamples())
+                    .build();
+        }
+
+        @Override
+        protected BufferedImage readTile(TileRequest tileRequest) throws IOException {
+            int x = flipX
+                    ? source.getWidth() - tileRequest.getImageX() - tileRequest.getImageWidth()
+                    : tileRequest.getImageX();
+            int y = flipY
+                    ? source.getHeight() - tileRequest.getImageY() - tileRequest.getImageHeight()
+                    : tileRequest.getImageY();
+            BufferedImage img = source.readRegion(RegionRequest.createInstance(source.getPath(),
+                    tileRequest.getDownsample(), x, y,
+                    tileRequest.getImageWidth(), tileRequest.getImageHeight(),
+                    tileRequest.getZ(), tileRequest.getT()));
+            return flip(img, tileRequest.getTileWidth(), tileRequest.getTileHeight(), flipX, flipY);
+        }
+
+        @Override
+        protected ServerBuilder<BufferedImage> createServerBuilder() {
+            // Only used for writing; not stored in projects
+            return null;
+        }
+
+        @Override
+        protected String createID() {
+            return "qpsc-flipped:" + flipX + ":" + flipY + ":" + source.getPath();
+        }
+
+        @Override
+        public Collection<URI> getURIs() {
+            return source.getURIs();
+        }
+
+        @Override
+        public String getServerType() {
+            return "QPSC flipped image";
+        }
+
+        @Override
+        public ImageServerMetadata getOriginalMetadata() {
+            return metadata;
+        }
+    }
+
+    /**
+     * Mirrors an image into a new image of the requested size.
+     * Rounding at lower levels can make the source a pixel smaller than requested; missing pixels
+     * are left at zero on the far side of the mirrored tile.
+     *
+     * @param img Source pixels
+     * @param width Width of the result
+     * @param height Height of the result
+     * @param flipX Whether to mirror horizontally
+     * @param flipY Whether to mirror vertically
+     * @return The mirrored image, with the color model of {@code img}
+     */
+    static BufferedImage flip(BufferedImage img, int width, int height, boolean flipX, boolean flipY) {
+        Raster in = img.getRaster();
+        int bands = in.getNumBands();
+        int w = Math.min(width, in.getWidth());
+        int h = Math.min(height, in.getHeight());
+
+        WritableRaster out = img.getColorModel().createCompatibleWritableRaster(width, height);
+        double[] row = new double[w * bands];
+        double[] mirrored = new double[w * bands];
+        for (int y = 0; y < h; y++) {
+            in.getPixels(0, flipY ? h - 1 - y : y, w, 1, row);
+            if (flipX) {
+                for (int px = 0; px < w; px++) {
+                    System.arraycopy(row, px * bands, mirrored, (w - 1 - px) * bands, bands);
+                }
+                out.setPixels(0, y, w, 1, mirrored);
+            } else {
+                out.setPixels(0, y, w, 1, row);
+            }
+        }
+        return new BufferedImage(img.getColorModel(), out, img.isAlphaPremultiplied(), null);
+    }
+}
@@ -92,15 +92,13 @@ public class ImageFlipHelper {
                         logger.info("Using only project entry: {}", currentEntry.getImageName());
                     } else if (!entries.isEmpty()) {
                         // Multiple entries - try to find one that's already flipped and matches requirements
-                        for (var entry : entries) {
-                            if (ImageMetadataManager.isFlipped(entry)) {
-                                boolean flipXMatch = !requiresFlipX || ImageMetadataManager.isFlippedX(entry);
-                                boolean flipYMatch = !requiresFlipY || ImageMetadataManager.isFlippedY(entry);
-                                if (flipXMatch && flipYMatch) {
-                                    logger.info("Found matching flipped entry: {}", entry.getImageName());
-                                    // Open this entry to ensure it's the current image
-                                    return openAndVerifyEntry(gui, project, entry);
-                                }
+                        for (var entry : ImageMetadataIndex.forProject(project).getFlipped()) {
+                            boolean flipXMatch = !requiresFlipX || ImageMetadataManager.isFlippedX(entry);
+                            boolean flipYMatch = !requiresFlipY || ImageMetadataManager.isFlippedY(entry);
+                            if (flipXMatch && flipYMatch) {
+                                logger.info("Found matching flipped entry: {}", entry.getImageName());
+                                // Open this entry to ensure it's the current image
+                                return openAndVerifyEntry(gui, project, entry);
                             }
                         }
                         logger.warn("Could not find matching entry in project with {} entries", entries.size());
@@ -391,6 +389,15 @@ public class ImageFlipHelper {
 
         logger.debug("Looking for entry matching path: {} or name: {}", currentPath, currentName);
 
+        // Exact name match from the metadata index before falling back to the fuzzy scan
+        if (currentName != null) {
+            var byName = ImageMetadataIndex.forProject(project).getByImageName(currentName);
+            if (!byName.isEmpty()) {
+                logger.info("Found matching entry by name: {}", currentName);
+                return byName.get(0);
+            }
+        }
+
         for (ProjectImageEntry<BufferedImage> entry : project.getImageList()) {
             String entryName = entry.getImageName();
 
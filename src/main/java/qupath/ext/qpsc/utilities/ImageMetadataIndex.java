@@ -0,0 +1,299 @@
+package qupath.ext.qpsc.utilities;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qupath.lib.projects.Project;
+import qupath.lib.projects.ProjectImageEntry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * In-memory index of the QPSC metadata of all entries in a project.
+ *
+ * <p>Answers the lookups that would otherwise scan every {@link ProjectImageEntry} and parse its
+ * metadata strings: entries by image collection, base image, sample name, modality, ID or image
+ * name, flipped entries, and the next free collection number.</p>
+ *
+ * <p>One index is kept per open project. It is built on first use and then maintained
+ * incrementally:</p>
+ * <ul>
+ *   <li>{@link ImageMetadataManager#applyImageMetadata} and
+ *       {@link ImageMetadataManager#updateMetadataValue} re-index the entry they change.</li>
+ *   <li>On each lookup the entry IDs of the project are compared with the indexed ones; entries
+ *       that are new are indexed and entries that are gone are dropped, without re-reading the
+ *       others. Comparing IDs rather than counts also catches a removal followed by an add.</li>
+ *   <li>Metadata edited outside this extension (e.g. in the project browser) is not seen until
+ *       {@link #invalidate(Project)} is called.</li>
+ * </ul>
+ *
+ * @param <T> Image type of the project
+ */
+public class ImageMetadataIndex<T> {
+    private static final Logger logger = LoggerFactory.getLogger(ImageMetadataIndex.class);
+
+    private static final Map<Project<?>, ImageMetadataIndex<?>> indexes = new WeakHashMap<>();
+
+    /**
+     * Indexed values of one entry.
+     */
+    private record Indexed<T>(ProjectImageEntry<T> entry, String imageName, int collection,
+                              String baseImage, String sampleName, String modality, boolean flipped) {}
+
+    private final Project<T> project;
+
+    /** Entries by ID, in the order they were indexed (project order for the initial build) */
+    private final Map<String, Indexed<T>> byId = new LinkedHashMap<>();
+    private final Map<Integer, Set<String>> byCollection = new HashMap<>();
+    private final Map<String, Set<String>> byBaseImage = new HashMap<>();
+    private final Map<String, Set<String>> bySampleName = new HashMap<>();
+    private final Map<String, Set<String>> byModality = new HashMap<>();
+    private final Map<String, Set<String>> byImageName = new HashMap<>();
+    private final Set<String> flipped = new LinkedHashSet<>();
+
+    private ImageMetadataIndex(Project<T> project) {
+        this.project = project;
+    }
+
+    /**
+     * Returns the index for a project, building it on first use and picking up entries that were
+     * added or removed since the last call.
+     *
+     * @param project The project
+     * @param <T> Image type
+     * @return The project's index
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ImageMetadataIndex<T> forProject(Project<T> project) {
+        ImageMetadataIndex<T> index;
+        synchronized (indexes) {
+            index = (ImageMetadataIndex<T>) indexes.computeIfAbsent(project, p -> new ImageMetadataIndex<>(project));
+        }
+        index.syncEntries();
+        return index;
+    }
+
+    /**
+     * Discards the index for a project, so the next lookup re-reads all entries.
+     *
+     * @param project The project
+     */
+    public static void invalidate(Project<?> project) {
+        synchronized (indexes) {
+            indexes.remove(project);
+        }
+    }
+
+    /**
+     * Re-indexes an entry after its metadata changed, in whichever project index contains it.
+     * Entries not yet indexed are picked up by the next {@link #forProject} call.
+     *
+     * @param entry The changed entry
+     */
+    static void entryChanged(ProjectImageEntry<?> entry) {
+        if (entry == null) {
+            return;
+        }
+        List<ImageMetadataIndex<?>> current;
+        synchronized (indexes) {
+            current = new ArrayList<>(indexes.values());
+        }
+        for (ImageMetadataIndex<?> index : current) {
+            index.reindexIfPresent(entry);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized void reindexIfPresent(ProjectImageEntry<?> entry) {
+        Indexed<T> existing = byId.get(entry.getID());
+        if (existing != null) {
+            remove(existing);
+            add((ProjectImageEntry<T>) entry);
+        }
+    }
+
+    private synchronized void syncEntries() {
+        List<ProjectImageEntry<T>> entries = project.getImageList();
+        int before = byId.size();
+        int added = 0;
+        Set<String> present = new HashSet<>();
+        for (ProjectImageEntry<T> entry : entries) {
+            present.add(entry.getID());
+            if (!byId.containsKey(entry.getID())) {
+                add(entry);
+                added++;
+            }
+        }
+        // Every present entry is indexed now, so anything beyond them is gone
+        if (byId.size() > present.size()) {
+            for (Indexed<T> gone : new ArrayList<>(byId.values())) {
+                if (!present.contains(gone.entry().getID())) {
+                    remove(gone);
+                }
+            }
+        } else if (added == 0) {
+            return;
+        }
+        logger.debug("Metadata index synced: {} -> {} entries", before, byId.size());
+    }
+
+    private void add(ProjectImageEntry<T> entry) {
+        Map<String, String> metadata = entry.getMetadata();
+        Indexed<T> indexed = new Indexed<>(entry,
+                entry.getImageName(),
+                parseCollection(entry, metadata.get(ImageMetadataManager.IMAGE_COLLECTION)),
+                metadata.get(ImageMetadataManager.BASE_IMAGE),
+                metadata.get(ImageMetadataManager.SAMPLE_NAME),
+                metadata.get(ImageMetadataManager.MODALITY),
+                "1".equals(metadata.get(ImageMetadataManager.FLIP_X))
+                        || "1".equals(metadata.get(ImageMetadataManager.FLIP_Y)));
+
+        String id = entry.getID();
+        byId.put(id, indexed);
+        if (indexed.collection() > 0) {
+            byCollection.computeIfAbsent(indexed.collection(), k -> new LinkedHashSet<>()).add(id);
+        }
+        put(byBaseImage, indexed.baseImage(), id);
+        put(bySampleName, indexed.sampleName(), id);
+        put(byModality, indexed.modality(), id);
+        put(byImageName, indexed.imageName(), id);
+        if (indexed.flipped()) {
+            flipped.add(id);
+        }
+    }
+
+    private void remove(Indexed<T> indexed) {
+        String id = indexed.entry().getID();
+        byId.remove(id);
+        Set<String> ids = byCollection.get(indexed.collection());
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            byCollection.remove(indexed.collection());
+        }
+        delete(byBaseImage, indexed.baseImage(), id);
+        delete(bySampleName, indexed.sampleName(), id);
+        delete(byModality, indexed.modality(), id);
+        delete(byImageName, indexed.imageName(), id);
+        flipped.remove(id);
+    }
+
+    private static int parseCollection(ProjectImageEntry<?> entry, String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid image_collection value '{}' for entry: {}", value, entry.getImageName());
+            return -1;
+        }
+    }
+
+    private static void put(Map<String, Set<String>> map, String key, String id) {
+        if (key != null && !key.isEmpty()) {
+            map.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(id);
+        }
+    }
+
+    private static void delete(Map<String, Set<String>> map, String key, String id) {
+        if (key == null) {
+            return;
+        }
+        Set<String> ids = map.get(key);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            map.remove(key);
+        }
+    }
+
+    private List<ProjectImageEntry<T>> entries(Set<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<ProjectImageEntry<T>> result = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            result.add(byId.get(id).entry());
+        }
+        return result;
+    }
+
+    /**
+     * @return The highest image collection number in use plus one (minimum 1)
+     */
+    public synchronized int getNextCollectionNumber() {
+        int max = 0;
+        for (int collection : byCollection.keySet()) {
+            max = Math.max(max, collection);
+        }
+        return max + 1;
+    }
+
+    /**
+     * @param collection Image collection number
+     * @return Entries in the collection
+     */
+    public synchronized List<ProjectImageEntry<T>> getByCollection(int collection) {
+        return entries(byCollection.get(collection));
+    }
+
+    /**
+     * @param baseImage Base image name
+     * @return Entries derived from the base image
+     */
+    public synchronized List<ProjectImageEntry<T>> getByBaseImage(String baseImage) {
+        return entries(byBaseImage.get(baseImage));
+    }
+
+    /**
+     * @param sampleName Sample name
+     * @return Entries for the sample
+     */
+    public synchronized List<ProjectImageEntry<T>> getBySampleName(String sampleName) {
+        return entries(bySampleName.get(sampleName));
+    }
+
+    /**
+     * @param modality Modality (e.g. "ppm")
+     * @return Entries acquired with the modality
+     */
+    public synchronized List<ProjectImageEntry<T>> getByModality(String modality) {
+        return entries(byModality.get(modality));
+    }
+
+    /**
+     * @param imageName Exact image name in the project
+     * @return Entries with that name
+     */
+    public synchronized List<ProjectImageEntry<T>> getByImageName(String imageName) {
+        return entries(byImageName.get(imageName));
+    }
+
+    /**
+     * @return Entries marked as flipped on either axis
+     */
+    public synchronized List<ProjectImageEntry<T>> getFlipped() {
+        return entries(flipped);
+    }
+
+    /**
+     * @param id Entry ID
+     * @return The entry, or null if not in the project
+     */
+    public synchronized ProjectImageEntry<T> getById(String id) {
+        Indexed<T> indexed = id == null ? null : byId.get(id);
+        return indexed == null ? null : indexed.entry();
+    }
+
+    /**
+     * @return Number of indexed entries
+     */
+    public synchronized int size() {
+        return byId.size();
+    }
+}
@@ -55,7 +55,8 @@ public class ImageMetadataManager {
 
     /**
      * Gets the next available image collection number for a project.
-     * Scans all existing images to find the highest collection number and returns that + 1.
+     * Answered from the project's {@link ImageMetadataIndex}, which tracks the highest
+     * collection number in use without re-reading every entry.
      *
      * @param project The QuPath project
      * @return The next available collection number (minimum 1)
@@ -66,23 +67,7 @@ public class ImageMetadataManager {
             return 1;
         }
 
-        int maxCollection = 0;
-
-        for (ProjectImageEntry<?> entry : project.getImageList()) {
-            Map<String, String> metadata = entry.getMetadata();
-            String collectionStr = metadata.get(IMAGE_COLLECTION);
-            if (collectionStr != null) {
-                try {
-                    int collection = Integer.parseInt(collectionStr);
-                    maxCollection = Math.max(maxCollection, collection);
-                } catch (NumberFormatException e) {
-                    logger.warn("Invalid image_collection value '{}' for entry: {}",
-                            collectionStr, entry.getImageName());
-                }
-            }
-        }
-
-        int nextCollection = maxCollection + 1;
+        int nextCollection = ImageMetadataIndex.forProject(project).getNextCollectionNumber();
         logger.debug("Next image collection number: {}", nextCollection);
         return nextCollection;
     }
@@ -202,6 +187,8 @@ public class ImageMetadataManager {
         logger.debug("Applied metadata to {}: collection={}, base_image={}, offset=({},{}), flipX={}, flipY={}, sample={}, modality={}, objective={}, angle={}, annotation={}, index={}",
                 entry.getImageName(), collectionNumber, baseImage, xOffset, yOffset, flipX, flipY, sampleName,
                 modality, objective, angle, annotationName, imageIndex);
+
+        ImageMetadataIndex.entryChanged(entry);
     }
 
     /**
@@ -365,6 +352,7 @@ public class ImageMetadataManager {
         }
 
         if (anyChanges) {
+            ImageMetadataIndex.invalidate(project);
             try {
                 project.syncChanges();
                 logger.info("Successfully initialized project metadata");
@@ -550,6 +538,7 @@ public class ImageMetadataManager {
         }
 
         entry.getMetadata().put(key, value);
+        ImageMetadataIndex.entryChanged(entry);
         logger.debug("Updated metadata for {}: {} = {}", entry.getImageName(), key, value);
 
         if (syncProject) {
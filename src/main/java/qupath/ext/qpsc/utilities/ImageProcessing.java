@@ -3,35 +3,289 @@ package qupath.ext.qpsc.utilities;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import qupath.lib.gui.QuPathGUI;
+import qupath.lib.images.servers.ImageServer;
+import qupath.lib.regions.RegionRequest;
 import qupath.lib.roi.interfaces.ROI;
 import qupath.lib.scripting.QP;
 
 import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ImageProcessing {
     private static final Logger logger = LoggerFactory.getLogger(ImageProcessing.class);
+
+    /** Longest side of the low-resolution image analysed by {@link #detectDataBounds(ImageServer)} */
+    private static final int BOUNDS_TARGET_SIZE = 2048;
+
+    /** Padding must be at least this bright (0-255) to be treated as scanner padding */
+    private static final int MIN_PADDING_LEVEL = 200;
+
+    /** Fraction of the image border that must share the padding colour for padding to be assumed */
+    private static final double MIN_BORDER_FRACTION = 0.2;
+
+    /** Per-channel tolerance around the padding colour, widened to the measured peak width */
+    private static final int MIN_PADDING_TOLERANCE = 4;
+    private static final int MAX_PADDING_TOLERANCE = 24;
+
+    /** A row or column belongs to the data area when more than this fraction of it is not padding */
+    private static final double MIN_DATA_LINE_FRACTION = 0.005;
+
+    /**
+     * Detected data bounds keyed by server path, which also identifies any flip applied on import,
+     * with the last-modified time of the image files they were detected in
+     */
+    private static final Map<String, CachedBounds> dataBoundsCache = new ConcurrentHashMap<>();
+
+    private record CachedBounds(long lastModified, Rectangle bounds) {}
+
     /**
      * Detects the actual data bounds in an Ocus40 image by identifying and excluding white padding.
      * This is necessary because Ocus40 scanners add asymmetric white padding when creating pyramidal images.
      *
-     * <p>The method runs a pixel classifier to detect white background regions, then creates an inverse
-     * annotation representing the actual data area. This handles the common case where padding is added
-     * to accommodate tile boundaries at different pyramid levels.</p>
+     * <p>The bounds are found natively with {@link #detectDataBounds(ImageServer)}. If that fails, the
+     * method falls back to running the WhiteBackground pixel classifier, which creates (and then removes)
+     * an inverse annotation representing the actual data area.</p>
      *
      * <p><b>Important:</b> This method operates on the image as it exists in QuPath, which means
      * any flips applied during import have already been performed. The returned bounds are in
      * the flipped coordinate system, which matches the green box detection coordinates.</p>
      *
      * @param gui The QuPath GUI instance with already-flipped image
-     * @param scriptDirectory Directory containing the WhiteBackground.json classifier
+     * @param scriptDirectory Directory containing the WhiteBackground.json classifier (fallback only)
      * @return Rectangle representing the actual data bounds (x, y, width, height) in flipped coordinates,
      *         or null if detection fails
      */
     public static Rectangle detectOcus40DataBounds(QuPathGUI gui, String scriptDirectory) {
+        var imageData = gui.getImageData();
+        if (imageData != null) {
+            Rectangle bounds = detectDataBounds(imageData.getServer());
+            if (bounds != null) {
+                return bounds;
+            }
+        }
+        return detectOcus40DataBoundsWithClassifier(gui, scriptDirectory);
+    }
+
+    /**
+     * Detects the data bounds of an image by finding the uniform bright padding around it, without
+     * using the script engine or the object hierarchy.
+     *
+     * <p>A low-resolution pyramid level is read, the padding colour is estimated from a histogram of
+     * the image border, and row/column projections of the non-padding pixels give the first and last
+     * rows and columns containing data. The result is scaled back to full resolution, rounding outwards,
+     * and cached per server path until the image files change. An image without padding returns its
+     * full bounds.</p>
+     *
+     * @param server Image server (already flipped, if a flip was applied on import)
+     * @return Data bounds in full-resolution pixels, or null if the image cannot be analysed
+     */
+    public static Rectangle detectDataBounds(ImageServer<BufferedImage> server) {
+        if (server == null) {
+            return null;
+        }
+        String imageId = server.getPath();
+        long lastModified = lastModified(server);
+        CachedBounds cached = dataBoundsCache.get(imageId);
+        if (cached != null && cached.lastModified() == lastModified) {
+            logger.debug("Using cached data bounds for {}", imageId);
+            return new Rectangle(cached.bounds());
+        }
+        if (!server.isRGB()) {
+            logger.info("Native data bounds detection requires an RGB image");
+            return null;
+        }
+
+        try {
+            int width = server.getWidth();
+            int height = server.getHeight();
+            double downsample = chooseBoundsDownsample(server);
+
+            long startTime = System.currentTimeMillis();
+            BufferedImage lowRes = server.readRegion(
+                    RegionRequest.createInstance(server.getPath(), downsample, 0, 0, width, height));
+            Rectangle lowResBounds = findDataBounds(lowRes);
+            if (lowResBounds == null) {
+                logger.warn("Native data bounds detection found no data in {}", imageId);
+                return null;
+            }
+
+            // Scale to full resolution, rounding outwards so no data is cut off
+            double scaleX = (double) width / lowRes.getWidth();
+            double scaleY = (double) height / lowRes.getHeight();
+            int x0 = Math.max(0, (int) Math.floor(lowResBounds.x * scaleX));
+            int y0 = Math.max(0, (int) Math.floor(lowResBounds.y * scaleY));
+            int x1 = Math.min(width, (int) Math.ceil((lowResBounds.x + lowResBounds.width) * scaleX));
+            int y1 = Math.min(height, (int) Math.ceil((lowResBounds.y + lowResBounds.height) * scaleY));
+            Rectangle dataBounds = new Rectangle(x0, y0, x1 - x0, y1 - y0);
+
+            logger.info("Detected data bounds: x={}, y={}, width={}, height={} (downsample {}, {} ms)",
+                    dataBounds.x, dataBounds.y, dataBounds.width, dataBounds.height,
+                    String.format("%.2f", downsample), System.currentTimeMillis() - startTime);
+            logger.info("Detected padding - Left: {}, Top: {}, Right: {}, Bottom: {}",
+                    x0, y0, width - x1, height - y1);
+
+            dataBoundsCache.put(imageId, new CachedBounds(lastModified, new Rectangle(dataBounds)));
+            return dataBounds;
+
+        } catch (Exception e) {
+            logger.error("Error detecting data bounds natively", e);
+            return null;
+        }
+    }
+
+    /**
+     * @return Latest modification time of the server's local files, 0 if it has none
+     */
+    private static long lastModified(ImageServer<BufferedImage> server) {
+        long lastModified = 0;
+        for (URI uri : server.getURIs()) {
+            if (!"file".equals(uri.getScheme())) {
+                continue;
+            }
+            try {
+                lastModified = Math.max(lastModified, Files.getLastModifiedTime(Paths.get(uri)).toMillis());
+            } catch (Exception e) {
+                logger.debug("Cannot read modification time of {}: {}", uri, e.getMessage());
+            }
+        }
+        return lastModified;
+    }
+
+    /**
+     * Picks the downsample at which the longest side is about {@link #BOUNDS_TARGET_SIZE}, preferring
+     * an existing pyramid level so the region is not resampled from full resolution.
+     */
+    private static double chooseBoundsDownsample(ImageServer<BufferedImage> server) {
+        return chooseBoundsDownsample(server.getWidth(), server.getHeight(), server.getPreferredDownsamples());
+    }
+
+    /**
+     * Picks the downsample to read the bounds image at: the coarsest level no coarser than wanted,
+     * unless that level is more than twice as fine as wanted (e.g. an image without a pyramid).
+     * Then the wanted downsample itself is returned and the server resamples, rather than the
+     * whole image being read at that level.
+     */
+    static double chooseBoundsDownsample(int width, int height, double[] levelDownsamples) {
+        int longest = Math.max(width, height);
+        double wanted = Math.max(1.0, (double) longest / BOUNDS_TARGET_SIZE);
+        double best = 1.0;
+        for (double levelDownsample : levelDownsamples) {
+            if (levelDownsample <= wanted && levelDownsample > best) {
+                best = levelDownsample;
+            }
+        }
+        return best * 2 < wanted ? wanted : best;
+    }
+
+    /**
+     * Finds the data area of an image surrounded by uniform bright padding.
+     *
+     * @param image RGB image to analyse
+     * @return Bounds of the data area in image pixels, the full image if there is no padding,
+     *         or null if the whole image is padding
+     */
+    static Rectangle findDataBounds(BufferedImage image) {
+        int w = image.getWidth();
+        int h = image.getHeight();
+        int[] rgb = image.getRGB(0, 0, w, h, null, 0, w);
+
+        // Histogram the border, where padding (if any) must be
+        int[][] borderHist = new int[3][256];
+        int borderCount = 0;
+        for (int x = 0; x < w; x++) {
+            addToHistogram(borderHist, rgb[x]);
+            addToHistogram(borderHist, rgb[(h - 1) * w + x]);
+            borderCount += 2;
+        }
+        for (int y = 1; y < h - 1; y++) {
+            addToHistogram(borderHist, rgb[y * w]);
+            addToHistogram(borderHist, rgb[y * w + w - 1]);
+            borderCount += 2;
+        }
+
+        int[] padding = new int[3];
+        int tolerance = MIN_PADDING_TOLERANCE;
+        for (int c = 0; c < 3; c++) {
+            int[] hist = borderHist[c];
+            int mode = 0;
+            for (int i = 1; i < 256; i++) {
+                if (hist[i] > hist[mode]) {
+                    mode = i;
+                }
+            }
+            if (mode < MIN_PADDING_LEVEL || hist[mode] < borderCount * MIN_BORDER_FRACTION) {
+                logger.debug("No uniform bright padding on image border (channel {} mode {})", c, mode);
+                return new Rectangle(0, 0, w, h);
+            }
+            // Widen the tolerance to the half-width of the padding peak at 10% of its height
+            int floor = hist[mode] / 10;
+            int lo = mode;
+            while (lo > 0 && hist[lo - 1] > floor) {
+                lo--;
+            }
+            int hi = mode;
+            while (hi < 255 && hist[hi + 1] > floor) {
+                hi++;
+            }
+            padding[c] = mode;
+            tolerance = Math.max(tolerance, Math.max(mode - lo, hi - mode) + 1);
+        }
+        tolerance = Math.min(tolerance, MAX_PADDING_TOLERANCE);
+
+        // Row and column projections of non-padding pixels
+        int[] rowCounts = new int[h];
+        int[] colCounts = new int[w];
+        for (int y = 0; y < h; y++) {
+            int offset = y * w;
+            for (int x = 0; x < w; x++) {
+                int p = rgb[offset + x];
+                if (Math.abs(((p >> 16) & 0xff) - padding[0]) > tolerance
+                        || Math.abs(((p >> 8) & 0xff) - padding[1]) > tolerance
+                        || Math.abs((p & 0xff) - padding[2]) > tolerance) {
+                    rowCounts[y]++;
+                    colCounts[x]++;
+                }
+            }
+        }
+
+        int top = firstDataLine(rowCounts, Math.max(1, (int) (w * MIN_DATA_LINE_FRACTION)), false);
+        int left = firstDataLine(colCounts, Math.max(1, (int) (h * MIN_DATA_LINE_FRACTION)), false);
+        if (top < 0 || left < 0) {
+            return null;
+        }
+        int bottom = firstDataLine(rowCounts, Math.max(1, (int) (w * MIN_DATA_LINE_FRACTION)), true);
+        int right = firstDataLine(colCounts, Math.max(1, (int) (h * MIN_DATA_LINE_FRACTION)), true);
+        return new Rectangle(left, top, right - left + 1, bottom - top + 1);
+    }
+
+    private static void addToHistogram(int[][] hist, int rgb) {
+        hist[0][(rgb >> 16) & 0xff]++;
+        hist[1][(rgb >> 8) & 0xff]++;
+        hist[2][rgb & 0xff]++;
+    }
+
+    private static int firstDataLine(int[] counts, int minCount, boolean fromEnd) {
+        for (int i = 0; i < counts.length; i++) {
+            int index = fromEnd ? counts.length - 1 - i : i;
+            if (counts[index] >= minCount) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Detects data bounds by running the WhiteBackground pixel classifier through the script engine.
+     * Slower than {@link #detectDataBounds(ImageServer)} and modifies the hierarchy temporarily.
+     */
+    private static Rectangle detectOcus40DataBoundsWithClassifier(QuPathGUI gui, String scriptDirectory) {
         logger.info("Detecting Ocus40 data bounds using white background classifier");
 
         try {
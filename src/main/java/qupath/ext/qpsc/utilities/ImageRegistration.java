@@ -0,0 +1,680 @@
+package qupath.ext.qpsc.utilities;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Image registration primitives used by automatic macro-to-stage alignment.
+ *
+ * <p>Provides grayscale image handling, multi-scale phase correlation for locating a small
+ * image (e.g. a low-magnification snapshot resampled to macro pixel size) inside a larger one,
+ * and a weighted least-squares affine fit with iterative outlier rejection.</p>
+ *
+ * <p>All methods are pure and thread-safe; no QuPath or hardware dependencies.</p>
+ *
+ * @since 0.3.2
+ */
+public class ImageRegistration {
+    private static final Logger logger = LoggerFactory.getLogger(ImageRegistration.class);
+
+    /** Smallest template side (pixels) worth correlating at a coarse level */
+    private static final int MIN_LEVEL_SIZE = 16;
+
+    /** Coarsest pyramid scale tried by {@link #locate} */
+    private static final int MAX_LEVEL_SCALE = 8;
+
+    /**
+     * Exponent applied to the cross-power magnitude. 1 is classic phase correlation, which
+     * amplifies noise when a small template is zero-padded; 0.5 keeps the peak sharp while
+     * staying insensitive to contrast differences between macro and microscope images.
+     */
+    private static final double WHITENING_EXPONENT = 0.5;
+
+    /** Regularisation added to the cross-power magnitude to avoid dividing by zero */
+    private static final double WHITENING_EPSILON = 1e-9;
+
+    /** Robust scale factor turning a median absolute residual into a standard deviation estimate */
+    private static final double MAD_TO_SIGMA = 1.4826;
+
+    /** Above this many matches the consensus search samples triplets instead of trying all of them */
+    private static final int MAX_EXHAUSTIVE_MATCHES = 30;
+
+    /**
+     * Single-channel floating point image.
+     *
+     * @param width Width in pixels
+     * @param height Height in pixels
+     * @param data Row-major pixel values
+     */
+    public record GrayImage(int width, int height, float[] data) {
+
+        /**
+         * Converts an image to luminance using its RGB representation.
+         *
+         * @param image Source image (any type)
+         * @return Luminance image with values 0-255
+         */
+        public static GrayImage fromBufferedImage(BufferedImage image) {
+            int w = image.getWidth();
+            int h = image.getHeight();
+            int[] rgb = image.getRGB(0, 0, w, h, null, 0, w);
+            float[] data = new float[w * h];
+            for (int i = 0; i < data.length; i++) {
+                int p = rgb[i];
+                data[i] = 0.299f * ((p >> 16) & 0xff) + 0.587f * ((p >> 8) & 0xff) + 0.114f * (p & 0xff);
+            }
+            return new GrayImage(w, h, data);
+        }
+
+        public float get(int x, int y) {
+            return data[y * width + x];
+        }
+
+        /**
+         * Downsamples by box averaging.
+         *
+         * @param factor Downsample factor (values &le; 1 return this image)
+         * @return Downsampled image, at least 1x1
+         */
+        public GrayImage downsample(double factor) {
+            if (factor <= 1.0) {
+                return this;
+            }
+            int w = Math.max(1, (int) Math.round(width / factor));
+            int h = Math.max(1, (int) Math.round(height / factor));
+            float[] out = new float[w * h];
+            for (int y = 0; y < h; y++) {
+                int y0 = (int) Math.floor(y * factor);
+                int y1 = Math.min(height, Math.max(y0 + 1, (int) Math.floor((y + 1) * factor)));
+                for (int x = 0; x < w; x++) {
+                    int x0 = (int) Math.floor(x * factor);
+                    int x1 = Math.min(width, Math.max(x0 + 1, (int) Math.floor((x + 1) * factor)));
+                    double sum = 0;
+                    for (int yy = y0; yy < y1; yy++) {
+                        int offset = yy * width;
+                        for (int xx = x0; xx < x1; xx++) {
+                            sum += data[offset + xx];
+                        }
+                    }
+                    out[y * w + x] = (float) (sum / ((y1 - y0) * (x1 - x0)));
+                }
+            }
+            return new GrayImage(w, h, out);
+        }
+
+        /**
+         * Mirrors the image horizontally and/or vertically.
+         */
+        public GrayImage flip(boolean flipX, boolean flipY) {
+            if (!flipX && !flipY) {
+                return this;
+            }
+            float[] out = new float[data.length];
+            for (int y = 0; y < height; y++) {
+                int sy = flipY ? height - 1 - y : y;
+                for (int x = 0; x < width; x++) {
+                    int sx = flipX ? width - 1 - x : x;
+                    out[y * width + x] = data[sy * width + sx];
+                }
+            }
+            return new GrayImage(width, height, out);
+        }
+
+        /**
+         * Crops a region; pixels outside the image are filled with the image mean.
+         */
+        public GrayImage crop(int x, int y, int w, int h) {
+            float fill = (float) mean();
+            float[] out = new float[w * h];
+            for (int j = 0; j < h; j++) {
+                int sy = y + j;
+                for (int i = 0; i < w; i++) {
+                    int sx = x + i;
+                    out[j * w + i] = (sx >= 0 && sy >= 0 && sx < width && sy < height)
+                            ? data[sy * width + sx] : fill;
+                }
+            }
+            return new GrayImage(w, h, out);
+        }
+
+        public double mean() {
+            double sum = 0;
+            for (float v : data) {
+                sum += v;
+            }
+            return data.length == 0 ? 0 : sum / data.length;
+        }
+
+        /**
+         * Standard deviation of the pixel values; low values indicate featureless regions
+         * (e.g. bare glass) that cannot be registered reliably.
+         */
+        public double stdDev() {
+            double mean = mean();
+            double sum = 0;
+            for (float v : data) {
+                sum += (v - mean) * (v - mean);
+            }
+            return data.length == 0 ? 0 : Math.sqrt(sum / data.length);
+        }
+    }
+
+    /**
+     * Location of a template within a larger image.
+     *
+     * @param x Template top-left X in image pixels (sub-pixel)
+     * @param y Template top-left Y in image pixels (sub-pixel)
+     * @param confidence Peak-to-correlation energy: how far the peak stands out from the
+     *                   rest of the correlation surface, in standard deviations
+     */
+    public record Match(double x, double y, double confidence) {}
+
+    /**
+     * Correspondence between a point in source coordinates and in target coordinates.
+     *
+     * @param sourceX Source X (e.g. macro pixels)
+     * @param sourceY Source Y
+     * @param targetX Target X (e.g. stage micrometers)
+     * @param targetY Target Y
+     * @param weight Relative weight in the least-squares fit (&gt; 0)
+     */
+    public record PointMatch(double sourceX, double sourceY, double targetX, double targetY, double weight) {}
+
+    /**
+     * Result of {@link #fitAffine(List, double)}.
+     *
+     * @param transform Fitted source-to-target transform
+     * @param inliers Matches used in the final fit
+     * @param outliers Matches rejected as outliers
+     * @param rmsResidual RMS residual of the inliers, in target units
+     * @param maxResidual Largest inlier residual, in target units
+     */
+    public record AffineFit(AffineTransform transform, List<PointMatch> inliers, List<PointMatch> outliers,
+                            double rmsResidual, double maxResidual) {}
+
+    /**
+     * Locates a template inside an image near a predicted position using coarse-to-fine
+     * phase correlation.
+     *
+     * <p>The coarsest level searches the full radius; each finer level only searches a few
+     * pixels around the previous estimate, so large search radii stay cheap.</p>
+     *
+     * @param image Image to search
+     * @param template Template to find (smaller than the search window)
+     * @param predictedX Predicted template top-left X in image pixels
+     * @param predictedY Predicted template top-left Y in image pixels
+     * @param searchRadius Maximum expected error of the prediction, in image pixels
+     * @return Best match, or null if the template is degenerate
+     */
+    public static Match locate(GrayImage image, GrayImage template, double predictedX, double predictedY,
+                               int searchRadius) {
+        if (template.width() < 2 || template.height() < 2) {
+            return null;
+        }
+
+        int scale = 1;
+        int minSide = Math.min(template.width(), template.height());
+        while (scale < MAX_LEVEL_SCALE
+                && minSide / (scale * 2) >= MIN_LEVEL_SIZE
+                && searchRadius / (scale * 2) >= MIN_LEVEL_SIZE / 2) {
+            scale *= 2;
+        }
+
+        double estX = predictedX;
+        double estY = predictedY;
+        int radius = searchRadius;
+        Match match = null;
+        while (scale >= 1) {
+            GrayImage levelImage = image.downsample(scale);
+            GrayImage levelTemplate = template.downsample(scale);
+            int levelRadius = Math.max(2, (int) Math.ceil((double) radius / scale));
+
+            int windowW = nextPowerOfTwo(levelTemplate.width() + 2 * levelRadius);
+            int windowH = nextPowerOfTwo(levelTemplate.height() + 2 * levelRadius);
+            int originX = (int) Math.round(estX / scale) - (windowW - levelTemplate.width()) / 2;
+            int originY = (int) Math.round(estY / scale) - (windowH - levelTemplate.height()) / 2;
+            GrayImage window = levelImage.crop(originX, originY, windowW, windowH);
+
+            Match levelMatch = phaseCorrelate(window, levelTemplate);
+            estX = (originX + levelMatch.x()) * scale;
+            estY = (originY + levelMatch.y()) * scale;
+            match = new Match(estX, estY, levelMatch.confidence());
+            logger.debug("Phase correlation scale {}: ({}, {}) confidence {}",
+                    scale, estX, estY, levelMatch.confidence());
+
+            // The next level only has to correct the quantisation of this one
+            radius = 2 * scale;
+            scale /= 2;
+        }
+        return match;
+    }
+
+    /**
+     * Phase-correlates a template against a window whose sides are powers of two and at least
+     * as large as the template.
+     *
+     * @param window Search window (power-of-two dimensions)
+     * @param template Template, placed at the window origin for the correlation
+     * @return Template top-left within the window (sub-pixel) and peak confidence
+     */
+    public static Match phaseCorrelate(GrayImage window, GrayImage template) {
+        int w = window.width();
+        int h = window.height();
+        if (Integer.bitCount(w) != 1 || Integer.bitCount(h) != 1) {
+            throw new IllegalArgumentException("Window dimensions must be powers of two: " + w + "x" + h);
+        }
+        int tw = template.width();
+        int th = template.height();
+        if (tw > w || th > h) {
+            throw new IllegalArgumentException("Template larger than window");
+        }
+
+        double[] windowRe = new double[w * h];
+        double[] windowIm = new double[w * h];
+        double windowMean = window.mean();
+        for (int i = 0; i < windowRe.length; i++) {
+            windowRe[i] = window.data()[i] - windowMean;
+        }
+
+        // Mean-subtracted, Hann-tapered template so its edges do not dominate the spectrum
+        double[] templateRe = new double[w * h];
+        double[] templateIm = new double[w * h];
+        double templateMean = template.mean();
+        for (int y = 0; y < th; y++) {
+            double wy = th > 1 ? 0.5 - 0.5 * Math.cos(2 * Math.PI * (y + 0.5) / th) : 1;
+            for (int x = 0; x < tw; x++) {
+                double wx = tw > 1 ? 0.5 - 0.5 * Math.cos(2 * Math.PI * (x + 0.5) / tw) : 1;
+                templateRe[y * w + x] = (template.get(x, y) - templateMean) * wx * wy;
+            }
+        }
+
+        fft2d(windowRe, windowIm, w, h, false);
+        fft2d(templateRe, templateIm, w, h, false);
+
+        // Partially whitened cross-power spectrum W * conj(T) / |W * conj(T)|^k
+        for (int i = 0; i < windowRe.length; i++) {
+            double re = windowRe[i] * templateRe[i] + windowIm[i] * templateIm[i];
+            double im = windowIm[i] * templateRe[i] - windowRe[i] * templateIm[i];
+            double mag = Math.pow(Math.hypot(re, im), WHITENING_EXPONENT) + WHITENING_EPSILON;
+            windowRe[i] = re / mag;
+            windowIm[i] = im / mag;
+        }
+        fft2d(windowRe, windowIm, w, h, true);
+
+        // Only shifts that keep the template inside the window are valid
+        int maxDx = w - tw;
+        int maxDy = h - th;
+        int bestX = 0;
+        int bestY = 0;
+        double best = Double.NEGATIVE_INFINITY;
+        double sum = 0;
+        double sumSq = 0;
+        int n = 0;
+        for (int y = 0; y <= maxDy; y++) {
+            for (int x = 0; x <= maxDx; x++) {
+                double v = windowRe[y * w + x];
+                sum += v;
+                sumSq += v * v;
+                n++;
+                if (v > best) {
+                    best = v;
+                    bestX = x;
+                    bestY = y;
+                }
+            }
+        }
+        double mean = sum / n;
+        double std = Math.sqrt(Math.max(0, sumSq / n - mean * mean));
+        double confidence = std > 0 ? (best - mean) / std : 0;
+
+        double subX = bestX + parabolicOffset(
+                bestX > 0 ? windowRe[bestY * w + bestX - 1] : Double.NaN,
+                best,
+                bestX < maxDx ? windowRe[bestY * w + bestX + 1] : Double.NaN);
+        double subY = bestY + parabolicOffset(
+                bestY > 0 ? windowRe[(bestY - 1) * w + bestX] : Double.NaN,
+                best,
+                bestY < maxDy ? windowRe[(bestY + 1) * w + bestX] : Double.NaN);
+        return new Match(subX, subY, confidence);
+    }
+
+    private static double parabolicOffset(double left, double centre, double right) {
+        if (Double.isNaN(left) || Double.isNaN(right)) {
+            return 0;
+        }
+        double denom = left - 2 * centre + right;
+        if (denom >= 0) {
+            return 0;
+        }
+        return Math.max(-0.5, Math.min(0.5, 0.5 * (left - right) / denom));
+    }
+
+    /**
+     * Fits an affine transform to point matches by weighted least squares, rejecting outliers.
+     *
+     * <p>A consensus step first fits every triplet of matches (a sample of them for large inputs)
+     * and keeps the largest set agreeing within {@code minOutlierResidual}, so a single gross
+     * mismatch cannot drag the initial fit. The consensus set is then refit, and the match with
+     * the largest residual is dropped while that residual exceeds both {@code minOutlierResidual}
+     * and three robust standard deviations (from the median residual).</p>
+     *
+     * @param matches Point matches (at least three, not collinear)
+     * @param minOutlierResidual Residuals up to this value (target units) are never rejected
+     * @return The fit, or null if there are too few matches or they are degenerate
+     */
+    public static AffineFit fitAffine(List<PointMatch> matches, double minOutlierResidual) {
+        if (matches == null || matches.size() < 3) {
+            return null;
+        }
+        List<PointMatch> inliers = consensusSet(matches, minOutlierResidual);
+        List<PointMatch> outliers = new ArrayList<>(matches);
+        outliers.removeAll(inliers);
+
+        while (true) {
+            AffineTransform transform = solveAffine(inliers);
+            if (transform == null) {
+                return null;
+            }
+            double[] residuals = new double[inliers.size()];
+            int worst = 0;
+            double sumSq = 0;
+            for (int i = 0; i < inliers.size(); i++) {
+                residuals[i] = residual(transform, inliers.get(i));
+                sumSq += residuals[i] * residuals[i];
+                if (residuals[i] > residuals[worst]) {
+                    worst = i;
+                }
+            }
+            double[] sorted = residuals.clone();
+            Arrays.sort(sorted);
+            double median = sorted[sorted.length / 2];
+            double threshold = Math.max(minOutlierResidual, 3 * MAD_TO_SIGMA * median);
+
+            if (inliers.size() > 3 && residuals[worst] > threshold) {
+                logger.debug("Rejecting match {} with residual {} (threshold {})",
+                        inliers.get(worst), residuals[worst], threshold);
+                outliers.add(inliers.remove(worst));
+                continue;
+            }
+            return new AffineFit(transform, List.copyOf(inliers), List.copyOf(outliers),
+                    Math.sqrt(sumSq / inliers.size()), residuals[worst]);
+        }
+    }
+
+    /**
+     * Largest set of matches consistent (within the tolerance) with the affine through some
+     * triplet of matches. Falls back to all matches if no triplet is well conditioned.
+     */
+    private static List<PointMatch> consensusSet(List<PointMatch> matches, double tolerance) {
+        int n = matches.size();
+        if (n <= 3) {
+            return new ArrayList<>(matches);
+        }
+        List<PointMatch> best = null;
+        double bestError = Double.POSITIVE_INFINITY;
+        for (int[] t : triplets(n)) {
+            AffineTransform candidate = solveAffine(
+                    List.of(matches.get(t[0]), matches.get(t[1]), matches.get(t[2])));
+            if (candidate == null) {
+                continue;
+            }
+            List<PointMatch> agreeing = new ArrayList<>();
+            double error = 0;
+            for (PointMatch m : matches) {
+                double r = residual(candidate, m);
+                if (r <= tolerance) {
+                    agreeing.add(m);
+                    error += r;
+                }
+            }
+            if (best == null || agreeing.size() > best.size()
+                    || (agreeing.size() == best.size() && error < bestError)) {
+                best = agreeing;
+                bestError = error;
+            }
+        }
+        return best == null || best.size() < 3 ? new ArrayList<>(matches) : best;
+    }
+
+    /**
+     * All index triplets for small inputs, otherwise a fixed-seed random sample of them.
+     */
+    private static List<int[]> triplets(int n) {
+        List<int[]> triplets = new ArrayList<>();
+        if (n <= MAX_EXHAUSTIVE_MATCHES) {
+            for (int i = 0; i < n - 2; i++) {
+                for (int j = i + 1; j < n - 1; j++) {
+                    for (int k = j + 1; k < n; k++) {
+                        triplets.add(new int[]{i, j, k});
+                    }
+                }
+            }
+            return triplets;
+        }
+        Random random = new Random(n);
+        int samples = MAX_EXHAUSTIVE_MATCHES * MAX_EXHAUSTIVE_MATCHES * 4;
+        while (triplets.size() < samples) {
+            int a = random.nextInt(n);
+            int b = random.nextInt(n);
+            int c = random.nextInt(n);
+            if (a != b && b != c && a != c) {
+                triplets.add(new int[]{a, b, c});
+            }
+        }
+        return triplets;
+    }
+
+    /**
+     * Distance between a match's target and its transformed source.
+     */
+    public static double residual(AffineTransform transform, PointMatch match) {
+        double[] p = {match.sourceX(), match.sourceY()};
+        transform.transform(p, 0, p, 0, 1);
+        return Math.hypot(p[0] - match.targetX(), p[1] - match.targetY());
+    }
+
+    /**
+     * Weighted least-squares affine solve via the 3x3 normal equations, shared by both rows.
+     */
+    private static AffineTransform solveAffine(List<PointMatch> matches) {
+        // Centre the source points for numerical stability
+        double cx = 0;
+        double cy = 0;
+        double wSum = 0;
+        for (PointMatch m : matches) {
+            cx += m.weight() * m.sourceX();
+            cy += m.weight() * m.sourceY();
+            wSum += m.weight();
+        }
+        if (wSum <= 0) {
+            return null;
+        }
+        cx /= wSum;
+        cy /= wSum;
+
+        double[][] ata = new double[3][3];
+        double[] atx = new double[3];
+        double[] aty = new double[3];
+        for (PointMatch m : matches) {
+            double[] row = {m.sourceX() - cx, m.sourceY() - cy, 1};
+            for (int i = 0; i < 3; i++) {
+                for (int j = 0; j < 3; j++) {
+                    ata[i][j] += m.weight() * row[i] * row[j];
+                }
+                atx[i] += m.weight() * row[i] * m.targetX();
+                aty[i] += m.weight() * row[i] * m.targetY();
+            }
+        }
+
+        double[] rowX = solve3x3(ata, atx);
+        double[] rowY = solve3x3(ata, aty);
+        if (rowX == null || rowY == null) {
+            return null;
+        }
+        // Undo the centring: t = A (s - c) + b  =>  translation = b - A c
+        double m00 = rowX[0];
+        double m01 = rowX[1];
+        double m10 = rowY[0];
+        double m11 = rowY[1];
+        double tx = rowX[2] - m00 * cx - m01 * cy;
+        double ty = rowY[2] - m10 * cx - m11 * cy;
+        return new AffineTransform(m00, m10, m01, m11, tx, ty);
+    }
+
+    private static double[] solve3x3(double[][] a, double[] b) {
+        double det = a[0][0] * (a[1][1] * a[2][2] - a[1][2] * a[2][1])
+                - a[0][1] * (a[1][0] * a[2][2] - a[1][2] * a[2][0])
+                + a[0][2] * (a[1][0] * a[2][1] - a[1][1] * a[2][0]);
+        double scale = Math.abs(a[0][0] * a[1][1] * a[2][2]);
+        if (Math.abs(det) <= 1e-12 * Math.max(scale, 1e-300)) {
+            return null;
+        }
+        double[] x = new double[3];
+        for (int col = 0; col < 3; col++) {
+            double[][] m = {a[0].clone(), a[1].clone(), a[2].clone()};
+            for (int row = 0; row < 3; row++) {
+                m[row][col] = b[row];
+            }
+            x[col] = (m[0][0] * (m[1][1] * m[2][2] - m[1][2] * m[2][1])
+                    - m[0][1] * (m[1][0] * m[2][2] - m[1][2] * m[2][0])
+                    + m[0][2] * (m[1][0] * m[2][1] - m[1][1] * m[2][0])) / det;
+        }
+        return x;
+    }
+
+    /**
+     * Chooses up to {@code count} well-separated candidate positions with the most texture.
+     *
+     * @param image Image to analyse
+     * @param patchWidth Patch width in image pixels
+     * @param patchHeight Patch height in image pixels
+     * @param count Number of positions wanted
+     * @param minStdDev Patches with less texture than this are skipped
+     * @return Patch top-left corners as {x, y}, most textured first
+     */
+    public static List<int[]> selectTexturedPatches(GrayImage image, int patchWidth, int patchHeight,
+                                                    int count, double minStdDev) {
+        int stepX = Math.max(1, patchWidth / 2);
+        int stepY = Math.max(1, patchHeight / 2);
+        List<double[]> candidates = new ArrayList<>();
+        for (int y = 0; y + patchHeight <= image.height(); y += stepY) {
+            for (int x = 0; x + patchWidth <= image.width(); x += stepX) {
+                double std = image.crop(x, y, patchWidth, patchHeight).stdDev();
+                if (std >= minStdDev) {
+                    candidates.add(new double[]{x, y, std});
+                }
+            }
+        }
+        candidates.sort(Comparator.comparingDouble((double[] c) -> c[2]).reversed());
+
+        // Greedy selection keeping patches at least one patch apart
+        List<int[]> selected = new ArrayList<>();
+        for (double[] c : candidates) {
+            boolean farEnough = selected.stream().allMatch(s ->
+                    Math.abs(s[0] - c[0]) >= patchWidth || Math.abs(s[1] - c[1]) >= patchHeight);
+            if (farEnough) {
+                selected.add(new int[]{(int) c[0], (int) c[1]});
+                if (selected.size() == count) {
+                    break;
+                }
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * In-place 2D FFT of a row-major complex array with power-of-two dimensions.
+     * The inverse transform is scaled by 1/(w*h).
+     */
+    static void fft2d(double[] re, double[] im, int w, int h, boolean inverse) {
+        double[] rowRe = new double[w];
+        double[] rowIm = new double[w];
+        for (int y = 0; y < h; y++) {
+            System.arraycopy(re, y * w, rowRe, 0, w);
+            System.arraycopy(im, y * w, rowIm, 0, w);
+            fft1d(rowRe, rowIm, inverse);
+            System.arraycopy(rowRe, 0, re, y * w, w);
+            System.arraycopy(rowIm, 0, im, y * w, w);
+        }
+        double[] colRe = new double[h];
+        double[] colIm = new double[h];
+        for (int x = 0; x < w; x++) {
+            for (int y = 0; y < h; y++) {
+                colRe[y] = re[y * w + x];
+                colIm[y] = im[y * w + x];
+            }
+            fft1d(colRe, colIm, inverse);
+            for (int y = 0; y < h; y++) {
+                re[y * w + x] = colRe[y];
+                im[y * w + x] = colIm[y];
+            }
+        }
+        if (inverse) {
+            double norm = 1.0 / (w * h);
+            for (int i = 0; i < re.length; i++) {
+                re[i] *= norm;
+                im[i] *= norm;
+            }
+        }
+    }
+
+    /**
+     * Iterative radix-2 Cooley-Tukey FFT (unscaled).
+     */
+    private static void fft1d(double[] re, double[] im, boolean inverse) {
+        int n = re.length;
+        for (int i = 1, j = 0; i < n; i++) {
+            int bit = n >> 1;
+            for (; (j & bit) != 0; bit >>= 1) {
+                j ^= bit;
+            }
+            j ^= bit;
+            if (i < j) {
+                double t = re[i];
+                re[i] = re[j];
+                re[j] = t;
+                t = im[i];
+                im[i] = im[j];
+                im[j] = t;
+            }
+        }
+        for (int len = 2; len <= n; len <<= 1) {
+            double angle = 2 * Math.PI / len * (inverse ? 1 : -1);
+            double wRe = Math.cos(angle);
+            double wIm = Math.sin(angle);
+            for (int i = 0; i < n; i += len) {
+                double curRe = 1;
+                double curIm = 0;
+                for (int k = 0; k < len / 2; k++) {
+                    int a = i + k;
+                    int b = a + len / 2;
+                    double bRe = re[b] * curRe - im[b] * curIm;
+                    double bIm = re[b] * curIm + im[b] * curRe;
+                    re[b] = re[a] - bRe;
+                    im[b] = im[a] - bIm;
+                    re[a] += bRe;
+                    im[a] += bIm;
+                    double nextRe = curRe * wRe - curIm * wIm;
+                    curIm = curRe * wIm + curIm * wRe;
+                    curRe = nextRe;
+                }
+            }
+        }
+    }
+
+    static int nextPowerOfTwo(int n) {
+        int p = 1;
+        while (p < n) {
+            p <<= 1;
+        }
+        return p;
+    }
+}
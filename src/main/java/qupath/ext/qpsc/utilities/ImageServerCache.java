@@ -0,0 +1,274 @@
+package qupath.ext.qpsc.utilities;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qupath.lib.images.servers.ImageServer;
+import qupath.lib.images.servers.ImageServers;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Small LRU cache of open {@link ImageServer}s for stitched output files.
+ *
+ * <p>After stitching, the same OME-TIFF is opened by several steps: derived image computation,
+ * image type estimation and project import. Building a server parses the whole TIFF header (and
+ * OME-XML), so the stitching helpers and the project import path share servers through this
+ * cache instead of building a new one each time.</p>
+ *
+ * <p>Servers are keyed by file URI and modification time, so a file that is rewritten (e.g.
+ * flipped in place) is opened again and the server of the old version is dropped. Callers borrow a server with {@link #open(File)} and return
+ * it by closing the {@link Lease}; they must not close the server itself. A server evicted while
+ * borrowed is closed when its last lease is released. Stitching {@link #invalidate invalidates} an
+ * output path before it is replaced, and the cache is cleared when the project is closed, so idle
+ * servers do not keep files of another project open.</p>
+ *
+ * <pre>{@code
+ * try (ImageServerCache.Lease lease = ImageServerCache.getInstance().open(file)) {
+ *     ImageServer<BufferedImage> server = lease.server();
+ *     ...
+ * }
+ * }</pre>
+ */
+public final class ImageServerCache {
+    private static final Logger logger = LoggerFactory.getLogger(ImageServerCache.class);
+
+    /** Number of idle servers kept open */
+    public static final int DEFAULT_CAPACITY = 8;
+
+    private static final ImageServerCache INSTANCE = new ImageServerCache(DEFAULT_CAPACITY);
+
+    private record Key(String uri, long lastModified) {}
+
+    /** Builds a server for a file URI; {@link ImageServers#buildServer} outside of tests */
+    interface ServerBuilder {
+        ImageServer<BufferedImage> build(String uri) throws Exception;
+    }
+
+    private static final class Entry {
+        private final ImageServer<BufferedImage> server;
+        private int leases;
+        private boolean evicted;
+
+        private Entry(ImageServer<BufferedImage> server) {
+            this.server = server;
+        }
+    }
+
+    private final int capacity;
+    private final ServerBuilder builder;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    ImageServerCache(int capacity) {
+        this(capacity, uri -> ImageServers.buildServer(uri));
+    }
+
+    ImageServerCache(int capacity, ServerBuilder builder) {
+        this.capacity = capacity;
+        this.builder = builder;
+    }
+
+    /**
+     * @return The shared cache
+     */
+    public static ImageServerCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Cache statistics since startup or the last {@link #clear()}.
+     *
+     * @param hits Opens served from the cache
+     * @param misses Opens that built a new server
+     * @param evictions Servers dropped to stay within capacity
+     * @param size Servers currently cached
+     */
+    public record Stats(long hits, long misses, long evictions, int size) {
+
+        /**
+         * @return Fraction of opens served from the cache, or 0 if nothing was opened
+         */
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d hits, %d misses (%.0f%% hit rate), %d evictions, %d cached",
+                    hits, misses, hitRate() * 100, evictions, size);
+        }
+    }
+
+    /**
+     * A borrowed server. Closing the lease returns the server to the cache.
+     */
+    public final class Lease implements AutoCloseable {
+        private final Entry entry;
+        private boolean released;
+
+        private Lease(Entry entry) {
+            this.entry = entry;
+        }
+
+        /**
+         * @return The shared server; do not close it
+         */
+        public ImageServer<BufferedImage> server() {
+            return entry.server;
+        }
+
+        @Override
+        public void close() {
+            release(this);
+        }
+    }
+
+    /**
+     * Borrows a server for a file, building it if it is not cached.
+     *
+     * @param file Image file (or OME-Zarr directory)
+     * @return Lease on the server
+     * @throws IOException if the server cannot be built
+     */
+    public Lease open(File file) throws IOException {
+        Key key = keyFor(file);
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits.incrementAndGet();
+                entry.leases++;
+                return new Lease(entry);
+            }
+        }
+
+        // Build outside the lock so different files are opened in parallel
+        misses.incrementAndGet();
+        ImageServer<BufferedImage> server;
+        try {
+            server = builder.build(key.uri());
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Unable to open " + file + ": " + e.getMessage(), e);
+        }
+
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                // Another thread opened the same file meanwhile
+                closeQuietly(server);
+            } else {
+                // Servers of an older version of the file are not used again
+                retireAll(key.uri());
+                entry = new Entry(server);
+                entries.put(key, entry);
+                evictOverCapacity();
+            }
+            entry.leases++;
+            return new Lease(entry);
+        }
+    }
+
+    /**
+     * Drops all cached servers for a file, e.g. before it is replaced.
+     * Borrowed servers are closed when their lease is released.
+     *
+     * @param file Image file
+     */
+    public void invalidate(File file) {
+        synchronized (entries) {
+            retireAll(file.getAbsoluteFile().toURI().toString());
+        }
+    }
+
+    /**
+     * Drops all cached servers and resets the statistics.
+     */
+    public void clear() {
+        synchronized (entries) {
+            for (Entry entry : entries.values()) {
+                retire(entry);
+            }
+            entries.clear();
+        }
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+    }
+
+    /**
+     * @return Current statistics
+     */
+    public Stats getStats() {
+        synchronized (entries) {
+            return new Stats(hits.get(), misses.get(), evictions.get(), entries.size());
+        }
+    }
+
+    private void release(Lease lease) {
+        synchronized (entries) {
+            if (lease.released) {
+                return;
+            }
+            lease.released = true;
+            Entry entry = lease.entry;
+            entry.leases--;
+            if (entry.evicted && entry.leases == 0) {
+                closeQuietly(entry.server);
+            }
+        }
+    }
+
+    /** Removes least recently used entries beyond capacity. Must hold the lock. */
+    private void evictOverCapacity() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (entries.size() > capacity && it.hasNext()) {
+            Entry entry = it.next();
+            it.remove();
+            evictions.incrementAndGet();
+            retire(entry);
+        }
+    }
+
+    /** Removes all entries for a file URI. Must hold the lock. */
+    private void retireAll(String uri) {
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Entry> e = it.next();
+            if (e.getKey().uri().equals(uri)) {
+                it.remove();
+                retire(e.getValue());
+            }
+        }
+    }
+
+    /** Closes an entry now or when its last lease is released. Must hold the lock. */
+    private static void retire(Entry entry) {
+        entry.evicted = true;
+        if (entry.leases == 0) {
+            closeQuietly(entry.server);
+        }
+    }
+
+    private static Key keyFor(File file) {
+        File absolute = file.getAbsoluteFile();
+        return new Key(absolute.toURI().toString(), absolute.lastModified());
+    }
+
+    private static void closeQuietly(ImageServer<BufferedImage> server) {
+        try {
+            server.close();
+        } catch (Exception e) {
+            logger.debug("Error closing {}", server.getPath(), e);
+        }
+    }
+}
@@ -11,6 +11,8 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -25,24 +27,70 @@ import java.util.stream.Collectors;
 public class MicroscopeConfigManager {
     private static final Logger logger = LoggerFactory.getLogger(MicroscopeConfigManager.class);
 
+    private static final ResourceBundle res = ResourceBundle.getBundle("qupath.ext.qpsc.ui.strings");
+
     // Singleton instance
     private static MicroscopeConfigManager instance;
 
-    // Primary config data loaded from the chosen microscope YAML
-    private final Map<String, Object> configData;
+    /**
+     * Everything loaded from one version of the configuration files. A snapshot is never modified
+     * after it is published; reloading builds a new one and swaps it in with a single volatile
+     * write, so readers see either the old or the new configuration, never a mix.
+     *
+     * @param configPath Path to the microscope YAML file
+     * @param configData Primary config data loaded from the chosen microscope YAML
+     * @param resourceData Shared LOCI resource data loaded from resources_LOCI.yml
+     * @param autofocusData External autofocus settings from autofocus_{microscope}.yml (objective ID -> parameters)
+     * @param imageprocessingData External imaging_profiles and background_correction settings
+     * @param index Flattened lookup index over configData with LOCI references resolved
+     */
+    private record Snapshot(String configPath,
+                            Map<String, Object> configData,
+                            Map<String, Object> resourceData,
+                            Map<String, Map<String, Object>> autofocusData,
+                            Map<String, Object> imageprocessingData,
+                            ConfigIndex index) {
+
+        static Snapshot load(String configPath) {
+            Map<String, Object> configData = loadConfig(configPath);
+            Map<String, Object> resourceData = loadConfig(computeResourcePath(configPath));
+
+            // Dynamically build field-to-section map from the top-level of resources_LOCI.yml
+            Map<String, String> lociSectionMap = new HashMap<>();
+            for (String section : resourceData.keySet()) {
+                if (section.startsWith("ID_") || section.startsWith("id_")) {
+                    String field = section.substring(3) // remove "id_"
+                            .replaceAll("_", "")           // e.g. "OBJECTIVE_LENS" → "OBJECTIVELENS"
+                            .toLowerCase();                // "OBJECTIVELENS" → "objectivelens"
+                    lociSectionMap.put(field, section);
+                }
+            }
+            if (lociSectionMap.isEmpty())
+                logger.warn("No LOCI sections found in shared resources!");
+
+            return new Snapshot(configPath, configData, resourceData,
+                    loadAutofocusConfig(configPath),
+                    loadImageprocessingConfig(configPath),
+                    ConfigIndex.build(configData, resourceData));
+        }
+
+        Map<ConfigChangeEvent.Source, Map<String, ?>> bySource() {
+            return Map.of(
+                    ConfigChangeEvent.Source.CONFIG, configData,
+                    ConfigChangeEvent.Source.RESOURCES, resourceData,
+                    ConfigChangeEvent.Source.AUTOFOCUS, autofocusData,
+                    ConfigChangeEvent.Source.IMAGEPROCESSING, imageprocessingData);
+        }
+    }
 
-    // Shared LOCI resource data loaded from resources_LOCI.yml
-    private final Map<String, Object> resourceData;
-    private final Map<String, String> lociSectionMap;
-    private final String configPath;
+    // Current configuration; replaced as a whole on reload
+    private volatile Snapshot snapshot;
 
-    // External autofocus settings loaded from autofocus_{microscope}.yml
-    // Maps objective ID -> autofocus parameters map
-    private final Map<String, Map<String, Object>> autofocusData;
+    // Notified after a reload is published
+    private final List<Consumer<ConfigChangeEvent>> changeListeners = new CopyOnWriteArrayList<>();
 
-    // External imageprocessing settings loaded from imageprocessing_{microscope}.yml
-    // Contains imaging_profiles and background_correction settings
-    private final Map<String, Object> imageprocessingData;
+    // Watches the configuration files while enabled; null otherwise
+    private ConfigFileWatcher watcher;
 
     /**
      * Private constructor: loads microscope YAML, shared LOCI resources, external autofocus settings, and imageprocessing settings.
@@ -50,29 +98,15 @@ public class MicroscopeConfigManager {
      * @param configPath Filesystem path to the microscope YAML configuration file.
      */
     private MicroscopeConfigManager(String configPath) {
-        this.configPath = configPath;
-        this.configData = loadConfig(configPath);
-        String resPath = computeResourcePath(configPath);
-        this.resourceData = loadConfig(resPath);
-
-        // Load external autofocus settings if available
-        this.autofocusData = loadAutofocusConfig(configPath);
-
-        // Load external imageprocessing settings if available
-        this.imageprocessingData = loadImageprocessingConfig(configPath);
+        this(Snapshot.load(configPath));
+    }
 
-        // Dynamically build field-to-section map from the top-level of resources_LOCI.yml
-        this.lociSectionMap = new HashMap<>();
-        for (String section : resourceData.keySet()) {
-            if (section.startsWith("ID_") || section.startsWith("id_")) {
-                String field = section.substring(3) // remove "id_"
-                        .replaceAll("_", "")           // e.g. "OBJECTIVE_LENS" → "OBJECTIVELENS"
-                        .toLowerCase();                // "OBJECTIVELENS" → "objectivelens"
-                lociSectionMap.put(field, section);
-            }
-        }
-        if (lociSectionMap.isEmpty())
-            logger.warn("No LOCI sections found in shared resources!");
+    /**
+     * Creates a detached manager over an already loaded snapshot, used to validate a reload
+     * candidate with the same checks as the live configuration.
+     */
+    private MicroscopeConfigManager(Snapshot snapshot) {
+        this.snapshot = snapshot;
     }
 
     /**
@@ -98,24 +132,124 @@ public class MicroscopeConfigManager {
      * @return An unmodifiable Map containing the full configuration data.
      */
     public Map<String, Object> getAllConfig() {
-        return Collections.unmodifiableMap(configData);
+        return Collections.unmodifiableMap(snapshot.configData());
     }
 
     /**
      * Reloads the microscope YAML, shared LOCI resources, external autofocus settings, and imageprocessing settings.
+     * The new configuration is loaded completely before it replaces the current one, and change
+     * listeners are notified if any value differs.
      *
      * @param configPath Path to the microscope YAML file.
      */
     public synchronized void reload(String configPath) {
-        configData.clear();
-        configData.putAll(loadConfig(configPath));
-        String resPath = computeResourcePath(configPath);
-        resourceData.clear();
-        resourceData.putAll(loadConfig(resPath));
-        autofocusData.clear();
-        autofocusData.putAll(loadAutofocusConfig(configPath));
-        imageprocessingData.clear();
-        imageprocessingData.putAll(loadImageprocessingConfig(configPath));
+        publish(Snapshot.load(configPath));
+    }
+
+    /**
+     * Reloads the configuration from the current path, but only publishes it if it passes
+     * {@link #validateConfiguration()}. An invalid edit therefore leaves the last good
+     * configuration in place. Used by the file watcher.
+     *
+     * @return Validation errors of the new configuration; empty if it was published
+     */
+    public synchronized List<String> reloadIfValid() {
+        Snapshot candidate = Snapshot.load(snapshot.configPath());
+        List<String> errors = new MicroscopeConfigManager(candidate).validateConfiguration();
+        if (!errors.isEmpty()) {
+            logger.warn("Ignoring changed configuration {} with {} validation error(s); keeping the previous version",
+                    candidate.configPath(), errors.size());
+            return errors;
+        }
+        publish(candidate);
+        return errors;
+    }
+
+    private void publish(Snapshot next) {
+        Snapshot previous = snapshot;
+        snapshot = next;
+
+        ConfigChangeEvent event = ConfigChangeEvent.diff(next.configPath(), previous.bySource(), next.bySource());
+        if (event.isEmpty()) {
+            logger.info("Reloaded configuration {}: no changes", next.configPath());
+            return;
+        }
+        logger.info("Reloaded configuration {}: {} change(s) affecting {}",
+                next.configPath(), event.getChanges().size(), event.getKinds());
+        for (ConfigChangeEvent.Change change : event.getChanges()) {
+            logger.debug("Configuration change: {}", change);
+        }
+        for (Consumer<ConfigChangeEvent> listener : changeListeners) {
+            try {
+                listener.accept(event);
+            } catch (Exception e) {
+                logger.error("Configuration change listener failed", e);
+            }
+        }
+    }
+
+    /**
+     * Registers a listener that is notified, on the reloading thread, after a changed
+     * configuration has been published.
+     *
+     * @param listener Listener to add
+     */
+    public void addChangeListener(Consumer<ConfigChangeEvent> listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * @param listener Listener to remove
+     */
+    public void removeChangeListener(Consumer<ConfigChangeEvent> listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Starts watching the microscope YAML, its autofocus and imageprocessing files, and the shared
+     * resources file. Changes are reloaded in the background through {@link #reloadIfValid()}.
+     * Does nothing if already watching.
+     */
+    public synchronized void startWatching() {
+        if (watcher != null) {
+            return;
+        }
+        String configPath = snapshot.configPath();
+        Path configFile = Paths.get(configPath).toAbsolutePath();
+        String microscopeName = extractMicroscopeName(configFile.getFileName().toString());
+        Path dir = configFile.getParent();
+        try {
+            watcher = new ConfigFileWatcher(List.of(
+                    configFile,
+                    dir.resolve("autofocus_" + microscopeName + ".yml"),
+                    dir.resolve("imageprocessing_" + microscopeName + ".yml"),
+                    Paths.get(computeResourcePath(configPath))),
+                    this::reloadIfValid);
+            watcher.start();
+        } catch (IOException e) {
+            logger.warn("Could not watch configuration files for changes: {}", e.getMessage());
+            watcher = null;
+        }
+    }
+
+    /**
+     * Stops watching the configuration files.
+     */
+    public synchronized void stopWatching() {
+        if (watcher != null) {
+            watcher.close();
+            watcher = null;
+        }
+    }
+
+    /**
+     * Returns the current compiled lookup index. The index is immutable and replaced as a whole on
+     * {@link #reload(String)}, so callers in hot paths can hold on to it for a batch of lookups.
+     *
+     * @return Current configuration index
+     */
+    public ConfigIndex getConfigIndex() {
+        return snapshot.index();
     }
 
     /**
@@ -127,7 +261,7 @@ public class MicroscopeConfigManager {
      */
     @SuppressWarnings("unchecked")
     public Map<String, Object> getResourceSection(String sectionName) {
-        Object section = resourceData.get(sectionName);
+        Object section = snapshot.resourceData().get(sectionName);
         return (section instanceof Map<?, ?>) ? (Map<String, Object>) section : null;
     }
 
@@ -324,14 +458,31 @@ public class MicroscopeConfigManager {
      * If a String value matching "LOCI-..." is encountered during traversal,
      * this method will search all top-level sections of resources_LOCI.yml to find
      * the corresponding entry and continue the lookup there.
+     * <p>
+     * Paths are answered from the precompiled {@link ConfigIndex}; only paths that do not
+     * resolve fall back to walking the maps, which logs where the lookup failed.
      *
      * @param keys Sequence of keys (e.g., "modalities", "bf_10x", "objective", "id").
      * @return The value at the end of the key path, or null if not found.
      */
-    @SuppressWarnings("unchecked")
     public Object getConfigItem(String... keys) {
-        ResourceBundle res = ResourceBundle.getBundle("qupath.ext.qpsc.ui.strings");
-        Object current = configData;
+        ConfigIndex.Entry entry = snapshot.index().lookup(keys);
+        if (entry != null) {
+            return entry.value();
+        }
+        return resolveUncached(keys);
+    }
+
+    /**
+     * Resolves a key path by walking the configuration maps. Used for index misses, to report
+     * which step failed, and as the baseline in the lookup benchmark.
+     *
+     * @param keys Sequence of keys
+     * @return The value at the end of the key path, or null if not found
+     */
+    Object resolveUncached(String... keys) {
+        Map<String, Object> resourceData = snapshot.resourceData();
+        Object current = snapshot.configData();
 
         for (int i = 0; i < keys.length; i++) {
             String key = keys[i];
@@ -341,9 +492,9 @@ public class MicroscopeConfigManager {
 
                 // If this is a LOCI reference and more keys remain, switch to resourceData and continue
                 if (current instanceof String id && id.startsWith("LOCI") && i+1 < keys.length) {
-                    logger.info(res.getString("configManager.switchingToResource"),
-                            id, Arrays.toString(keys), i, key);
-                    String section = findResourceSectionForID(key, resourceData, res);
+                    logger.debug(res.getString("configManager.switchingToResource"),
+                            id, i, key, Arrays.toString(keys));
+                    String section = findResourceSectionForID(key, resourceData);
                     if (section == null) {
                         logger.warn(res.getString("configManager.resourceSectionNotFound"),
                                 key, id, Arrays.toString(keys));
@@ -353,7 +504,7 @@ public class MicroscopeConfigManager {
                     Object sectionObj = resourceData.get(section);
                     if (sectionObj instanceof Map<?, ?> secMap && secMap.containsKey(normalized)) {
                         current = ((Map<?, ?>) secMap).get(normalized);
-                        logger.info(res.getString("configManager.foundResourceEntry"),
+                        logger.debug(res.getString("configManager.foundResourceEntry"),
                                 section, normalized, current);
                         continue; // proceed with remaining keys
                     } else {
@@ -385,10 +536,9 @@ public class MicroscopeConfigManager {
      *
      * @param parentField   The key referring to a hardware part ("detector", "objectiveLens", etc.)
      * @param resourceData  The parsed LOCI resource map
-     * @param res           The strings ResourceBundle
      * @return Section name in resourceData (e.g., "id_detector"), or null if not found
      */
-    private static String findResourceSectionForID(String parentField, Map<String, Object> resourceData, ResourceBundle res) {
+    private static String findResourceSectionForID(String parentField, Map<String, Object> resourceData) {
         for (String section : resourceData.keySet()) {
             if (section.toLowerCase().contains(parentField.toLowerCase())) {
                 return section;
@@ -417,7 +567,11 @@ public class MicroscopeConfigManager {
      * @return Integer value or null.
      */
     public Integer getInteger(String... keys) {
-        Object v = getConfigItem(keys);
+        ConfigIndex.Entry entry = snapshot.index().lookup(keys);
+        if (entry != null && entry.intValue() != null) {
+            return entry.intValue();
+        }
+        Object v = entry != null ? entry.value() : resolveUncached(keys);
         if (v instanceof Number n) return n.intValue();
         try {
             return (v != null) ? Integer.parseInt(v.toString()) : null;
@@ -434,7 +588,11 @@ public class MicroscopeConfigManager {
      * @return Double value or null.
      */
     public Double getDouble(String... keys) {
-        Object v = getConfigItem(keys);
+        ConfigIndex.Entry entry = snapshot.index().lookup(keys);
+        if (entry != null && entry.doubleValue() != null) {
+            return entry.doubleValue();
+        }
+        Object v = entry != null ? entry.value() : resolveUncached(keys);
         if (v instanceof Number n) return n.doubleValue();
         try {
             return (v != null) ? Double.parseDouble(v.toString()) : null;
@@ -486,7 +644,7 @@ public class MicroscopeConfigManager {
      * @return Map containing settings, or empty map if not found
      */
     public Map<String, Object> getModalityConfig(String key) {
-        Object section = configData.get(key);
+        Object section = snapshot.configData().get(key);
         if (section instanceof Map) {
             return (Map<String, Object>) section;
         }
@@ -572,6 +730,7 @@ public class MicroscopeConfigManager {
     @SuppressWarnings("unchecked")
     public Object getProfileSetting(String modality, String objective, String detector, String... settingPath) {
         // Check external imageprocessing config
+        Map<String, Object> imageprocessingData = snapshot.imageprocessingData();
         if (imageprocessingData != null && imageprocessingData.containsKey("imaging_profiles")) {
             Map<String, Object> imagingProfiles = (Map<String, Object>) imageprocessingData.get("imaging_profiles");
             if (imagingProfiles != null && imagingProfiles.containsKey(modality)) {
@@ -736,6 +895,7 @@ public class MicroscopeConfigManager {
         logger.debug("Getting autofocus parameters for objective: {}", objective);
 
         // Check external autofocus file
+        Map<String, Map<String, Object>> autofocusData = snapshot.autofocusData();
         if (autofocusData != null && autofocusData.containsKey(objective)) {
             Map<String, Object> params = autofocusData.get(objective);
             logger.info("Found autofocus params for {} in external autofocus file", objective);
@@ -986,7 +1146,7 @@ public class MicroscopeConfigManager {
         List<String> scanners = new ArrayList<>();
         try {
             @SuppressWarnings("unchecked")
-            Map<String, Object> scannersMap = (Map<String, Object>) configData.get("scanners");
+            Map<String, Object> scannersMap = (Map<String, Object>) snapshot.configData().get("scanners");
             if (scannersMap != null) {
                 scanners.addAll(scannersMap.keySet());
             }
@@ -1156,6 +1316,7 @@ public class MicroscopeConfigManager {
         logger.debug("Getting background correction folder for modality: {}", modality);
 
         // Check external imageprocessing config
+        Map<String, Object> imageprocessingData = snapshot.imageprocessingData();
         if (imageprocessingData != null && imageprocessingData.containsKey("background_correction")) {
             Map<String, Object> bgCorrection = (Map<String, Object>) imageprocessingData.get("background_correction");
             if (bgCorrection != null && bgCorrection.containsKey(modality)) {
@@ -1179,6 +1340,7 @@ public class MicroscopeConfigManager {
     @SuppressWarnings("unchecked")
     public boolean isBackgroundCorrectionEnabled(String modality) {
         // Check external imageprocessing config
+        Map<String, Object> imageprocessingData = snapshot.imageprocessingData();
         if (imageprocessingData != null && imageprocessingData.containsKey("background_correction")) {
             Map<String, Object> bgCorrection = (Map<String, Object>) imageprocessingData.get("background_correction");
             if (bgCorrection != null && bgCorrection.containsKey(modality)) {
@@ -1202,6 +1364,7 @@ public class MicroscopeConfigManager {
     @SuppressWarnings("unchecked")
     public String getBackgroundCorrectionMethod(String modality) {
         // Check external imageprocessing config
+        Map<String, Object> imageprocessingData = snapshot.imageprocessingData();
         if (imageprocessingData != null && imageprocessingData.containsKey("background_correction")) {
             Map<String, Object> bgCorrection = (Map<String, Object>) imageprocessingData.get("background_correction");
             if (bgCorrection != null && bgCorrection.containsKey(modality)) {
@@ -1266,12 +1429,13 @@ public class MicroscopeConfigManager {
     public Map<String, Object> loadScannerConfig(String scannerName) {
         logger.debug("Loading scanner config for: {}", scannerName);
 
-        if (this.configPath == null) {
+        String configPath = snapshot.configPath();
+        if (configPath == null) {
             logger.error("Cannot determine scanner config path - configPath not set");
             return new HashMap<>();
         }
 
-        java.io.File configDir = new java.io.File(this.configPath).getParentFile();
+        java.io.File configDir = new java.io.File(configPath).getParentFile();
         java.io.File scannerFile = new java.io.File(configDir, "config_" + scannerName + ".yml");
 
         if (!scannerFile.exists()) {
@@ -1620,21 +1784,10 @@ public class MicroscopeConfigManager {
      * @param detectorId The detector ID
      * @return Pixel size in microns, or null if not found
      */
-    @SuppressWarnings("unchecked")
     public Double getHardwarePixelSize(String objectiveId, String detectorId) {
-        List<Map<String, Object>> objectives = getHardwareObjectives();
-
-        for (Map<String, Object> objective : objectives) {
-            String id = (String) objective.get("id");
-            if (objectiveId.equals(id)) {
-                Object pixelSizeMap = objective.get("pixel_size_xy_um");
-                if (pixelSizeMap instanceof Map) {
-                    Object pixelSize = ((Map<String, Object>) pixelSizeMap).get(detectorId);
-                    if (pixelSize instanceof Number) {
-                        return ((Number) pixelSize).doubleValue();
-                    }
-                }
-            }
+        Double pixelSize = snapshot.index().getHardwarePixelSize(objectiveId, detectorId);
+        if (pixelSize != null) {
+            return pixelSize;
         }
 
         logger.debug("No pixel size found in hardware section for objective {} with detector {}",
@@ -80,6 +80,13 @@ public class MinorFunctions {
      * @return Number of .tif entries found, or 0 if file not found after retries
      */
     public static int countExpectedTilesWithRetry(List<String> arguments, int maxRetries, long retryDelayMs) {
+        try (AcquisitionTelemetry.Timer t = AcquisitionTelemetry.getInstance()
+                .startPhase(AcquisitionTelemetry.PHASE_TILE_COUNT)) {
+            return countExpectedTilesWithRetryInternal(arguments, maxRetries, retryDelayMs);
+        }
+    }
+
+    private static int countExpectedTilesWithRetryInternal(List<String> arguments, int maxRetries, long retryDelayMs) {
         int count = 0;
         for (int attempt = 0; attempt <= maxRetries; attempt++) {
             count = countTifEntriesInTileConfig(arguments);
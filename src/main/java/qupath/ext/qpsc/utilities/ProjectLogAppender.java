@@ -0,0 +1,316 @@
+package qupath.ext.qpsc.utilities;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxyUtil;
+import ch.qos.logback.core.AppenderBase;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logback appender that writes QPSC log events as JSON lines into per-project log files.
+ *
+ * <p>Each event is routed by the {@value ProjectLogger#MDC_KEY} MDC value, which holds the
+ * project directory of the workflow that produced it. Events without the key (for example
+ * from pool threads that did not inherit the MDC) go to the most recently opened project.
+ * Events are dropped if no project log is open.</p>
+ *
+ * <p>{@link ProjectLogger} always wraps this appender in a logback {@code AsyncAppender}, so
+ * {@link #append(ILoggingEvent)} runs on a single worker thread and callers never block on file
+ * I/O. A daemon thread flushes buffered lines every {@value #FLUSH_INTERVAL_MS} ms and closes
+ * project logs that were marked for closing, so the tail of a run reaches disk even when
+ * nothing is logged afterwards.</p>
+ *
+ * <p>Line format:</p>
+ * <pre>{"ts":"2025-01-01T12:00:00.123","ts_ms":1735732800123,"level":"INFO","thread":"main",
+ * "logger":"qupath.ext.qpsc.X","msg":"...","mdc":{...},"exception":"..."}</pre>
+ */
+final class ProjectLogAppender extends AppenderBase<ILoggingEvent> {
+
+    static final String LOG_FILE_NAME = "acquisition.log";
+
+    /** Writers are flushed at most this often unless a WARN/ERROR event arrives */
+    private static final long FLUSH_INTERVAL_MS = 250;
+
+    /** How long a closed project log stays open for events still queued in the async appender */
+    private static final long CLOSE_GRACE_MS = 2000;
+
+    private static final DateTimeFormatter TS_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private final Map<String, Sink> sinks = new ConcurrentHashMap<>();
+    private volatile String defaultRoute;
+    private volatile boolean pendingClose;
+    private final StringBuilder line = new StringBuilder(512);
+    private ScheduledExecutorService flusher;
+
+    /**
+     * Opens (or re-opens) the project log for the given directory and makes it the default
+     * route for events without an MDC key.
+     */
+    void open(String projectDir) {
+        synchronized (sinks) {
+            sinks.computeIfAbsent(projectDir, k -> new Sink(Paths.get(k, LOG_FILE_NAME)))
+                    .closeAfterMs = Long.MAX_VALUE;
+            defaultRoute = projectDir;
+        }
+    }
+
+    /**
+     * Marks the project log for closing. Events stamped up to now are still written; the file
+     * is closed by the worker thread once it sees any later event or the appender stops.
+     */
+    void close(String projectDir) {
+        synchronized (sinks) {
+            Sink sink = sinks.get(projectDir);
+            if (sink != null) {
+                sink.closeAfterMs = System.currentTimeMillis();
+                pendingClose = true;
+            }
+            if (projectDir.equals(defaultRoute)) {
+                defaultRoute = sinks.entrySet().stream()
+                        .filter(e -> e.getValue().closeAfterMs == Long.MAX_VALUE)
+                        .map(Map.Entry::getKey)
+                        .findFirst()
+                        .orElse(null);
+            }
+        }
+    }
+
+    /**
+     * @return true if the project log for the given directory is open and not marked for closing
+     */
+    boolean isOpen(String projectDir) {
+        Sink sink = sinks.get(projectDir);
+        return sink != null && sink.closeAfterMs == Long.MAX_VALUE;
+    }
+
+    boolean hasOpenSinks() {
+        return sinks.values().stream().anyMatch(s -> s.closeAfterMs == Long.MAX_VALUE);
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        long ts = event.getTimeStamp();
+        if (pendingClose) {
+            closeExpiredSinks(ts);
+        }
+
+        String route = event.getMDCPropertyMap().get(ProjectLogger.MDC_KEY);
+        if (route == null) {
+            route = defaultRoute;
+        }
+        Sink sink = route == null ? null : sinks.get(route);
+        if (sink == null || ts > sink.closeAfterMs) {
+            return;
+        }
+
+        line.setLength(0);
+        line.append("{\"ts\":\"").append(TS_FORMAT.format(Instant.ofEpochMilli(ts)))
+                .append("\",\"ts_ms\":").append(ts)
+                .append(",\"level\":\"").append(event.getLevel()).append('"');
+        appendField("thread", event.getThreadName());
+        appendField("logger", event.getLoggerName());
+        appendField("msg", event.getFormattedMessage());
+
+        Map<String, String> mdc = event.getMDCPropertyMap();
+        if (mdc.size() > (mdc.containsKey(ProjectLogger.MDC_KEY) ? 1 : 0)) {
+            line.append(",\"mdc\":{");
+            boolean first = true;
+            for (Map.Entry<String, String> e : mdc.entrySet()) {
+                if (ProjectLogger.MDC_KEY.equals(e.getKey())) {
+                    continue;
+                }
+                if (!first) {
+                    line.append(',');
+                }
+                first = false;
+                appendString(e.getKey());
+                line.append(':');
+                appendString(e.getValue());
+            }
+            line.append('}');
+        }
+
+        IThrowableProxy throwable = event.getThrowableProxy();
+        if (throwable != null) {
+            appendField("exception", ThrowableProxyUtil.asString(throwable));
+        }
+        line.append('}');
+
+        boolean urgent = event.getLevel().isGreaterOrEqual(Level.WARN);
+        sink.write(line, urgent, this);
+    }
+
+    /**
+     * Closes sinks whose close time precedes the given event time. Events are handled in
+     * order, so everything logged before the close request has already been written.
+     */
+    private void closeExpiredSinks(long ts) {
+        synchronized (sinks) {
+            boolean stillPending = false;
+            for (Map.Entry<String, Sink> entry : sinks.entrySet()) {
+                Sink sink = entry.getValue();
+                if (ts > sink.closeAfterMs) {
+                    sinks.remove(entry.getKey(), sink);
+                    sink.closeQuietly();
+                } else if (sink.closeAfterMs != Long.MAX_VALUE) {
+                    stillPending = true;
+                }
+            }
+            pendingClose = stillPending;
+        }
+    }
+
+    /**
+     * Flushes lines written since the last flush and closes project logs whose close request is
+     * older than {@link #CLOSE_GRACE_MS}. Runs on the flusher thread.
+     */
+    private void flushSinks() {
+        if (pendingClose) {
+            closeExpiredSinks(System.currentTimeMillis() - CLOSE_GRACE_MS);
+        }
+        for (Sink sink : sinks.values()) {
+            sink.flushIfDirty(this);
+        }
+    }
+
+    @Override
+    public void start() {
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "qpsc-project-log-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flushSinks, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS,
+                TimeUnit.MILLISECONDS);
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+            flusher = null;
+        }
+        synchronized (sinks) {
+            sinks.values().forEach(Sink::closeQuietly);
+            sinks.clear();
+        }
+        super.stop();
+    }
+
+    private void appendField(String name, String value) {
+        line.append(",\"").append(name).append("\":");
+        appendString(value);
+    }
+
+    private void appendString(String value) {
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\t' -> line.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+                }
+            }
+        }
+        line.append('"');
+    }
+
+    /**
+     * One open project log file. Written by the appender's worker thread and flushed by the
+     * flusher thread, hence synchronized.
+     */
+    private static final class Sink {
+        private final Path file;
+        private BufferedWriter writer;
+        private long lastFlushMs;
+        private boolean dirty;
+        private volatile long closeAfterMs = Long.MAX_VALUE;
+        private boolean failed;
+
+        Sink(Path file) {
+            this.file = file;
+        }
+
+        synchronized void write(CharSequence text, boolean flushNow, ProjectLogAppender owner) {
+            if (failed) {
+                return;
+            }
+            try {
+                if (writer == null) {
+                    writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                }
+                writer.append(text).append('\n');
+                dirty = true;
+                long now = System.currentTimeMillis();
+                if (flushNow || now - lastFlushMs >= FLUSH_INTERVAL_MS) {
+                    writer.flush();
+                    dirty = false;
+                    lastFlushMs = now;
+                }
+            } catch (IOException e) {
+                // Report once through logback's status manager and stop writing to this file
+                failed = true;
+                owner.addError("Cannot write project log " + file, e);
+                closeQuietly();
+            }
+        }
+
+        synchronized void flushIfDirty(ProjectLogAppender owner) {
+            if (!dirty || writer == null) {
+                return;
+            }
+            try {
+                writer.flush();
+                dirty = false;
+                lastFlushMs = System.currentTimeMillis();
+            } catch (IOException e) {
+                failed = true;
+                owner.addError("Cannot write project log " + file, e);
+                closeQuietly();
+            }
+        }
+
+        synchronized void closeQuietly() {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException ignored) {
+                    // Nothing useful to do while shutting down a log file
+                }
+                writer = null;
+            }
+        }
+    }
+}
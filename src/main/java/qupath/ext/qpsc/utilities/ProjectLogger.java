@@ -1,13 +1,17 @@
 package qupath.ext.qpsc.utilities;
 
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
-import org.slf4j.Logger;
+import org.slf4j.ILoggerFactory;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 import qupath.lib.projects.Project;
 
 import java.io.File;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * Utility for managing project-specific logging.
@@ -39,18 +43,42 @@ import java.nio.file.Paths;
  * } // Automatically cleaned up
  * }</pre>
  *
- * <p>The project-specific log is saved as: {@code <project-directory>/acquisition.log}</p>
+ * <p>The project-specific log is saved as: {@code <project-directory>/acquisition.log}, one JSON
+ * object per line (see {@link ProjectLogAppender} for the fields).</p>
+ *
+ * <p>The project log sink is attached to the {@code qupath.ext.qpsc} loggers programmatically the
+ * first time logging is enabled, behind a logback {@link AsyncAppender} with a bounded queue, so
+ * enabling or disabling a project never reconfigures logback and logging threads never wait on
+ * file I/O. Events are routed by the {@value #MDC_KEY} MDC key. The key is only set while a task
+ * wrapped with {@link #wrap(Runnable)} or {@link Session#wrap(Runnable)} runs, and removed again
+ * on the same thread, so no pooled or FX thread is left pointing at a project that was closed
+ * elsewhere; concurrent workflows write to their own project folders as long as their background
+ * work is wrapped. Events without the key go to the most recently enabled project that is still
+ * open.</p>
  *
  * @author Mike Nelson
  * @since 0.2.1
  */
 public class ProjectLogger {
-    private static final Logger logger = LoggerFactory.getLogger(ProjectLogger.class);
-    private static final String PROPERTY_NAME = "qpsc.project.logdir";
+    private static final org.slf4j.Logger logger = LoggerFactory.getLogger(ProjectLogger.class);
+
+    /** MDC key holding the project directory an event should be written to */
+    public static final String MDC_KEY = "qpsc.project";
+
+    /** Logger whose events are captured; child loggers with additivity disabled are attached too */
+    private static final String QPSC_LOGGER = "qupath.ext.qpsc";
+
+    /** Bounded queue size for the async appender */
+    private static final int QUEUE_SIZE = 8192;
+
+    /** When fewer slots than this remain, TRACE/DEBUG/INFO events are dropped (WARN/ERROR are kept) */
+    private static final int DISCARDING_THRESHOLD = QUEUE_SIZE / 5;
 
     // Thread-local to support multiple concurrent workflows (though unlikely)
     private static final ThreadLocal<String> currentProjectPath = new ThreadLocal<>();
 
+    private static ProjectLogAppender router;
+
     /**
      * Enables project-specific logging for the given QuPath project.
      * Logs will be written to: {@code <project-directory>/acquisition.log}
@@ -70,7 +98,12 @@ public class ProjectLogger {
             return false;
         }
 
-        return enable(projectPath.toFile());
+        // Project.getPath() points at the .qpproj file for file-based projects
+        File projectDir = projectPath.toFile();
+        if (projectDir.isFile()) {
+            projectDir = projectDir.getParentFile();
+        }
+        return enable(projectDir);
     }
 
     /**
@@ -109,34 +142,56 @@ public class ProjectLogger {
             return false;
         }
 
-        // Set system property for logback
-        System.setProperty(PROPERTY_NAME, projectPath);
-        currentProjectPath.set(projectPath);
+        ProjectLogAppender sink = ensureAppenderAttached();
+        if (sink == null) {
+            return false;
+        }
 
-        // Reconfigure logback to pick up the new property
-        reconfigureLogback();
+        sink.open(projectPath);
+        currentProjectPath.set(projectPath);
 
         logger.info("Project-specific logging enabled: {}/acquisition.log", projectPath);
         return true;
     }
 
     /**
-     * Disables project-specific logging.
+     * Disables project-specific logging for the project enabled on the calling thread.
      * Should always be called when a workflow completes (use finally block or try-with-resources).
      */
     public static void disable() {
-        String path = currentProjectPath.get();
-
+        String path = enabledProject();
         if (path != null) {
-            logger.info("Project-specific logging disabled: {}/acquisition.log", path);
-            currentProjectPath.remove();
+            disable(path);
         }
+    }
 
-        // Clear system property
-        System.clearProperty(PROPERTY_NAME);
+    /**
+     * Disables project-specific logging for the given project directory. Events already queued
+     * for that project are still written before its log file is closed.
+     *
+     * @param projectPath The directory passed to {@link #enable(String)}
+     */
+    public static void disable(String projectPath) {
+        // Logged first, routed to the project being closed, so it is the last line of its log
+        String previous = MDC.get(MDC_KEY);
+        MDC.put(MDC_KEY, projectPath);
+        logger.info("Project-specific logging disabled: {}/acquisition.log", projectPath);
+        if (previous == null || previous.equals(projectPath)) {
+            MDC.remove(MDC_KEY);
+        } else {
+            MDC.put(MDC_KEY, previous);
+        }
 
-        // Reconfigure logback
-        reconfigureLogback();
+        ProjectLogAppender sink;
+        synchronized (ProjectLogger.class) {
+            sink = router;
+        }
+        if (sink != null) {
+            sink.close(projectPath);
+        }
+        if (projectPath.equals(currentProjectPath.get())) {
+            currentProjectPath.remove();
+        }
     }
 
     /**
@@ -145,7 +200,7 @@ public class ProjectLogger {
      * @return true if enabled, false otherwise
      */
     public static boolean isEnabled() {
-        return currentProjectPath.get() != null;
+        return enabledProject() != null;
     }
 
     /**
@@ -154,7 +209,103 @@ public class ProjectLogger {
      * @return The current project log directory, or null if not enabled
      */
     public static String getCurrentProjectPath() {
-        return currentProjectPath.get();
+        return enabledProject();
+    }
+
+    /**
+     * @return The project enabled on the calling thread, or null if none is or it has been closed
+     *         (possibly from another thread)
+     */
+    private static String enabledProject() {
+        String path = currentProjectPath.get();
+        if (path == null) {
+            return null;
+        }
+        ProjectLogAppender sink;
+        synchronized (ProjectLogger.class) {
+            sink = router;
+        }
+        if (sink == null || !sink.isOpen(path)) {
+            currentProjectPath.remove();
+            return null;
+        }
+        return path;
+    }
+
+    /**
+     * Wraps a task so it runs with the calling thread's MDC and logs to the same project on
+     * whichever thread executes it: the project of the task being run, or else the project
+     * enabled on the calling thread.
+     *
+     * @param task Task to wrap
+     * @return Wrapped task
+     */
+    public static Runnable wrap(Runnable task) {
+        String project = MDC.get(MDC_KEY);
+        return wrap(task, project != null ? project : enabledProject());
+    }
+
+    /**
+     * Wraps a supplier so it runs with the calling thread's MDC and logs to the same project on
+     * whichever thread executes it (see {@link #wrap(Runnable)}).
+     *
+     * @param task Supplier to wrap
+     * @param <T> Result type
+     * @return Wrapped supplier
+     */
+    public static <T> Supplier<T> wrap(Supplier<T> task) {
+        String project = MDC.get(MDC_KEY);
+        return wrap(task, project != null ? project : enabledProject());
+    }
+
+    /**
+     * Wraps a task so it logs to the given project on whichever thread executes it. The key is set
+     * and removed on the executing thread.
+     *
+     * @param task Task to wrap
+     * @param project Project directory from {@link #getCurrentProjectPath()}, or null to only copy
+     *                the calling thread's MDC
+     * @return Wrapped task
+     */
+    public static Runnable wrap(Runnable task, String project) {
+        Supplier<Void> supplier = wrap(() -> {
+            task.run();
+            return null;
+        }, project);
+        return supplier::get;
+    }
+
+    /**
+     * Wraps a supplier so it logs to the given project on whichever thread executes it (see
+     * {@link #wrap(Runnable, String)}).
+     *
+     * @param task Supplier to wrap
+     * @param project Project directory, or null to only copy the calling thread's MDC
+     * @param <T> Result type
+     * @return Wrapped supplier
+     */
+    public static <T> Supplier<T> wrap(Supplier<T> task, String project) {
+        Map<String, String> context = MDC.getCopyOfContextMap();
+        return () -> {
+            Map<String, String> previous = MDC.getCopyOfContextMap();
+            setContext(context);
+            if (project != null) {
+                MDC.put(MDC_KEY, project);
+            }
+            try {
+                return task.get();
+            } finally {
+                setContext(previous);
+            }
+        };
+    }
+
+    private static void setContext(Map<String, String> context) {
+        if (context == null) {
+            MDC.clear();
+        } else {
+            MDC.setContextMap(context);
+        }
     }
 
     /**
@@ -197,36 +348,74 @@ public class ProjectLogger {
     }
 
     /**
-     * Reconfigures the Logback context to pick up property changes.
-     * This is necessary for the PROJECT_LOG appender to activate/deactivate.
+     * Attaches the async project log appender to the QPSC loggers on first use.
+     *
+     * @return The routing appender, or null if logback is not the active SLF4J backend
      */
-    private static void reconfigureLogback() {
-        try {
-            LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
-            // Don't do a full reset - just update the context
-            context.getLogger(Logger.ROOT_LOGGER_NAME).info("Logback context updated");
-        } catch (Exception e) {
-            logger.debug("Could not reconfigure logback context", e);
+    private static synchronized ProjectLogAppender ensureAppenderAttached() {
+        if (router != null) {
+            return router;
+        }
+
+        ILoggerFactory factory = LoggerFactory.getILoggerFactory();
+        if (!(factory instanceof LoggerContext context)) {
+            logger.warn("Project logging requires logback; active logger factory is {}",
+                    factory.getClass().getName());
+            return null;
+        }
+
+        ProjectLogAppender sink = new ProjectLogAppender();
+        sink.setContext(context);
+        sink.setName("QPSC_PROJECT_JSON");
+        sink.start();
+
+        AsyncAppender async = new AsyncAppender();
+        async.setContext(context);
+        async.setName("QPSC_PROJECT_ASYNC");
+        async.setQueueSize(QUEUE_SIZE);
+        async.setDiscardingThreshold(DISCARDING_THRESHOLD);
+        async.setNeverBlock(true);
+        async.setIncludeCallerData(false);
+        async.addAppender(sink);
+        async.start();
+
+        // Attach to the extension logger and to any child logger that does not propagate to it
+        context.getLogger(QPSC_LOGGER).addAppender(async);
+        for (Logger child : context.getLoggerList()) {
+            if (child.getName().startsWith(QPSC_LOGGER + ".") && !child.isAdditive()) {
+                child.addAppender(async);
+            }
         }
+
+        router = sink;
+        logger.debug("Attached async project log appender (queue size {})", QUEUE_SIZE);
+        return router;
     }
 
     /**
      * Auto-closeable session for project-specific logging.
-     * Ensures logging is disabled when the session closes.
+     * Ensures logging is disabled when the session closes. The session may be closed from a
+     * different thread than the one that started it.
      */
     public static class Session implements AutoCloseable {
         private final boolean wasEnabled;
+        private final String projectPath;
+        private final java.util.concurrent.atomic.AtomicBoolean closed =
+                new java.util.concurrent.atomic.AtomicBoolean();
 
         private Session(Project<?> project) {
             this.wasEnabled = enable(project);
+            this.projectPath = currentProjectPath.get();
         }
 
         private Session(File projectDir) {
             this.wasEnabled = enable(projectDir);
+            this.projectPath = currentProjectPath.get();
         }
 
         private Session(String projectPath) {
             this.wasEnabled = enable(projectPath);
+            this.projectPath = currentProjectPath.get();
         }
 
         /**
@@ -238,10 +427,31 @@ public class ProjectLogger {
             return wasEnabled;
         }
 
+        /**
+         * Wraps a task so it logs to this session's project on whichever thread executes it.
+         *
+         * @param task Task to wrap
+         * @return Wrapped task
+         */
+        public Runnable wrap(Runnable task) {
+            return ProjectLogger.wrap(task, wasEnabled ? projectPath : null);
+        }
+
+        /**
+         * Wraps a supplier so it logs to this session's project on whichever thread executes it.
+         *
+         * @param task Supplier to wrap
+         * @param <T> Result type
+         * @return Wrapped supplier
+         */
+        public <T> Supplier<T> wrap(Supplier<T> task) {
+            return ProjectLogger.wrap(task, wasEnabled ? projectPath : null);
+        }
+
         @Override
         public void close() {
-            if (wasEnabled) {
-                disable();
+            if (wasEnabled && projectPath != null && closed.compareAndSet(false, true)) {
+                disable(projectPath);
             }
         }
     }
@@ -9,12 +9,12 @@ import java.net.URISyntaxException;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 import qupath.lib.gui.QuPathGUI;
+import qupath.ext.qpsc.preferences.QPPreferenceDialog;
 import qupath.fx.dialogs.Dialogs;
 import qupath.lib.gui.scripting.QPEx;
 import qupath.lib.gui.tools.GuiTools;
 import qupath.lib.images.ImageData;
 import qupath.lib.images.servers.ImageServer;
-import qupath.lib.images.servers.ImageServers;
 import qupath.lib.images.servers.TransformedServerBuilder;
 import qupath.lib.objects.hierarchy.PathObjectHierarchy;
 import qupath.lib.projects.Project;
@@ -27,8 +27,15 @@ import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -506,34 +513,14 @@ public class QPProjectFunctions {
                 xOffset, yOffset, isFlippedX || isFlippedY, sampleName,
                 modality, objective, angle, annotationName, imageIndex);
 
-        // First add the image using existing logic (preserves original method)
-        boolean success = addImageToProject(imageFile, project, isFlippedX, isFlippedY, modalityHandler);
-        if (!success) {
-            return null;
-        }
-
-        // Find the newly added entry
-        String imageName = imageFile.getName();
-        ProjectImageEntry<BufferedImage> newEntry = project.getImageList().stream()
-                .filter(e -> imageName.equals(e.getImageName()))
-                .findFirst()
-                .orElse(null);
-
-        if (newEntry != null) {
-            // Apply comprehensive metadata with all identification fields
-            ImageMetadataManager.applyImageMetadata(
-                    newEntry, parentEntry, xOffset, yOffset, isFlippedX, isFlippedY, sampleName,
-                    modality, objective, angle, annotationName, imageIndex
-            );
-
-            // Save project
-            project.syncChanges();
-            logger.info("Successfully added image with comprehensive metadata to project");
-        } else {
-            logger.error("Could not find newly added image in project: {}", imageName);
-        }
+        // Add the image and its metadata with a single project save
+        ImportResult result = addImagesToProject(project, List.of(ImageImport.withMetadata(
+                imageFile, parentEntry, xOffset, yOffset, isFlippedX, isFlippedY, sampleName,
+                modality, objective, angle, annotationName, imageIndex)), modalityHandler);
+        result.rethrowFirstFailure();
 
-        return newEntry;
+        logger.info("Successfully added image with comprehensive metadata to project");
+        return result.entries().isEmpty() ? null : result.entries().get(0);
     }
 
     /**
@@ -566,6 +553,11 @@ public class QPProjectFunctions {
      * NOTE: TransformedServerBuilder creates a virtual transformation - the actual pixel data
      * comes from the original file, but QuPath applies the transformation when rendering.
      *
+     * With "Write flipped images to disk" set and a local TIFF original, a flipped copy is instead
+     * written next to the original (e.g. {@code image_flippedX.ome.tif}) and added without a
+     * transform. The copy is reused until the original changes (see
+     * {@link FlippedImageWriter#flippedCopy}).
+     *
      * @param project The project
      * @param originalEntry The original image entry to duplicate
      * @param flipX Whether to flip horizontally
@@ -599,36 +591,58 @@ public class QPProjectFunctions {
         // Get the original image type
         ImageData.ImageType imageType = originalData.getImageType();
 
-        // Build the transformed server using the correct transform order for TransformedServerBuilder
-        // Based on QuPath forum example: https://forum.image.sc/t/flipping-an-image-in-qupaths-gui/85110
-        // Order: scale first, then translate
-        TransformedServerBuilder builder = new TransformedServerBuilder(originalServer);
-
-        if (flipX && flipY) {
-            // Both flips
-            AffineTransform transform = new AffineTransform();
-            transform.scale(-1.0, -1.0);
-            transform.translate(-imageWidth, -imageHeight);
-            builder = builder.transform(transform);
-        } else if (flipX) {
-            // Horizontal flip only
-            AffineTransform transform = new AffineTransform();
-            transform.scale(-1.0, 1.0);
-            transform.translate(-imageWidth, 0);
-            builder = builder.transform(transform);
-        } else if (flipY) {
-            // Vertical flip only
-            AffineTransform transform = new AffineTransform();
-            transform.scale(1.0, -1.0);
-            transform.translate(0, -imageHeight);
-            builder = builder.transform(transform);
+        ImageServer<BufferedImage> flippedServer = null;
+        ImageServerCache.Lease flippedLease = null;
+        File originalFile = getLocalFile(originalServer);
+        if (QPPreferenceDialog.getWriteFlippedImages() && (flipX || flipY)
+                && originalFile != null && FlippedImageWriter.canRewrite(originalFile)) {
+            // Write the flipped pixels to a sibling file, reused while it is newer than the original
+            File flippedFile = FlippedImageWriter.flippedCopy(originalFile, originalServer, flipX, flipY,
+                    QPPreferenceDialog.getCompressionTypeProperty());
+            flippedLease = ImageServerCache.getInstance().open(flippedFile);
+            flippedServer = flippedLease.server();
         }
 
-        // Build the transformed server
-        ImageServer<BufferedImage> flippedServer = builder.build();
+        // Build the transformed server, unless the flipped pixels were written to disk
+        if (flippedServer == null) {
+            // Use the correct transform order for TransformedServerBuilder
+            // Based on QuPath forum example: https://forum.image.sc/t/flipping-an-image-in-qupaths-gui/85110
+            // Order: scale first, then translate
+            TransformedServerBuilder builder = new TransformedServerBuilder(originalServer);
+
+            if (flipX && flipY) {
+                // Both flips
+                AffineTransform transform = new AffineTransform();
+                transform.scale(-1.0, -1.0);
+                transform.translate(-imageWidth, -imageHeight);
+                builder = builder.transform(transform);
+            } else if (flipX) {
+                // Horizontal flip only
+                AffineTransform transform = new AffineTransform();
+                transform.scale(-1.0, 1.0);
+                transform.translate(-imageWidth, 0);
+                builder = builder.transform(transform);
+            } else if (flipY) {
+                // Vertical flip only
+                AffineTransform transform = new AffineTransform();
+                transform.scale(1.0, -1.0);
+                transform.translate(0, -imageHeight);
+                builder = builder.transform(transform);
+            }
+            flippedServer = builder.build();
+        }
 
-        // Add the flipped server to the project
-        ProjectImageEntry<BufferedImage> flippedEntry = project.addImage(flippedServer.getBuilder());
+        // Add the flipped server to the project; a cached server is borrowed only until then
+        ProjectImageEntry<BufferedImage> flippedEntry;
+        double flippedPixelSize;
+        try {
+            flippedEntry = project.addImage(flippedServer.getBuilder());
+            flippedPixelSize = flippedServer.getPixelCalibration().getAveragedPixelSizeMicrons();
+        } finally {
+            if (flippedLease != null) {
+                flippedLease.close();
+            }
+        }
 
         // Set name to indicate it's flipped
         String baseName = originalEntry.getImageName();
@@ -653,7 +667,6 @@ public class QPProjectFunctions {
         // CRITICAL: Verify and log pixel calibration
         // TransformedServerBuilder should preserve calibration, but let's verify
         double originalPixelSize = originalServer.getPixelCalibration().getAveragedPixelSizeMicrons();
-        double flippedPixelSize = flippedServer.getPixelCalibration().getAveragedPixelSizeMicrons();
 
         logger.info("Pixel calibration check:");
         logger.info("  Original: {} µm/pixel", originalPixelSize);
@@ -682,10 +695,10 @@ public class QPProjectFunctions {
 
         // Ensure original entry has base_image set before we inherit from it
         // This ensures both original and flipped entries share the same base_image
-        Map<String, String> originalMetadata = originalEntry.getMetadata();
-        if (originalMetadata.get(ImageMetadataManager.BASE_IMAGE) == null) {
+        if (originalEntry.getMetadata().get(ImageMetadataManager.BASE_IMAGE) == null) {
             String baseImage = qupath.lib.common.GeneralTools.stripExtension(originalEntry.getImageName());
-            originalMetadata.put(ImageMetadataManager.BASE_IMAGE, baseImage);
+            // Through the manager so the metadata index sees the change; the project is synced below
+            ImageMetadataManager.updateMetadataValue(originalEntry, ImageMetadataManager.BASE_IMAGE, baseImage, false);
             logger.info("Set base_image='{}' on original entry: {}", baseImage, originalEntry.getImageName());
         }
 
@@ -711,6 +724,21 @@ public class QPProjectFunctions {
         return flippedEntry;
     }
 
+    /**
+     * @return The local file a server reads, or null if it does not read exactly one local file
+     */
+    private static File getLocalFile(ImageServer<BufferedImage> server) {
+        var uris = server.getURIs();
+        if (uris.size() != 1) {
+            return null;
+        }
+        URI uri = uris.iterator().next();
+        if (!"file".equals(uri.getScheme())) {
+            return null;
+        }
+        return new File(uri);
+    }
+
     /**
      * Determines the appropriate image type for a given image file.
      *
@@ -734,13 +762,11 @@ public class QPProjectFunctions {
      *
      * @param imageFile The image file to check
      * @param server The image server for automatic type estimation
-     * @param imageData The image data for automatic type estimation
      * @return The determined ImageType
      */
     private static ImageData.ImageType determineImageType(
             File imageFile,
             ImageServer<BufferedImage> server,
-            ImageData<BufferedImage> imageData,
             qupath.ext.qpsc.modality.ModalityHandler modalityHandler) {
 
         String fileName = imageFile.getName().toLowerCase();
@@ -832,41 +858,307 @@ public class QPProjectFunctions {
             return false;
         }
 
-        logger.info("Adding image to project: {} (flipX={}, flipY={})",
-                imageFile.getName(), isSlideFlippedX, isSlideFlippedY);
+        ImportResult result = addImagesToProject(project,
+                List.of(ImageImport.withoutMetadata(imageFile, isSlideFlippedX, isSlideFlippedY)), modalityHandler);
+        result.rethrowFirstFailure();
+        return true;
+    }
 
-        // Build an ImageServer for the image file
-        String imageUri = imageFile.toURI().toString();
-        ImageServer<BufferedImage> server = ImageServers.buildServer(imageUri);
+    /**
+     * One image file to add with {@link #addImagesToProject}.
+     *
+     * @param imageFile The image file to add
+     * @param flipX Whether to flip the image horizontally on import
+     * @param flipY Whether to flip the image vertically on import
+     * @param applyMetadata Whether to apply the remaining fields through {@link ImageMetadataManager}
+     * @param parentEntry Optional parent entry for metadata inheritance
+     * @param xOffset X offset from slide corner in microns
+     * @param yOffset Y offset from slide corner in microns
+     * @param sampleName The sample name
+     * @param modality The imaging modality (may be null)
+     * @param objective The objective (may be null)
+     * @param angle The angle for multi-angle acquisitions (may be null)
+     * @param annotationName The annotation name (may be null)
+     * @param imageIndex The image index (may be null)
+     */
+    public record ImageImport(File imageFile, boolean flipX, boolean flipY, boolean applyMetadata,
+                              ProjectImageEntry<BufferedImage> parentEntry, double xOffset, double yOffset,
+                              String sampleName, String modality, String objective, String angle,
+                              String annotationName, Integer imageIndex) {
+
+        /**
+         * An import without QPSC metadata, as with {@link #addImageToProject}.
+         */
+        public static ImageImport withoutMetadata(File imageFile, boolean flipX, boolean flipY) {
+            return new ImageImport(imageFile, flipX, flipY, false,
+                    null, 0, 0, null, null, null, null, null, null);
+        }
 
-        // Check if we need to apply any transformations
-        if (!isSlideFlippedX && !isSlideFlippedY) {
-            // === PATH 1: No transformations needed ===
-            // This is the preferred path as it preserves all image metadata and associated images
-            logger.info("No flips needed, adding image directly to preserve associated images");
+        /**
+         * An import with the full QPSC metadata, as with {@link #addImageToProjectWithMetadata}.
+         */
+        public static ImageImport withMetadata(File imageFile, ProjectImageEntry<BufferedImage> parentEntry,
+                                               double xOffset, double yOffset, boolean flipX, boolean flipY,
+                                               String sampleName, String modality, String objective,
+                                               String angle, String annotationName, Integer imageIndex) {
+            return new ImageImport(imageFile, flipX, flipY, true, parentEntry, xOffset, yOffset,
+                    sampleName, modality, objective, angle, annotationName, imageIndex);
+        }
+    }
 
-            // Add the image using its original builder
-            ProjectImageEntry<BufferedImage> entry = project.addImage(server.getBuilder());
+    /**
+     * Outcome of {@link #addImagesToProject}.
+     *
+     * @param entries Entries that were added, in request order
+     * @param failures Files that could not be added, with the cause
+     */
+    public record ImportResult(List<ProjectImageEntry<BufferedImage>> entries, Map<File, Exception> failures) {
+
+        /**
+         * Rethrows the first failure, for callers that import a single image.
+         *
+         * @throws IOException The first failure (wrapped if it was not an IOException)
+         */
+        public void rethrowFirstFailure() throws IOException {
+            if (failures.isEmpty()) {
+                return;
+            }
+            Exception e = failures.values().iterator().next();
+            if (e instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(e.getMessage(), e);
+        }
+    }
 
-            // Read the image data and set up basic properties
-            ImageData<BufferedImage> imageData = entry.readImageData();
+    /**
+     * Server and image type prepared for one import, before the project is touched.
+     */
+    private record PreparedImage(ImageImport request, ImageServerCache.Lease lease,
+                                 ImageServer<BufferedImage> server, ImageData.ImageType imageType,
+                                 boolean transformed) {}
+
+    /** Builds import servers and estimates image types; kept off the common pool and the FX thread */
+    private static final ExecutorService IMPORT_EXECUTOR = Executors.newFixedThreadPool(
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2)), r -> {
+                Thread t = new Thread(r, "qpsc-image-import");
+                t.setDaemon(true);
+                return t;
+            });
 
-            // Determine and set the image type using our unified method
-            var imageType = determineImageType(imageFile, server, imageData, modalityHandler);
-            imageData.setImageType(imageType);
+    /**
+     * Images prepared by {@link #prepareImages} for {@link #addPreparedImages}. Holds the image
+     * servers open until the images are added or this is closed.
+     */
+    public static final class PreparedImports implements AutoCloseable {
+        private final List<PreparedImage> images;
+        private final Map<File, Exception> failures;
+        private final int requested;
+
+        private PreparedImports(List<PreparedImage> images, Map<File, Exception> failures) {
+            this.images = images;
+            this.failures = failures;
+            this.requested = images.size() + failures.size();
+        }
 
-            // Set a user-friendly name for the image in the project
-            entry.setImageName(imageFile.getName());
+        /**
+         * @return Number of images requested, including those that could not be prepared
+         */
+        public int size() {
+            return requested;
+        }
 
-            // Save the image data to persist the image type setting
-            entry.saveImageData(imageData);
+        @Override
+        public void close() {
+            images.forEach(image -> image.lease().close());
+            images.clear();
+        }
+    }
 
-            // Sync changes
-            project.syncChanges();
+    /**
+     * Adds several image files to a project and saves the project once.
+     *
+     * <p>Equivalent to {@link #prepareImages} followed by {@link #addPreparedImages}. Callers on
+     * the JavaFX application thread should prepare the images on a background thread first, since
+     * that is where the file I/O happens.</p>
+     *
+     * <p>Flipping and image type handling are the same as for {@link #addImageToProject}.</p>
+     *
+     * @param project The QuPath project to add the images to
+     * @param imports Images to add
+     * @param modalityHandler Optional modality handler for determining image type
+     * @return Added entries and any failures
+     * @throws IOException If the project cannot be saved
+     */
+    public static ImportResult addImagesToProject(
+            Project<BufferedImage> project,
+            List<ImageImport> imports,
+            qupath.ext.qpsc.modality.ModalityHandler modalityHandler) throws IOException {
 
-            logger.info("Successfully added image to project with all associated images");
-            return true;
+        if (project == null) {
+            logger.warn("Cannot add images: project is null");
+            Map<File, Exception> failures = new LinkedHashMap<>();
+            for (ImageImport request : imports) {
+                failures.put(request.imageFile(), new IOException("Project is null"));
+            }
+            return new ImportResult(List.of(), failures);
         }
+        return addPreparedImages(project, prepareImages(imports, modalityHandler));
+    }
+
+    /**
+     * Builds the servers and estimates the image types for several imports in parallel, without
+     * touching the project. A file that cannot be read is recorded as a failure and does not
+     * prevent the others from being prepared. Blocks until all are ready, so must not be called on
+     * the JavaFX application thread.
+     *
+     * @param imports Images to prepare
+     * @param modalityHandler Optional modality handler for determining image type
+     * @return Prepared images, to be passed to {@link #addPreparedImages}
+     */
+    public static PreparedImports prepareImages(
+            List<ImageImport> imports,
+            qupath.ext.qpsc.modality.ModalityHandler modalityHandler) {
+
+        try (AcquisitionTelemetry.Timer t = AcquisitionTelemetry.getInstance()
+                .startPhase(AcquisitionTelemetry.PHASE_PROJECT_IMPORT)) {
+
+            logger.info("Preparing {} image(s) for project import", imports.size());
+
+            // Each future holds either a prepared image or its failure
+            List<CompletableFuture<PreparedImage>> futures = new ArrayList<>();
+            for (ImageImport request : imports) {
+                futures.add(CompletableFuture.supplyAsync(ProjectLogger.wrap(() -> {
+                    try {
+                        return prepareImage(request, modalityHandler);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }), IMPORT_EXECUTOR));
+            }
+
+            List<PreparedImage> images = new ArrayList<>();
+            Map<File, Exception> failures = new LinkedHashMap<>();
+            for (int i = 0; i < imports.size(); i++) {
+                File imageFile = imports.get(i).imageFile();
+                try {
+                    images.add(futures.get(i).join());
+                } catch (CompletionException e) {
+                    Exception cause = e.getCause() instanceof Exception ex ? ex : e;
+                    logger.error("Failed to add image {} to project: {}", imageFile.getName(), cause.getMessage(), cause);
+                    failures.put(imageFile, cause);
+                }
+            }
+            return new PreparedImports(images, failures);
+        }
+    }
+
+    /**
+     * Adds prepared images to a project in request order, applies metadata, and writes the
+     * project with a single {@link Project#syncChanges()} rather than once per image. Only touches
+     * the project, so is cheap enough for the JavaFX application thread. The prepared images are
+     * closed afterwards.
+     *
+     * @param project The QuPath project to add the images to
+     * @param prepared Images from {@link #prepareImages}
+     * @return Added entries, and failures from preparing or adding the images
+     * @throws IOException If the project cannot be saved
+     */
+    public static ImportResult addPreparedImages(
+            Project<BufferedImage> project,
+            PreparedImports prepared) throws IOException {
+
+        Map<File, Exception> failures = new LinkedHashMap<>(prepared.failures);
+        List<ProjectImageEntry<BufferedImage>> entries = new ArrayList<>();
+        try (AcquisitionTelemetry.Timer t = AcquisitionTelemetry.getInstance()
+                .startPhase(AcquisitionTelemetry.PHASE_PROJECT_IMPORT)) {
+
+            for (PreparedImage image : prepared.images) {
+                File imageFile = image.request().imageFile();
+                try {
+                    entries.add(addPreparedImage(project, image));
+                } catch (Exception e) {
+                    logger.error("Failed to add image {} to project: {}", imageFile.getName(), e.getMessage(), e);
+                    failures.put(imageFile, e);
+                }
+            }
+
+            if (!entries.isEmpty()) {
+                project.syncChanges();
+            }
+        } finally {
+            prepared.close();
+        }
+        logger.info("Added {} of {} image(s) to project with one project save",
+                entries.size(), prepared.size());
+        logger.debug("Image server cache: {}", ImageServerCache.getInstance().getStats());
+        return new ImportResult(entries, failures);
+    }
+
+    /**
+     * Builds the server for an import, applying flips if requested, and determines the image type.
+     *
+     * <p>Without flips, the image is added with its original ImageServerBuilder, which preserves
+     * associated images (e.g. macro/label images) embedded in the file. With flips, a
+     * TransformedServerBuilder applies the transformation and associated images are lost, unless
+     * "Write flipped images to disk" is set: then a flipped copy of a TIFF is written next to it
+     * (see {@link FlippedImageWriter#flippedCopy}) and added without a transform, under the
+     * original's name. The original file is left as it is, so importing it again flips it once.</p>
+     */
+    private static PreparedImage prepareImage(
+            ImageImport request,
+            qupath.ext.qpsc.modality.ModalityHandler modalityHandler) throws IOException {
+
+        File imageFile = request.imageFile();
+        boolean isSlideFlippedX = request.flipX();
+        boolean isSlideFlippedY = request.flipY();
+        logger.info("Adding image to project: {} (flipX={}, flipY={})",
+                imageFile.getName(), isSlideFlippedX, isSlideFlippedY);
+
+        File serverFile = imageFile;
+        if ((isSlideFlippedX || isSlideFlippedY)
+                && QPPreferenceDialog.getWriteFlippedImages() && FlippedImageWriter.canRewrite(imageFile)) {
+            // The flip is known before import, so write the flipped pixels to a copy and add that
+            // directly; tile reads then bypass any transform
+            logger.info("Adding a flipped copy of {}", imageFile.getName());
+            serverFile = FlippedImageWriter.flippedCopy(imageFile, null, isSlideFlippedX, isSlideFlippedY,
+                    QPPreferenceDialog.getCompressionTypeProperty());
+            isSlideFlippedX = false;
+            isSlideFlippedY = false;
+        }
+
+        // Get an ImageServer for the image file; usually already opened while stitching
+        ImageServerCache.Lease lease = ImageServerCache.getInstance().open(serverFile);
+        ImageServer<BufferedImage> server = lease.server();
+
+        try {
+            // Check if we need to apply any transformations
+            if (!isSlideFlippedX && !isSlideFlippedY) {
+                // === PATH 1: No transformations needed ===
+                // This is the preferred path as it preserves all image metadata and associated images
+                logger.info("No flips needed, adding image directly to preserve associated images");
+                return new PreparedImage(request, lease, server,
+                        determineImageType(imageFile, server, modalityHandler), false);
+            }
+            return prepareTransformedImage(request, lease, server, isSlideFlippedX, isSlideFlippedY, modalityHandler);
+        } catch (RuntimeException e) {
+            lease.close();
+            throw e;
+        }
+    }
+
+    /**
+     * PATH 2 of {@link #prepareImage}: wraps the server in a TransformedServerBuilder flip.
+     */
+    private static PreparedImage prepareTransformedImage(
+            ImageImport request,
+            ImageServerCache.Lease lease,
+            ImageServer<BufferedImage> server,
+            boolean isSlideFlippedX,
+            boolean isSlideFlippedY,
+            qupath.ext.qpsc.modality.ModalityHandler modalityHandler) {
+
+        File imageFile = request.imageFile();
 
         // === PATH 2: Transformations needed ===
         // We need to flip the image, which requires creating a transformed server
@@ -903,26 +1195,48 @@ public class QPProjectFunctions {
                 .transform(transform)
                 .build();
 
-        // Add the transformed server to the project
-        ProjectImageEntry<BufferedImage> entry = project.addImage(flipped.getBuilder());
+        return new PreparedImage(request, lease, flipped,
+                determineImageType(imageFile, flipped, modalityHandler), true);
+    }
+
+    /**
+     * Adds a prepared image to the project, sets its name and type, and applies metadata.
+     * Does not save the project.
+     */
+    private static ProjectImageEntry<BufferedImage> addPreparedImage(
+            Project<BufferedImage> project, PreparedImage prepared) throws IOException {
 
-        // Set up the image data
-        ImageData<BufferedImage> imageData = entry.readImageData();
+        ImageImport request = prepared.request();
+        File imageFile = request.imageFile();
 
-        // Determine and set the image type using our unified method
-        var imageType = determineImageType(imageFile, flipped, imageData, modalityHandler);
-        imageData.setImageType(imageType);
+        // Add the image using the (possibly transformed) server builder
+        ProjectImageEntry<BufferedImage> entry = project.addImage(prepared.server().getBuilder());
 
+        // New entries have no saved data; build it on the prepared server rather than
+        // letting the entry open the file again
+        ImageData<BufferedImage> imageData = new ImageData<>(prepared.server(), prepared.imageType());
+
+        // Set a user-friendly name for the image in the project
         entry.setImageName(imageFile.getName());
 
         // Save the image data to persist the image type setting
         entry.saveImageData(imageData);
 
-        // Save the changes
-        project.syncChanges();
+        if (request.applyMetadata()) {
+            // Apply comprehensive metadata with all identification fields
+            ImageMetadataManager.applyImageMetadata(
+                    entry, request.parentEntry(), request.xOffset(), request.yOffset(),
+                    request.flipX(), request.flipY(), request.sampleName(),
+                    request.modality(), request.objective(), request.angle(),
+                    request.annotationName(), request.imageIndex());
+        }
 
-        logger.info("Successfully added flipped image to project (associated images not preserved)");
-        return true;
+        if (prepared.transformed()) {
+            logger.info("Added flipped image {} to project (associated images not preserved)", imageFile.getName());
+        } else {
+            logger.info("Added image {} to project with all associated images", imageFile.getName());
+        }
+        return entry;
     }
 
     /**
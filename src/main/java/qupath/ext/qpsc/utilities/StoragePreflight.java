@@ -0,0 +1,239 @@
+package qupath.ext.qpsc.utilities;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Checks before an acquisition that the output volume can hold and keep up with the run.
+ *
+ * <p>Peak disk usage is estimated from the planned image count and image size: raw tiles,
+ * the uncorrected copy kept by client-side flat-field correction, stitched pyramids, derived
+ * pyramids such as birefringence, and the zip archive written when tiles are zipped. Sustained write throughput is measured with a short
+ * write to the output folder, flushed to the device, whose size is increased until it takes long
+ * enough to be meaningful.</p>
+ *
+ * <p>{@link #evaluate} compares both against the run. It refuses when even the raw tiles do not
+ * fit, suggests deleting each region's tiles once it is stitched when only that keeps usage
+ * below the free space, and warns when the volume cannot write as fast as the camera produces
+ * images.</p>
+ */
+public final class StoragePreflight {
+    private static final Logger logger = LoggerFactory.getLogger(StoragePreflight.class);
+
+    /** Free space kept in reserve for the OS, logs and the project itself */
+    static final long FREE_SPACE_RESERVE_BYTES = 1L << 30;
+
+    /** Pyramid levels add about a third to the full-resolution image */
+    static final double PYRAMID_FACTOR = 4.0 / 3.0;
+
+    private static final int CHUNK_BYTES = 4 << 20;
+    private static final long MIN_PROBE_BYTES = 16L << 20;
+    private static final long MAX_PROBE_BYTES = 256L << 20;
+    private static final long MIN_PROBE_NANOS = 250_000_000L;
+
+    private StoragePreflight() {}
+
+    /**
+     * Predicted disk usage of a run, in bytes.
+     *
+     * @param rawTiles Raw tiles of all regions
+     * @param flatFieldCopy Uncorrected tiles kept next to corrected ones, or 0
+     * @param stitched Stitched pyramids of all regions
+     * @param derived Derived pyramids (e.g. birefringence) of all regions, or 0
+     * @param archive Zip archives of the tiles, or 0
+     * @param peak Peak usage when tiles are kept until the run ends
+     * @param peakDeletingTiles Peak usage when each region's tiles are deleted once stitched
+     */
+    public record Estimate(long rawTiles, long flatFieldCopy, long stitched, long derived, long archive,
+                           long peak, long peakDeletingTiles) {}
+
+    /** Outcome of the preflight check. */
+    public enum Verdict {
+        /** Enough space and throughput */
+        OK,
+        /** Enough space, but writes may fall behind the camera */
+        SLOW_DISK,
+        /** Only fits if tiles are deleted as regions are stitched */
+        DELETE_TILES,
+        /** Does not fit even when deleting tiles */
+        REFUSE
+    }
+
+    /**
+     * Result of the preflight check.
+     *
+     * @param estimate Predicted usage
+     * @param freeBytes Usable space on the output volume
+     * @param writeMBps Measured write throughput, or NaN if it could not be measured
+     * @param requiredMBps Rate at which the acquisition produces image data, or NaN if unknown
+     * @param verdict Outcome
+     */
+    public record Result(Estimate estimate, long freeBytes, double writeMBps, double requiredMBps,
+                         Verdict verdict) {
+
+        /**
+         * @return Summary for logs and dialogs
+         */
+        public String describe() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("Predicted peak disk usage: %s (raw tiles %s, stitched %s",
+                    formatBytes(estimate.peak()), formatBytes(estimate.rawTiles()),
+                    formatBytes(estimate.stitched())));
+            if (estimate.derived() > 0) {
+                sb.append(", derived ").append(formatBytes(estimate.derived()));
+            }
+            if (estimate.flatFieldCopy() > 0) {
+                sb.append(", uncorrected copy ").append(formatBytes(estimate.flatFieldCopy()));
+            }
+            if (estimate.archive() > 0) {
+                sb.append(", archive ").append(formatBytes(estimate.archive()));
+            }
+            sb.append(String.format(")%nFree space: %s", formatBytes(freeBytes)));
+            if (!Double.isNaN(writeMBps)) {
+                sb.append(String.format("%nWrite speed: %.0f MB/s", writeMBps));
+                if (!Double.isNaN(requiredMBps)) {
+                    sb.append(String.format(" (acquisition needs about %.0f MB/s)", requiredMBps));
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Estimates disk usage of a run.
+     *
+     * @param totalImages Images of all regions (tiles x angles)
+     * @param bytesPerImage Uncompressed size of one image
+     * @param largestRegionImages Images of the largest region
+     * @param overlapPercent Tile overlap
+     * @param flatField Whether client-side flat-field correction keeps an uncorrected copy
+     * @param zipTiles Whether tiles are zipped after the run
+     * @param derivedBytesPerImage Size of the derived images computed from the stitched angles,
+     *                             per acquired image, or 0 if the modality derives none
+     * @return The estimate
+     */
+    public static Estimate estimate(long totalImages, long bytesPerImage, long largestRegionImages,
+                                    double overlapPercent, boolean flatField, boolean zipTiles,
+                                    long derivedBytesPerImage) {
+        long raw = totalImages * bytesPerImage;
+        long flatFieldCopy = flatField ? raw : 0;
+        double unique = 1.0 - overlapPercent / 100.0;
+        long stitched = (long) (raw * unique * unique * PYRAMID_FACTOR);
+        long derived = (long) (totalImages * derivedBytesPerImage * unique * unique * PYRAMID_FACTOR);
+        long archive = zipTiles ? raw : 0;
+        long peak = raw + flatFieldCopy + stitched + derived + archive;
+
+        // When deleting as we go, at most two regions hold tiles at once: one being acquired
+        // and one waiting to be stitched. The acquisition waits for older stitches to keep it so.
+        long regionTiles = Math.min(totalImages, 2 * largestRegionImages) * bytesPerImage;
+        long peakDeleting = regionTiles * (flatField ? 2 : 1) + stitched + derived;
+        return new Estimate(raw, flatFieldCopy, stitched, derived, archive, peak, peakDeleting);
+    }
+
+    /**
+     * Rate at which an acquisition produces image data.
+     *
+     * @param bytesPerImage Uncompressed size of one image
+     * @param imageMs Shortest time to acquire one image
+     * @return Data rate in MB/s, or NaN if the image time is not positive
+     */
+    public static double requiredThroughput(long bytesPerImage, double imageMs) {
+        if (!(imageMs > 0)) {
+            return Double.NaN;
+        }
+        return bytesPerImage / (1024.0 * 1024.0) / (imageMs / 1000.0);
+    }
+
+    /**
+     * Compares a run with the free space and write throughput of its output volume.
+     *
+     * @param estimate Predicted usage
+     * @param freeBytes Usable space on the output volume
+     * @param writeMBps Measured write throughput, or NaN if unknown
+     * @param requiredMBps Rate at which the acquisition produces image data, or NaN if unknown
+     * @return The result
+     */
+    public static Result evaluate(Estimate estimate, long freeBytes, double writeMBps, double requiredMBps) {
+        long available = freeBytes - FREE_SPACE_RESERVE_BYTES;
+        Verdict verdict;
+        if (estimate.peakDeletingTiles() > available) {
+            verdict = Verdict.REFUSE;
+        } else if (estimate.peak() > available) {
+            verdict = Verdict.DELETE_TILES;
+        } else if (!Double.isNaN(writeMBps) && writeMBps < requiredMBps) {
+            verdict = Verdict.SLOW_DISK;
+        } else {
+            verdict = Verdict.OK;
+        }
+        return new Result(estimate, freeBytes, writeMBps, requiredMBps, verdict);
+    }
+
+    /**
+     * Measures sustained write throughput of a folder's volume. A temporary file is written
+     * and flushed to the device, doubling its size until the write takes at least 250 ms or
+     * reaches 256 MB, then deleted.
+     *
+     * @param directory Folder on the volume to test; created if missing
+     * @return Throughput in MB/s
+     * @throws IOException if the folder cannot be written
+     */
+    public static double measureWriteThroughput(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_BYTES);
+        // Random data, so compressing file systems cannot shortcut the write
+        byte[] random = new byte[CHUNK_BYTES];
+        ThreadLocalRandom.current().nextBytes(random);
+        chunk.put(random);
+
+        Path probe = Files.createTempFile(directory, ".qpsc-write-test", ".tmp");
+        try {
+            long size = MIN_PROBE_BYTES;
+            while (true) {
+                long nanos = timeWrite(probe, chunk, size);
+                if (nanos >= MIN_PROBE_NANOS || size >= MAX_PROBE_BYTES) {
+                    double mbps = (size / (1024.0 * 1024.0)) / (nanos / 1e9);
+                    logger.info("Measured write throughput of {}: {} MB/s ({} MB in {} ms)",
+                            directory, Math.round(mbps), size >> 20, nanos / 1_000_000);
+                    return mbps;
+                }
+                size *= 2;
+            }
+        } finally {
+            Files.deleteIfExists(probe);
+        }
+    }
+
+    private static long timeWrite(Path file, ByteBuffer chunk, long size) throws IOException {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (long written = 0; written < size; written += CHUNK_BYTES) {
+                chunk.rewind();
+                while (chunk.hasRemaining()) {
+                    channel.write(chunk);
+                }
+            }
+            channel.force(true);
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * @param bytes Byte count
+     * @return Human readable size
+     */
+    static String formatBytes(long bytes) {
+        if (bytes < (1L << 30)) {
+            return String.format("%.0f MB", bytes / (1024.0 * 1024.0));
+        }
+        return String.format("%.1f GB", bytes / (1024.0 * 1024.0 * 1024.0));
+    }
+}
@@ -0,0 +1,240 @@
+package qupath.ext.qpsc.utilities;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * File handling for re-acquiring a subset of a region's tiles.
+ *
+ * <p>A patch acquisition runs in a sibling folder of the region, named by {@link #patchRegionName},
+ * whose {@code TileConfiguration.txt} lists only the selected tiles under their original file names
+ * and stage positions. Once the server has written them, {@link #mergeTiles} moves the new tiles over
+ * the old ones and removes the patch folder, so the region folder looks as if it had been acquired
+ * in one go and can be stitched as usual.</p>
+ *
+ * <p>Tiles to patch usually come from {@link #missingTiles} after an interrupted acquisition, or from
+ * {@link #flaggedTiles} after {@link TileQualityMonitor} has checked the region, and can be edited by
+ * the user through {@link #parseTileIndices}.</p>
+ */
+public final class TilePatch {
+    private static final Logger logger = LoggerFactory.getLogger(TilePatch.class);
+
+    static final String TILE_CONFIGURATION = "TileConfiguration.txt";
+    private static final String PATCH_SUFFIX = "_patch";
+
+    private TilePatch() {}
+
+    /**
+     * @param regionName Region (annotation) name
+     * @return Name of the folder a patch of this region is acquired into
+     */
+    public static String patchRegionName(String regionName) {
+        return regionName + PATCH_SUFFIX;
+    }
+
+    /**
+     * Finds tiles that are listed in the region's tile configuration but missing or empty in any
+     * angle. In an angle whose acquisition stopped before its last tile, the last tile present in
+     * acquisition order is included too: it may have been cut short when the acquisition was
+     * interrupted, and a truncated TIFF is not always empty. Complete angles add nothing.
+     *
+     * @param regionFolder Region tile folder holding {@code TileConfiguration.txt}
+     * @param angles Angle subfolders, or empty if tiles are written into the region folder
+     * @return Sorted tile indices, empty if the configuration cannot be read
+     * @throws IOException if the tile configuration cannot be read
+     */
+    public static List<Integer> missingTiles(Path regionFolder, List<String> angles) throws IOException {
+        Map<String, double[]> positions =
+                TransformationFunctions.readTilePositions(regionFolder.resolve(TILE_CONFIGURATION));
+        if (positions == null) {
+            return List.of();
+        }
+        List<String> folders = angles.isEmpty() ? List.of("") : angles;
+        TreeSet<Integer> missing = new TreeSet<>();
+        for (String angle : folders) {
+            Path folder = angle.isEmpty() ? regionFolder : regionFolder.resolve(angle);
+            String lastPresent = null;
+            boolean missingAfterLastPresent = false;
+            // Tiles are acquired in the order of the configuration
+            for (String name : positions.keySet()) {
+                Path tile = folder.resolve(name);
+                // Empty files are left behind when the writer was interrupted
+                if (!Files.isRegularFile(tile) || Files.size(tile) == 0) {
+                    missing.add(TileQualityMonitor.tileIndex(name));
+                    missingAfterLastPresent = true;
+                } else {
+                    lastPresent = name;
+                    missingAfterLastPresent = false;
+                }
+            }
+            if (lastPresent != null && missingAfterLastPresent) {
+                missing.add(TileQualityMonitor.tileIndex(lastPresent));
+            }
+        }
+        missing.remove(-1);
+        return List.copyOf(missing);
+    }
+
+    /**
+     * Reads the tiles worth re-acquiring from the region's {@value TileQualityMonitor#RESULTS_FILE}.
+     *
+     * @param regionFolder Region tile folder
+     * @return Sorted indices of tiles flagged out of focus or saturated in any angle, empty if the
+     *         region has not been checked
+     * @throws IOException if the results cannot be read
+     */
+    public static List<Integer> flaggedTiles(Path regionFolder) throws IOException {
+        Path results = regionFolder.resolve(TileQualityMonitor.RESULTS_FILE);
+        if (!Files.exists(results)) {
+            return List.of();
+        }
+        TreeSet<Integer> flagged = new TreeSet<>();
+        List<String> lines = Files.readAllLines(results);
+        for (String line : lines.subList(Math.min(1, lines.size()), lines.size())) {
+            String[] fields = line.split(",", -1);
+            if (fields.length < 9) {
+                continue;
+            }
+            String flags = fields[8];
+            if (flags.contains(TileQualityMonitor.Flag.OUT_OF_FOCUS.name())
+                    || flags.contains(TileQualityMonitor.Flag.SATURATED.name())) {
+                try {
+                    flagged.add(Integer.parseInt(fields[2]));
+                } catch (NumberFormatException e) {
+                    logger.debug("Skipping tile QC line without tile index: {}", line);
+                }
+            }
+        }
+        flagged.remove(-1);
+        return List.copyOf(flagged);
+    }
+
+    /**
+     * Parses tile indices typed by the user, such as {@code "3, 5, 8-10"}.
+     *
+     * @param text Indices and inclusive ranges separated by commas, semicolons or spaces
+     * @return Sorted distinct tile indices
+     * @throws IllegalArgumentException if an entry is neither an index nor a range
+     */
+    public static List<Integer> parseTileIndices(String text) {
+        TreeSet<Integer> indices = new TreeSet<>();
+        for (String part : text.trim().split("[,;\\s]+")) {
+            if (part.isEmpty()) {
+                continue;
+            }
+            try {
+                int dash = part.indexOf('-', 1);
+                int from = Integer.parseInt(dash > 0 ? part.substring(0, dash) : part);
+                int to = dash > 0 ? Integer.parseInt(part.substring(dash + 1)) : from;
+                if (from < 0 || to < from) {
+                    throw new IllegalArgumentException("Not a tile index or range: " + part);
+                }
+                for (int i = from; i <= to; i++) {
+                    indices.add(i);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Not a tile index or range: " + part);
+            }
+        }
+        return List.copyOf(indices);
+    }
+
+    /**
+     * Writes the tile configuration of a patch acquisition.
+     *
+     * @param regionFolder Region tile folder holding {@code TileConfiguration.txt} in stage microns
+     * @param patchFolder Folder the patch is acquired into; created if needed
+     * @param tileIndices Tiles to re-acquire
+     * @return Stage positions of the selected tiles, by file name, in acquisition order
+     * @throws IOException if the configuration cannot be read or written, or lists none of the tiles
+     */
+    public static Map<String, double[]> writePatchConfiguration(Path regionFolder, Path patchFolder,
+                                                                Collection<Integer> tileIndices) throws IOException {
+        Map<String, double[]> positions =
+                TransformationFunctions.readTilePositions(regionFolder.resolve(TILE_CONFIGURATION));
+        if (positions == null) {
+            throw new IOException("No " + TILE_CONFIGURATION + " in " + regionFolder);
+        }
+        Map<String, double[]> selected = new LinkedHashMap<>();
+        List<String> lines = new ArrayList<>();
+        lines.add("dim = 2");
+        for (Map.Entry<String, double[]> entry : positions.entrySet()) {
+            if (tileIndices.contains(TileQualityMonitor.tileIndex(entry.getKey()))) {
+                double[] p = entry.getValue();
+                selected.put(entry.getKey(), p);
+                lines.add(String.format(Locale.ROOT, "%s; ; (%.3f, %.3f)", entry.getKey(), p[0], p[1]));
+            }
+        }
+        if (selected.isEmpty()) {
+            throw new IOException("None of tiles " + tileIndices + " are listed in " + regionFolder);
+        }
+        Files.createDirectories(patchFolder);
+        Files.write(patchFolder.resolve(TILE_CONFIGURATION), lines);
+        logger.info("Wrote patch configuration for {} of {} tiles to {}",
+                selected.size(), positions.size(), patchFolder);
+        return selected;
+    }
+
+    /**
+     * Moves the tiles of a finished patch acquisition over the region's tiles and deletes the patch
+     * folder. When the region's uncorrected tiles were archived for client-side flat-field
+     * correction, the new tiles are copied there too so that correction does not restore the old ones.
+     *
+     * @param patchFolder Folder the patch was acquired into
+     * @param regionFolder Region tile folder
+     * @param angles Angle subfolders, or empty if tiles are written into the region folder
+     * @param tileNames File names of the patched tiles
+     * @return Number of tile files replaced
+     * @throws IOException if a tile cannot be moved
+     */
+    public static int mergeTiles(Path patchFolder, Path regionFolder, List<String> angles,
+                                 Collection<String> tileNames) throws IOException {
+        Path rawRegionFolder = FlatFieldCorrector.rawTilesDirectory(regionFolder);
+        int merged = 0;
+        for (String angle : angles.isEmpty() ? List.of("") : angles) {
+            Path source = angle.isEmpty() ? patchFolder : patchFolder.resolve(angle);
+            Path target = angle.isEmpty() ? regionFolder : regionFolder.resolve(angle);
+            Path raw = angle.isEmpty() ? rawRegionFolder : rawRegionFolder.resolve(angle);
+            for (String name : tileNames) {
+                Path tile = source.resolve(name);
+                if (!Files.isRegularFile(tile)) {
+                    logger.warn("Patch acquisition did not write {}", tile);
+                    continue;
+                }
+                Files.createDirectories(target);
+                if (Files.isDirectory(raw)) {
+                    Files.copy(tile, raw.resolve(name), StandardCopyOption.REPLACE_EXISTING);
+                }
+                Files.move(tile, target.resolve(name), StandardCopyOption.REPLACE_EXISTING);
+                merged++;
+            }
+        }
+        deleteRecursively(patchFolder);
+        logger.info("Merged {} patched tiles into {}", merged, regionFolder);
+        return merged;
+    }
+
+    private static void deleteRecursively(Path folder) throws IOException {
+        if (!Files.exists(folder)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(folder)) {
+            for (Path path : paths.sorted((a, b) -> b.getNameCount() - a.getNameCount()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
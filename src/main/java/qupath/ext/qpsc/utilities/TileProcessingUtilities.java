@@ -18,6 +18,7 @@ import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -90,6 +91,9 @@ public class TileProcessingUtilities {
      * @param downsample          Downsample factor for pyramid generation (1 = no downsampling)
      * @param modalityHandler     Handler for modality-specific file naming (can be null)
      * @param stitchParams        Additional parameters including metadata for image import (can be null)
+     * @param importBatch         If not null, a single stitched image is added to this list instead of
+     *                           being imported, so the caller can import several outputs with
+     *                           {@link #importStitchedImages}
      *
      * @return Absolute path to the last stitched OME-TIFF processed, or null if stitching failed
      *
@@ -111,7 +115,8 @@ public class TileProcessingUtilities {
             double pixelSizeMicrons,
             int downsample,
             ModalityHandler modalityHandler,
-            Map<String, Object> stitchParams) throws IOException {
+            Map<String, Object> stitchParams,
+            List<QPProjectFunctions.ImageImport> importBatch) throws IOException {
 
         logger.info("=== Starting stitching workflow ===");
         logger.info("Sample: {}, Mode: {}, Annotation: {}, Matching: '{}'",
@@ -170,7 +175,11 @@ public class TileProcessingUtilities {
         );
 
         logger.info("Starting BasicStitching workflow with {} format...", outputFormat);
-        String outPath = StitchingWorkflow.run(config);
+        String outPath;
+        try (AcquisitionTelemetry.Timer t = AcquisitionTelemetry.getInstance()
+                .startPhase(AcquisitionTelemetry.PHASE_STITCHING)) {
+            outPath = StitchingWorkflow.run(config);
+        }
         logger.info("BasicStitching workflow completed. Output: {}", outPath);
 
         // Handle null return from stitching
@@ -212,6 +221,7 @@ public class TileProcessingUtilities {
 
             logger.info("Found {} new OME-TIFF/ZARR files to rename and import", allOmeFiles.length);
             String lastPath = null;
+            List<QPProjectFunctions.ImageImport> batchImports = new ArrayList<>();
 
             // Process each newly created file
             for (File stitchedFile : allOmeFiles) {
@@ -249,75 +259,28 @@ public class TileProcessingUtilities {
                 File renamed = new File(stitchedFile.getParent(), baseName);
 
                 logger.info("Renaming {} → {}", originalName, baseName);
+                // A re-stitch replaces the file; a cached server would keep reading (and locking) the old one
+                ImageServerCache.getInstance().invalidate(renamed);
                 if (stitchedFile.renameTo(renamed)) {
                     lastPath = renamed.getAbsolutePath();
                     logger.info("Successfully renamed to: {}", baseName);
 
                     // Note: metadata was already extracted earlier (batchMetadata) for filename generation
-
-                    // Import this file to the project
-                    final String pathToImport = lastPath;
-                    final StitchingHelper.StitchingMetadata finalMetadata = batchMetadata;
-
-                    Platform.runLater(() -> {
-                        try {
-                            logger.debug("Importing {} to project on FX thread", pathToImport);
-
-                            // Add to project with metadata if available
-                            if (finalMetadata != null) {
-                                // Stitched images from microscope don't need flipping - they come with correct orientation
-                                QPProjectFunctions.addImageToProjectWithMetadata(
-                                        project,
-                                        new File(pathToImport),
-                                        finalMetadata.parentEntry,
-                                        finalMetadata.xOffset,
-                                        finalMetadata.yOffset,
-                                        false,  // isFlippedX - stitched images don't need flipping
-                                        false,  // isFlippedY - stitched images don't need flipping
-                                        finalMetadata.sampleName,
-                                        modalityHandler);
-                            } else {
-                                QPProjectFunctions.addImageToProject(
-                                        new File(pathToImport),
-                                        project,
-                                        false,
-                                        false,
-                                        modalityHandler);
-                            }
-
-                            logger.info("Successfully imported {} to project", new File(pathToImport).getName());
-
-                            // Optionally open the first image
-                            if (allOmeFiles[0].getName().equals(originalName)) {
-                                logger.debug("Opening first image in viewer");
-
-                                // Save current image data before opening new image to prevent save prompts
-                                try {
-                                    var currentData = qupathGUI.getImageData();
-                                    var currentEntry = currentData != null ? project.getEntry(currentData) : null;
-                                    if (currentData != null && currentEntry != null) {
-                                        currentEntry.saveImageData(currentData);
-                                        logger.info("Saved current image data before opening stitched image");
-                                    }
-                                } catch (Exception saveEx) {
-                                    logger.warn("Could not save current image data before opening stitched image: {}",
-                                        saveEx.getMessage());
-                                }
-
-                                List<ProjectImageEntry<BufferedImage>> images = project.getImageList();
-                                images.stream()
-                                        .filter(e -> new File(e.getImageName()).getName()
-                                                .equals(new File(pathToImport).getName()))
-                                        .findFirst()
-                                        .ifPresent(entry -> {
-                                            logger.info("Opening image entry: {}", entry.getImageName());
-                                            qupathGUI.openImageEntry(entry);
-                                        });
-                            }
-                        } catch (IOException e) {
-                            logger.error("Failed to import {}: {}", pathToImport, e.getMessage(), e);
-                        }
-                    });
+                    // Stitched images from microscope don't need flipping - they come with correct orientation
+                    File toImport = new File(lastPath);
+                    if (batchMetadata != null) {
+                        batchImports.add(QPProjectFunctions.ImageImport.withMetadata(
+                                toImport,
+                                batchMetadata.parentEntry,
+                                batchMetadata.xOffset,
+                                batchMetadata.yOffset,
+                                false,  // isFlippedX - stitched images don't need flipping
+                                false,  // isFlippedY - stitched images don't need flipping
+                                batchMetadata.sampleName,
+                                null, null, null, null, null));
+                    } else {
+                        batchImports.add(QPProjectFunctions.ImageImport.withoutMetadata(toImport, false, false));
+                    }
                 } else {
                     logger.error("Failed to rename {} to {}", originalName, baseName);
                 }
@@ -325,16 +288,8 @@ public class TileProcessingUtilities {
 
             lastProcessedPath = lastPath;
 
-            // Update project on FX thread
-            Platform.runLater(() -> {
-                logger.info("Refreshing project view");
-                qupathGUI.setProject(project);
-                qupathGUI.refreshProject();
-
-                qupath.fx.dialogs.Dialogs.showInfoNotification(
-                        res.getString("stitching.success.title"),
-                        String.format("Successfully stitched and imported %d images", allOmeFiles.length));
-            });
+            // Import all renamed files with a single project save, then open the first one
+            importStitchedImages(qupathGUI, project, batchImports, modalityHandler, false);
 
         } else {
             // Single file processing (original behavior)
@@ -444,6 +399,7 @@ public class TileProcessingUtilities {
 
             File renamed = new File(orig.getParent(), baseName);
             logger.info("Renaming {} → {}", orig.getName(), baseName);
+            ImageServerCache.getInstance().invalidate(renamed);
 
             if (orig.renameTo(renamed)) {
                 outPath = renamed.getAbsolutePath();
@@ -464,6 +420,29 @@ public class TileProcessingUtilities {
             lastProcessedPath = outPath;
             final StitchingHelper.StitchingMetadata finalMetadata = metadata;
 
+            // Multi-angle callers collect every output and import them together
+            if (importBatch != null) {
+                // Stitched images from microscope don't need flipping - they come with correct orientation
+                importBatch.add(finalMetadata != null
+                        ? QPProjectFunctions.ImageImport.withMetadata(
+                                new File(lastProcessedPath),
+                                finalMetadata.parentEntry,
+                                finalMetadata.xOffset,
+                                finalMetadata.yOffset,
+                                false,
+                                false,
+                                finalMetadata.sampleName,
+                                finalModality,
+                                finalObjective,
+                                finalAngleSuffix,
+                                finalAnnotation,
+                                finalIndex)
+                        : QPProjectFunctions.ImageImport.withoutMetadata(new File(lastProcessedPath), false, false));
+                logger.info("Queued {} for batch project import", new File(lastProcessedPath).getName());
+                logger.info("=== Stitching workflow completed ===");
+                return lastProcessedPath;
+            }
+
             // Import & open on the FX thread
             Platform.runLater(() -> {
                 logger.info("Importing stitched image to project on FX thread");
@@ -528,17 +507,6 @@ public class TileProcessingUtilities {
                     qupathGUI.refreshProject();
                     logger.info("Project refreshed successfully");
 
-                    // Close blocking dialog if provided
-                    if (stitchParams != null && stitchParams.containsKey("blockingDialog")) {
-                        qupath.ext.qpsc.ui.StitchingBlockingDialog dialog =
-                            (qupath.ext.qpsc.ui.StitchingBlockingDialog) stitchParams.get("blockingDialog");
-                        String operationId = (String) stitchParams.get("operationId");
-                        if (dialog != null && operationId != null) {
-                            logger.info("Completing stitching dialog operation after project import");
-                            dialog.completeOperation(operationId);
-                        }
-                    }
-
                     // Notify success
                     qupath.fx.dialogs.Dialogs.showInfoNotification(
                             res.getString("stitching.success.title"),
@@ -557,6 +525,103 @@ public class TileProcessingUtilities {
         return lastProcessedPath;
     }
 
+    /**
+     * Imports stitched images into the project with a single project save, then opens one of them
+     * and refreshes the project view. The image servers are built on the calling thread, which must
+     * not be the JavaFX application thread; only adding the entries and refreshing the view is
+     * posted to it. Images imported into a project that is not open in the GUI, e.g. by a slide
+     * batch, are only added; the GUI's project and image are left alone.
+     *
+     * @param qupathGUI       QuPathGUI instance for opening the imported image
+     * @param project         QuPath Project to update
+     * @param imports         Images to import, e.g. collected through the importBatch parameter of
+     *                        {@link #stitchImagesAndUpdateProject}
+     * @param modalityHandler Handler for modality-specific image types (can be null)
+     * @param openLast        Open the last imported image rather than the first
+     * @return Completes once the images are in the project, or exceptionally if the project could
+     *         not be updated
+     */
+    public static CompletableFuture<Void> importStitchedImages(
+            QuPathGUI qupathGUI,
+            Project<BufferedImage> project,
+            List<QPProjectFunctions.ImageImport> imports,
+            ModalityHandler modalityHandler,
+            boolean openLast) {
+
+        if (imports.isEmpty()) {
+            logger.warn("No stitched images to import");
+            return CompletableFuture.completedFuture(null);
+        }
+        if (project == null) {
+            logger.warn("Cannot import stitched images: project is null");
+            return CompletableFuture.completedFuture(null);
+        }
+        QPProjectFunctions.PreparedImports prepared = QPProjectFunctions.prepareImages(imports, modalityHandler);
+
+        CompletableFuture<Void> imported = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            logger.info("Importing {} stitched images to project on FX thread", prepared.size());
+            try {
+                QPProjectFunctions.ImportResult result = QPProjectFunctions.addPreparedImages(project, prepared);
+                boolean openInGui = qupathGUI != null && qupathGUI.getProject() == project;
+
+                if (openInGui && !result.entries().isEmpty()) {
+                    // Save current image data before opening new image to prevent save prompts
+                    try {
+                        var currentData = qupathGUI.getImageData();
+                        var currentEntry = currentData != null ? project.getEntry(currentData) : null;
+                        if (currentData != null && currentEntry != null) {
+                            currentEntry.saveImageData(currentData);
+                            logger.info("Saved current image data before opening stitched image");
+                        }
+                    } catch (Exception saveEx) {
+                        logger.warn("Could not save current image data before opening stitched image: {}",
+                            saveEx.getMessage());
+                    }
+
+                    ProjectImageEntry<BufferedImage> toOpen = openLast
+                            ? result.entries().get(result.entries().size() - 1)
+                            : result.entries().get(0);
+                    logger.info("Opening image entry: {}", toOpen.getImageName());
+                    qupathGUI.openImageEntry(toOpen);
+                }
+
+                if (openInGui) {
+                    logger.info("Refreshing project view");
+                    qupathGUI.setProject(project);
+                    qupathGUI.refreshProject();
+                } else {
+                    logger.info("Added {} stitched images to {}, which is not open", result.entries().size(),
+                            project.getPath());
+                }
+
+                if (result.failures().isEmpty()) {
+                    qupath.fx.dialogs.Dialogs.showInfoNotification(
+                            res.getString("stitching.success.title"),
+                            String.format("Successfully stitched and imported %d images", result.entries().size()));
+                } else {
+                    UIFunctions.notifyUserOfError(
+                            String.format("Imported %d of %d stitched images. Failed:%n%s",
+                                    result.entries().size(), prepared.size(),
+                                    String.join("\n", result.failures().keySet().stream()
+                                            .map(File::getName).toList())),
+                            res.getString("stitching.error.title"));
+                }
+                imported.complete(null);
+            } catch (IOException e) {
+                logger.error("Failed to import stitched images", e);
+                UIFunctions.notifyUserOfError(
+                        "Failed to import stitched images:\n" + e.getMessage(),
+                        res.getString("stitching.error.title"));
+                imported.completeExceptionally(e);
+            } catch (RuntimeException e) {
+                imported.completeExceptionally(e);
+                throw e;
+            }
+        });
+        return imported;
+    }
+
     /**
      * Extracts the original region name from a potentially combined path.
      * When using directory isolation for multi-angle stitching, temporary directories
@@ -629,7 +694,8 @@ public class TileProcessingUtilities {
                 pixelSizeMicrons,
                 downsample,
                 modalityHandler,
-                null  // No metadata
+                null,  // No metadata
+                null
         );
     }
 
@@ -677,6 +743,13 @@ public class TileProcessingUtilities {
      * @param folderPath Path to the folder to delete
      */
     public static void deleteTilesAndFolder(String folderPath) {
+        try (AcquisitionTelemetry.Timer t = AcquisitionTelemetry.getInstance()
+                .startPhase(AcquisitionTelemetry.PHASE_CLEANUP)) {
+            deleteTilesAndFolderInternal(folderPath);
+        }
+    }
+
+    private static void deleteTilesAndFolderInternal(String folderPath) {
         logger.info("Deleting folder and all contents: {}", folderPath);
 
         try {
@@ -724,6 +797,13 @@ public class TileProcessingUtilities {
      * @return true if compression was successful, false otherwise
      */
     public static boolean zipTilesAndMove(String folderPath) {
+        try (AcquisitionTelemetry.Timer t = AcquisitionTelemetry.getInstance()
+                .startPhase(AcquisitionTelemetry.PHASE_CLEANUP)) {
+            return zipTilesAndMoveInternal(folderPath);
+        }
+    }
+
+    private static boolean zipTilesAndMoveInternal(String folderPath) {
         logger.info("Compressing tiles in folder: {}", folderPath);
 
         try {
@@ -0,0 +1,511 @@
+package qupath.ext.qpsc.utilities;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Quality checks of tiles while a region is being acquired.
+ *
+ * <p>{@link #onTilesArrived()} is called on each acquisition progress event. It looks for tiles
+ * listed in the region's {@code TileConfiguration.txt} that have appeared in the angle folders
+ * since the last call and queues them on a small pool of low-priority threads. Each tile is read
+ * with {@link TileSampler} and checked for:</p>
+ * <ul>
+ *   <li><b>Focus</b> - Laplacian variance at full resolution, flagged when below half the median
+ *       of the angle's non-blank tiles</li>
+ *   <li><b>Saturation</b> - flagged when more than 1% of pixels are saturated</li>
+ *   <li><b>Tissue</b> - pixels clearly darker or more colourful than the brightest background
+ *       seen in the region, as expected for transmitted light; flagged as blank below 5%</li>
+ * </ul>
+ *
+ * <p>At most {@code maxBacklog} tiles wait in the queue. When more arrive, the oldest waiting
+ * tiles are set aside, so live results stay within that many tiles of the acquisition, and are
+ * checked by {@link #finish()} after the region is acquired. The acquisition itself is never
+ * blocked.</p>
+ *
+ * <p>{@link #finish()} re-evaluates all tiles against the final references and writes
+ * {@value #RESULTS_FILE} into the region folder. Tiles flagged out of focus or saturated are
+ * listed by {@link Report#tilesToReacquire()}.</p>
+ */
+public final class TileQualityMonitor {
+    private static final Logger logger = LoggerFactory.getLogger(TileQualityMonitor.class);
+
+    /** Per-tile results written into the region folder */
+    public static final String RESULTS_FILE = "tile_qc.csv";
+
+    /** Longest side of the sample each tile is checked on */
+    static final int SAMPLE_SIZE = 256;
+    static final TileSampler.FocusMetric FOCUS_METRIC = TileSampler.FocusMetric.LAPLACIAN_VARIANCE;
+    /** Tiles with a larger fraction of saturated pixels are flagged */
+    static final double MAX_SATURATED_FRACTION = 0.01;
+    /** Tiles with less tissue are flagged as blank */
+    static final double MIN_TISSUE_FRACTION = 0.05;
+    /** Tiles with less than this fraction of the median focus are flagged */
+    static final double MIN_RELATIVE_FOCUS = 0.5;
+    /** Non-blank tiles of an angle needed before focus is judged */
+    static final int MIN_FOCUS_REFERENCE_TILES = 5;
+    /** Pixels darker than this fraction of the background count as tissue */
+    static final double TISSUE_MAX_RELATIVE_BRIGHTNESS = 0.85;
+    /** Pixels whose channels differ by more than this fraction of the range count as tissue */
+    static final double TISSUE_MIN_CHROMA = 0.08;
+    /** Files modified more recently may still be being written */
+    private static final long SETTLE_MS = 300;
+    private static final int HISTOGRAM_BINS = 64;
+
+    /** Problems found in a tile */
+    public enum Flag {
+        OUT_OF_FOCUS,
+        SATURATED,
+        BLANK
+    }
+
+    /**
+     * Result of checking one image.
+     *
+     * @param angle Angle folder, or empty if tiles are written into the region folder
+     * @param fileName Tile file name
+     * @param tileIndex Tile index from the file name, or -1
+     * @param stageX Tile center X in stage microns
+     * @param stageY Tile center Y in stage microns
+     * @param focus Focus score, see {@link TileSampler.Stats#focus()}
+     * @param saturatedFraction Fraction of saturated pixels
+     * @param tissueFraction Fraction of pixels classified as tissue
+     * @param flags Problems found
+     */
+    public record TileQuality(String angle, String fileName, int tileIndex, double stageX, double stageY,
+                              double focus, double saturatedFraction, double tissueFraction, Set<Flag> flags) {
+
+        /**
+         * @return Whether the tile should be acquired again
+         */
+        public boolean needsReacquisition() {
+            return flags.contains(Flag.OUT_OF_FOCUS) || flags.contains(Flag.SATURATED);
+        }
+    }
+
+    /**
+     * Running counts for progress displays.
+     *
+     * @param checked Images checked
+     * @param outOfFocus Images flagged out of focus
+     * @param saturated Images flagged saturated
+     * @param blank Images flagged blank
+     */
+    public record Summary(int checked, int outOfFocus, int saturated, int blank) {
+
+        /**
+         * @return Short text for status lines
+         */
+        public String describe() {
+            return String.format("%d checked: %d out of focus, %d saturated, %d blank",
+                    checked, outOfFocus, saturated, blank);
+        }
+    }
+
+    /**
+     * Final results of a region.
+     *
+     * @param tiles Results of every checked image, by angle and tile index
+     */
+    public record Report(List<TileQuality> tiles) {
+
+        /**
+         * @return Counts of the final flags
+         */
+        public Summary summary() {
+            return new Summary(tiles.size(), count(Flag.OUT_OF_FOCUS), count(Flag.SATURATED), count(Flag.BLANK));
+        }
+
+        private int count(Flag flag) {
+            return (int) tiles.stream().filter(t -> t.flags().contains(flag)).count();
+        }
+
+        /**
+         * @return Sorted indices of tiles with at least one angle out of focus or saturated
+         */
+        public List<Integer> tilesToReacquire() {
+            return tiles.stream()
+                    .filter(TileQuality::needsReacquisition)
+                    .map(TileQuality::tileIndex)
+                    .filter(i -> i >= 0)
+                    .collect(Collectors.toCollection(TreeSet::new))
+                    .stream().toList();
+        }
+    }
+
+    /**
+     * Receives each result as it is produced, on a QC thread.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void onTileChecked(TileQuality tile, Summary summary);
+    }
+
+    /**
+     * Measurements of one image that do not depend on the rest of the region.
+     */
+    record TileMetrics(String angle, String fileName, int tileIndex, double stageX, double stageY,
+                       double focus, double saturatedFraction, double chromaFraction,
+                       double[] neutralHistogram, double background) {}
+
+    private final Path regionFolder;
+    private final List<String> angles;
+    private final int saturationValue;
+    private final Listener listener;
+    private final ThreadPoolExecutor pool;
+
+    private Map<String, double[]> positions;
+    private final Map<String, Integer> nextTile = new ConcurrentHashMap<>();
+    private final Map<String, List<TileMetrics>> metricsByAngle = new ConcurrentHashMap<>();
+    private final Map<String, Double> backgroundByAngle = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Runnable> deferred = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger checked = new AtomicInteger();
+    private final AtomicInteger outOfFocus = new AtomicInteger();
+    private final AtomicInteger saturated = new AtomicInteger();
+    private final AtomicInteger blank = new AtomicInteger();
+
+    private TileQualityMonitor(Path regionFolder, List<String> angles, int saturationValue,
+                               int maxBacklog, Listener listener) {
+        this.regionFolder = regionFolder;
+        this.angles = angles.isEmpty() ? List.of("") : List.copyOf(angles);
+        this.saturationValue = saturationValue;
+        this.listener = listener;
+        int workers = Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() / 4));
+        AtomicInteger threadCount = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(Math.max(1, maxBacklog)),
+                r -> {
+                    Thread t = new Thread(r, "TileQC-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    t.setPriority(Thread.MIN_PRIORITY);
+                    return t;
+                },
+                (task, executor) -> {
+                    // Full: set the oldest waiting tile aside for the final pass and queue the new one
+                    Runnable oldest = executor.getQueue().poll();
+                    if (oldest != null) {
+                        deferred.add(oldest);
+                    }
+                    if (!executor.getQueue().offer(task)) {
+                        deferred.add(task);
+                    }
+                });
+    }
+
+    /**
+     * Starts checking a region.
+     *
+     * @param regionFolder Region tile folder holding {@code TileConfiguration.txt}
+     * @param angles Angle subfolders, or empty if tiles are written into the region folder
+     * @param saturationValue Sample value counted as saturated; 0 for the file's maximum
+     * @param maxBacklog Maximum number of tiles waiting to be checked during acquisition
+     * @param listener Receives results as they are produced, or null
+     * @return The monitor
+     */
+    public static TileQualityMonitor start(Path regionFolder, List<String> angles, int saturationValue,
+                                           int maxBacklog, Listener listener) {
+        logger.info("Tile QC started for {} ({} angles, backlog limit {})",
+                regionFolder, angles.size(), maxBacklog);
+        return new TileQualityMonitor(regionFolder, angles, saturationValue, maxBacklog, listener);
+    }
+
+    /**
+     * Checks every tile of an acquired region again and rewrites its {@value #RESULTS_FILE}, e.g.
+     * after {@link TilePatch#mergeTiles} replaced some of them. Unchanged tiles are read again too,
+     * because focus and tissue are judged against references taken from the whole region.
+     *
+     * @param regionFolder Region tile folder holding {@code TileConfiguration.txt}
+     * @param angles Angle subfolders, or empty if tiles are written into the region folder
+     * @param saturationValue Sample value counted as saturated; 0 for the file's maximum
+     * @return The new report, completed off the calling thread
+     */
+    public static CompletableFuture<Report> recheck(Path regionFolder, List<String> angles, int saturationValue) {
+        logger.info("Tile QC re-checking {}", regionFolder);
+        return new TileQualityMonitor(regionFolder, angles, saturationValue, Integer.MAX_VALUE, null).finish();
+    }
+
+    /**
+     * Queues tiles written since the last call. Cheap enough to call on every progress event.
+     */
+    public void onTilesArrived() {
+        scan(System.currentTimeMillis() - SETTLE_MS);
+    }
+
+    /**
+     * Checks the remaining tiles after the region is acquired, then writes the results.
+     *
+     * @return The final report, completed off the calling thread
+     */
+    public CompletableFuture<Report> finish() {
+        scan(Long.MAX_VALUE);
+        pool.shutdown();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                if (!pool.awaitTermination(10, TimeUnit.MINUTES)) {
+                    logger.warn("Tile QC of {} did not finish in time", regionFolder);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            int late = deferred.size();
+            Runnable task;
+            while ((task = deferred.poll()) != null) {
+                task.run();
+            }
+            if (late > 0) {
+                logger.info("Tile QC checked {} tiles after acquisition to stay within the backlog limit", late);
+            }
+            Report report = report();
+            try {
+                writeResults(regionFolder.resolve(RESULTS_FILE), report.tiles());
+            } catch (IOException e) {
+                logger.warn("Could not write tile QC results for {}: {}", regionFolder, e.getMessage());
+            }
+            logger.info("Tile QC of {}: {}", regionFolder.getFileName(), report.summary().describe());
+            return report;
+        });
+    }
+
+    /**
+     * Evaluates all checked tiles against the final references.
+     */
+    Report report() {
+        List<TileQuality> tiles = new ArrayList<>();
+        for (String angle : angles) {
+            List<TileMetrics> metrics = metricsByAngle.getOrDefault(angle, List.of());
+            for (TileMetrics m : metrics) {
+                tiles.add(evaluate(m));
+            }
+        }
+        tiles.sort(Comparator.comparing(TileQuality::angle).thenComparingInt(TileQuality::tileIndex));
+        return new Report(List.copyOf(tiles));
+    }
+
+    private synchronized void scan(long settledBefore) {
+        if (positions == null) {
+            try {
+                positions = TransformationFunctions.readTilePositions(regionFolder.resolve("TileConfiguration.txt"));
+            } catch (IOException e) {
+                logger.debug("Cannot read tile positions of {}: {}", regionFolder, e.getMessage());
+            }
+            if (positions == null) {
+                return;
+            }
+        }
+        List<String> names = new ArrayList<>(positions.keySet());
+        boolean finished = settledBefore == Long.MAX_VALUE;
+        for (String angle : angles) {
+            Path folder = angle.isEmpty() ? regionFolder : regionFolder.resolve(angle);
+            int next = nextTile.getOrDefault(angle, 0);
+            // Tiles are written in TileConfiguration order, so stop at the first one not ready.
+            // A missing tile followed by a written one was skipped by the server and is passed
+            // over; after the acquisition, every missing tile is.
+            while (next < names.size()) {
+                String name = names.get(next);
+                File file = folder.resolve(name).toFile();
+                if (!file.isFile()) {
+                    if (!finished && (next + 1 == names.size()
+                            || !folder.resolve(names.get(next + 1)).toFile().isFile())) {
+                        break;
+                    }
+                    logger.debug("Tile QC skips missing tile {}", file);
+                    next++;
+                    continue;
+                }
+                if (file.lastModified() > settledBefore) {
+                    break;
+                }
+                double[] position = positions.get(name);
+                pool.execute(() -> check(angle, file.toPath(), position));
+                next++;
+            }
+            nextTile.put(angle, next);
+        }
+    }
+
+    private void check(String angle, Path file, double[] position) {
+        try {
+            TileSampler.Sample sample = TileSampler.sample(file, SAMPLE_SIZE, saturationValue, FOCUS_METRIC);
+            TileMetrics metrics = measure(angle, file.getFileName().toString(), position, sample,
+                    saturationValue > 0 ? saturationValue : (1 << sample.bitsPerSample()) - 1);
+            metricsByAngle.computeIfAbsent(angle, a -> new CopyOnWriteArrayList<>()).add(metrics);
+            backgroundByAngle.merge(angle, metrics.background(), Math::max);
+
+            TileQuality quality = evaluate(metrics);
+            checked.incrementAndGet();
+            if (quality.flags().contains(Flag.OUT_OF_FOCUS)) {
+                outOfFocus.incrementAndGet();
+            }
+            if (quality.flags().contains(Flag.SATURATED)) {
+                saturated.incrementAndGet();
+            }
+            if (quality.flags().contains(Flag.BLANK)) {
+                blank.incrementAndGet();
+            }
+            if (!quality.flags().isEmpty()) {
+                logger.info("Tile QC flagged {} ({}): {}", file.getFileName(),
+                        angle.isEmpty() ? "single angle" : angle, quality.flags());
+            }
+            if (listener != null) {
+                listener.onTileChecked(quality, new Summary(checked.get(), outOfFocus.get(),
+                        saturated.get(), blank.get()));
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Tile QC could not read {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Measures one sampled image.
+     *
+     * @param maxValue Value that corresponds to full brightness
+     */
+    static TileMetrics measure(String angle, String fileName, double[] position,
+                               TileSampler.Sample sample, int maxValue) {
+        int channels = sample.channels();
+        int[] values = sample.values();
+        int pixels = sample.width() * sample.height();
+        double[] histogram = new double[HISTOGRAM_BINS];
+        int[] allBrightness = new int[HISTOGRAM_BINS];
+        int chromatic = 0;
+        for (int i = 0; i < pixels; i++) {
+            int base = i * channels;
+            int min = Integer.MAX_VALUE;
+            int max = 0;
+            long sum = 0;
+            for (int c = 0; c < channels; c++) {
+                int v = values[base + c];
+                min = Math.min(min, v);
+                max = Math.max(max, v);
+                sum += v;
+            }
+            int bin = (int) Math.min(HISTOGRAM_BINS - 1, (sum / (double) channels) / maxValue * HISTOGRAM_BINS);
+            allBrightness[bin]++;
+            if (channels > 1 && (max - min) > TISSUE_MIN_CHROMA * maxValue) {
+                chromatic++;
+            } else {
+                histogram[bin]++;
+            }
+        }
+        for (int b = 0; b < HISTOGRAM_BINS; b++) {
+            histogram[b] /= Math.max(1, pixels);
+        }
+        // Background estimate: 95th percentile brightness
+        int target = (int) Math.ceil(0.95 * pixels);
+        int cumulative = 0;
+        int backgroundBin = HISTOGRAM_BINS - 1;
+        for (int b = 0; b < HISTOGRAM_BINS; b++) {
+            cumulative += allBrightness[b];
+            if (cumulative >= target) {
+                backgroundBin = b;
+                break;
+            }
+        }
+        double background = (backgroundBin + 0.5) / HISTOGRAM_BINS;
+        return new TileMetrics(angle, fileName, tileIndex(fileName),
+                position == null ? Double.NaN : position[0], position == null ? Double.NaN : position[1],
+                sample.stats().focus(), sample.stats().saturatedFraction(),
+                chromatic / (double) Math.max(1, pixels), histogram, background);
+    }
+
+    /**
+     * Flags one image against the current references of its angle.
+     */
+    TileQuality evaluate(TileMetrics m) {
+        double background = backgroundByAngle.getOrDefault(m.angle(), m.background());
+        double tissue = tissueFraction(m, background);
+        Set<Flag> flags = EnumSet.noneOf(Flag.class);
+        if (m.saturatedFraction() > MAX_SATURATED_FRACTION) {
+            flags.add(Flag.SATURATED);
+        }
+        if (tissue < MIN_TISSUE_FRACTION) {
+            flags.add(Flag.BLANK);
+        } else {
+            double median = medianFocus(m.angle(), background);
+            if (!Double.isNaN(median) && m.focus() < MIN_RELATIVE_FOCUS * median) {
+                flags.add(Flag.OUT_OF_FOCUS);
+            }
+        }
+        return new TileQuality(m.angle(), m.fileName(), m.tileIndex(), m.stageX(), m.stageY(),
+                m.focus(), m.saturatedFraction(), tissue, Set.copyOf(flags));
+    }
+
+    static double tissueFraction(TileMetrics m, double background) {
+        double tissue = m.chromaFraction();
+        double[] histogram = m.neutralHistogram();
+        double limit = TISSUE_MAX_RELATIVE_BRIGHTNESS * background * HISTOGRAM_BINS;
+        for (int b = 0; b < HISTOGRAM_BINS && b + 1 <= limit; b++) {
+            tissue += histogram[b];
+        }
+        return tissue;
+    }
+
+    private double medianFocus(String angle, double background) {
+        double[] focus = metricsByAngle.getOrDefault(angle, List.of()).stream()
+                .filter(t -> tissueFraction(t, background) >= MIN_TISSUE_FRACTION)
+                .mapToDouble(TileMetrics::focus)
+                .toArray();
+        if (focus.length < MIN_FOCUS_REFERENCE_TILES) {
+            return Double.NaN;
+        }
+        Arrays.sort(focus);
+        int mid = focus.length / 2;
+        return focus.length % 2 == 1 ? focus[mid] : (focus[mid - 1] + focus[mid]) / 2;
+    }
+
+    /**
+     * @param fileName Tile file name such as {@code 12.tif}
+     * @return The tile index, or -1 if the name does not start with one
+     */
+    public static int tileIndex(String fileName) {
+        int dot = fileName.indexOf('.');
+        try {
+            return Integer.parseInt(dot < 0 ? fileName : fileName.substring(0, dot));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Writes results as CSV.
+     */
+    static void writeResults(Path file, List<TileQuality> tiles) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("angle,file,tile_index,stage_x,stage_y,focus,saturated_fraction,tissue_fraction,flags");
+            writer.newLine();
+            for (TileQuality t : tiles) {
+                writer.write(String.format(Locale.ROOT, "%s,%s,%d,%.3f,%.3f,%.6g,%.4f,%.4f,%s",
+                        t.angle(), t.fileName(), t.tileIndex(), t.stageX(), t.stageY(),
+                        t.focus(), t.saturatedFraction(), t.tissueFraction(),
+                        t.flags().stream().map(Flag::name).sorted().collect(Collectors.joining("|"))));
+                writer.newLine();
+            }
+        }
+    }
+}
@@ -0,0 +1,536 @@
+package qupath.ext.qpsc.utilities;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cheap access to just-acquired tiles for previews and quality checks.
+ *
+ * <p>Uncompressed strip TIFFs, as written by the microscope server, are read with positional reads
+ * into a few small heap buffers and only every n-th row and column is touched, so a 2048 x 2048
+ * tile costs a few hundred small reads instead of a full decode. The file is not memory-mapped:
+ * a mapping lives until garbage collection and would stop Windows from moving or deleting the
+ * tile while it is stitched, archived or patched. When the file carries a reduced-resolution IFD (a SubIFD or a
+ * following IFD flagged as reduced) that is still at least the requested size, it is sampled
+ * instead. Compressed, tiled or otherwise unusual files fall back to {@link ImageIO#read}.</p>
+ *
+ * <p>The sample comes with statistics taken from the same pixels: mean intensity, saturated
+ * fraction and a focus score computed from the full-resolution neighbours of each sampled
+ * pixel, using the Laplacian variance or Brenner gradient metrics of the server's autofocus.</p>
+ */
+public final class TileSampler {
+    private static final Logger logger = LoggerFactory.getLogger(TileSampler.class);
+
+    private static final int TAG_NEW_SUBFILE_TYPE = 254;
+    private static final int TAG_IMAGE_WIDTH = 256;
+    private static final int TAG_IMAGE_LENGTH = 257;
+    private static final int TAG_BITS_PER_SAMPLE = 258;
+    private static final int TAG_COMPRESSION = 259;
+    private static final int TAG_PHOTOMETRIC = 262;
+    private static final int TAG_STRIP_OFFSETS = 273;
+    private static final int TAG_SAMPLES_PER_PIXEL = 277;
+    private static final int TAG_ROWS_PER_STRIP = 278;
+    private static final int TAG_PLANAR_CONFIGURATION = 284;
+    private static final int TAG_TILE_WIDTH = 322;
+    private static final int TAG_SUB_IFDS = 330;
+
+    /** Guards against cyclic IFD chains in damaged files */
+    private static final int MAX_IFDS = 64;
+
+    private TileSampler() {}
+
+    /**
+     * Focus metrics, named as in the autofocus {@code score_metric} setting.
+     */
+    public enum FocusMetric {
+        /** Variance of the 4-neighbour Laplacian */
+        LAPLACIAN_VARIANCE("laplacian_variance"),
+        /** Mean squared difference to the pixel two columns to the right */
+        BRENNER_GRADIENT("brenner_gradient");
+
+        private final String configName;
+
+        FocusMetric(String configName) {
+            this.configName = configName;
+        }
+
+        /**
+         * @return The name used in autofocus settings
+         */
+        public String getConfigName() {
+            return configName;
+        }
+    }
+
+    /**
+     * Statistics of a sampled tile.
+     *
+     * @param mean Mean intensity, averaged over channels, as a fraction of the saturation value
+     * @param saturatedFraction Fraction of sampled pixels with a channel at or above saturation
+     * @param focus Focus metric divided by the squared mean intensity, so it does not depend on
+     *              exposure; higher is sharper. Only comparable between tiles of similar content
+     *              and the same resolution.
+     */
+    public record Stats(double mean, double saturatedFraction, double focus) {}
+
+    /**
+     * A subsampled tile.
+     *
+     * @param width Sampled width
+     * @param height Sampled height
+     * @param channels Samples per pixel
+     * @param bitsPerSample Bits per sample of the file
+     * @param step Distance between sampled pixels, in pixels of the level that was read
+     * @param values Raw sample values, row by row with channels interleaved
+     * @param stats Statistics of the sampled pixels
+     * @param fullDecode Whether the whole frame had to be decoded
+     */
+    public record Sample(int width, int height, int channels, int bitsPerSample, int step,
+                         int[] values, Stats stats, boolean fullDecode) {
+
+        /**
+         * Converts the sample to opaque ARGB, scaling the bit depth to 8 bits without contrast
+         * stretching so that exposure problems stay visible.
+         *
+         * @return Pixels row by row
+         */
+        public int[] toArgb() {
+            int shift = Math.max(0, bitsPerSample - 8);
+            int[] argb = new int[width * height];
+            for (int i = 0; i < argb.length; i++) {
+                int base = i * channels;
+                int r = Math.min(255, values[base] >> shift);
+                int g = channels >= 3 ? Math.min(255, values[base + 1] >> shift) : r;
+                int b = channels >= 3 ? Math.min(255, values[base + 2] >> shift) : r;
+                argb[i] = 0xFF000000 | (r << 16) | (g << 8) | b;
+            }
+            return argb;
+        }
+
+        /**
+         * @return The sample as an 8-bit RGB image
+         */
+        public BufferedImage toBufferedImage() {
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            image.setRGB(0, 0, width, height, toArgb(), 0, width);
+            return image;
+        }
+    }
+
+    /**
+     * Reads a tile subsampled so that neither side exceeds {@code maxSize}, treating the largest
+     * value of the file's bit depth as saturated.
+     *
+     * @param file Tile image
+     * @param maxSize Maximum width or height of the sample
+     * @return The sample
+     * @throws IOException if the file cannot be read
+     */
+    public static Sample sample(Path file, int maxSize) throws IOException {
+        return sample(file, maxSize, 0, FocusMetric.LAPLACIAN_VARIANCE);
+    }
+
+    /**
+     * Reads a tile subsampled so that neither side exceeds {@code maxSize}.
+     *
+     * @param file Tile image
+     * @param maxSize Maximum width or height of the sample
+     * @param saturationValue Sample value counted as saturated, e.g. 4095 for a 12-bit camera
+     *                        writing 16-bit files; 0 to use the largest value of the bit depth
+     * @param metric Focus metric
+     * @return The sample
+     * @throws IOException if the file cannot be read
+     */
+    public static Sample sample(Path file, int maxSize, int saturationValue, FocusMetric metric)
+            throws IOException {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < 8) {
+                return sampleDecoded(file, maxSize, saturationValue, metric);
+            }
+            FileBytes bytes = new FileBytes(channel);
+            Ifd ifd = chooseIfd(bytes, maxSize);
+            if (ifd != null) {
+                return sampleRaw(new StripSource(bytes, ifd), ifd.bits, maxSize, saturationValue, metric, false);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (IndexOutOfBoundsException e) {
+            logger.debug("Malformed TIFF structure in {}, decoding instead", file);
+        }
+        return sampleDecoded(file, maxSize, saturationValue, metric);
+    }
+
+    private static Sample sampleDecoded(Path file, int maxSize, int saturationValue, FocusMetric metric)
+            throws IOException {
+        BufferedImage image = ImageIO.read(file.toFile());
+        if (image == null) {
+            throw new IOException("Unsupported image format: " + file);
+        }
+        Raster raster = image.getRaster();
+        int bits = raster.getSampleModel().getSampleSize(0);
+        PixelSource source = new PixelSource() {
+            @Override public int width() { return raster.getWidth(); }
+            @Override public int height() { return raster.getHeight(); }
+            @Override public int channels() { return raster.getNumBands(); }
+            @Override public int get(int x, int y, int c) { return raster.getSample(x, y, c); }
+        };
+        return sampleRaw(source, bits, maxSize, saturationValue, metric, true);
+    }
+
+    /**
+     * Random access to the pixels of one image level.
+     */
+    interface PixelSource {
+        int width();
+        int height();
+        int channels();
+        int get(int x, int y, int c);
+    }
+
+    static Sample sampleRaw(PixelSource source, int bits, int maxSize, int saturationValue,
+                            FocusMetric metric, boolean fullDecode) {
+        int width = source.width();
+        int height = source.height();
+        int channels = source.channels();
+        int step = Math.max(1, (Math.max(width, height) + maxSize - 1) / maxSize);
+        int outW = (width + step - 1) / step;
+        int outH = (height + step - 1) / step;
+        int maxValue = (int) Math.min(Integer.MAX_VALUE, (1L << bits) - 1);
+        int saturation = saturationValue > 0 ? saturationValue : maxValue;
+
+        int[] values = new int[outW * outH * channels];
+        double sum = 0;
+        double focusSum = 0;
+        double focusSumSq = 0;
+        long focusCount = 0;
+        long saturated = 0;
+        int i = 0;
+        for (int oy = 0; oy < outH; oy++) {
+            int y = oy * step;
+            for (int ox = 0; ox < outW; ox++) {
+                int x = ox * step;
+                int luminance = 0;
+                boolean isSaturated = false;
+                for (int c = 0; c < channels; c++) {
+                    int v = source.get(x, y, c);
+                    values[i++] = v;
+                    luminance += v;
+                    isSaturated |= v >= saturation;
+                }
+                sum += (double) luminance / channels;
+                if (isSaturated) {
+                    saturated++;
+                }
+                double center = (double) luminance / channels;
+                if (metric == FocusMetric.LAPLACIAN_VARIANCE) {
+                    if (x > 0 && y > 0 && x + 1 < width && y + 1 < height) {
+                        double laplacian = 4 * center
+                                - luminance(source, x - 1, y, channels) - luminance(source, x + 1, y, channels)
+                                - luminance(source, x, y - 1, channels) - luminance(source, x, y + 1, channels);
+                        focusSum += laplacian;
+                        focusSumSq += laplacian * laplacian;
+                        focusCount++;
+                    }
+                } else if (x + 2 < width) {
+                    double difference = luminance(source, x + 2, y, channels) - center;
+                    focusSumSq += difference * difference;
+                    focusCount++;
+                }
+            }
+        }
+        int pixels = outW * outH;
+        double mean = pixels == 0 ? 0 : sum / pixels;
+        double focus = 0;
+        if (focusCount > 0 && mean > 0) {
+            double meanFocus = focusSum / focusCount;
+            // The Brenner sum is left at 0, so this is its mean square
+            focus = (focusSumSq / focusCount - meanFocus * meanFocus) / (mean * mean);
+        }
+        Stats stats = new Stats(mean / saturation, pixels == 0 ? 0 : (double) saturated / pixels, focus);
+        return new Sample(outW, outH, channels, bits, step, values, stats, fullDecode);
+    }
+
+    private static double luminance(PixelSource source, int x, int y, int channels) {
+        int sum = 0;
+        for (int c = 0; c < channels; c++) {
+            sum += source.get(x, y, c);
+        }
+        return (double) sum / channels;
+    }
+
+    // ========== TIFF structure ==========
+
+    /**
+     * The tags of one image file directory that matter for sampling.
+     */
+    private static final class Ifd {
+        int width;
+        int height;
+        int bits = 1;
+        int samples = 1;
+        int compression = 1;
+        int photometric = -1;
+        int planar = 1;
+        long rowsPerStrip = Integer.MAX_VALUE;
+        long[] stripOffsets;
+        boolean tiled;
+        long[] subIfds = new long[0];
+        long subfileType;
+        long next;
+
+        boolean isSampleable() {
+            return compression == 1 && !tiled && stripOffsets != null && width > 0 && height > 0
+                    && (bits == 8 || bits == 16)
+                    && (samples == 1 || planar == 1)
+                    && (photometric == 1 || photometric == 2)
+                    && rowsPerStrip > 0;
+        }
+    }
+
+    /**
+     * Picks the smallest sampleable level that still has at least {@code maxSize} pixels on its
+     * longer side, or the full-resolution level.
+     *
+     * @return The level, or null if the file is not a sampleable TIFF
+     */
+    private static Ifd chooseIfd(FileBytes bytes, int maxSize) {
+        if (bytes.getByte(0) == 'I' && bytes.getByte(1) == 'I') {
+            bytes.order(ByteOrder.LITTLE_ENDIAN);
+        } else if (bytes.getByte(0) == 'M' && bytes.getByte(1) == 'M') {
+            bytes.order(ByteOrder.BIG_ENDIAN);
+        } else {
+            return null;
+        }
+        if (bytes.getShort(2) != 42) {
+            // BigTIFF (43) or not a TIFF
+            return null;
+        }
+
+        Ifd main = readIfd(bytes, bytes.getInt(4));
+        if (!main.isSampleable()) {
+            return null;
+        }
+        List<Ifd> reduced = new ArrayList<>();
+        for (long offset : main.subIfds) {
+            reduced.add(readIfd(bytes, offset));
+        }
+        long next = main.next;
+        for (int n = 0; next != 0 && n < MAX_IFDS; n++) {
+            Ifd ifd = readIfd(bytes, next);
+            if ((ifd.subfileType & 1) != 0) {
+                reduced.add(ifd);
+            }
+            next = ifd.next;
+        }
+
+        Ifd best = main;
+        for (Ifd ifd : reduced) {
+            int longSide = Math.max(ifd.width, ifd.height);
+            if (ifd.isSampleable() && ifd.samples == main.samples && longSide >= maxSize
+                    && longSide < Math.max(best.width, best.height)) {
+                best = ifd;
+            }
+        }
+        return best;
+    }
+
+    private static Ifd readIfd(FileBytes bytes, long offset) {
+        Ifd ifd = new Ifd();
+        int count = bytes.getShort(offset);
+        for (int e = 0; e < count; e++) {
+            long entry = offset + 2 + e * 12L;
+            int tag = bytes.getShort(entry);
+            switch (tag) {
+                case TAG_NEW_SUBFILE_TYPE -> ifd.subfileType = readValues(bytes, entry)[0];
+                case TAG_IMAGE_WIDTH -> ifd.width = (int) readValues(bytes, entry)[0];
+                case TAG_IMAGE_LENGTH -> ifd.height = (int) readValues(bytes, entry)[0];
+                case TAG_BITS_PER_SAMPLE -> {
+                    long[] bits = readValues(bytes, entry);
+                    ifd.bits = (int) bits[0];
+                    for (long b : bits) {
+                        if (b != bits[0]) {
+                            ifd.bits = -1;
+                        }
+                    }
+                }
+                case TAG_COMPRESSION -> ifd.compression = (int) readValues(bytes, entry)[0];
+                case TAG_PHOTOMETRIC -> ifd.photometric = (int) readValues(bytes, entry)[0];
+                case TAG_STRIP_OFFSETS -> ifd.stripOffsets = readValues(bytes, entry);
+                case TAG_SAMPLES_PER_PIXEL -> ifd.samples = (int) readValues(bytes, entry)[0];
+                case TAG_ROWS_PER_STRIP -> ifd.rowsPerStrip = readValues(bytes, entry)[0];
+                case TAG_PLANAR_CONFIGURATION -> ifd.planar = (int) readValues(bytes, entry)[0];
+                case TAG_TILE_WIDTH -> ifd.tiled = true;
+                case TAG_SUB_IFDS -> ifd.subIfds = readValues(bytes, entry);
+                default -> { }
+            }
+        }
+        ifd.next = bytes.getInt(offset + 2 + count * 12L);
+        return ifd;
+    }
+
+    /**
+     * Reads the unsigned integer values of an IFD entry, inline or at their offset.
+     */
+    private static long[] readValues(FileBytes bytes, long entry) {
+        int type = bytes.getShort(entry + 2);
+        long count = bytes.getInt(entry + 4);
+        int size = switch (type) {
+            case 1 -> 1;        // BYTE
+            case 3 -> 2;        // SHORT
+            case 4, 13 -> 4;    // LONG, IFD
+            default -> 0;
+        };
+        if (size == 0 || count == 0) {
+            return new long[]{0};
+        }
+        if (count * size > bytes.size()) {
+            throw new IndexOutOfBoundsException("Entry at " + entry + " has " + count + " values");
+        }
+        long pos = count * size <= 4 ? entry + 8 : bytes.getInt(entry + 8);
+        long[] values = new long[(int) count];
+        for (int i = 0; i < count; i++) {
+            values[i] = switch (size) {
+                case 1 -> bytes.getByte(pos + i);
+                case 2 -> bytes.getShort(pos + 2L * i);
+                default -> bytes.getInt(pos + 4L * i);
+            };
+        }
+        return values;
+    }
+
+    /**
+     * Unsigned reads at absolute file offsets, served from a few small heap buffers that are
+     * refilled with positional reads. Sampling touches three neighbouring rows at a time, so a
+     * handful of windows keeps them all buffered.
+     *
+     * <p>Offsets outside the file throw {@link IndexOutOfBoundsException} like a buffer would;
+     * read errors are thrown as {@link UncheckedIOException}.</p>
+     */
+    private static final class FileBytes {
+        private static final int WINDOW_BYTES = 16 << 10;
+        private static final int WINDOWS = 6;
+
+        private final FileChannel channel;
+        private final long size;
+        private final ByteBuffer[] windows = new ByteBuffer[WINDOWS];
+        private final long[] starts = new long[WINDOWS];
+        private int nextWindow;
+        private ByteOrder order = ByteOrder.BIG_ENDIAN;
+
+        FileBytes(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        long size() {
+            return size;
+        }
+
+        void order(ByteOrder order) {
+            this.order = order;
+            for (ByteBuffer window : windows) {
+                if (window != null) {
+                    window.order(order);
+                }
+            }
+        }
+
+        int getByte(long pos) {
+            int w = window(pos, 1);
+            return Byte.toUnsignedInt(windows[w].get((int) (pos - starts[w])));
+        }
+
+        int getShort(long pos) {
+            int w = window(pos, 2);
+            return Short.toUnsignedInt(windows[w].getShort((int) (pos - starts[w])));
+        }
+
+        long getInt(long pos) {
+            int w = window(pos, 4);
+            return Integer.toUnsignedLong(windows[w].getInt((int) (pos - starts[w])));
+        }
+
+        /**
+         * @return Index of a window holding {@code length} bytes from {@code pos}, read if needed
+         */
+        private int window(long pos, int length) {
+            if (pos < 0 || pos + length > size) {
+                throw new IndexOutOfBoundsException("Offset " + pos + " is outside the file (" + size + " bytes)");
+            }
+            for (int w = 0; w < WINDOWS; w++) {
+                if (windows[w] != null && pos >= starts[w] && pos + length <= starts[w] + windows[w].limit()) {
+                    return w;
+                }
+            }
+            int w = nextWindow;
+            nextWindow = (nextWindow + 1) % WINDOWS;
+            if (windows[w] == null) {
+                windows[w] = ByteBuffer.allocate(WINDOW_BYTES).order(order);
+            }
+            ByteBuffer window = windows[w];
+            window.clear().limit((int) Math.min(WINDOW_BYTES, size - pos));
+            try {
+                // Positional reads may return fewer bytes than asked for
+                while (window.hasRemaining()) {
+                    if (channel.read(window, pos + window.position()) < 0) {
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            window.flip();
+            starts[w] = pos;
+            if (window.limit() < length) {
+                throw new IndexOutOfBoundsException("File ended at " + (pos + window.limit()));
+            }
+            return w;
+        }
+    }
+
+    /**
+     * Pixels of an uncompressed strip image, read straight from the file.
+     */
+    private static final class StripSource implements PixelSource {
+        private final FileBytes bytes;
+        private final Ifd ifd;
+        private final int bytesPerSample;
+        private final int rowBytes;
+
+        StripSource(FileBytes bytes, Ifd ifd) {
+            this.bytes = bytes;
+            this.ifd = ifd;
+            this.bytesPerSample = ifd.bits / 8;
+            this.rowBytes = ifd.width * ifd.samples * bytesPerSample;
+        }
+
+        @Override public int width() { return ifd.width; }
+        @Override public int height() { return ifd.height; }
+        @Override public int channels() { return ifd.samples; }
+
+        @Override
+        public int get(int x, int y, int c) {
+            int strip = (int) (y / ifd.rowsPerStrip);
+            long rowInStrip = y - strip * ifd.rowsPerStrip;
+            long pos = ifd.stripOffsets[strip] + rowInStrip * rowBytes
+                    + (long) (x * ifd.samples + c) * bytesPerSample;
+            return bytesPerSample == 1 ? bytes.getByte(pos) : bytes.getShort(pos);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package qupath.ext.qpsc.utilities;
 
 import qupath.ext.qpsc.utilities.BoundingBox;
 import qupath.lib.objects.PathObject;
+import qupath.lib.objects.hierarchy.PathObjectHierarchy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.List;
@@ -98,6 +99,9 @@ public class TilingRequest {
     /** Annotation objects for region-based tiling (mutually exclusive with boundingBox) */
     private List<PathObject> annotations;
 
+    /** Hierarchy of the annotations and tiles; null for the image open in the GUI */
+    private PathObjectHierarchy hierarchy;
+
     /** Pixel size in microns for coordinate conversion (required for annotation workflows, use 1.0 for bounding box) */
     private double pixelSizeMicrons = -1.0;  // -1.0 indicates not set
 
@@ -258,6 +262,19 @@ public class TilingRequest {
             return this;
         }
 
+        /**
+         * Sets the hierarchy the annotations belong to, for images that are not open in the GUI.
+         * Renamed annotations and detection tiles are reported to this hierarchy instead of the
+         * GUI's current image.
+         *
+         * @param hierarchy hierarchy of the annotations, or null for the image open in the GUI
+         * @return this builder instance for method chaining
+         */
+        public Builder hierarchy(PathObjectHierarchy hierarchy) {
+            request.hierarchy = hierarchy;
+            return this;
+        }
+
         /**
          * Sets the pixel size for coordinate conversion between pixels and microns.
          * This is used to convert QuPath pixel coordinates to physical stage coordinates.
@@ -420,6 +437,13 @@ public class TilingRequest {
      */
     public List<PathObject> getAnnotations() { return annotations; }
 
+    /**
+     * Gets the hierarchy the annotations belong to.
+     *
+     * @return the hierarchy, or null to use the image open in the GUI
+     */
+    public PathObjectHierarchy getHierarchy() { return hierarchy; }
+
     /**
      * Gets the pixel size in microns for coordinate conversion.
      *
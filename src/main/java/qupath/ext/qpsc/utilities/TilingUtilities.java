@@ -135,7 +135,11 @@ public class TilingUtilities {
         }
 
         // Fire hierarchy update to reflect annotation changes
-        QP.fireHierarchyUpdate();
+        if (request.getHierarchy() != null) {
+            request.getHierarchy().fireHierarchyChangedEvent(request.getHierarchy().getRootObject());
+        } else {
+            QP.fireHierarchyUpdate();
+        }
 
         // Create tiles for each annotation
         for (PathObject annotation : request.getAnnotations()) {
@@ -205,24 +209,15 @@ public class TilingUtilities {
             String configPath,
             ROI filterROI, String annotationName) throws IOException {
 
-        // Calculate step sizes based on overlap
-        double overlapFraction = request.getOverlapPercent() / 100.0;
-        double xStep = request.getFrameWidth() * (1 - overlapFraction);
-        double yStep = request.getFrameHeight() * (1 - overlapFraction);
-
-        // Calculate number of tiles needed
-        int nCols = (int) Math.ceil(width / xStep);
-        int nRows = (int) Math.ceil(height / yStep);
-
-        // If the division is exact, we still need one more tile to cover the far edge
-        if (width % xStep == 0) nCols++;
-        if (height % yStep == 0) nRows++;
+        List<GridTile> grid = computeTileGrid(startX, startY, width, height,
+                request.getFrameWidth(), request.getFrameHeight(), request.getOverlapPercent(),
+                request.isInvertX(), request.isInvertY());
 
         logger.info("Tile grid configuration:");
         logger.info("  Area: ({}, {}) to ({}, {})", startX, startY, startX + width, startY + height);
         logger.info("  Frame size: {} x {} (in input units)", request.getFrameWidth(), request.getFrameHeight());
-        logger.info("  Step size: {} x {} ({}% overlap)", xStep, yStep, request.getOverlapPercent());
-        logger.info("  Grid: {} columns x {} rows", nCols, nRows);
+        logger.info("  Overlap: {}%", request.getOverlapPercent());
+        logger.info("  Grid: {} tiles", grid.size());
         logger.info("  Pixel size for coordinate conversion: {} µm/px", request.getPixelSizeMicrons());
         logger.info("  X-axis inverted: {}, Y-axis inverted: {}", request.isInvertX(), request.isInvertY());
 
@@ -238,80 +233,67 @@ public class TilingUtilities {
         int skippedTiles = 0;
 
         // Generate tiles
-        for (int row = 0; row < nRows; row++) {
-            // When Y is inverted, we need to process rows in reverse order
-            int gridRow = request.isInvertY() ? (nRows - 1 - row) : row;
-            double y = startY + gridRow * yStep;
-
-            // Serpentine pattern based on the logical row (not grid row)
-            boolean reverseDirection = (row % 2 == 1);
+        for (GridTile gridTile : grid) {
+            int gridRow = gridTile.row();
+            int gridCol = gridTile.column();
+
+            // Create tile ROI
+            ROI tileROI = ROIs.createRectangleROI(
+                    gridTile.x(), gridTile.y(),
+                    gridTile.width(),
+                    gridTile.height(),
+                    ImagePlane.getDefaultPlane()
+            );
 
-            for (int col = 0; col < nCols; col++) {
-                // Apply serpentine pattern
-                int serpentineCol = reverseDirection ? (nCols - 1 - col) : col;
+            // Check if we should include this tile
+            boolean includeTile = true;
+            if (filterROI != null) {
+                includeTile = filterROI.contains(tileROI.getCentroidX(), tileROI.getCentroidY()) ||
+                        filterROI.getGeometry().intersects(tileROI.getGeometry());
+            }
 
-                // When X is inverted, we need to process columns in reverse order
-                int gridCol = request.isInvertX() ? (nCols - 1 - serpentineCol) : serpentineCol;
-                double x = startX + gridCol * xStep;
+            if (!includeTile) {
+                skippedTiles++;
+                continue;
+            }
 
-                // Create tile ROI
-                ROI tileROI = ROIs.createRectangleROI(
-                        x, y,
-                        request.getFrameWidth(),
-                        request.getFrameHeight(),
-                        ImagePlane.getDefaultPlane()
+            // Add to configuration files
+            // 1. TileConfiguration.txt - QuPath pixel coordinates (will be transformed to stage later)
+            // NOTE: These are in PIXELS, not microns! The transformation to stage coordinates
+            // happens later in TransformationFunctions.transformTileConfiguration()
+            configLinesForTransform.add(String.format("%d.tif; ; (%.3f, %.3f)",
+                    tileIndex,
+                    tileROI.getCentroidX(),
+                    tileROI.getCentroidY()
+            ));
+
+            // 2. TileConfiguration_QP.txt - QuPath pixel coordinates (for stitching back into QuPath)
+            configLinesPixels.add(String.format("%d.tif; ; (%.3f, %.3f)",
+                    tileIndex,
+                    tileROI.getCentroidX(),
+                    tileROI.getCentroidY()
+            ));
+
+            // Create QuPath detection object if requested
+            if (request.isCreateDetections()) {
+                PathObject tile = PathObjects.createDetectionObject(
+                        tileROI,
+                        QP.getPathClass(request.getModalityName())
                 );
-
-                // Check if we should include this tile
-                boolean includeTile = true;
-                if (filterROI != null) {
-                    includeTile = filterROI.contains(tileROI.getCentroidX(), tileROI.getCentroidY()) ||
-                            filterROI.getGeometry().intersects(tileROI.getGeometry());
-                }
-
-                if (!includeTile) {
-                    skippedTiles++;
-                    continue;
-                }
-
-                // Add to configuration files
-                // 1. TileConfiguration.txt - QuPath pixel coordinates (will be transformed to stage later)
-                // NOTE: These are in PIXELS, not microns! The transformation to stage coordinates
-                // happens later in TransformationFunctions.transformTileConfiguration()
-                configLinesForTransform.add(String.format("%d.tif; ; (%.3f, %.3f)",
-                        tileIndex,
-                        tileROI.getCentroidX(),
-                        tileROI.getCentroidY()
-                ));
-
-                // 2. TileConfiguration_QP.txt - QuPath pixel coordinates (for stitching back into QuPath)
-                configLinesPixels.add(String.format("%d.tif; ; (%.3f, %.3f)",
-                        tileIndex,
-                        tileROI.getCentroidX(),
-                        tileROI.getCentroidY()
-                ));
-
-                // Create QuPath detection object if requested
-                if (request.isCreateDetections()) {
-                    PathObject tile = PathObjects.createDetectionObject(
-                            tileROI,
-                            QP.getPathClass(request.getModalityName())
-                    );
-                    // Set name to include both tile number and annotation name
-                    if (annotationName != null) {
-                        tile.setName(String.format("%d_%s", tileIndex, annotationName));
-                    } else {
-                        tile.setName(String.valueOf(tileIndex));
-                    }
-
-                    tile.getMeasurements().put("TileNumber", tileIndex);
-                    tile.getMeasurements().put("Row", gridRow);
-                    tile.getMeasurements().put("Column", gridCol);
-                    detectionTiles.add(tile);
+                // Set name to include both tile number and annotation name
+                if (annotationName != null) {
+                    tile.setName(String.format("%d_%s", tileIndex, annotationName));
+                } else {
+                    tile.setName(String.valueOf(tileIndex));
                 }
 
-                tileIndex++;
+                tile.getMeasurements().put("TileNumber", tileIndex);
+                tile.getMeasurements().put("Row", gridRow);
+                tile.getMeasurements().put("Column", gridCol);
+                detectionTiles.add(tile);
             }
+
+            tileIndex++;
         }
 
         logger.info("Generated {} tiles, skipped {} tiles outside ROI", tileIndex, skippedTiles);
@@ -334,7 +316,10 @@ public class TilingUtilities {
         // are added to the correct image (especially after image flip operations)
         if (!detectionTiles.isEmpty()) {
             QuPathGUI gui = QuPathGUI.getInstance();
-            if (gui != null && gui.getImageData() != null) {
+            if (request.getHierarchy() != null) {
+                request.getHierarchy().addObjects(detectionTiles);
+                request.getHierarchy().fireHierarchyChangedEvent(request.getHierarchy().getRootObject());
+            } else if (gui != null && gui.getImageData() != null) {
                 gui.getImageData().getHierarchy().addObjects(detectionTiles);
                 gui.getImageData().getHierarchy().fireHierarchyChangedEvent(gui.getImageData().getHierarchy().getRootObject());
             } else {
@@ -346,6 +331,91 @@ public class TilingUtilities {
         }
     }
 
+    /**
+     * A tile position of a grid in the input units of the grid area.
+     *
+     * @param x      the left edge of the tile
+     * @param y      the top edge of the tile
+     * @param width  the tile width (frame width)
+     * @param height the tile height (frame height)
+     * @param row    the grid row, counted from the top of the area
+     * @param column the grid column, counted from the left of the area
+     */
+    public record GridTile(double x, double y, double width, double height, int row, int column) {
+
+        /** @return the x coordinate of the tile centre */
+        public double centerX() {
+            return x + width / 2.0;
+        }
+
+        /** @return the y coordinate of the tile centre */
+        public double centerY() {
+            return y + height / 2.0;
+        }
+    }
+
+    /**
+     * Computes the tile grid covering an area, in acquisition order.
+     * <p>
+     * This is the grid used for every acquisition; it has no side effects, so it can also be
+     * used to plan or preview an acquisition (see {@link AcquisitionPlanner}). Tiles are ordered
+     * in a serpentine pattern; axis inversion reverses the order of rows and columns, not the
+     * area covered.
+     *
+     * @param startX         the left edge of the grid area
+     * @param startY         the top edge of the grid area
+     * @param width          the total width to cover
+     * @param height         the total height to cover
+     * @param frameWidth     the tile width
+     * @param frameHeight    the tile height
+     * @param overlapPercent the overlap between neighbouring tiles, in percent
+     * @param invertX        whether columns are visited from right to left
+     * @param invertY        whether rows are visited from bottom to top
+     * @return the tiles in acquisition order
+     */
+    public static List<GridTile> computeTileGrid(
+            double startX, double startY,
+            double width, double height,
+            double frameWidth, double frameHeight,
+            double overlapPercent,
+            boolean invertX, boolean invertY) {
+
+        // Calculate step sizes based on overlap
+        double overlapFraction = overlapPercent / 100.0;
+        double xStep = frameWidth * (1 - overlapFraction);
+        double yStep = frameHeight * (1 - overlapFraction);
+
+        // Calculate number of tiles needed
+        int nCols = (int) Math.ceil(width / xStep);
+        int nRows = (int) Math.ceil(height / yStep);
+
+        // If the division is exact, we still need one more tile to cover the far edge
+        if (width % xStep == 0) nCols++;
+        if (height % yStep == 0) nRows++;
+
+        List<GridTile> tiles = new ArrayList<>(nCols * nRows);
+        for (int row = 0; row < nRows; row++) {
+            // When Y is inverted, we need to process rows in reverse order
+            int gridRow = invertY ? (nRows - 1 - row) : row;
+            double y = startY + gridRow * yStep;
+
+            // Serpentine pattern based on the logical row (not grid row)
+            boolean reverseDirection = (row % 2 == 1);
+
+            for (int col = 0; col < nCols; col++) {
+                // Apply serpentine pattern
+                int serpentineCol = reverseDirection ? (nCols - 1 - col) : col;
+
+                // When X is inverted, we need to process columns in reverse order
+                int gridCol = invertX ? (nCols - 1 - serpentineCol) : serpentineCol;
+                double x = startX + gridCol * xStep;
+
+                tiles.add(new GridTile(x, y, frameWidth, frameHeight, gridRow, gridCol));
+            }
+        }
+        return tiles;
+    }
+
     /**
      * Creates tiles for annotations using camera FOV from the microscope server.
      *
@@ -12,6 +12,7 @@ import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.io.*;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.*;
 import java.util.Collection;
@@ -753,6 +754,19 @@ public class TransformationFunctions {
     public static List<String> transformTileConfiguration(
             String parentDirPath,
             AffineTransform transform) throws IOException {
+        return transformTileConfiguration(parentDirPath, transform, null);
+    }
+
+    /**
+     * Transforms the TileConfiguration files of the named subdirectories only, leaving
+     * configurations that are already in stage coordinates alone.
+     *
+     * @param folderNames Subdirectories to transform, or null for all
+     */
+    public static List<String> transformTileConfiguration(
+            String parentDirPath,
+            AffineTransform transform,
+            Collection<String> folderNames) throws IOException {
 
         File parent = new File(parentDirPath);
         List<String> modified = new ArrayList<>();
@@ -762,6 +776,9 @@ public class TransformationFunctions {
         File[] subdirs = parent.listFiles(File::isDirectory);
         if (subdirs != null) {
             for (File sub : subdirs) {
+                if (folderNames != null && !folderNames.contains(sub.getName())) {
+                    continue;
+                }
                 File inFile = new File(sub, "TileConfiguration.txt");
                 if (inFile.exists()) {
                     logger.info("Found and transforming: {}", inFile.getAbsolutePath());
@@ -842,6 +859,29 @@ public class TransformationFunctions {
         return Arrays.asList(Arrays.asList(minX, minY), Arrays.asList(maxX, maxY));
     }
 
+    /**
+     * Reads tile file names and positions from a TileConfiguration file.
+     *
+     * @param tileConfigFile TileConfiguration.txt, in stage microns once transformed
+     * @return Positions {x, y} by file name in file order, or null if the file does not exist
+     * @throws IOException if the file cannot be read
+     */
+    public static Map<String, double[]> readTilePositions(Path tileConfigFile) throws IOException {
+        if (!Files.exists(tileConfigFile)) {
+            return null;
+        }
+        Pattern p = Pattern.compile("(\\S+\\.tiff?); ; \\((.*?), (.*?)\\)");
+        Map<String, double[]> positions = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(tileConfigFile)) {
+            Matcher m = p.matcher(line);
+            if (m.find()) {
+                positions.put(m.group(1), new double[]{
+                        Double.parseDouble(m.group(2).trim()), Double.parseDouble(m.group(3).trim())});
+            }
+        }
+        return positions;
+    }
+
     /**
      * Calculates the offset of an annotation from the slide corner in stage coordinates.
      * This is useful for storing metadata about sub-image positions.
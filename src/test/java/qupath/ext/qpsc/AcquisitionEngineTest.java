@@ -0,0 +1,185 @@
+package qupath.ext.qpsc;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import qupath.ext.qpsc.modality.AngleExposure;
+import qupath.ext.qpsc.service.AcquisitionCommandBuilder;
+import qupath.ext.qpsc.service.AcquisitionEngine;
+import qupath.ext.qpsc.service.AcquisitionListener;
+import qupath.ext.qpsc.service.microscope.MicroscopeSocketClient;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the headless acquisition engine against the mock microscope server.
+ */
+class AcquisitionEngineTest {
+
+    @TempDir
+    Path tempDir;
+
+    private MockMicroscopeServer mockServer;
+    private MicroscopeSocketClient client;
+
+    /**
+     * Records every event as a short string.
+     */
+    private static class RecordingListener implements AcquisitionListener {
+        final List<String> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void regionStarted(String region, int expectedFiles) {
+            events.add("started " + region + " " + expectedFiles);
+        }
+
+        @Override
+        public void regionProgress(String region, int filesWritten, int expectedFiles) {
+            events.add("progress " + filesWritten);
+        }
+
+        @Override
+        public void timingMetadata(String region, int timingWindowSize, int afNTiles, int totalTiles) {
+            events.add("metadata " + totalTiles);
+        }
+
+        @Override
+        public void regionFinished(String region, MicroscopeSocketClient.AcquisitionState state) {
+            events.add("finished " + region + " " + state);
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        mockServer = MockMicroscopeServer.createOnRandomPort();
+        mockServer.setTileDelay(40);
+        mockServer.start();
+        client = new MicroscopeSocketClient("localhost", mockServer.getPort());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (client != null) {
+            client.close();
+        }
+        if (mockServer != null) {
+            mockServer.stop();
+        }
+    }
+
+    private AcquisitionEngine.Region region(String name, List<String> angles, int tiles) throws IOException {
+        Path folder = tempDir.resolve("sample").resolve("bf_10x_1").resolve(name);
+        Files.createDirectories(folder);
+        List<String> lines = new ArrayList<>(List.of("dim = 2"));
+        for (int i = 0; i < tiles; i++) {
+            lines.add(String.format("%d.tif; ; (%d.0, 50.0)", i, i * 100));
+        }
+        Files.write(folder.resolve("TileConfiguration.txt"), lines);
+
+        AcquisitionCommandBuilder command = AcquisitionCommandBuilder.builder()
+                .yamlPath("config.yml")
+                .projectsFolder(tempDir.toString())
+                .sampleLabel("sample")
+                .scanType("bf_10x_1")
+                .regionName(name)
+                .angleExposures(angles.stream()
+                        .map(a -> new AngleExposure(Double.parseDouble(a), 10.0))
+                        .toList());
+        return new AcquisitionEngine.Region(name, command, folder, angles, 0, false);
+    }
+
+    @Test
+    @DisplayName("Acquires a region and reports progress")
+    void testAcquireRegion() throws Exception {
+        mockServer.setPosition(0, 0, 12.5, 0);
+        RecordingListener listener = new RecordingListener();
+        AcquisitionEngine engine = new AcquisitionEngine(client, listener, 20, 10000);
+
+        AcquisitionEngine.Region region = region("Tissue_1", List.of("0.0", "90.0"), 3);
+        AcquisitionEngine.Result result = engine.acquire(region);
+
+        assertTrue(result.isCompleted());
+        assertEquals(12.5, result.finalZ());
+        assertNull(result.failureMessage());
+        assertNull(result.tileQc());
+        for (String angle : List.of("0.0", "90.0")) {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(Files.exists(region.tileFolder().resolve(angle).resolve(i + ".tif")));
+            }
+        }
+
+        assertEquals("started Tissue_1 6", listener.events.get(0));
+        assertEquals("finished Tissue_1 COMPLETED", listener.events.get(listener.events.size() - 1));
+        assertTrue(listener.events.contains("metadata 3"));
+        assertTrue(listener.events.stream().anyMatch(e -> e.startsWith("progress ")));
+    }
+
+    @Test
+    @DisplayName("Passes manual focus requests to the listener")
+    void testManualFocus() throws Exception {
+        mockServer.setManualFocusAtTile(1);
+        List<Integer> requests = new CopyOnWriteArrayList<>();
+        AcquisitionEngine engine = new AcquisitionEngine(client, new AcquisitionListener() {
+            @Override
+            public CompletableFuture<ManualFocusDecision> manualFocusRequested(String region, int retriesRemaining) {
+                requests.add(retriesRemaining);
+                return CompletableFuture.completedFuture(ManualFocusDecision.RETRY_AUTOFOCUS);
+            }
+        }, 20, 10000);
+
+        AcquisitionEngine.Result result = engine.acquire(region("Tissue_1", List.of(), 3));
+
+        assertTrue(result.isCompleted());
+        assertEquals(List.of(2), requests);
+        assertEquals("ackmf", mockServer.getManualFocusResponse());
+    }
+
+    @Test
+    @DisplayName("Cancelling stops the region and the rest of the run")
+    void testCancel() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        AcquisitionEngine[] engine = new AcquisitionEngine[1];
+        engine[0] = new AcquisitionEngine(client, AcquisitionListener.of(listener, new AcquisitionListener() {
+            @Override
+            public void regionProgress(String region, int filesWritten, int expectedFiles) {
+                if (filesWritten > 0 && !engine[0].isCancelled()) {
+                    try {
+                        engine[0].cancel();
+                    } catch (IOException e) {
+                        fail(e);
+                    }
+                }
+            }
+        }), 20, 10000);
+
+        AcquisitionEngine.Result result = engine[0].acquire(region("Tissue_1", List.of(), 20));
+        assertEquals(MicroscopeSocketClient.AcquisitionState.CANCELLED, result.state());
+        String firstMessage = mockServer.getLastAcquisitionMessage();
+
+        AcquisitionEngine.Result next = engine[0].acquire(region("Tissue_2", List.of(), 3));
+        assertEquals(MicroscopeSocketClient.AcquisitionState.CANCELLED, next.state());
+        // The second region is never sent to the server
+        assertEquals(firstMessage, mockServer.getLastAcquisitionMessage());
+        assertFalse(listener.events.contains("started Tissue_2 3"));
+    }
+
+    @Test
+    @DisplayName("Reports the server's failure message")
+    void testFailure() throws Exception {
+        mockServer.setAcquisitionFailure("Stage limit reached");
+        AcquisitionEngine engine = new AcquisitionEngine(client, null, 20, 10000);
+
+        AcquisitionEngine.Result result = engine.acquire(region("Tissue_1", List.of(), 2));
+
+        assertEquals(MicroscopeSocketClient.AcquisitionState.FAILED, result.state());
+        assertEquals("Stage limit reached", result.failureMessage());
+        assertNull(result.finalZ());
+    }
+}
@@ -5,10 +5,17 @@ import org.slf4j.LoggerFactory;
 import qupath.ext.qpsc.preferences.QPPreferenceDialog;
 import qupath.ext.qpsc.utilities.MicroscopeConfigManager;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
 import java.io.*;
 import java.net.*;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -16,7 +23,10 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Mock microscope server for testing the socket client.
@@ -30,6 +40,9 @@ import java.util.concurrent.atomic.AtomicReference;
  * <ul>
  *   <li>Simulates all microscope commands (move, get position, etc.)</li>
  *   <li>Maintains internal state for stage positions</li>
+ *   <li>Simulates tile acquisitions: writes a small TIFF per tile and angle into the
+ *       region folder, reports status and progress, and supports cancellation and
+ *       manual focus requests</li>
  *   <li>Configurable delays to simulate real hardware</li>
  *   <li>Error injection for testing error handling</li>
  *   <li>Thread-safe for concurrent client connections</li>
@@ -41,6 +54,9 @@ import java.util.concurrent.atomic.AtomicReference;
 public class MockMicroscopeServer implements AutoCloseable {
     private static final Logger logger = LoggerFactory.getLogger(MockMicroscopeServer.class);
 
+    // Terminates the acquisition message, as sent by the socket client
+    private static final String END_MARKER = "ENDOFSTR";
+
     // Server configuration
     private final int port;
     private ServerSocket serverSocket;
@@ -65,6 +81,19 @@ public class MockMicroscopeServer implements AutoCloseable {
     private volatile boolean injectErrors = false;
     private volatile double errorProbability = 0.1;
 
+    // Simulated acquisition state
+    private volatile String acquisitionState = "IDLE";
+    private volatile String acquisitionFailure;
+    private final AtomicInteger acquisitionProgress = new AtomicInteger(0);
+    private final AtomicInteger acquisitionTotal = new AtomicInteger(0);
+    private final AtomicBoolean cancelRequested = new AtomicBoolean(false);
+    private volatile long tileDelayMs = 20;
+    private volatile int manualFocusAtTile = -1;
+    private volatile String failAcquisitionWith;
+    private volatile int manualFocusRetries = -1; // >= 0 while waiting for the client
+    private volatile String manualFocusResponse;
+    private volatile String lastAcquisitionMessage;
+
     // Client tracking
     private final ConcurrentHashMap<String, ClientHandler> activeClients = new ConcurrentHashMap<>();
 
@@ -161,7 +190,8 @@ public class MockMicroscopeServer implements AutoCloseable {
                     // Read command (8 bytes)
                     byte[] commandBytes = new byte[8];
                     input.readFully(commandBytes);
-                    String command = new String(commandBytes).trim();
+                    // Commands are padded with underscores to 8 bytes
+                    String command = new String(commandBytes, StandardCharsets.UTF_8).replace("_", "").trim();
 
                     logger.debug("Received command '{}' from {}", command, clientId);
 
@@ -183,6 +213,15 @@ public class MockMicroscopeServer implements AutoCloseable {
                             return;
                         }
                         case "acquire" -> handleAcquire();
+                        case "status" -> handleStatus();
+                        case "progress" -> handleProgress();
+                        case "cancel" -> {
+                            cancelRequested.set(true);
+                            sendAck();
+                        }
+                        case "reqmanf" -> handleManualFocusRequest();
+                        case "ackmf" -> respondToManualFocus("ackmf");
+                        case "skipaf" -> respondToManualFocus("skipaf");
                         default -> logger.warn("Unknown command '{}' from {}", command, clientId);
                     }
                 }
@@ -315,7 +354,7 @@ public class MockMicroscopeServer implements AutoCloseable {
         }
 
         private void handleAcquire() throws IOException {
-            // Read the acquisition message until END_MARKER
+            // Read the acquisition message until the client's end marker
             StringBuilder message = new StringBuilder();
             byte[] buffer = new byte[1024];
 
@@ -323,23 +362,81 @@ public class MockMicroscopeServer implements AutoCloseable {
                 int bytesRead = input.read(buffer);
                 if (bytesRead == -1) break;
 
-                String chunk = new String(buffer, 0, bytesRead);
+                String chunk = new String(buffer, 0, bytesRead, StandardCharsets.UTF_8);
                 message.append(chunk);
 
-                if (message.toString().contains("END_MARKER")) {
+                if (message.toString().contains(END_MARKER)) {
                     break;
                 }
             }
 
-            String acquisitionParams = message.toString().replace("END_MARKER", "");
+            String acquisitionParams = message.toString().replace(END_MARKER, "").trim();
             logger.info("Acquisition requested: {}", acquisitionParams);
-
-            // Simulate acquisition (would normally trigger hardware)
-            try {
-                Thread.sleep(1000); // Simulate acquisition time
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+            lastAcquisitionMessage = acquisitionParams;
+
+            Map<String, String> args = parseArguments(acquisitionParams);
+            Path regionFolder = Path.of(args.getOrDefault("--projects", "."),
+                    args.getOrDefault("--sample", ""),
+                    args.getOrDefault("--scan-type", ""),
+                    args.getOrDefault("--region", ""));
+            List<String> angles = new ArrayList<>();
+            String anglesArg = args.get("--angles");
+            if (anglesArg != null) {
+                for (String angle : anglesArg.replace("(", "").replace(")", "").split(",")) {
+                    if (!angle.isBlank()) {
+                        angles.add(angle.trim());
+                    }
+                }
             }
+
+            acquisitionState = "RUNNING";
+            acquisitionFailure = null;
+            acquisitionProgress.set(0);
+            acquisitionTotal.set(0);
+            cancelRequested.set(false);
+            executor.submit(() -> runAcquisition(regionFolder, angles));
+
+            output.write(padded("STARTED", 16));
+            output.flush();
+        }
+
+        private void handleStatus() throws IOException {
+            String state = acquisitionState;
+            // COMPLETED and FAILED carry details after the 16-byte state, which the client reads separately
+            String response = switch (state) {
+                case "COMPLETED" -> "COMPLETED|final_z:" + currentPosition.get().z;
+                case "FAILED" -> "FAILED:" + acquisitionFailure;
+                default -> state;
+            };
+            output.write(padded(response, state.equals("FAILED") ? 32 : 16));
+            output.flush();
+        }
+
+        private void handleProgress() throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(8);
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            buffer.putInt(acquisitionProgress.get());
+            buffer.putInt(acquisitionTotal.get());
+
+            output.write(buffer.array());
+            output.flush();
+        }
+
+        private void handleManualFocusRequest() throws IOException {
+            int retries = manualFocusRetries;
+            String response = retries >= 0 ? String.format("NEEDED%02d", retries) : "IDLE____";
+            output.write(response.getBytes(StandardCharsets.UTF_8));
+            output.flush();
+        }
+
+        private void respondToManualFocus(String response) throws IOException {
+            manualFocusResponse = response;
+            sendAck();
+        }
+
+        private void sendAck() throws IOException {
+            output.write("ACK".getBytes(StandardCharsets.UTF_8));
+            output.flush();
         }
 
         private void simulateMovement() {
@@ -376,6 +473,102 @@ public class MockMicroscopeServer implements AutoCloseable {
         }
     }
 
+    /**
+     * Simulates an acquisition: writes a gray TIFF for every tile in the region's
+     * TileConfiguration.txt and every angle, pausing for manual focus if configured.
+     */
+    private void runAcquisition(Path regionFolder, List<String> angles) {
+        try {
+            List<String> tiles = readTileNames(regionFolder.resolve("TileConfiguration.txt"));
+            if (tiles.isEmpty()) {
+                throw new IOException("No tiles in " + regionFolder);
+            }
+            acquisitionTotal.set(tiles.size() * Math.max(1, angles.size()));
+            Files.writeString(regionFolder.resolve("acquisition_metadata.txt"),
+                    "timing_window_size=5\naf_n_tiles=2\ntotal_tiles=" + tiles.size() + "\n");
+
+            BufferedImage image = new BufferedImage(32, 32, BufferedImage.TYPE_BYTE_GRAY);
+            for (int t = 0; t < tiles.size(); t++) {
+                if (t == manualFocusAtTile) {
+                    waitForManualFocus();
+                }
+                for (String angle : angles.isEmpty() ? List.of("") : angles) {
+                    if (cancelRequested.get()) {
+                        acquisitionState = "CANCELLED";
+                        logger.info("Simulated acquisition cancelled after {} files", acquisitionProgress.get());
+                        return;
+                    }
+                    Path folder = angle.isEmpty() ? regionFolder : regionFolder.resolve(angle);
+                    Files.createDirectories(folder);
+                    ImageIO.write(image, "tiff", folder.resolve(tiles.get(t)).toFile());
+                    acquisitionProgress.incrementAndGet();
+                    Thread.sleep(tileDelayMs);
+                }
+            }
+            if (failAcquisitionWith != null) {
+                throw new IOException(failAcquisitionWith);
+            }
+            acquisitionState = "COMPLETED";
+            logger.info("Simulated acquisition completed: {} files", acquisitionProgress.get());
+        } catch (IOException e) {
+            acquisitionFailure = e.getMessage();
+            acquisitionState = "FAILED";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquisitionState = "CANCELLED";
+        }
+    }
+
+    private void waitForManualFocus() throws InterruptedException {
+        manualFocusResponse = null;
+        manualFocusRetries = 2;
+        while (manualFocusResponse == null && !cancelRequested.get()) {
+            Thread.sleep(10);
+        }
+        manualFocusRetries = -1;
+        logger.info("Manual focus answered with {}", manualFocusResponse);
+    }
+
+    private static List<String> readTileNames(Path tileConfiguration) throws IOException {
+        List<String> names = new ArrayList<>();
+        if (!Files.exists(tileConfiguration)) {
+            return names;
+        }
+        for (String line : Files.readAllLines(tileConfiguration)) {
+            int end = line.indexOf(';');
+            if (end > 0 && line.substring(0, end).matches(".+\\.tiff?")) {
+                names.add(line.substring(0, end).trim());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Splits a socket message into flag/value pairs, honouring double quotes.
+     */
+    private static Map<String, String> parseArguments(String message) {
+        List<String> tokens = new ArrayList<>();
+        Matcher m = Pattern.compile("\"([^\"]*)\"|(\\S+)").matcher(message);
+        while (m.find()) {
+            tokens.add(m.group(1) != null ? m.group(1) : m.group(2));
+        }
+        Map<String, String> args = new HashMap<>();
+        for (int i = 0; i < tokens.size() - 1; i++) {
+            if (tokens.get(i).startsWith("--")) {
+                args.put(tokens.get(i), tokens.get(i + 1));
+            }
+        }
+        return args;
+    }
+
+    private static byte[] padded(String response, int minLength) {
+        StringBuilder sb = new StringBuilder(response);
+        while (sb.length() < minLength) {
+            sb.append(' ');
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
     /**
      * Stops the mock server.
      */
@@ -461,6 +654,47 @@ public class MockMicroscopeServer implements AutoCloseable {
         this.errorProbability = Math.max(0.0, Math.min(1.0, probability));
     }
 
+    /**
+     * Sets the simulated time to write each tile image.
+     *
+     * @param delayMs Delay in milliseconds
+     */
+    public void setTileDelay(long delayMs) {
+        this.tileDelayMs = delayMs;
+    }
+
+    /**
+     * Makes the next acquisitions ask for manual focus before the given tile.
+     *
+     * @param tileIndex Tile index, or -1 to never ask
+     */
+    public void setManualFocusAtTile(int tileIndex) {
+        this.manualFocusAtTile = tileIndex;
+    }
+
+    /**
+     * Makes the next acquisitions fail after writing all tiles.
+     *
+     * @param message Failure message, or null to succeed
+     */
+    public void setAcquisitionFailure(String message) {
+        this.failAcquisitionWith = message;
+    }
+
+    /**
+     * @return The last manual focus response received ("ackmf" or "skipaf"), or null
+     */
+    public String getManualFocusResponse() {
+        return manualFocusResponse;
+    }
+
+    /**
+     * @return The message of the last acquisition command, without the end marker
+     */
+    public String getLastAcquisitionMessage() {
+        return lastAcquisitionMessage;
+    }
+
     /**
      * Gets the number of active client connections.
      *
@@ -0,0 +1,49 @@
+package qupath.ext.qpsc.modality.ppm;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the PPM birefringence and sum computations.
+ */
+class PPMDerivedImagesTest {
+
+    @Test
+    void testSelectOpposingPair() {
+        assertEquals(List.of(7.0, -7.0), PPMDerivedImages.selectOpposingPair(List.of(-7.0, 0.0, 7.0, 90.0)));
+        assertEquals(List.of(5.0, -5.0), PPMDerivedImages.selectOpposingPair(List.of(10.0, -10.0, 5.0, -5.0)));
+        assertTrue(PPMDerivedImages.selectOpposingPair(List.of(0.0, 7.0, 90.0)).isEmpty());
+    }
+
+    @Test
+    void testBirefringence() {
+        // Two RGB pixels per input
+        int[] plus = {100, 50, 10, 20, 20, 20};
+        int[] minus = {90, 60, 10, 20, 20, 20};
+        int[] output = new int[2];
+
+        new PPMDerivedImages.Birefringence(false).combine(new int[][]{plus, minus}, 3, output);
+        assertArrayEquals(new int[]{20, 0}, output);
+
+        new PPMDerivedImages.Birefringence(true).combine(new int[][]{plus, minus}, 3, output);
+        assertEquals(65535 * 20 / 320, output[0]);
+        assertEquals(0, output[1]);
+    }
+
+    @Test
+    void testBirefringence_NormalizedBlackPixel() {
+        int[] output = new int[1];
+        new PPMDerivedImages.Birefringence(true).combine(new int[][]{{0}, {0}}, 1, output);
+        assertEquals(0, output[0]);
+    }
+
+    @Test
+    void testSum() {
+        int[] output = new int[2];
+        new PPMDerivedImages.Sum().combine(new int[][]{{1, 2, 3, 4, 5, 6}, {10, 20, 30, 40, 50, 60}}, 3, output);
+        assertArrayEquals(new int[]{66, 165}, output);
+    }
+}
@@ -0,0 +1,191 @@
+package qupath.ext.qpsc.service;
+
+import org.junit.jupiter.api.Test;
+import qupath.ext.qpsc.ui.stagemap.StageInsert;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for ordering and running multi-slide batches.
+ */
+class SlideBatchQueueTest {
+
+    private static final SlideBatchQueue.Hardware PPM_20X = new SlideBatchQueue.Hardware("20x", "ppm");
+    private static final SlideBatchQueue.Hardware BF_10X = new SlideBatchQueue.Hardware("10x", "bf");
+
+    /** Four vertical slides side by side, 30 mm apart */
+    private static final StageInsert INSERT = createInsert();
+
+    private static StageInsert createInsert() {
+        List<StageInsert.SlidePosition> slides = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            slides.add(new StageInsert.SlidePosition("Slide " + (i + 1), 5 + i * 30, 5, 25, 75, 90));
+        }
+        return new StageInsert("quad_v", "Quad", 125, 85, 0, 0, 2000, slides);
+    }
+
+    private static SlideBatchQueue.Job job(String sample, int slide, SlideBatchQueue.Hardware hardware) {
+        return new SlideBatchQueue.Job(sample, INSERT.getSlides().get(slide - 1), Path.of(sample),
+                "alignment", List.of("Tissue"), hardware.modality(), hardware.objective());
+    }
+
+    private static List<String> samples(List<SlideBatchQueue.Job> jobs) {
+        return jobs.stream().map(SlideBatchQueue.Job::sample).toList();
+    }
+
+    @Test
+    void testPlan_GroupsHardwareThenTravel() {
+        List<SlideBatchQueue.Job> jobs = List.of(
+                job("s4-ppm", 4, PPM_20X),
+                job("s1-bf", 1, BF_10X),
+                job("s2-ppm", 2, PPM_20X),
+                job("s3-bf", 3, BF_10X),
+                job("s1-ppm", 1, PPM_20X));
+        double[] start = INSERT.getSlideCenterStage(INSERT.getSlides().get(0));
+
+        List<SlideBatchQueue.Job> plan = SlideBatchQueue.plan(jobs, INSERT, start, null);
+
+        assertEquals(List.of("s1-ppm", "s2-ppm", "s4-ppm", "s3-bf", "s1-bf"), samples(plan));
+        assertEquals(2, SlideBatchQueue.hardwareChanges(plan, null));
+        assertEquals(5, SlideBatchQueue.hardwareChanges(jobs, null));
+        assertEquals(180000, SlideBatchQueue.travelUm(plan, INSERT, start), 1e-6);
+        assertTrue(SlideBatchQueue.travelUm(plan, INSERT, start) < SlideBatchQueue.travelUm(jobs, INSERT, start));
+    }
+
+    @Test
+    void testPlan_CurrentHardwareFirst() {
+        List<SlideBatchQueue.Job> jobs = List.of(
+                job("s1-ppm", 1, PPM_20X),
+                job("s1-bf", 1, BF_10X),
+                job("s2-bf", 2, BF_10X));
+
+        List<SlideBatchQueue.Job> plan = SlideBatchQueue.plan(jobs, INSERT, null, BF_10X);
+
+        assertEquals(List.of("s1-bf", "s2-bf", "s1-ppm"), samples(plan));
+        assertEquals(1, SlideBatchQueue.hardwareChanges(plan, BF_10X));
+    }
+
+    @Test
+    void testRun_StitchesWhileNextSlideIsAcquired() throws Exception {
+        List<SlideBatchQueue.Job> jobs = List.of(job("a", 1, PPM_20X), job("b", 2, PPM_20X), job("c", 3, BF_10X));
+        List<String> events = new CopyOnWriteArrayList<>();
+        Map<String, CompletableFuture<Void>> stitching = new ConcurrentHashMap<>();
+
+        SlideBatchQueue queue = new SlideBatchQueue(null, new SlideBatchQueue.SlideRunner() {
+            @Override
+            public void changeHardware(SlideBatchQueue.Hardware hardware) {
+                events.add("hardware " + hardware.objective());
+            }
+
+            @Override
+            public CompletableFuture<Void> acquire(SlideBatchQueue.Job job, AcquisitionEngine engine) {
+                events.add("acquire " + job.sample());
+                // The previous slide is still being stitched; it finishes only now
+                stitching.values().forEach(f -> f.complete(null));
+                CompletableFuture<Void> future = new CompletableFuture<>();
+                stitching.put(job.sample(), future);
+                if (job.sample().equals("c")) {
+                    future.complete(null);
+                }
+                return future;
+            }
+        }, SlideBatchQueue.DEFAULT_MAX_PENDING_SLIDES);
+
+        List<SlideBatchQueue.JobResult> results = queue.run(jobs);
+
+        assertEquals(List.of("hardware 20x", "acquire a", "acquire b", "hardware 10x", "acquire c"), events);
+        assertTrue(results.stream().allMatch(r -> r.status() == SlideBatchQueue.Status.COMPLETED));
+        assertEquals(samples(jobs), samples(results.stream().map(SlideBatchQueue.JobResult::job).toList()));
+    }
+
+    @Test
+    void testRun_WithoutOverlapWaitsForStitching() throws Exception {
+        List<SlideBatchQueue.Job> jobs = List.of(job("a", 1, PPM_20X), job("b", 2, PPM_20X));
+        List<String> events = new CopyOnWriteArrayList<>();
+
+        SlideBatchQueue queue = new SlideBatchQueue(null, (job, engine) -> {
+            events.add("acquire " + job.sample());
+            return CompletableFuture.runAsync(() -> {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                events.add("stitched " + job.sample());
+            });
+        }, 0);
+
+        queue.run(jobs);
+
+        assertEquals(List.of("acquire a", "stitched a", "acquire b", "stitched b"), events);
+    }
+
+    @Test
+    void testRun_FailedSlideDoesNotStopBatch() throws Exception {
+        List<SlideBatchQueue.Job> jobs = List.of(job("a", 1, PPM_20X), job("b", 2, PPM_20X), job("c", 3, PPM_20X));
+        List<String> hardwareChanges = new CopyOnWriteArrayList<>();
+
+        SlideBatchQueue queue = new SlideBatchQueue(null, new SlideBatchQueue.SlideRunner() {
+            @Override
+            public void changeHardware(SlideBatchQueue.Hardware hardware) {
+                hardwareChanges.add(hardware.objective());
+            }
+
+            @Override
+            public CompletableFuture<Void> acquire(SlideBatchQueue.Job job, AcquisitionEngine engine) throws IOException {
+                if (job.sample().equals("b")) {
+                    throw new IOException("Server stopped responding");
+                }
+                return job.sample().equals("c")
+                        ? CompletableFuture.failedFuture(new IllegalStateException("Stitching failed"))
+                        : null;
+            }
+        }, 1);
+
+        List<SlideBatchQueue.JobResult> results = queue.run(jobs);
+
+        assertEquals(SlideBatchQueue.Status.COMPLETED, results.get(0).status());
+        assertEquals(SlideBatchQueue.Status.FAILED, results.get(1).status());
+        assertEquals("Server stopped responding", results.get(1).message());
+        assertEquals(SlideBatchQueue.Status.FAILED, results.get(2).status());
+        assertEquals("Stitching failed", results.get(2).message());
+        // Hardware is set up again after a failed slide
+        assertEquals(List.of("20x", "20x"), hardwareChanges);
+    }
+
+    @Test
+    void testRun_CancelSkipsRemainingSlides() throws Exception {
+        List<SlideBatchQueue.Job> jobs = List.of(job("a", 1, PPM_20X), job("b", 2, PPM_20X), job("c", 3, PPM_20X));
+        List<String> acquired = new CopyOnWriteArrayList<>();
+        List<SlideBatchQueue.JobResult> finished = new CopyOnWriteArrayList<>();
+
+        SlideBatchQueue[] queue = new SlideBatchQueue[1];
+        queue[0] = new SlideBatchQueue(null, (job, engine) -> {
+            acquired.add(job.sample());
+            queue[0].cancel();
+            return null;
+        }, 1);
+        queue[0].setListener(new SlideBatchQueue.BatchListener() {
+            @Override
+            public void jobFinished(SlideBatchQueue.JobResult result) {
+                finished.add(result);
+            }
+        });
+
+        List<SlideBatchQueue.JobResult> results = queue[0].run(jobs);
+
+        assertTrue(queue[0].isCancelled());
+        assertEquals(List.of("a"), acquired);
+        assertTrue(results.stream().allMatch(r -> r.status() == SlideBatchQueue.Status.CANCELLED));
+        assertEquals(3, finished.size());
+    }
+}
@@ -0,0 +1,83 @@
+package qupath.ext.qpsc.ui.stagemap;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the Stage Map background renderer.
+ */
+class StageMapRendererTest {
+
+    private static final int BACKGROUND = 0xFF282828;
+    private static final int INSERT = 0xFF3C3C3C;
+    private static final int ILLEGAL = 0x80FF0000;
+    private static final int LEGAL = 0x8000FF00;
+    private static final int SLIDE = 0xFFC8DCFF;
+    private static final int BORDER = 0xFF648CC8;
+
+    private static StageMapRenderer renderer() {
+        return new StageMapRenderer(BACKGROUND, INSERT, ILLEGAL, LEGAL, SLIDE, BORDER);
+    }
+
+    @Test
+    void testBlendArgb() {
+        assertEquals(0xFF000000, StageMapRenderer.blendArgb(0xFF000000, 0x00FFFFFF));
+        assertEquals(0xFFFFFFFF, StageMapRenderer.blendArgb(0xFF000000, 0xFFFFFFFF));
+        assertEquals(0xFF808080, StageMapRenderer.blendArgb(0xFF000000, 0x80FFFFFF));
+    }
+
+    @Test
+    void testToArgb() {
+        assertEquals(0xFFFF0000, StageMapRenderer.toArgb(1, 0, 0, 1));
+        assertEquals(0x26000000, StageMapRenderer.toArgb(0, 0, 0, 0.15));
+    }
+
+    @Test
+    void testRender_NoInsert() {
+        int[] pixels = renderer().render(4, 3, 1, 0, 0, true);
+        assertEquals(12, pixels.length);
+        for (int p : pixels) {
+            assertEquals(BACKGROUND, p);
+        }
+    }
+
+    @Test
+    void testRender_Layers() {
+        // 10 x 10 mm insert with one 4 x 4 mm slide at (3, 3) mm and a 1 mm margin, 2 px per mm
+        StageInsert insert = new StageInsert("test", "Test", 10, 10, 0, 0, 1000,
+                List.of(new StageInsert.SlidePosition("Slide", 3, 3, 4, 4, 0)));
+        StageMapRenderer renderer = renderer();
+        renderer.setInsert(insert);
+        int[] pixels = renderer.render(24, 24, 0.002, 2, 2, true);
+
+        int illegal = StageMapRenderer.blendArgb(INSERT, ILLEGAL);
+        int legal = StageMapRenderer.blendArgb(illegal, LEGAL);
+        assertEquals(BACKGROUND, pixels[0]);
+        assertEquals(illegal, pixels[3 * 24 + 3]);
+        assertEquals(legal, pixels[7 * 24 + 7]);
+        assertEquals(BORDER, pixels[8 * 24 + 8]);
+        assertEquals(SLIDE, pixels[11 * 24 + 11]);
+
+        int[] noZones = renderer.render(24, 24, 0.002, 2, 2, false);
+        assertSame(pixels, noZones);
+        assertEquals(INSERT, noZones[3 * 24 + 3]);
+    }
+
+    @Test
+    void testDrawImage_ScaledAndClipped() {
+        StageMapRenderer renderer = renderer();
+        renderer.render(4, 4, 1, 0, 0, false);
+        // 2 x 1 image stretched over a 4 x 2 rectangle hanging off the bottom edge
+        renderer.drawImage(0, 3, 4, 2, new int[]{0xFF0000FF, 0xFFFF0000}, 2, 1);
+
+        int[] pixels = renderer.pixels();
+        assertEquals(BACKGROUND, pixels[2 * 4]);
+        assertEquals(0xFF0000FF, pixels[3 * 4]);
+        assertEquals(0xFF0000FF, pixels[3 * 4 + 1]);
+        assertEquals(0xFFFF0000, pixels[3 * 4 + 2]);
+        assertEquals(0xFFFF0000, pixels[3 * 4 + 3]);
+    }
+}
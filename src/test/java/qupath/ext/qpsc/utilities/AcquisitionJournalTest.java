@@ -0,0 +1,106 @@
+package qupath.ext.qpsc.utilities;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the acquisition checkpoint journal.
+ */
+class AcquisitionJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testReplay() throws Exception {
+        try (AcquisitionJournal journal = AcquisitionJournal.open(tempDir, "ppm_20x_1")) {
+            journal.runStarted("/data/sample/ppm_20x_1", List.of("0", "90"), List.of("A", "B", "C"));
+            journal.annotationStarted("A", "acquire --region A");
+            journal.progress("A", 10);
+            journal.progress("A", 20);
+            journal.annotationAcquired("A", 1234.5);
+            journal.stitching("A", "0", AcquisitionJournal.StitchState.QUEUED);
+            journal.stitching("A", "90", AcquisitionJournal.StitchState.QUEUED);
+            journal.stitching("A", "0", AcquisitionJournal.StitchState.DONE);
+            journal.annotationStarted("B", "acquire --region B");
+            journal.progress("B", 7);
+        }
+        // A crash while writing leaves a partial line
+        Files.writeString(tempDir.resolve(AcquisitionJournal.FILE_NAME), "{\"run\":\"ppm_20x_1\",\"ev",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        try (AcquisitionJournal journal = AcquisitionJournal.open(tempDir, "ppm_20x_1")) {
+            journal.progress("B", 9);
+        }
+
+        List<AcquisitionJournal.Run> runs = AcquisitionJournal.read(tempDir);
+        assertEquals(1, runs.size());
+        AcquisitionJournal.Run run = runs.get(0);
+        assertEquals("/data/sample/ppm_20x_1", run.tileDirectory());
+        assertEquals(List.of("0", "90"), run.angles());
+        assertEquals(List.of("A", "B", "C"), List.copyOf(run.annotations().keySet()));
+        assertFalse(run.isComplete());
+
+        AcquisitionJournal.AnnotationRecord a = run.annotation("A");
+        assertTrue(a.acquired());
+        assertEquals(20, a.filesReached());
+        assertEquals(1234.5, a.finalZ());
+        assertEquals(Map.of("0", AcquisitionJournal.StitchState.DONE, "90", AcquisitionJournal.StitchState.QUEUED),
+                a.stitching());
+        assertFalse(a.isComplete());
+
+        AcquisitionJournal.AnnotationRecord b = run.annotation("B");
+        assertEquals("acquire --region B", b.command());
+        assertFalse(b.acquired());
+        assertEquals(9, b.filesReached());
+        assertNull(run.annotation("C").command());
+
+        assertEquals("ppm_20x_1", AcquisitionJournal.lastUnfinishedRun(tempDir).run());
+    }
+
+    @Test
+    void testLastUnfinishedRun() throws Exception {
+        assertNull(AcquisitionJournal.lastUnfinishedRun(tempDir));
+        try (AcquisitionJournal first = AcquisitionJournal.open(tempDir, "bf_10x_1")) {
+            first.runStarted("/data/s/bf_10x_1", List.of(), List.of("A"));
+            first.annotationStarted("A", "cmd");
+        }
+        try (AcquisitionJournal second = AcquisitionJournal.open(tempDir, "bf_10x_2")) {
+            second.runStarted("/data/s/bf_10x_2", List.of(), List.of("A"));
+            second.annotationStarted("A", "cmd");
+            second.annotationAcquired("A", null);
+            second.stitching("A", "", AcquisitionJournal.StitchState.DONE);
+        }
+        // The complete second run is skipped
+        assertEquals("bf_10x_1", AcquisitionJournal.lastUnfinishedRun(tempDir).run());
+
+        try (AcquisitionJournal first = AcquisitionJournal.open(tempDir, "bf_10x_1")) {
+            first.runAbandoned();
+        }
+        assertNull(AcquisitionJournal.lastUnfinishedRun(tempDir));
+    }
+
+    @Test
+    void testRestartSupersedesEarlierResult() throws Exception {
+        try (AcquisitionJournal journal = AcquisitionJournal.open(tempDir, "ppm_20x_1")) {
+            journal.runStarted("/data/s/ppm_20x_1", List.of(), List.of("A"));
+            journal.annotationStarted("A", "first");
+            journal.annotationAcquired("A", 10.0);
+            journal.stitching("A", "", AcquisitionJournal.StitchState.DONE);
+            journal.annotationStarted("A", "patch");
+        }
+        AcquisitionJournal.AnnotationRecord a = AcquisitionJournal.read(tempDir).get(0).annotation("A");
+        assertEquals("patch", a.command());
+        assertFalse(a.acquired());
+        assertTrue(a.stitching().isEmpty());
+    }
+}
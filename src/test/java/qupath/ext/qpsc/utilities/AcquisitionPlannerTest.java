@@ -0,0 +1,104 @@
+package qupath.ext.qpsc.utilities;
+
+import org.junit.jupiter.api.Test;
+import qupath.ext.qpsc.modality.AngleExposure;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the acquisition plan simulator.
+ */
+class AcquisitionPlannerTest {
+
+    // 1000 x 500 um field of view, 1 MB images, 1000 um/s stage, no settle, 100 ms rotation,
+    // no readout, autofocus every 4 tiles with 10 steps
+    private static final AcquisitionPlanner.Hardware HARDWARE =
+            new AcquisitionPlanner.Hardware(1000, 500, 1 << 20, 1000, 0, 100, 0, 4, 10);
+
+    @Test
+    void testComputeTileGrid_Serpentine() {
+        List<TilingUtilities.GridTile> grid = TilingUtilities.computeTileGrid(
+                0, 0, 1500, 700, 1000, 500, 0, false, false);
+        assertEquals(4, grid.size());
+        assertEquals(0, grid.get(0).x());
+        assertEquals(1000, grid.get(1).x());
+        assertEquals(1000, grid.get(2).x());
+        assertEquals(500, grid.get(2).y());
+        assertEquals(0, grid.get(3).x());
+        assertEquals(500, grid.get(0).centerX());
+    }
+
+    @Test
+    void testComputeTileGrid_ExactFitAddsEdgeTile() {
+        List<TilingUtilities.GridTile> grid = TilingUtilities.computeTileGrid(
+                0, 0, 2000, 400, 1000, 500, 0, false, false);
+        assertEquals(3, grid.size());
+    }
+
+    @Test
+    void testComputeTileGrid_Inverted() {
+        List<TilingUtilities.GridTile> grid = TilingUtilities.computeTileGrid(
+                0, 0, 1500, 700, 1000, 500, 0, true, true);
+        assertEquals(1, grid.get(0).row());
+        assertEquals(1, grid.get(0).column());
+    }
+
+    @Test
+    void testPlan() {
+        List<AngleExposure> angles = List.of(new AngleExposure(0, 10), new AngleExposure(90, 30));
+        AcquisitionPlanner.Plan plan = AcquisitionPlanner.plan(HARDWARE,
+                List.of(AcquisitionPlanner.Region.of("r", 0, 0, 1500, 700)), 0, angles, false, false);
+
+        assertEquals(4, plan.tiles());
+        assertEquals(2, plan.regions().get(0).columns());
+        assertEquals(2, plan.regions().get(0).rows());
+        assertEquals(8, plan.totalImages());
+        assertEquals(8L << 20, plan.bytes());
+        // Moves of 1000, 500 and 1000 um at 1000 um/s
+        assertEquals(2500, plan.travelUm(), 1e-9);
+        assertEquals(2500, plan.stageMs(), 1e-9);
+        assertEquals(4 * 40, plan.exposureMs(), 1e-9);
+        assertEquals(4 * 2 * 100, plan.rotationMs(), 1e-9);
+        // One autofocus of 10 steps at the shortest exposure
+        assertEquals(1, plan.afPositions());
+        assertEquals(100, plan.autofocusMs(), 1e-9);
+        assertEquals(2500 + 160 + 800 + 100, plan.totalMs(), 1e-9);
+    }
+
+    @Test
+    void testPlan_TileFilterAndSingleAngle() {
+        AcquisitionPlanner.Region region = new AcquisitionPlanner.Region(
+                "r", 0, 0, 1500, 700, tile -> tile.row() == 0);
+        AcquisitionPlanner.Plan plan = AcquisitionPlanner.plan(HARDWARE, List.of(region), 0,
+                List.of(new AngleExposure(0, 10)), false, false);
+
+        assertEquals(2, plan.tiles());
+        assertEquals(2, plan.regions().get(0).rows());
+        assertEquals(0, plan.rotationMs());
+    }
+
+    @Test
+    void testPlan_AutofocusPositionsPerRegion() {
+        // 3 x 2 tiles per region, autofocus every 4 tiles starting over in each region
+        AcquisitionPlanner.Plan plan = AcquisitionPlanner.plan(HARDWARE,
+                List.of(AcquisitionPlanner.Region.of("a", 0, 0, 2500, 700),
+                        AcquisitionPlanner.Region.of("b", 5000, 0, 2500, 700)),
+                0, List.of(new AngleExposure(0, 10)), false, false);
+
+        assertEquals(12, plan.tiles());
+        assertEquals(4, plan.afPositions());
+        assertEquals(4 * 100, plan.autofocusMs(), 1e-9);
+    }
+
+    @Test
+    void testBoundingBoxRegion() {
+        AcquisitionPlanner.Region region =
+                AcquisitionPlanner.Region.boundingBox("b", 100, 200, 1100, 700, HARDWARE);
+        assertEquals(-400, region.x());
+        assertEquals(-50, region.y());
+        assertEquals(2000, region.width());
+        assertEquals(1000, region.height());
+    }
+}
@@ -0,0 +1,82 @@
+package qupath.ext.qpsc.utilities;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for AcquisitionTelemetry histograms, counters and report export.
+ */
+class AcquisitionTelemetryTest {
+
+    @Test
+    void testHistogramPercentilesWithinPrecision() {
+        AcquisitionTelemetry.LatencyHistogram histogram = new AcquisitionTelemetry.LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.recordMicros(i * 1000L);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000, histogram.getMaxMicros());
+        assertEquals(500_000, histogram.getValueAtPercentile(50), 500_000 * 0.02);
+        assertEquals(950_000, histogram.getValueAtPercentile(95), 950_000 * 0.02);
+        assertEquals(1_000_000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    void testHistogramSmallAndOutOfRangeValues() {
+        AcquisitionTelemetry.LatencyHistogram histogram = new AcquisitionTelemetry.LatencyHistogram();
+        histogram.recordMicros(5);
+        assertEquals(5, histogram.getValueAtPercentile(50));
+
+        histogram.recordMicros(Long.MAX_VALUE / 2);
+        assertEquals(Long.MAX_VALUE / 2, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    void testBucketIndexIsMonotonic() {
+        int previous = -1;
+        for (long v = 0; v < 1L << 34; v = v < 256 ? v + 1 : v + v / 37) {
+            int index = AcquisitionTelemetry.LatencyHistogram.indexFor(v);
+            assertTrue(index >= previous, "index decreased at " + v);
+            assertTrue(AcquisitionTelemetry.LatencyHistogram.highestEquivalentValue(index) >= v
+                    || index == AcquisitionTelemetry.LatencyHistogram.indexFor(Long.MAX_VALUE));
+            previous = index;
+        }
+    }
+
+    @Test
+    void testPhasesCountersAndReport(@TempDir Path tempDir) throws Exception {
+        AcquisitionTelemetry telemetry = new AcquisitionTelemetry();
+        telemetry.recordPhase(AcquisitionTelemetry.PHASE_STITCHING, TimeUnit.SECONDS.toNanos(2));
+        telemetry.recordCommand("GETXY", TimeUnit.MILLISECONDS.toNanos(3));
+        try (AcquisitionTelemetry.Timer t = telemetry.startPhase(AcquisitionTelemetry.PHASE_CLEANUP)) {
+            // no-op
+        }
+        telemetry.increment(AcquisitionTelemetry.COUNTER_TIMEOUTS);
+        telemetry.increment(AcquisitionTelemetry.COUNTER_TIMEOUTS);
+
+        List<AcquisitionTelemetry.LatencySummary> summaries = telemetry.snapshot();
+        assertEquals(3, summaries.size());
+        assertEquals(AcquisitionTelemetry.CATEGORY_PHASE, summaries.get(0).category());
+        assertEquals(AcquisitionTelemetry.CATEGORY_COMMAND, summaries.get(2).category());
+        assertEquals(2, telemetry.getCounter(AcquisitionTelemetry.COUNTER_TIMEOUTS));
+
+        telemetry.writeReport(tempDir);
+        assertTrue(Files.exists(tempDir.resolve(AcquisitionTelemetry.REPORT_JSON)));
+        List<String> csv = Files.readAllLines(tempDir.resolve(AcquisitionTelemetry.REPORT_CSV));
+        assertTrue(csv.get(0).startsWith("category,name,count,p50_ms"));
+        assertTrue(csv.stream().anyMatch(l -> l.startsWith("phase,stitching,1,")));
+        assertTrue(csv.stream().anyMatch(l -> l.startsWith("counter,timeouts,2")));
+
+        telemetry.reset();
+        assertTrue(telemetry.snapshot().isEmpty());
+        assertEquals(0, telemetry.getCounter(AcquisitionTelemetry.COUNTER_TIMEOUTS));
+    }
+}
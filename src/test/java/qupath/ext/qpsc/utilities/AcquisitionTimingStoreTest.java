@@ -0,0 +1,95 @@
+package qupath.ext.qpsc.utilities;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for AcquisitionTimingStore component separation, estimation and persistence.
+ */
+class AcquisitionTimingStoreTest {
+
+    private static final AcquisitionTimingStore.ProfileKey KEY =
+            AcquisitionTimingStore.ProfileKey.of("ppm", "OBJ_20X", "DET_1", 4, 5, 11, 50.0);
+
+    /**
+     * Builds a synthetic run: first image 30 s (full AF), every 10th image 10 s (adaptive AF),
+     * all others 2 s.
+     */
+    private static List<AcquisitionTimingStore.TileDuration> syntheticRun(String annotation, int images) {
+        List<AcquisitionTimingStore.TileDuration> durations = new ArrayList<>();
+        for (int i = 1; i <= images; i++) {
+            long ms = i == 1 ? 30000 : (i % 10 == 0 ? 10000 : 2000);
+            durations.add(new AcquisitionTimingStore.TileDuration(annotation, i, ms, i * 1000L));
+        }
+        return durations;
+    }
+
+    @Test
+    void testFromDurations_SeparatesComponents() {
+        AcquisitionTimingStore.TimingProfile profile =
+                AcquisitionTimingStore.TimingProfile.fromDurations(syntheticRun("Tissue_1", 50));
+
+        assertEquals(1, profile.getRuns());
+        assertEquals(2000, profile.getBaseImage().percentile(50));
+        assertEquals(5, profile.getAdaptiveAf().count());
+        assertEquals(8000, profile.getAdaptiveAf().percentile(50));
+        assertEquals(1, profile.getFullAf().count());
+        assertEquals(28000, profile.getFullAf().percentile(50));
+    }
+
+    @Test
+    void testEstimate_ContainsExpectedAndInterval() {
+        AcquisitionTimingStore.TimingProfile profile =
+                AcquisitionTimingStore.TimingProfile.fromDurations(syntheticRun("Tissue_1", 50));
+
+        AcquisitionTimingStore.Estimate estimate = AcquisitionTimingStore.estimate(profile, 100, 4, 1);
+        assertNotNull(estimate);
+        // 100 x 2 s + 4 x 8 s + 1 x 28 s
+        assertEquals(260000, estimate.expectedMs());
+        assertTrue(estimate.lowerMs() <= estimate.expectedMs());
+        assertTrue(estimate.upperMs() >= estimate.expectedMs());
+    }
+
+    @Test
+    void testEstimate_InsufficientDataReturnsNull() {
+        assertNull(AcquisitionTimingStore.estimate(null, 10, 0, 1));
+        AcquisitionTimingStore.TimingProfile tiny =
+                AcquisitionTimingStore.TimingProfile.fromDurations(syntheticRun("Tissue_1", 3));
+        assertNull(AcquisitionTimingStore.estimate(tiny, 10, 0, 1));
+    }
+
+    @Test
+    void testProfilesAreKeptPerHardware(@TempDir Path tempDir) {
+        AcquisitionTimingStore store = new AcquisitionTimingStore(tempDir.toString());
+        store.recordRun(KEY, syntheticRun("Tissue_1", 40));
+
+        AcquisitionTimingStore.ProfileKey otherObjective =
+                AcquisitionTimingStore.ProfileKey.of("ppm", "OBJ_10X", "DET_1", 4, 5, 11, 50.0);
+        assertNotNull(store.getProfile(KEY));
+        assertNull(store.getProfile(otherObjective));
+
+        // Reload from disk
+        AcquisitionTimingStore reloaded = new AcquisitionTimingStore(tempDir.toString());
+        assertNotNull(reloaded.getProfile(KEY));
+        assertEquals(1, reloaded.getProfile(KEY).getRuns());
+        assertNotNull(reloaded.estimateAcquisition(KEY, 100, 5, 2));
+    }
+
+    @Test
+    void testExportDurationsCsv(@TempDir Path tempDir) throws Exception {
+        Path csv = tempDir.resolve("timings.csv");
+        AcquisitionTimingStore.exportDurationsCsv(csv, KEY, syntheticRun("Tissue, 1", 5));
+
+        List<String> lines = Files.readAllLines(csv);
+        assertEquals(6, lines.size());
+        assertTrue(lines.get(0).startsWith("annotation,index,duration_ms"));
+        assertTrue(lines.get(1).startsWith("\"Tissue, 1\",1,30000"));
+    }
+}
@@ -0,0 +1,81 @@
+package qupath.ext.qpsc.utilities;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for configuration change diffing.
+ */
+class ConfigChangeEventTest {
+
+    private static Map<String, Object> config(double pixelSize, int stageLow) {
+        return Map.of(
+                "hardware", Map.of("objectives", List.of(
+                        Map.of("id", "LOCI_OBJECTIVE_TEST_10X_001",
+                                "pixel_size_xy_um", Map.of("LOCI_DETECTOR_TEST_001", 1.0)),
+                        Map.of("id", "LOCI_OBJECTIVE_TEST_20X_001",
+                                "pixel_size_xy_um", Map.of("LOCI_DETECTOR_TEST_001", pixelSize)))),
+                "stage", Map.of("limits", Map.of("x_um", Map.of("low", stageLow))));
+    }
+
+    private static ConfigChangeEvent diff(Map<String, Object> before, Map<String, Object> after) {
+        return ConfigChangeEvent.diff("config_Test.yml",
+                Map.of(ConfigChangeEvent.Source.CONFIG, before),
+                Map.of(ConfigChangeEvent.Source.CONFIG, after));
+    }
+
+    @Test
+    void testDiff_NoChanges() {
+        assertTrue(diff(config(0.5, 0), config(0.5, 0)).isEmpty());
+    }
+
+    @Test
+    void testDiff_PixelSizeChangeIsAddressedByObjectiveId() {
+        ConfigChangeEvent event = diff(config(0.5, 0), config(0.51, 0));
+
+        assertEquals(1, event.getChanges().size());
+        ConfigChangeEvent.Change change = event.getChanges().get(0);
+        assertEquals(ConfigChangeEvent.Kind.PIXEL_SIZE, change.kind());
+        assertEquals(List.of("hardware", "objectives", "LOCI_OBJECTIVE_TEST_20X_001",
+                "pixel_size_xy_um", "LOCI_DETECTOR_TEST_001"), change.path());
+        assertEquals(0.5, change.oldValue());
+        assertEquals(0.51, change.newValue());
+        assertTrue(event.affects(ConfigChangeEvent.Kind.PIXEL_SIZE));
+        assertFalse(event.affects(ConfigChangeEvent.Kind.STAGE));
+    }
+
+    @Test
+    void testDiff_ReorderedListIsUnchanged() {
+        Map<String, Object> reordered = Map.of(
+                "hardware", Map.of("objectives", List.of(
+                        Map.of("id", "LOCI_OBJECTIVE_TEST_20X_001",
+                                "pixel_size_xy_um", Map.of("LOCI_DETECTOR_TEST_001", 0.5)),
+                        Map.of("id", "LOCI_OBJECTIVE_TEST_10X_001",
+                                "pixel_size_xy_um", Map.of("LOCI_DETECTOR_TEST_001", 1.0)))),
+                "stage", Map.of("limits", Map.of("x_um", Map.of("low", 0))));
+
+        assertTrue(diff(config(0.5, 0), reordered).isEmpty());
+    }
+
+    @Test
+    void testDiff_AddedRemovedAndOtherSources() {
+        ConfigChangeEvent event = ConfigChangeEvent.diff("config_Test.yml",
+                Map.of(ConfigChangeEvent.Source.CONFIG, config(0.5, 0),
+                        ConfigChangeEvent.Source.IMAGEPROCESSING,
+                        Map.of("background_correction", Map.of("ppm", Map.of("enabled", true)))),
+                Map.of(ConfigChangeEvent.Source.CONFIG, config(0.5, -100),
+                        ConfigChangeEvent.Source.AUTOFOCUS,
+                        Map.of("LOCI_OBJECTIVE_TEST_20X_001", Map.of("n_steps", 9))));
+
+        assertTrue(event.affects(ConfigChangeEvent.Source.CONFIG, "stage", "limits"));
+        assertFalse(event.affects(ConfigChangeEvent.Source.CONFIG, "stage", "inserts"));
+        assertEquals(1, event.getChanges(ConfigChangeEvent.Kind.BACKGROUND_CORRECTION).size());
+        assertTrue(event.getChanges(ConfigChangeEvent.Kind.BACKGROUND_CORRECTION).get(0).isRemoved());
+        assertTrue(event.getChanges(ConfigChangeEvent.Kind.AUTOFOCUS).get(0).isAdded());
+        assertEquals(3, event.getKinds().size());
+    }
+}
@@ -0,0 +1,84 @@
+package qupath.ext.qpsc.utilities;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the compiled configuration index.
+ */
+class ConfigIndexTest {
+
+    private static Map<String, Object> config() {
+        Map<String, Object> modality = new LinkedHashMap<>();
+        modality.put("objective", "LOCI-OBJECTIVE-TEST-001");
+        modality.put("exposure_ms", "12.5");
+        modality.put("tiles", 3);
+        modality.put("enabled", true);
+
+        Map<String, Object> objective = new LinkedHashMap<>();
+        objective.put("id", "LOCI_OBJECTIVE_TEST_001");
+        objective.put("pixel_size_xy_um", Map.of("LOCI_DETECTOR_TEST_001", 0.5));
+        Map<String, Object> duplicate = new LinkedHashMap<>();
+        duplicate.put("id", "LOCI_OBJECTIVE_TEST_001");
+        duplicate.put("pixel_size_xy_um", Map.of("LOCI_DETECTOR_TEST_001", 9.0));
+
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("modalities", Map.of("bf", modality));
+        config.put("hardware", Map.of("objectives", List.of(objective, duplicate)));
+        return config;
+    }
+
+    private static Map<String, Object> resources() {
+        Map<String, Object> resources = new LinkedHashMap<>();
+        resources.put("id_detector", Map.of("LOCI_DETECTOR_TEST_001", Map.of("name", "Camera")));
+        resources.put("id_objective_lens", Map.of("LOCI_OBJECTIVE_TEST_001",
+                Map.of("name", "Test 10x", "magnification", 10, "optics", Map.of("na", 0.3))));
+        return resources;
+    }
+
+    @Test
+    void testLookup_DirectValues() {
+        ConfigIndex index = ConfigIndex.build(config(), resources());
+
+        assertEquals("LOCI-OBJECTIVE-TEST-001", index.getString("modalities", "bf", "objective"));
+        assertEquals(3, index.getInteger("modalities", "bf", "tiles"));
+        assertEquals(12.5, index.getDouble("modalities", "bf", "exposure_ms"));
+        assertNull(index.getInteger("modalities", "bf", "exposure_ms"));
+        assertTrue(index.getBoolean("modalities", "bf", "enabled"));
+        assertNotNull(index.getSection("modalities", "bf"));
+        assertEquals(2, index.getList("hardware", "objectives").size());
+    }
+
+    @Test
+    void testLookup_ResolvesLociReferencesIntoMatchingSection() {
+        ConfigIndex index = ConfigIndex.build(config(), resources());
+
+        assertEquals("Test 10x", index.get("modalities", "bf", "objective", "name"));
+        assertEquals(10, index.getInteger("modalities", "bf", "objective", "magnification"));
+        assertEquals(0.3, index.getDouble("modalities", "bf", "objective", "optics", "na"));
+    }
+
+    @Test
+    void testLookup_MissingPaths() {
+        ConfigIndex index = ConfigIndex.build(config(), resources());
+
+        assertNull(index.lookup());
+        assertNull(index.get("modalities", "missing"));
+        assertNull(index.get("modalities", "bf", "objective", "missing"));
+        assertFalse(index.contains("modalities", "bf", "tiles", "deeper"));
+    }
+
+    @Test
+    void testHardwarePixelSize_FirstObjectiveWins() {
+        ConfigIndex index = ConfigIndex.build(config(), resources());
+
+        assertEquals(0.5, index.getHardwarePixelSize("LOCI_OBJECTIVE_TEST_001", "LOCI_DETECTOR_TEST_001"));
+        assertNull(index.getHardwarePixelSize("LOCI_OBJECTIVE_TEST_001", "OTHER"));
+        assertNull(index.getHardwarePixelSize(null, "LOCI_DETECTOR_TEST_001"));
+    }
+}
@@ -0,0 +1,28 @@
+package qupath.ext.qpsc.utilities;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for input and output resolution of derived images.
+ */
+class DerivedImageEngineTest {
+
+    @Test
+    void testPathForAngle_MatchesWithinTolerance() {
+        Map<Double, String> stitched = Map.of(7.0, "plus.ome.tif", -7.0000000001, "minus.ome.tif");
+        assertEquals("plus.ome.tif", DerivedImageEngine.pathForAngle(stitched, 7.0));
+        assertEquals("minus.ome.tif", DerivedImageEngine.pathForAngle(stitched, -7.0));
+        assertNull(DerivedImageEngine.pathForAngle(stitched, 0.0));
+    }
+
+    @Test
+    void testOutputFile() {
+        assertEquals(new File("out", "sample_7.0_birefringence.ome.tif"),
+                DerivedImageEngine.outputFile(new File("out", "sample_7.0.ome.tif").getPath(), "birefringence"));
+    }
+}
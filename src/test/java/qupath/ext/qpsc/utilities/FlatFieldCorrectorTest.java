@@ -0,0 +1,107 @@
+package qupath.ext.qpsc.utilities;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import qupath.ext.qpsc.modality.AngleExposure;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for client-side flat-field correction.
+ */
+class FlatFieldCorrectorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static BufferedImage gray(int... values) {
+        BufferedImage img = new BufferedImage(values.length, 1, BufferedImage.TYPE_BYTE_GRAY);
+        img.getRaster().setPixels(0, 0, values.length, 1, values);
+        return img;
+    }
+
+    private static int[] pixels(BufferedImage img) {
+        return img.getRaster().getPixels(0, 0, img.getWidth(), img.getHeight(), (int[]) null);
+    }
+
+    @Test
+    void testDivide() {
+        FlatFieldCorrector.GainMap map = new FlatFieldCorrector.GainMap(
+                FlatFieldCorrector.Method.DIVIDE, gray(100, 200).getRaster(), 0);
+        assertArrayEquals(new int[]{150, 150}, pixels(map.apply(gray(100, 200))));
+        assertArrayEquals(new int[]{30, 15}, pixels(map.apply(gray(20, 20))));
+    }
+
+    @Test
+    void testDivide_ClampsToBitDepth() {
+        FlatFieldCorrector.GainMap map = new FlatFieldCorrector.GainMap(
+                FlatFieldCorrector.Method.DIVIDE, gray(100, 200).getRaster(), 0);
+        assertArrayEquals(new int[]{255, 191}, pixels(map.apply(gray(255, 255))));
+    }
+
+    @Test
+    void testSubtract() {
+        FlatFieldCorrector.GainMap map = new FlatFieldCorrector.GainMap(
+                FlatFieldCorrector.Method.SUBTRACT, gray(100, 200).getRaster(), 0);
+        assertArrayEquals(new int[]{60, 0}, pixels(map.apply(gray(10, 20))));
+    }
+
+    @Test
+    void testApply_SizeMismatch() {
+        FlatFieldCorrector.GainMap map = new FlatFieldCorrector.GainMap(
+                FlatFieldCorrector.Method.DIVIDE, gray(100, 200).getRaster(), 0);
+        assertThrows(IllegalArgumentException.class, () -> map.apply(gray(1, 2, 3)));
+    }
+
+    @Test
+    void testMethodFromConfig() {
+        assertEquals(FlatFieldCorrector.Method.SUBTRACT, FlatFieldCorrector.Method.fromConfig(" Subtract"));
+        assertEquals(FlatFieldCorrector.Method.DIVIDE, FlatFieldCorrector.Method.fromConfig("divide"));
+        assertEquals(FlatFieldCorrector.Method.DIVIDE, FlatFieldCorrector.Method.fromConfig(null));
+    }
+
+    @Test
+    void testRawTilesDirectory() {
+        Path region = Paths.get("projects", "sample1", "ppm_10x_1", "region1");
+        assertEquals(Paths.get("projects", "sample1", "RawTiles", "ppm_10x_1", "region1"),
+                FlatFieldCorrector.rawTilesDirectory(region));
+    }
+
+    @Test
+    void testArchiveRawTiles_PerAcquisition() throws IOException {
+        Path region = tempDir.resolve("sample1").resolve("ppm_10x_1").resolve("region1");
+        List<AngleExposure> angles = List.of(new AngleExposure(7.0, 10.0));
+        Path rawTile = FlatFieldCorrector.rawTilesDirectory(region).resolve("7.0").resolve("0.tif");
+
+        // First acquisition
+        FlatFieldCorrector.recordAcquisition(region, true);
+        Files.createDirectories(region.resolve("7.0"));
+        Files.writeString(region.resolve("7.0").resolve("0.tif"), "raw 1");
+        assertTrue(FlatFieldCorrector.isClientCorrected(region));
+        FlatFieldCorrector.archiveRawTiles(region, angles);
+        assertEquals("raw 1", Files.readString(rawTile));
+
+        // Re-stitch: the region holds corrected tiles, the archived raw tiles are kept
+        Files.createDirectories(region.resolve("7.0"));
+        Files.writeString(region.resolve("7.0").resolve("0.tif"), "corrected 1");
+        FlatFieldCorrector.archiveRawTiles(region, angles);
+        assertEquals("raw 1", Files.readString(rawTile));
+
+        // Acquired again: the new raw tiles replace the archived ones
+        FlatFieldCorrector.recordAcquisition(region, true);
+        Files.writeString(region.resolve("7.0").resolve("0.tif"), "raw 2");
+        FlatFieldCorrector.archiveRawTiles(region, angles);
+        assertEquals("raw 2", Files.readString(rawTile));
+
+        // Acquired with server-side correction
+        FlatFieldCorrector.recordAcquisition(region, false);
+        assertFalse(FlatFieldCorrector.isClientCorrected(region));
+    }
+}
@@ -0,0 +1,88 @@
+package qupath.ext.qpsc.utilities;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import qupath.lib.images.servers.WrappedBufferedImageServer;
+import qupath.lib.images.writers.ome.OMEPyramidWriter;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for writing flipped copies of images.
+ */
+class FlippedImageWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    // 3 x 2 image with values 1 2 3 / 4 5 6
+    private static BufferedImage image() {
+        BufferedImage img = new BufferedImage(3, 2, BufferedImage.TYPE_BYTE_GRAY);
+        img.getRaster().setPixels(0, 0, 3, 2, new int[]{1, 2, 3, 4, 5, 6});
+        return img;
+    }
+
+    private static int[] pixels(BufferedImage img) {
+        return img.getRaster().getPixels(0, 0, img.getWidth(), img.getHeight(), (int[]) null);
+    }
+
+    @Test
+    void testFlipDirection() {
+        assertArrayEquals(new int[]{3, 2, 1, 6, 5, 4}, pixels(FlippedImageWriter.flip(image(), 3, 2, true, false)));
+        assertArrayEquals(new int[]{4, 5, 6, 1, 2, 3}, pixels(FlippedImageWriter.flip(image(), 3, 2, false, true)));
+        assertArrayEquals(new int[]{6, 5, 4, 3, 2, 1}, pixels(FlippedImageWriter.flip(image(), 3, 2, true, true)));
+    }
+
+    @Test
+    void testFlip_SmallerSourceLeavesFarSideEmpty() {
+        assertArrayEquals(new int[]{3, 2, 1, 0, 6, 5, 4, 0},
+                pixels(FlippedImageWriter.flip(image(), 4, 2, true, false)));
+    }
+
+    @Test
+    void testFlippedFile() {
+        File original = tempDir.resolve("slide.ome.tif").toFile();
+        assertEquals("slide_flippedX.ome.tif", FlippedImageWriter.flippedFile(original, true, false).getName());
+        assertEquals("slide_flippedY.ome.tif", FlippedImageWriter.flippedFile(original, false, true).getName());
+        assertEquals("slide_flippedXY.ome.tif", FlippedImageWriter.flippedFile(original, true, true).getName());
+    }
+
+    @Test
+    void testFlippedCopy_ReusesNewerCopy() throws Exception {
+        File original = Files.writeString(tempDir.resolve("slide.tif"), "original").toFile();
+        File flipped = FlippedImageWriter.flippedFile(original, true, false);
+        Files.writeString(flipped.toPath(), "flipped");
+        assertTrue(flipped.setLastModified(original.lastModified() + 1000));
+
+        // Nothing is read or written, so no server is needed
+        assertEquals(flipped, FlippedImageWriter.flippedCopy(original, null, true, false,
+                OMEPyramidWriter.CompressionType.UNCOMPRESSED));
+        assertEquals("flipped", Files.readString(flipped.toPath()));
+    }
+
+    @Test
+    void testFlippedCopy_RewritesStaleCopy() throws Exception {
+        File original = Files.writeString(tempDir.resolve("slide.tif"), "original").toFile();
+        File flipped = FlippedImageWriter.flippedFile(original, true, false);
+        Files.writeString(flipped.toPath(), "stale");
+        assertTrue(flipped.setLastModified(original.lastModified() - 60_000));
+
+        BufferedImage img = new BufferedImage(64, 48, BufferedImage.TYPE_BYTE_GRAY);
+        try (var source = new WrappedBufferedImageServer("slide", img)) {
+            assertEquals(flipped, FlippedImageWriter.flippedCopy(original, source, true, false,
+                    OMEPyramidWriter.CompressionType.UNCOMPRESSED));
+        }
+
+        assertNotEquals("stale", new String(Files.readAllBytes(flipped.toPath()), 0, 5));
+        assertTrue(flipped.lastModified() >= original.lastModified());
+        // Only the original and the rewritten copy remain
+        try (var files = Files.list(tempDir)) {
+            assertEquals(2, files.count());
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package qupath.ext.qpsc.utilities;
+
+import org.junit.jupiter.api.Test;
+import qupath.lib.projects.Project;
+import qupath.lib.projects.ProjectImageEntry;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for the project metadata index.
+ */
+class ImageMetadataIndexTest {
+
+    @SuppressWarnings("unchecked")
+    private static ProjectImageEntry<BufferedImage> entry(String id, String sampleName, int collection) {
+        ProjectImageEntry<BufferedImage> entry = mock(ProjectImageEntry.class);
+        when(entry.getID()).thenReturn(id);
+        when(entry.getImageName()).thenReturn(id + ".ome.tif");
+        when(entry.getMetadata()).thenReturn(Map.of(
+                ImageMetadataManager.SAMPLE_NAME, sampleName,
+                ImageMetadataManager.IMAGE_COLLECTION, String.valueOf(collection)));
+        return entry;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Project<BufferedImage> project(List<ProjectImageEntry<BufferedImage>> entries) {
+        Project<BufferedImage> project = mock(Project.class);
+        when(project.getImageList()).thenAnswer(invocation -> new ArrayList<>(entries));
+        return project;
+    }
+
+    @Test
+    void testLookups() {
+        List<ProjectImageEntry<BufferedImage>> entries = new ArrayList<>(List.of(
+                entry("1", "SampleA", 1), entry("2", "SampleA", 1), entry("3", "SampleB", 2)));
+        ImageMetadataIndex<BufferedImage> index = ImageMetadataIndex.forProject(project(entries));
+
+        assertEquals(3, index.size());
+        assertEquals(List.of(entries.get(0), entries.get(1)), index.getBySampleName("SampleA"));
+        assertEquals(List.of(entries.get(2)), index.getByCollection(2));
+        assertEquals(3, index.getNextCollectionNumber());
+    }
+
+    @Test
+    void testSync_RemoveThenAdd() {
+        List<ProjectImageEntry<BufferedImage>> entries = new ArrayList<>(List.of(
+                entry("1", "SampleA", 1), entry("2", "SampleB", 2)));
+        Project<BufferedImage> project = project(entries);
+        assertEquals(List.of(entries.get(1)), ImageMetadataIndex.forProject(project).getBySampleName("SampleB"));
+
+        // Same number of entries, different IDs
+        entries.remove(1);
+        ProjectImageEntry<BufferedImage> added = entry("3", "SampleC", 3);
+        entries.add(added);
+        ImageMetadataIndex<BufferedImage> index = ImageMetadataIndex.forProject(project);
+
+        assertEquals(2, index.size());
+        assertNull(index.getById("2"));
+        assertTrue(index.getBySampleName("SampleB").isEmpty());
+        assertEquals(List.of(added), index.getBySampleName("SampleC"));
+        assertEquals(4, index.getNextCollectionNumber());
+    }
+}
@@ -0,0 +1,66 @@
+package qupath.ext.qpsc.utilities;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for native data bounds detection in ImageProcessing.
+ */
+class ImageProcessingTest {
+
+    private static BufferedImage filled(int width, int height, int rgb) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, rgb);
+            }
+        }
+        return image;
+    }
+
+    @Test
+    void testFindDataBounds_AsymmetricPaddingAroundNearWhiteGlass() {
+        BufferedImage image = filled(400, 300, 0xFFFFFF);
+        Random random = new Random(1);
+        for (int y = 10; y < 250; y++) {
+            for (int x = 30; x < 370; x++) {
+                // Slightly off-white glass with noise, plus a block of tissue
+                int v = 240 - random.nextInt(5);
+                int rgb = (x > 100 && x < 200 && y > 50 && y < 150) ? 0xC080A0 : (v << 16) | (v << 8) | v;
+                image.setRGB(x, y, rgb);
+            }
+        }
+
+        assertEquals(new Rectangle(30, 10, 340, 240), ImageProcessing.findDataBounds(image));
+    }
+
+    @Test
+    void testFindDataBounds_NoPaddingReturnsFullImage() {
+        BufferedImage image = filled(50, 40, 0x806040);
+        assertEquals(new Rectangle(0, 0, 50, 40), ImageProcessing.findDataBounds(image));
+    }
+
+    @Test
+    void testFindDataBounds_AllPaddingReturnsNull() {
+        assertNull(ImageProcessing.findDataBounds(filled(50, 50, 0xFFFFFF)));
+    }
+
+    @Test
+    void testChooseBoundsDownsample_UsesPyramidLevel() {
+        // 40000 px wide wants downsample ~19.5; level 16 is close enough
+        assertEquals(16.0, ImageProcessing.chooseBoundsDownsample(40000, 20000, new double[]{1, 4, 16, 64}));
+        assertEquals(1.0, ImageProcessing.chooseBoundsDownsample(1500, 1000, new double[]{1, 4}));
+    }
+
+    @Test
+    void testChooseBoundsDownsample_ResamplesWithoutSuitableLevel() {
+        // A single-level image is not read at full resolution
+        assertEquals(40000.0 / 2048, ImageProcessing.chooseBoundsDownsample(40000, 20000, new double[]{1}), 1e-9);
+        assertEquals(40000.0 / 2048, ImageProcessing.chooseBoundsDownsample(40000, 20000, new double[]{1, 2}), 1e-9);
+    }
+}
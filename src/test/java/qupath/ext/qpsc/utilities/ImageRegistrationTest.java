@@ -0,0 +1,138 @@
+package qupath.ext.qpsc.utilities;
+
+import org.junit.jupiter.api.Test;
+import qupath.ext.qpsc.utilities.ImageRegistration.AffineFit;
+import qupath.ext.qpsc.utilities.ImageRegistration.GrayImage;
+import qupath.ext.qpsc.utilities.ImageRegistration.Match;
+import qupath.ext.qpsc.utilities.ImageRegistration.PointMatch;
+
+import java.awt.geom.AffineTransform;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for ImageRegistration phase correlation and affine fitting.
+ */
+class ImageRegistrationTest {
+
+    /** Smooth random texture, roughly like tissue at macro resolution */
+    private static GrayImage texture(int width, int height, long seed) {
+        Random random = new Random(seed);
+        float[] data = new float[width * height];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = random.nextFloat() * 255;
+        }
+        for (int pass = 0; pass < 3; pass++) {
+            float[] out = new float[data.length];
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    double sum = 0;
+                    int n = 0;
+                    for (int dy = -2; dy <= 2; dy++) {
+                        for (int dx = -2; dx <= 2; dx++) {
+                            int xx = x + dx;
+                            int yy = y + dy;
+                            if (xx >= 0 && yy >= 0 && xx < width && yy < height) {
+                                sum += data[yy * width + xx];
+                                n++;
+                            }
+                        }
+                    }
+                    out[y * width + x] = (float) (sum / n);
+                }
+            }
+            data = out;
+        }
+        return new GrayImage(width, height, data);
+    }
+
+    @Test
+    void testLocateFindsTemplateFromOffsetPrediction() {
+        GrayImage image = texture(512, 384, 3);
+        GrayImage template = image.crop(203, 117, 64, 48);
+
+        Match match = ImageRegistration.locate(image, template, 180, 140, 40);
+
+        assertNotNull(match);
+        assertEquals(203, match.x(), 1.0);
+        assertEquals(117, match.y(), 1.0);
+        assertTrue(match.confidence() > 3);
+    }
+
+    @Test
+    void testLocateSubPixelAfterDownsampling() {
+        GrayImage image = texture(512, 384, 5);
+        // A crop starting on an odd pixel lands half-way between pixels at half resolution
+        GrayImage template = image.crop(101, 60, 128, 96).downsample(2);
+
+        Match match = ImageRegistration.locate(image.downsample(2), template, 40, 40, 30);
+
+        assertEquals(50.5, match.x(), 0.3);
+        assertEquals(30.0, match.y(), 0.3);
+    }
+
+    @Test
+    void testPhaseCorrelateRejectsNonPowerOfTwoWindow() {
+        GrayImage window = texture(100, 64, 1);
+        assertThrows(IllegalArgumentException.class,
+                () -> ImageRegistration.phaseCorrelate(window, window.crop(0, 0, 16, 16)));
+    }
+
+    @Test
+    void testFitAffineRejectsOutlier() {
+        AffineTransform truth = new AffineTransform(20, 0.5, -0.3, -20, 1000, 5000);
+        Random random = new Random(3);
+        List<PointMatch> matches = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            double[] p = {random.nextDouble() * 500, random.nextDouble() * 300};
+            double sx = p[0];
+            double sy = p[1];
+            truth.transform(p, 0, p, 0, 1);
+            matches.add(new PointMatch(sx, sy, p[0] + random.nextGaussian() * 2, p[1] + random.nextGaussian() * 2, 1));
+        }
+        PointMatch outlier = new PointMatch(100, 100, 0, 0, 1);
+        matches.add(outlier);
+
+        AffineFit fit = ImageRegistration.fitAffine(matches, 10);
+
+        assertNotNull(fit);
+        assertEquals(List.of(outlier), fit.outliers());
+        assertEquals(8, fit.inliers().size());
+        assertTrue(fit.rmsResidual() < 5);
+        assertEquals(20, fit.transform().getScaleX(), 0.1);
+        assertEquals(-20, fit.transform().getScaleY(), 0.1);
+        assertEquals(1000, fit.transform().getTranslateX(), 20);
+        assertEquals(5000, fit.transform().getTranslateY(), 20);
+    }
+
+    @Test
+    void testFitAffineDegenerateInputs() {
+        assertNull(ImageRegistration.fitAffine(List.of(new PointMatch(0, 0, 0, 0, 1)), 1));
+        List<PointMatch> collinear = List.of(
+                new PointMatch(0, 0, 0, 0, 1),
+                new PointMatch(1, 1, 10, 10, 1),
+                new PointMatch(2, 2, 20, 20, 1));
+        assertNull(ImageRegistration.fitAffine(collinear, 1));
+    }
+
+    @Test
+    void testSelectTexturedPatchesSkipsFlatRegions() {
+        GrayImage textured = texture(128, 64, 9);
+        float[] data = new float[256 * 64];
+        for (int y = 0; y < 64; y++) {
+            for (int x = 0; x < 256; x++) {
+                // Left half textured, right half flat glass
+                data[y * 256 + x] = x < 128 ? textured.get(x, y) : 240f;
+            }
+        }
+        List<int[]> patches = ImageRegistration.selectTexturedPatches(new GrayImage(256, 64, data), 32, 32, 10, 4.0);
+
+        assertFalse(patches.isEmpty());
+        for (int[] patch : patches) {
+            assertTrue(patch[0] + 32 <= 128 + 16, "patch on flat region at x=" + patch[0]);
+        }
+    }
+}
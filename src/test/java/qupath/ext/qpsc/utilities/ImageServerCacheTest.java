@@ -0,0 +1,103 @@
+package qupath.ext.qpsc.utilities;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import qupath.lib.images.servers.ImageServer;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for the lease-counted LRU cache of image servers.
+ */
+class ImageServerCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final List<ImageServer<BufferedImage>> built = new ArrayList<>();
+
+    @SuppressWarnings("unchecked")
+    private ImageServerCache cache(int capacity) {
+        return new ImageServerCache(capacity, uri -> {
+            ImageServer<BufferedImage> server = mock(ImageServer.class);
+            when(server.getPath()).thenReturn(uri);
+            built.add(server);
+            return server;
+        });
+    }
+
+    private File file(String name) throws Exception {
+        return Files.writeString(tempDir.resolve(name), name).toFile();
+    }
+
+    @Test
+    void testRepeatedLeaseHitsCache() throws Exception {
+        ImageServerCache cache = cache(2);
+        File file = file("a.ome.tif");
+
+        ImageServer<BufferedImage> first;
+        try (ImageServerCache.Lease lease = cache.open(file)) {
+            first = lease.server();
+        }
+        try (ImageServerCache.Lease lease = cache.open(file)) {
+            assertSame(first, lease.server());
+        }
+
+        ImageServerCache.Stats stats = cache.getStats();
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(1, built.size());
+        verify(first, never()).close();
+    }
+
+    @Test
+    void testEvictionWaitsForLastRelease() throws Exception {
+        ImageServerCache cache = cache(1);
+        File a = file("a.ome.tif");
+
+        ImageServerCache.Lease first = cache.open(a);
+        ImageServerCache.Lease second = cache.open(a);
+        ImageServer<BufferedImage> server = first.server();
+
+        // Opening another file evicts a while both leases are held
+        cache.open(file("b.ome.tif")).close();
+        assertEquals(1, cache.getStats().evictions());
+        verify(server, never()).close();
+
+        first.close();
+        // Releasing a lease twice must not count as the second lease
+        first.close();
+        verify(server, never()).close();
+
+        second.close();
+        verify(server).close();
+    }
+
+    @Test
+    void testModifiedFileIsOpenedAgain() throws Exception {
+        ImageServerCache cache = cache(2);
+        File file = file("a.ome.tif");
+
+        ImageServer<BufferedImage> before;
+        try (ImageServerCache.Lease lease = cache.open(file)) {
+            before = lease.server();
+        }
+        assertTrue(file.setLastModified(file.lastModified() - 60_000));
+        try (ImageServerCache.Lease lease = cache.open(file)) {
+            assertNotSame(before, lease.server());
+        }
+
+        assertEquals(0, cache.getStats().hits());
+        assertEquals(2, cache.getStats().misses());
+        assertEquals(1, cache.getStats().size());
+        verify(before).close();
+    }
+}
@@ -0,0 +1,71 @@
+package qupath.ext.qpsc.utilities;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the acquisition disk space and throughput preflight.
+ */
+class StoragePreflightTest {
+
+    private static final long MB = 1L << 20;
+    private static final long GB = 1L << 30;
+
+    @Test
+    void testEstimate() {
+        // 1000 images of 3 MB in regions of at most 100 images, 10% overlap
+        StoragePreflight.Estimate estimate = StoragePreflight.estimate(1000, 3 * MB, 100, 10, true, true, 0);
+        assertEquals(3000 * MB, estimate.rawTiles());
+        assertEquals(3000 * MB, estimate.flatFieldCopy());
+        assertEquals(3000 * MB, estimate.archive());
+        assertEquals((long) (3000 * MB * 0.81 * 4 / 3), estimate.stitched(), 1);
+        assertEquals(3 * 3000 * MB + estimate.stitched(), estimate.peak());
+        // Two regions of tiles plus their uncorrected copies
+        assertEquals(2 * 200 * 3 * MB + estimate.stitched(), estimate.peakDeletingTiles());
+    }
+
+    @Test
+    void testEstimate_SingleRegion() {
+        StoragePreflight.Estimate estimate = StoragePreflight.estimate(100, MB, 100, 0, false, false, 0);
+        assertEquals(0, estimate.flatFieldCopy());
+        assertEquals(0, estimate.derived());
+        assertEquals(0, estimate.archive());
+        assertEquals(estimate.peak(), estimate.peakDeletingTiles());
+    }
+
+    @Test
+    void testEstimate_DerivedImages() {
+        // Two 16-bit derived images per tile of four 3-channel 8-bit angles
+        long derivedPerImage = 2 * MB * 2 / 4;
+        StoragePreflight.Estimate estimate = StoragePreflight.estimate(400, 3 * MB, 400, 0, false, false, derivedPerImage);
+        assertEquals(400 * MB * 4 / 3, estimate.derived(), 1);
+        assertEquals(estimate.rawTiles() + estimate.stitched() + estimate.derived(), estimate.peak());
+        assertEquals(estimate.peak(), estimate.peakDeletingTiles());
+    }
+
+    @Test
+    void testRequiredThroughput() {
+        assertEquals(50.0, StoragePreflight.requiredThroughput(5 * MB, 100), 1e-9);
+        assertTrue(Double.isNaN(StoragePreflight.requiredThroughput(5 * MB, 0)));
+    }
+
+    @Test
+    void testEvaluate() {
+        StoragePreflight.Estimate estimate = new StoragePreflight.Estimate(0, 0, 0, 0, 0, 10 * GB, 4 * GB);
+        assertEquals(StoragePreflight.Verdict.OK,
+                StoragePreflight.evaluate(estimate, 20 * GB, 500, 100).verdict());
+        assertEquals(StoragePreflight.Verdict.OK,
+                StoragePreflight.evaluate(estimate, 20 * GB, Double.NaN, 100).verdict());
+        assertEquals(StoragePreflight.Verdict.SLOW_DISK,
+                StoragePreflight.evaluate(estimate, 20 * GB, 50, 100).verdict());
+        // An unknown image rate cannot make the disk too slow
+        assertEquals(StoragePreflight.Verdict.OK,
+                StoragePreflight.evaluate(estimate, 20 * GB, 50, Double.NaN).verdict());
+        assertEquals(StoragePreflight.Verdict.DELETE_TILES,
+                StoragePreflight.evaluate(estimate, 8 * GB, 500, 100).verdict());
+        // The reserve counts against free space
+        assertEquals(StoragePreflight.Verdict.REFUSE,
+                StoragePreflight.evaluate(estimate, 4 * GB + MB, 500, 100).verdict());
+    }
+}
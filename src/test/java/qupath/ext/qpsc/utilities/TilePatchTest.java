@@ -0,0 +1,111 @@
+package qupath.ext.qpsc.utilities;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for re-acquiring a subset of a region's tiles.
+ */
+class TilePatchTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path region() throws Exception {
+        Path region = tempDir.resolve("Tissue_1");
+        Files.createDirectories(region.resolve("0"));
+        Files.createDirectories(region.resolve("90"));
+        Files.write(region.resolve("TileConfiguration.txt"), List.of(
+                "dim = 2",
+                "0.tif; ; (100.000, 200.000)",
+                "1.tif; ; (300.000, 200.000)",
+                "2.tif; ; (500.000, 200.000)"));
+        for (String angle : List.of("0", "90")) {
+            for (int i = 0; i < 3; i++) {
+                Files.writeString(region.resolve(angle).resolve(i + ".tif"), "old " + i);
+            }
+        }
+        return region;
+    }
+
+    @Test
+    void testMissingTiles() throws Exception {
+        Path region = region();
+        // A complete region needs nothing, even if its completion was not journaled
+        assertTrue(TilePatch.missingTiles(region, List.of("0", "90")).isEmpty());
+        // The last tile before the gap may have been cut short; a gap inside a complete angle may not
+        Files.delete(region.resolve("90").resolve("2.tif"));
+        Files.write(region.resolve("0").resolve("1.tif"), new byte[0]);
+        assertEquals(List.of(1, 2), TilePatch.missingTiles(region, List.of("0", "90")));
+        Files.writeString(region.resolve("0").resolve("1.tif"), "old 1");
+        assertEquals(List.of(1, 2), TilePatch.missingTiles(region, List.of("0", "90")));
+        Files.delete(region.resolve("90").resolve("1.tif"));
+        assertEquals(List.of(0, 1, 2), TilePatch.missingTiles(region, List.of("0", "90")));
+        assertTrue(TilePatch.missingTiles(tempDir.resolve("none"), List.of()).isEmpty());
+    }
+
+    @Test
+    void testFlaggedTiles() throws Exception {
+        Path region = region();
+        assertTrue(TilePatch.flaggedTiles(region).isEmpty());
+        Files.write(region.resolve(TileQualityMonitor.RESULTS_FILE), List.of(
+                "angle,file,tile_index,stage_x,stage_y,focus,saturated_fraction,tissue_fraction,flags",
+                "0,0.tif,0,100.000,200.000,1.0,0.0,0.5,",
+                "0,1.tif,1,300.000,200.000,1.0,0.0,0.0,BLANK",
+                "0,2.tif,2,500.000,200.000,0.1,0.0,0.5,OUT_OF_FOCUS",
+                "90,0.tif,0,100.000,200.000,1.0,0.2,0.5,SATURATED",
+                "90,2.tif,2,500.000,200.000,0.1,0.0,0.5,OUT_OF_FOCUS"));
+        assertEquals(List.of(0, 2), TilePatch.flaggedTiles(region));
+    }
+
+    @Test
+    void testParseTileIndices() {
+        assertEquals(List.of(3, 5, 8, 9, 10), TilePatch.parseTileIndices(" 5, 3;8-10 5"));
+        assertEquals(List.of(), TilePatch.parseTileIndices(""));
+        assertThrows(IllegalArgumentException.class, () -> TilePatch.parseTileIndices("3, x"));
+        assertThrows(IllegalArgumentException.class, () -> TilePatch.parseTileIndices("9-4"));
+        assertThrows(IllegalArgumentException.class, () -> TilePatch.parseTileIndices("-2"));
+    }
+
+    @Test
+    void testPatchAndMerge() throws Exception {
+        Path region = region();
+        Path patch = tempDir.resolve(TilePatch.patchRegionName("Tissue_1"));
+        Map<String, double[]> selected = TilePatch.writePatchConfiguration(region, patch, List.of(2, 0, 7));
+
+        assertEquals(List.of("0.tif", "2.tif"), List.copyOf(selected.keySet()));
+        assertEquals(List.of("dim = 2", "0.tif; ; (100.000, 200.000)", "2.tif; ; (500.000, 200.000)"),
+                Files.readAllLines(patch.resolve("TileConfiguration.txt")));
+
+        // The server writes the patch tiles; angle 90 lost tile 2
+        for (String angle : List.of("0", "90")) {
+            Files.createDirectories(patch.resolve(angle));
+            Files.writeString(patch.resolve(angle).resolve("0.tif"), "new 0");
+        }
+        Files.writeString(patch.resolve("0").resolve("2.tif"), "new 2");
+
+        int merged = TilePatch.mergeTiles(patch, region, List.of("0", "90"), selected.keySet());
+        assertEquals(3, merged);
+        assertFalse(Files.exists(patch));
+        assertEquals("new 0", Files.readString(region.resolve("0").resolve("0.tif")));
+        assertEquals("new 0", Files.readString(region.resolve("90").resolve("0.tif")));
+        assertEquals("old 1", Files.readString(region.resolve("0").resolve("1.tif")));
+        assertEquals("new 2", Files.readString(region.resolve("0").resolve("2.tif")));
+        assertEquals("old 2", Files.readString(region.resolve("90").resolve("2.tif")));
+    }
+
+    @Test
+    void testWritePatchConfiguration_NoMatchingTiles() throws Exception {
+        Path region = region();
+        assertThrows(IOException.class, () ->
+                TilePatch.writePatchConfiguration(region, tempDir.resolve("patch"), List.of(9)));
+    }
+}
@@ -0,0 +1,162 @@
+package qupath.ext.qpsc.utilities;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the real-time tile QC.
+ */
+class TileQualityMonitorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static final int SIZE = 64;
+    private static final int BACKGROUND = 230;
+
+    /**
+     * Bright background on the left half; on the right half either fine random texture
+     * or, when not sharp, a flat tissue-like value.
+     */
+    private static BufferedImage tile(long seed, boolean tissue, boolean sharp) {
+        BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_BYTE_GRAY);
+        WritableRaster raster = image.getRaster();
+        Random random = new Random(seed);
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                int value = BACKGROUND + random.nextInt(3);
+                if (tissue && x >= SIZE / 2) {
+                    value = sharp ? 50 + random.nextInt(100) : 100;
+                }
+                raster.setSample(x, y, 0, value);
+            }
+        }
+        return image;
+    }
+
+    private void writeRegion(List<BufferedImage> tiles) throws Exception {
+        List<String> lines = new ArrayList<>(List.of("dim = 2"));
+        for (int i = 0; i < tiles.size(); i++) {
+            assertTrue(ImageIO.write(tiles.get(i), "tiff", tempDir.resolve(i + ".tif").toFile()));
+            lines.add(String.format("%d.tif; ; (%d.0, 50.0)", i, i * 100));
+        }
+        Files.write(tempDir.resolve("TileConfiguration.txt"), lines);
+    }
+
+    @Test
+    void testFinish_FlagsProblemTiles() throws Exception {
+        List<BufferedImage> tiles = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            tiles.add(tile(i, true, true));
+        }
+        tiles.add(tile(6, true, false));   // 6: out of focus
+        tiles.add(tile(7, false, false));  // 7: blank
+        BufferedImage saturated = tile(8, true, true);
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 16; x++) {
+                saturated.getRaster().setSample(x, y, 0, 255);
+            }
+        }
+        tiles.add(saturated);              // 8: 3% saturated
+        writeRegion(tiles);
+
+        List<TileQualityMonitor.TileQuality> live = new ArrayList<>();
+        TileQualityMonitor monitor = TileQualityMonitor.start(tempDir, List.of(), 0, 4,
+                (tile, summary) -> {
+                    synchronized (live) {
+                        live.add(tile);
+                    }
+                });
+        TileQualityMonitor.Report report = monitor.finish().get(30, TimeUnit.SECONDS);
+
+        assertEquals(tiles.size(), report.tiles().size());
+        assertEquals(tiles.size(), live.size());
+        Map<Integer, TileQualityMonitor.TileQuality> byIndex = report.tiles().stream()
+                .collect(Collectors.toMap(TileQualityMonitor.TileQuality::tileIndex, Function.identity()));
+        for (int i = 0; i < 6; i++) {
+            assertTrue(byIndex.get(i).flags().isEmpty(), "tile " + i + ": " + byIndex.get(i).flags());
+            assertEquals(0.5, byIndex.get(i).tissueFraction(), 0.05);
+        }
+        assertEquals(Set.of(TileQualityMonitor.Flag.OUT_OF_FOCUS), byIndex.get(6).flags());
+        assertEquals(Set.of(TileQualityMonitor.Flag.BLANK), byIndex.get(7).flags());
+        assertEquals(Set.of(TileQualityMonitor.Flag.SATURATED), byIndex.get(8).flags());
+        assertEquals(600.0, byIndex.get(6).stageX());
+
+        assertEquals(List.of(6, 8), report.tilesToReacquire());
+        TileQualityMonitor.Summary summary = report.summary();
+        assertEquals(new TileQualityMonitor.Summary(9, 1, 1, 1), summary);
+
+        List<String> csv = Files.readAllLines(tempDir.resolve(TileQualityMonitor.RESULTS_FILE));
+        assertEquals(tiles.size() + 1, csv.size());
+        assertTrue(csv.get(0).startsWith("angle,file,tile_index"));
+        assertTrue(csv.get(8).endsWith(",BLANK"), csv.get(8));
+    }
+
+    @Test
+    void testOnTilesArrived_WaitsForTileConfiguration() throws Exception {
+        TileQualityMonitor monitor = TileQualityMonitor.start(tempDir, List.of("0", "90"), 0, 4, null);
+        monitor.onTilesArrived();
+        TileQualityMonitor.Report report = monitor.finish().get(30, TimeUnit.SECONDS);
+        assertTrue(report.tiles().isEmpty());
+        assertTrue(report.tilesToReacquire().isEmpty());
+    }
+
+    @Test
+    void testFinish_SkipsMissingTiles() throws Exception {
+        List<BufferedImage> tiles = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            tiles.add(tile(i, true, true));
+        }
+        writeRegion(tiles);
+        Files.delete(tempDir.resolve("1.tif"));
+        Files.delete(tempDir.resolve("3.tif"));
+
+        TileQualityMonitor monitor = TileQualityMonitor.start(tempDir, List.of(), 0, 4, null);
+        TileQualityMonitor.Report report = monitor.finish().get(30, TimeUnit.SECONDS);
+
+        assertEquals(List.of(0, 2), report.tiles().stream().map(TileQualityMonitor.TileQuality::tileIndex).toList());
+    }
+
+    @Test
+    void testRecheck_RewritesResultsAfterPatch() throws Exception {
+        List<BufferedImage> tiles = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            tiles.add(tile(i, true, true));
+        }
+        tiles.add(tile(6, true, false));
+        writeRegion(tiles);
+        TileQualityMonitor.start(tempDir, List.of(), 0, 4, null).finish().get(30, TimeUnit.SECONDS);
+        assertEquals(List.of(6), TilePatch.flaggedTiles(tempDir));
+
+        // A patch acquisition replaced the blurred tile
+        assertTrue(ImageIO.write(tile(16, true, true), "tiff", tempDir.resolve("6.tif").toFile()));
+        TileQualityMonitor.Report report = TileQualityMonitor.recheck(tempDir, List.of(), 0)
+                .get(30, TimeUnit.SECONDS);
+
+        assertEquals(tiles.size(), report.tiles().size());
+        assertTrue(report.tilesToReacquire().isEmpty());
+        assertTrue(TilePatch.flaggedTiles(tempDir).isEmpty());
+    }
+
+    @Test
+    void testTileIndex() {
+        assertEquals(12, TileQualityMonitor.tileIndex("12.tif"));
+        assertEquals(-1, TileQualityMonitor.tileIndex("background.tif"));
+    }
+}
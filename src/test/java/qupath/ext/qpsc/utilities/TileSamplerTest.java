@@ -0,0 +1,189 @@
+package qupath.ext.qpsc.utilities;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the subsampled tile reader.
+ */
+class TileSamplerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static BufferedImage gray16(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_USHORT_GRAY);
+        WritableRaster raster = image.getRaster();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                raster.setSample(x, y, 0, x * 1000 + y);
+            }
+        }
+        return image;
+    }
+
+    @Test
+    void testSample_Uncompressed16Bit() throws Exception {
+        Path file = tempDir.resolve("0.tif");
+        assertTrue(ImageIO.write(gray16(64, 32), "tiff", file.toFile()));
+
+        TileSampler.Sample sample = TileSampler.sample(file, 16);
+        assertFalse(sample.fullDecode());
+        assertEquals(4, sample.step());
+        assertEquals(16, sample.width());
+        assertEquals(8, sample.height());
+        assertEquals(16, sample.bitsPerSample());
+        // Pixel (8, 4) of the tile
+        assertEquals(8 * 1000 + 4, sample.values()[1 * 16 + 2]);
+        // Columns 0, 4, ..., 60 average 30000; rows 0, 4, ..., 28 average 14
+        assertEquals(30014.0 / 65535, sample.stats().mean(), 1e-9);
+        assertEquals(0, sample.stats().saturatedFraction());
+        // Columns at 60000 and above count as saturated for a 60000 threshold
+        TileSampler.Sample clipped = TileSampler.sample(file, 16, 60000, TileSampler.FocusMetric.LAPLACIAN_VARIANCE);
+        assertEquals(1.0 / 16, clipped.stats().saturatedFraction(), 1e-9);
+    }
+
+    @Test
+    void testSample_CompressedFallsBackToDecode() throws Exception {
+        Path file = tempDir.resolve("lzw.tif");
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("tiff").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionType("LZW");
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(file.toFile())) {
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(gray16(64, 32), null, null), param);
+        } finally {
+            writer.dispose();
+        }
+
+        TileSampler.Sample sample = TileSampler.sample(file, 16);
+        assertTrue(sample.fullDecode());
+        assertEquals(8 * 1000 + 4, sample.values()[1 * 16 + 2]);
+    }
+
+    @Test
+    void testSample_Rgb() throws Exception {
+        BufferedImage image = new BufferedImage(100, 40, BufferedImage.TYPE_3BYTE_BGR);
+        for (int y = 0; y < 40; y++) {
+            for (int x = 0; x < 100; x++) {
+                image.setRGB(x, y, x < 50 ? 0xFF0000 : 0x00FF00);
+            }
+        }
+        Path file = tempDir.resolve("rgb.tif");
+        assertTrue(ImageIO.write(image, "tiff", file.toFile()));
+
+        TileSampler.Sample sample = TileSampler.sample(file, 16);
+        // Every 7th pixel: ceil(100 / 7) x ceil(40 / 7)
+        assertEquals(15, sample.width());
+        assertEquals(6, sample.height());
+        assertEquals(3, sample.channels());
+        int[] argb = sample.toArgb();
+        assertEquals(0xFFFF0000, argb[0]);
+        assertEquals(0xFF00FF00, argb[14]);
+    }
+
+    @Test
+    void testSample_FocusPrefersSharpImage() throws Exception {
+        // Fine random texture against a smooth ramp
+        BufferedImage sharp = new BufferedImage(32, 32, BufferedImage.TYPE_BYTE_GRAY);
+        BufferedImage smooth = new BufferedImage(32, 32, BufferedImage.TYPE_BYTE_GRAY);
+        Random random = new Random(1);
+        for (int y = 0; y < 32; y++) {
+            for (int x = 0; x < 32; x++) {
+                sharp.getRaster().setSample(x, y, 0, 50 + random.nextInt(150));
+                smooth.getRaster().setSample(x, y, 0, 100 + x + y);
+            }
+        }
+        Path sharpFile = tempDir.resolve("sharp.tif");
+        Path smoothFile = tempDir.resolve("smooth.tif");
+        ImageIO.write(sharp, "tiff", sharpFile.toFile());
+        ImageIO.write(smooth, "tiff", smoothFile.toFile());
+
+        for (TileSampler.FocusMetric metric : TileSampler.FocusMetric.values()) {
+            double sharpFocus = TileSampler.sample(sharpFile, 8, 0, metric).stats().focus();
+            double smoothFocus = TileSampler.sample(smoothFile, 8, 0, metric).stats().focus();
+            assertTrue(sharpFocus > 10 * smoothFocus, metric.getConfigName());
+        }
+    }
+
+    @Test
+    void testSample_UsesReducedIfd() throws Exception {
+        // 64 x 64 full level of zeros followed by a 16 x 16 reduced level of 7s
+        Path file = tempDir.resolve("pyramid.tif");
+        Files.write(file, twoLevelTiff(64, 16));
+
+        TileSampler.Sample sample = TileSampler.sample(file, 16);
+        assertEquals(1, sample.step());
+        assertEquals(16, sample.width());
+        assertEquals(7, sample.values()[0]);
+
+        // Asking for more pixels than the reduced level has uses the full level
+        TileSampler.Sample full = TileSampler.sample(file, 32);
+        assertEquals(2, full.step());
+        assertEquals(0, full.values()[0]);
+    }
+
+    @Test
+    void testSample_NotAnImage() throws Exception {
+        Path file = tempDir.resolve("bad.tif");
+        Files.writeString(file, "not a tiff at all");
+        assertThrows(IOException.class, () -> TileSampler.sample(file, 16));
+    }
+
+    /**
+     * Writes a little-endian 8-bit grayscale TIFF with a full level of zeros and a following
+     * IFD flagged as reduced resolution filled with 7s.
+     */
+    private static byte[] twoLevelTiff(int fullSize, int reducedSize) {
+        int ifdBytes = 2 + 9 * 12 + 4;
+        int fullIfd = 8;
+        int reducedIfd = fullIfd + ifdBytes;
+        int fullData = reducedIfd + ifdBytes;
+        int reducedData = fullData + fullSize * fullSize;
+        ByteBuffer buffer = ByteBuffer.allocate(reducedData + reducedSize * reducedSize)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put((byte) 'I').put((byte) 'I').putShort((short) 42).putInt(fullIfd);
+        writeIfd(buffer, fullIfd, 0, fullSize, fullData, reducedIfd);
+        writeIfd(buffer, reducedIfd, 1, reducedSize, reducedData, 0);
+        for (int i = 0; i < reducedSize * reducedSize; i++) {
+            buffer.put(reducedData + i, (byte) 7);
+        }
+        return buffer.array();
+    }
+
+    private static void writeIfd(ByteBuffer buffer, int offset, int subfileType, int size,
+                                 int dataOffset, int next) {
+        int[][] entries = {
+                {254, 4, subfileType}, {256, 3, size}, {257, 3, size}, {258, 3, 8}, {259, 3, 1},
+                {262, 3, 1}, {273, 4, dataOffset}, {277, 3, 1}, {278, 3, size}
+        };
+        buffer.position(offset);
+        buffer.putShort((short) entries.length);
+        for (int[] entry : entries) {
+            buffer.putShort((short) entry[0]).putShort((short) entry[1]).putInt(1);
+            if (entry[1] == 3) {
+                buffer.putShort((short) entry[2]).putShort((short) 0);
+            } else {
+                buffer.putInt(entry[2]);
+            }
+        }
+        buffer.putInt(next);
+    }
+}
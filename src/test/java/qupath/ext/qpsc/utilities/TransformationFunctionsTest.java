@@ -0,0 +1,32 @@
+package qupath.ext.qpsc.utilities;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for TileConfiguration parsing in TransformationFunctions.
+ */
+class TransformationFunctionsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testReadTilePositions() throws Exception {
+        Path config = tempDir.resolve("TileConfiguration.txt");
+        assertNull(TransformationFunctions.readTilePositions(config));
+
+        Files.write(config, List.of("dim = 2", "1.tif; ; (100.500, -20.000)", "0.tif; ; (0.000, 0.000)"));
+        Map<String, double[]> positions = TransformationFunctions.readTilePositions(config);
+        assertEquals(List.of("1.tif", "0.tif"), List.copyOf(positions.keySet()));
+        assertEquals(100.5, positions.get("1.tif")[0]);
+        assertEquals(-20, positions.get("1.tif")[1]);
+    }
+}